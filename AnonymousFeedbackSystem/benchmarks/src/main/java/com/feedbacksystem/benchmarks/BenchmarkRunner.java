@@ -0,0 +1,24 @@
+package com.feedbacksystem.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line and
+ * adds the GC profiler unless another profiler was requested, so every run
+ * reports the allocation rate next to throughput and latency.
+ *
+ * Example: java -jar target/benchmarks.jar FeedbackDAOBenchmark -p rows=10000
+ */
+public class BenchmarkRunner {
+    
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        if (!jmhArgs.contains("-prof")) {
+            jmhArgs.add("-prof");
+            jmhArgs.add("gc");
+        }
+        org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[0]));
+    }
+}
\ No newline at end of file
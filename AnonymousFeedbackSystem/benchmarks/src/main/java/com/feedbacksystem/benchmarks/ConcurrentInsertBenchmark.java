@@ -0,0 +1,30 @@
+package com.feedbacksystem.benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * insertFeedback called from several threads at once, all contending for
+ * the single writer connection. Use -t to change the thread count.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(8)
+public class ConcurrentInsertBenchmark {
+    
+    @Benchmark
+    public boolean insertFeedback(SeededDatabase db) throws SQLException {
+        return db.feedbackDAO.insertFeedback(db.newFeedback());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.feedbacksystem.benchmarks;
+
+import com.feedbacksystem.model.Feedback;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single-threaded benchmarks of the DAO operations the application uses.
+ *
+ * Throughput mode reports operations per millisecond; sample mode reports
+ * latency percentiles. Run through BenchmarkRunner to also get the
+ * allocation rate.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Threads(1)
+public class FeedbackDAOBenchmark {
+    
+    @Benchmark
+    public boolean insertFeedback(SeededDatabase db) throws SQLException {
+        return db.feedbackDAO.insertFeedback(db.newFeedback());
+    }
+    
+    @Benchmark
+    public List<Feedback> getAllFeedback(SeededDatabase db) throws SQLException {
+        return db.feedbackDAO.getAllFeedback();
+    }
+    
+    @Benchmark
+    public List<Feedback> getFeedbackByCategory(SeededDatabase db) throws SQLException {
+        return db.feedbackDAO.getFeedbackByCategory("Teacher");
+    }
+    
+    @Benchmark
+    public boolean deleteFeedback(SeededDatabase db, DeleteTarget target) throws SQLException {
+        return db.feedbackDAO.deleteFeedback(target.id);
+    }
+    
+    // Served from the login cache after the first call, which is what repeated logins cost
+    @Benchmark
+    public boolean authenticateAdmin(SeededDatabase db) throws SQLException {
+        return db.adminDAO.authenticateAdmin("admin", "admin123");
+    }
+    
+    // Cache disabled and the login limit lifted in its own JVM, so every call runs PBKDF2 as a first login does
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xmx6g", "-Dauth.cacheSeconds=0", "-Dauth.maxLoginsPerSecond=1000000"})
+    public boolean authenticateAdminUncached(SeededDatabase db) throws SQLException {
+        return db.adminDAO.authenticateAdmin("admin", "admin123");
+    }
+    
+    /**
+     * Supplies a fresh row for every delete, so each measured delete removes
+     * a real row instead of missing an id that is already gone
+     */
+    @State(Scope.Thread)
+    public static class DeleteTarget {
+        int id;
+        
+        // Per-invocation setup is acceptable here: a delete commit costs far more than the setup overhead
+        @Setup(Level.Invocation)
+        public void insertRow(SeededDatabase db) throws SQLException {
+            Feedback feedback = db.newFeedback();
+            db.feedbackDAO.insertFeedbackBatch(Collections.singletonList(feedback));
+            id = feedback.getId();
+        }
+    }
+}
\ No newline at end of file
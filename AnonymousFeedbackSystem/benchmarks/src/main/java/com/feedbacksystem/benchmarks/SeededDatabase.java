@@ -0,0 +1,128 @@
+package com.feedbacksystem.benchmarks;
+
+import com.feedbacksystem.dao.AdminDAO;
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.SchemaMigrator;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackValidator;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * A temp-file SQLite database seeded with a given number of feedback rows.
+ *
+ * Seeding millions of rows takes minutes, so each size is generated once
+ * into a template under bench.dataDir (default: the temp directory) and
+ * copied for every trial. Benchmarks only ever modify the copy.
+ */
+@State(Scope.Benchmark)
+public class SeededDatabase {
+    /** Dates of seeded rows start here, one minute apart, so runs are comparable */
+    static final long FIRST_DATE_MILLIS = 1700000000000L;
+    
+    private static final String SEED_SQL =
+            "WITH RECURSIVE seq(n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < ?) " +
+            "INSERT INTO feedback (category, message, rating, date_submitted) " +
+            "SELECT CASE n % 4 WHEN 0 THEN 'Teacher' WHEN 1 THEN 'Event' WHEN 2 THEN 'Facility' ELSE 'Other' END, " +
+            "'Seeded benchmark feedback message number ' || n, n % 5 + 1, ? + n * 60000 FROM seq";
+    
+    @Param({"10000", "1000000", "10000000"})
+    public int rows;
+    
+    final FeedbackDAO feedbackDAO = new FeedbackDAO();
+    final AdminDAO adminDAO = new AdminDAO();
+    
+    private final AtomicLong sequence = new AtomicLong();
+    private Path file;
+    
+    @Setup(Level.Trial)
+    public void open() throws IOException, SQLException {
+        Path template = template(rows);
+        file = Files.createTempFile("feedback-bench-" + rows + "-", ".db");
+        Files.copy(template, file, StandardCopyOption.REPLACE_EXISTING);
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + file);
+    }
+    
+    @TearDown(Level.Trial)
+    public void close() throws IOException {
+        DatabaseManager.closeConnection();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Paths.get(file + "-wal"));
+        Files.deleteIfExists(Paths.get(file + "-shm"));
+    }
+    
+    /**
+     * Creates a new submission with a unique message, cycling through the categories
+     * @return Feedback that has not been stored yet
+     */
+    Feedback newFeedback() {
+        long n = sequence.incrementAndGet();
+        String category = FeedbackValidator.CATEGORIES.get((int) (n % FeedbackValidator.CATEGORIES.size()));
+        return new Feedback(category, "Benchmark feedback message number " + n, (int) (n % 5) + 1, new Date());
+    }
+    
+    /**
+     * Returns the seeded template for the given size, creating it on first use
+     */
+    private static Path template(int rows) throws IOException, SQLException {
+        File dataDir = new File(System.getProperty("bench.dataDir",
+                new File(System.getProperty("java.io.tmpdir"), "feedback-bench").getPath()));
+        Path template = new File(dataDir, "feedback-" + rows + ".db").toPath();
+        
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC Driver not found", e);
+        }
+        
+        if (Files.exists(template)) {
+            // Brings templates seeded by an older build up to the current schema
+            try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + template)) {
+                new SchemaMigrator().migrate(conn);
+            }
+            return template;
+        }
+        
+        Files.createDirectories(dataDir.toPath());
+        Path partial = new File(dataDir, "feedback-" + rows + ".db.partial").toPath();
+        Files.deleteIfExists(partial);
+        
+        System.out.println("Seeding " + rows + " feedback rows into " + template + " (one-time)...");
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + partial)) {
+            try (Statement stmt = conn.createStatement()) {
+                // Throwaway file until it is renamed, so durability is not needed here
+                stmt.execute("PRAGMA journal_mode = OFF");
+                stmt.execute("PRAGMA synchronous = OFF");
+            }
+            new SchemaMigrator().migrate(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(SEED_SQL)) {
+                pstmt.setInt(1, rows);
+                pstmt.setLong(2, FIRST_DATE_MILLIS);
+                pstmt.executeUpdate();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ANALYZE");
+            }
+        }
+        Files.move(partial, template, StandardCopyOption.ATOMIC_MOVE);
+        return template;
+    }
+}
\ No newline at end of file
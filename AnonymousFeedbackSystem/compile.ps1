@@ -10,6 +10,12 @@ javac -cp "lib/*;src/main/java" `
     src/main/java/com/feedbacksystem/ui/AdminDashboard.java `
     src/main/java/com/feedbacksystem/dao/FeedbackDAO.java `
     src/main/java/com/feedbacksystem/dao/AdminDAO.java `
+    src/main/java/com/feedbacksystem/dao/StatsMaintenance.java `
+    src/main/java/com/feedbacksystem/export/ExportCommand.java `
+    src/main/java/com/feedbacksystem/retention/RetentionCommand.java `
+    src/main/java/com/feedbacksystem/retention/PartitionCommand.java `
+    src/main/java/com/feedbacksystem/server/FeedbackHttpServer.java `
+    src/main/java/com/feedbacksystem/loadtest/LoadGenerator.java `
     src/main/java/com/feedbacksystem/db/DatabaseManager.java `
     src/main/java/com/feedbacksystem/model/Feedback.java `
     src/main/java/com/feedbacksystem/model/Admin.java
@@ -1,18 +1,200 @@
--- Create admin table
+-- Reference schema for the Anonymous Feedback System.
+-- The application creates and upgrades the schema itself at startup using the
+-- versioned migrations in com.feedbacksystem.db.SchemaMigrator; this file shows
+-- the resulting schema for documentation and manual inspection only.
+
+-- Freed pages are returned to the file system by the retention purge
+PRAGMA auto_vacuum = INCREMENTAL;
+
+-- Applied schema migrations
+CREATE TABLE schema_version (
+    version INTEGER PRIMARY KEY,
+    description TEXT NOT NULL,
+    applied_at INTEGER NOT NULL
+);
+
+-- Create admin table. password is no longer used and left NULL; password_hash holds
+-- pbkdf2-sha256$iterations$salt$hash
 CREATE TABLE admin (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     username VARCHAR(50),
-    password VARCHAR(50)
+    password VARCHAR(50),
+    password_hash TEXT
 );
 
--- Create feedback table
+CREATE UNIQUE INDEX idx_admin_username ON admin (username);
+
+-- Create feedback table (date_submitted holds epoch milliseconds).
+-- duplicate_of is the id of the original of a flagged near-duplicate;
+-- duplicate_count counts the near-duplicates collapsed into a row.
+-- submission_id is set by the ingestor so a journaled submission is stored only once.
 CREATE TABLE feedback (
     id INTEGER PRIMARY KEY AUTOINCREMENT,
     category VARCHAR(50),
     message TEXT,
     rating INTEGER,
-    date_submitted DATE
+    date_submitted INTEGER NOT NULL,
+    duplicate_of INTEGER,
+    duplicate_count INTEGER NOT NULL DEFAULT 0,
+    submission_id TEXT
 );
 
--- Insert default admin user (username: admin, password: admin123)
+CREATE INDEX idx_feedback_date_id ON feedback (date_submitted, id);
+CREATE INDEX idx_feedback_category_date_id ON feedback (category, date_submitted, id);
+CREATE UNIQUE INDEX idx_feedback_submission_id ON feedback (submission_id) WHERE submission_id IS NOT NULL;
+
+-- Rating aggregates per category and UTC day (day = date_submitted / 86400000),
+-- kept in sync with feedback by the triggers below. Flagged near-duplicates are not counted.
+CREATE TABLE feedback_daily_stats (
+    category TEXT NOT NULL,
+    day INTEGER NOT NULL,
+    feedback_count INTEGER NOT NULL,
+    rating_sum INTEGER NOT NULL,
+    rating_1 INTEGER NOT NULL,
+    rating_2 INTEGER NOT NULL,
+    rating_3 INTEGER NOT NULL,
+    rating_4 INTEGER NOT NULL,
+    rating_5 INTEGER NOT NULL,
+    PRIMARY KEY (category, day)
+) WITHOUT ROWID;
+
+CREATE INDEX idx_feedback_daily_stats_day ON feedback_daily_stats (day, category);
+
+CREATE TRIGGER feedback_stats_insert AFTER INSERT ON feedback WHEN NEW.duplicate_of IS NULL BEGIN
+    INSERT INTO feedback_daily_stats VALUES (IFNULL(NEW.category, ''), NEW.date_submitted / 86400000, 1,
+        IFNULL(NEW.rating, 0), NEW.rating IS 1, NEW.rating IS 2, NEW.rating IS 3, NEW.rating IS 4, NEW.rating IS 5)
+    ON CONFLICT (category, day) DO UPDATE SET
+        feedback_count = feedback_count + 1,
+        rating_sum = rating_sum + excluded.rating_sum,
+        rating_1 = rating_1 + excluded.rating_1,
+        rating_2 = rating_2 + excluded.rating_2,
+        rating_3 = rating_3 + excluded.rating_3,
+        rating_4 = rating_4 + excluded.rating_4,
+        rating_5 = rating_5 + excluded.rating_5;
+END;
+
+CREATE TRIGGER feedback_stats_delete AFTER DELETE ON feedback WHEN OLD.duplicate_of IS NULL BEGIN
+    UPDATE feedback_daily_stats SET
+        feedback_count = feedback_count - 1,
+        rating_sum = rating_sum - IFNULL(OLD.rating, 0),
+        rating_1 = rating_1 - (OLD.rating IS 1),
+        rating_2 = rating_2 - (OLD.rating IS 2),
+        rating_3 = rating_3 - (OLD.rating IS 3),
+        rating_4 = rating_4 - (OLD.rating IS 4),
+        rating_5 = rating_5 - (OLD.rating IS 5)
+    WHERE category = IFNULL(OLD.category, '') AND day = OLD.date_submitted / 86400000;
+    DELETE FROM feedback_daily_stats
+    WHERE category = IFNULL(OLD.category, '') AND day = OLD.date_submitted / 86400000 AND feedback_count <= 0;
+END;
+
+-- feedback_stats_update (AFTER UPDATE OF category, rating, date_submitted, WHEN OLD.duplicate_of
+-- IS NULL) runs the delete steps for OLD followed by the insert step for NEW
+
+-- Full-text index over feedback messages; the text itself stays in feedback
+CREATE VIRTUAL TABLE feedback_fts USING fts5(
+    message,
+    content = 'feedback',
+    content_rowid = 'id',
+    tokenize = 'unicode61 remove_diacritics 2'
+);
+
+CREATE TRIGGER feedback_fts_insert AFTER INSERT ON feedback BEGIN
+    INSERT INTO feedback_fts (rowid, message) VALUES (NEW.id, NEW.message);
+END;
+
+CREATE TRIGGER feedback_fts_delete AFTER DELETE ON feedback BEGIN
+    INSERT INTO feedback_fts (feedback_fts, rowid, message) VALUES ('delete', OLD.id, OLD.message);
+END;
+
+CREATE TRIGGER feedback_fts_update AFTER UPDATE OF message ON feedback BEGIN
+    INSERT INTO feedback_fts (feedback_fts, rowid, message) VALUES ('delete', OLD.id, OLD.message);
+    INSERT INTO feedback_fts (rowid, message) VALUES (NEW.id, NEW.message);
+END;
+
+-- Change mark for delta refreshes of the admin dashboard. version counts writes
+-- to feedback; a client whose last seen version is below reset_version must reload
+CREATE TABLE feedback_data_version (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    version INTEGER NOT NULL,
+    reset_version INTEGER NOT NULL
+);
+
+INSERT INTO feedback_data_version (id, version, reset_version) VALUES (1, 0, 0);
+
+-- One row per deleted feedback entry, tagged with the version that deleted it.
+-- rating and duplicate_of let the rating trends take the entry back out
+CREATE TABLE feedback_tombstone (
+    id INTEGER PRIMARY KEY,
+    category TEXT,
+    date_submitted INTEGER NOT NULL,
+    version INTEGER NOT NULL,
+    rating INTEGER,
+    duplicate_of INTEGER
+);
+
+CREATE INDEX idx_feedback_tombstone_version ON feedback_tombstone (version);
+
+CREATE TRIGGER feedback_version_insert AFTER INSERT ON feedback BEGIN
+    UPDATE feedback_data_version SET version = version + 1 WHERE id = 1;
+END;
+
+CREATE TRIGGER feedback_version_delete AFTER DELETE ON feedback BEGIN
+    UPDATE feedback_data_version SET version = version + 1 WHERE id = 1;
+    INSERT OR REPLACE INTO feedback_tombstone (id, category, date_submitted, rating, duplicate_of, version)
+    VALUES (OLD.id, OLD.category, OLD.date_submitted, OLD.rating, OLD.duplicate_of,
+            (SELECT version FROM feedback_data_version WHERE id = 1));
+END;
+
+CREATE TRIGGER feedback_version_update AFTER UPDATE OF category, message, rating, date_submitted ON feedback BEGIN
+    UPDATE feedback_data_version SET version = version + 1, reset_version = version + 1 WHERE id = 1;
+END;
+
+-- Position up to which each submission log or journal has been copied into feedback
+CREATE TABLE submission_log_checkpoint (
+    log TEXT PRIMARY KEY,
+    position INTEGER NOT NULL
+);
+
+-- Sentiment and keywords of each analyzed feedback entry. terms is the JSON
+-- array of keywords counted in feedback_keyword_stats; empty for near-duplicates
+CREATE TABLE feedback_analysis (
+    id INTEGER PRIMARY KEY,
+    category TEXT NOT NULL,
+    sentiment REAL NOT NULL,
+    terms TEXT NOT NULL
+);
+
+CREATE INDEX idx_feedback_analysis_sentiment ON feedback_analysis (sentiment, id);
+CREATE INDEX idx_feedback_analysis_category_sentiment ON feedback_analysis (category, sentiment, id);
+
+-- Number of analyzed entries per category using each keyword
+CREATE TABLE feedback_keyword_stats (
+    category TEXT NOT NULL,
+    term TEXT NOT NULL,
+    documents INTEGER NOT NULL,
+    sentiment_sum REAL NOT NULL,
+    PRIMARY KEY (category, term)
+) WITHOUT ROWID;
+
+CREATE INDEX idx_feedback_keyword_stats_rank ON feedback_keyword_stats (category, documents DESC, term);
+
+-- Id up to which feedback has been analyzed
+CREATE TABLE feedback_analysis_checkpoint (
+    id INTEGER PRIMARY KEY CHECK (id = 1),
+    last_id INTEGER NOT NULL
+);
+
+INSERT INTO feedback_analysis_checkpoint (id, last_id) VALUES (1, 0);
+
+CREATE TRIGGER feedback_analysis_delete AFTER DELETE ON feedback BEGIN
+    UPDATE feedback_keyword_stats SET documents = documents - 1,
+        sentiment_sum = sentiment_sum - (SELECT sentiment FROM feedback_analysis WHERE id = OLD.id)
+    WHERE category = IFNULL(OLD.category, '') AND term IN (
+        SELECT value FROM json_each((SELECT terms FROM feedback_analysis WHERE id = OLD.id)));
+    DELETE FROM feedback_keyword_stats WHERE category = IFNULL(OLD.category, '') AND documents <= 0;
+    DELETE FROM feedback_analysis WHERE id = OLD.id;
+END;
+
+-- Insert default admin user (username: admin, password: admin123).
+-- The application hashes the password when it migrates the schema.
 INSERT INTO admin (username, password) VALUES ('admin', 'admin123');
\ No newline at end of file
@@ -0,0 +1,214 @@
+package com.feedbacksystem.analysis;
+
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.dao.Repositories;
+import com.feedbacksystem.dao.TextAnalysisDAO;
+import com.feedbacksystem.model.Feedback;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Analyzes feedback messages in the background and stores their sentiment
+ * and keywords through TextAnalysisDAO.
+ *
+ * Entries are read in id order in chunks. Each chunk is analyzed in
+ * parallel on a dedicated ForkJoinPool and stored in one transaction
+ * together with the checkpoint, so after a restart the work resumes where
+ * it stopped. The first run works through the existing backlog; later runs
+ * pick up new submissions every few seconds. Several processes may run the
+ * service against the same database; an entry is only counted once.
+ */
+public class FeedbackAnalysisService {
+    // Below this many entries a task analyzes them itself instead of splitting
+    private static final int SPLIT_THRESHOLD = 64;
+    
+    private final TextAnalysisDAO analysisDAO;
+    private final TextAnalyzer analyzer;
+    private final int chunkSize;
+    private final ForkJoinPool pool;
+    private ScheduledExecutorService scheduler;
+    
+    /**
+     * @param analysisDAO DAO used to read entries and store the results
+     * @param analyzer Analyzer applied to each message
+     * @param chunkSize Maximum number of entries analyzed and stored per transaction
+     * @param parallelism Number of threads analyzing a chunk
+     */
+    public FeedbackAnalysisService(TextAnalysisDAO analysisDAO, TextAnalyzer analyzer, int chunkSize,
+                                   int parallelism) {
+        this.analysisDAO = analysisDAO;
+        this.analyzer = analyzer;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pool = new ForkJoinPool(Math.max(1, parallelism), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("feedback-analysis-worker-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        }, null, false);
+    }
+    
+    /**
+     * Creates a service configured from feedback.properties
+     * (analysis.chunkSize, analysis.parallelism and analysis.lexiconFile)
+     * @return New FeedbackAnalysisService
+     */
+    public static FeedbackAnalysisService fromConfig() {
+        return new FeedbackAnalysisService(new TextAnalysisDAO(), TextAnalyzer.fromConfig(),
+                AppConfig.getInt("analysis.chunkSize", 2000),
+                AppConfig.getInt("analysis.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+    
+    /**
+     * Starts analyzing every analysis.intervalSeconds unless analysis.enabled
+     * is false, and stops when the JVM exits. The in-memory backend has no
+     * analysis tables, so nothing is started for it.
+     * @return The running service, or null if analysis is disabled
+     */
+    public static FeedbackAnalysisService startFromConfig() {
+        if (!AppConfig.getBoolean("analysis.enabled", true) || Repositories.isInMemory()) {
+            return null;
+        }
+        final FeedbackAnalysisService service = fromConfig();
+        service.start(AppConfig.getLong("analysis.intervalSeconds", 5));
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.stop();
+            }
+        }, "feedback-analysis-shutdown"));
+        return service;
+    }
+    
+    /**
+     * Runs the analysis periodically on a background thread, starting
+     * straight away with any backlog
+     * @param intervalSeconds Seconds between the end of one run and the start of the next
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feedback-analysis");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long start = System.currentTimeMillis();
+                    int analyzed = runOnce();
+                    if (analyzed >= chunkSize) {
+                        System.out.println("Analyzed " + analyzed + " feedback entries in "
+                                + (System.currentTimeMillis() - start) + " ms");
+                    }
+                } catch (SQLException e) {
+                    // Try again at the next run; the checkpoint only covers stored chunks
+                    e.printStackTrace();
+                }
+            }
+        }, 0, Math.max(1, intervalSeconds), TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Stops the schedule after the chunk in progress
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        pool.shutdown();
+    }
+    
+    /**
+     * Analyzes every entry after the checkpoint, chunk by chunk, until it
+     * has caught up or the thread is interrupted
+     * @return Number of entries analyzed and stored
+     * @throws SQLException if database operation fails
+     */
+    public int runOnce() throws SQLException {
+        long checkpoint = analysisDAO.getCheckpoint();
+        int stored = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Feedback> chunk = analysisDAO.getPending(checkpoint, chunkSize);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            checkpoint = chunk.get(chunk.size() - 1).getId();
+            stored += analysisDAO.storeChunk(chunk, analyze(chunk), checkpoint);
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+        }
+        return stored;
+    }
+    
+    /**
+     * Analyzes the messages of a chunk on the pool
+     * @param chunk Entries to analyze
+     * @return Their analyses, in the same order
+     */
+    public List<MessageAnalysis> analyze(List<Feedback> chunk) {
+        MessageAnalysis[] results = new MessageAnalysis[chunk.size()];
+        pool.invoke(new AnalyzeTask(chunk, results, 0, chunk.size()));
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Number of entries not analyzed yet
+     * @return Entries after the checkpoint
+     * @throws SQLException if database operation fails
+     */
+    public int countPending() throws SQLException {
+        return analysisDAO.countPending(analysisDAO.getCheckpoint());
+    }
+    
+    /**
+     * Analyzes a range of a chunk, splitting it in halves while it is large
+     */
+    private class AnalyzeTask extends RecursiveAction {
+        private final List<Feedback> chunk;
+        private final MessageAnalysis[] results;
+        private final int from;
+        private final int to;
+        
+        AnalyzeTask(List<Feedback> chunk, MessageAnalysis[] results, int from, int to) {
+            this.chunk = chunk;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    Feedback feedback = chunk.get(i);
+                    results[i] = analyzer.analyze(feedback.getId(), feedback.getMessage());
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new AnalyzeTask(chunk, results, from, middle),
+                      new AnalyzeTask(chunk, results, middle, to));
+        }
+    }
+}
\ No newline at end of file
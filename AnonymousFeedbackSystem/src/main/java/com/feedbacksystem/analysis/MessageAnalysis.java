@@ -0,0 +1,35 @@
+package com.feedbacksystem.analysis;
+
+import java.util.List;
+
+/**
+ * Sentiment and keywords of one feedback message
+ */
+public class MessageAnalysis {
+    private final int feedbackId;
+    private final double sentiment;
+    private final List<String> terms;
+    
+    /**
+     * @param feedbackId The feedback entry analyzed
+     * @param sentiment Score from -1 (negative) to 1 (positive), 0 if neutral
+     * @param terms Distinct keywords and two-word phrases of the message
+     */
+    public MessageAnalysis(int feedbackId, double sentiment, List<String> terms) {
+        this.feedbackId = feedbackId;
+        this.sentiment = sentiment;
+        this.terms = terms;
+    }
+    
+    public int getFeedbackId() {
+        return feedbackId;
+    }
+    
+    public double getSentiment() {
+        return sentiment;
+    }
+    
+    public List<String> getTerms() {
+        return terms;
+    }
+}
\ No newline at end of file
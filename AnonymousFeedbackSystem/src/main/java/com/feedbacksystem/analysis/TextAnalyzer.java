@@ -0,0 +1,282 @@
+package com.feedbacksystem.analysis;
+
+import com.feedbacksystem.config.AppConfig;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts keywords and a lexicon-based sentiment score from feedback
+ * messages.
+ *
+ * Messages are split into lower-case words. Keywords are the words of at
+ * least three letters that are not stop words, and the pairs of adjacent
+ * keywords ("projector broken"). The sentiment adds up the lexicon weight
+ * of every word, flipped and damped when one of the three words before it
+ * is a negation ("not helpful") and raised after an intensifier ("very
+ * helpful"), then maps the sum into -1 to 1 as VADER does. Scores from
+ * -0.05 to 0.05 count as neutral.
+ *
+ * Instances are immutable and can be shared between threads.
+ */
+public class TextAnalyzer {
+    /** Scores below this are negative */
+    public static final double NEGATIVE_BELOW = -0.05;
+    /** Scores at or above this are positive */
+    public static final double POSITIVE_FROM = 0.05;
+    
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}']+");
+    // Keeps long messages from storing hundreds of terms
+    private static final int MAX_TERMS = 64;
+    private static final int MIN_KEYWORD_LENGTH = 3;
+    private static final int NEGATION_REACH = 3;
+    private static final double NEGATION_FACTOR = -0.74;
+    private static final double INTENSIFIER_FACTOR = 1.3;
+    // Normalization constant of VADER's compound score
+    private static final double ALPHA = 15;
+    
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "about", "above", "after", "again", "all", "also", "am", "an", "and", "any", "are", "as",
+            "at", "be", "because", "been", "before", "being", "below", "between", "both", "but", "by",
+            "can", "could", "did", "do", "does", "doing", "down", "during", "each", "even", "ever", "every",
+            "few", "for", "from", "further", "get", "got", "had", "has", "have", "having", "he", "her",
+            "here", "hers", "him", "his", "how", "however", "i", "if", "in", "into", "is", "it", "its",
+            "just", "let", "like", "made", "make", "many", "may", "me", "might", "more", "most", "much",
+            "must", "my", "of", "off", "on", "once", "one", "only", "or", "other", "our", "ours", "out",
+            "over", "own", "same", "she", "should", "since", "some", "still", "such", "than", "that",
+            "the", "their", "theirs", "them", "then", "there", "these", "they", "thing", "things", "this",
+            "those", "through", "to", "too", "under", "until", "up", "upon", "us", "use", "used", "was",
+            "way", "we", "well", "were", "what", "when", "where", "which", "while", "who", "whom", "why",
+            "will", "with", "would", "yet", "you", "your", "yours", "really", "very", "quite", "lot",
+            "lots", "always", "never", "not", "no", "nor", "don't", "doesn't", "didn't", "isn't", "aren't",
+            "wasn't", "weren't", "can't", "cannot", "won't", "wouldn't", "shouldn't", "couldn't", "i'm",
+            "it's", "i've", "we're", "they're", "there's", "that's", "etc", "please", "think", "feel"));
+    
+    private static final Set<String> NEGATIONS = new HashSet<>(Arrays.asList(
+            "not", "no", "never", "nothing", "nobody", "none", "neither", "nor", "without", "hardly",
+            "barely", "cannot", "can't", "don't", "doesn't", "didn't", "isn't", "aren't", "wasn't",
+            "weren't", "won't", "wouldn't", "shouldn't", "couldn't", "haven't", "hasn't", "hadn't"));
+    
+    private static final Set<String> INTENSIFIERS = new HashSet<>(Arrays.asList(
+            "very", "really", "extremely", "so", "too", "super", "incredibly", "absolutely", "totally",
+            "completely", "highly", "truly", "especially", "particularly"));
+    
+    // Weights from -3 (very negative) to 3 (very positive), in the style of AFINN
+    private static final Object[][] LEXICON = {
+            {"good", 2}, {"great", 3}, {"excellent", 3}, {"amazing", 3}, {"awesome", 3}, {"fantastic", 3},
+            {"wonderful", 3}, {"outstanding", 3}, {"brilliant", 3}, {"perfect", 3}, {"love", 3},
+            {"loved", 3}, {"best", 3}, {"nice", 2}, {"helpful", 2}, {"useful", 2}, {"clear", 1},
+            {"clean", 1}, {"friendly", 2}, {"engaging", 2}, {"interesting", 2}, {"enjoy", 2},
+            {"enjoyed", 2}, {"enjoyable", 2}, {"fun", 2}, {"happy", 2}, {"glad", 2}, {"thanks", 2},
+            {"thank", 2}, {"appreciate", 2}, {"appreciated", 2}, {"recommend", 2}, {"supportive", 2},
+            {"patient", 2}, {"knowledgeable", 2}, {"organized", 2}, {"organised", 2}, {"fair", 1},
+            {"easy", 1}, {"fast", 1}, {"quick", 1}, {"comfortable", 2}, {"improved", 2}, {"better", 1},
+            {"liked", 2}, {"inspiring", 3}, {"motivating", 2}, {"approachable", 2},
+            {"responsive", 2}, {"reliable", 2}, {"spacious", 1}, {"modern", 1}, {"quiet", 1},
+            {"safe", 1}, {"impressive", 3}, {"valuable", 2}, {"satisfied", 2},
+            {"pleasant", 2}, {"welcoming", 2}, {"kind", 2}, {"respectful", 2}, {"works", 1},
+            {"bad", -2}, {"terrible", -3}, {"awful", -3}, {"horrible", -3}, {"worst", -3}, {"poor", -2},
+            {"hate", -3}, {"hated", -3}, {"boring", -2}, {"confusing", -2}, {"confused", -2},
+            {"unclear", -2}, {"broken", -2}, {"dirty", -2}, {"filthy", -3}, {"disgusting", -3},
+            {"slow", -1}, {"late", -1}, {"rude", -3}, {"unfair", -2}, {"useless", -2}, {"unhelpful", -2},
+            {"disappointed", -2}, {"disappointing", -2}, {"frustrating", -2}, {"frustrated", -2},
+            {"annoying", -2}, {"annoyed", -2}, {"noisy", -1}, {"crowded", -1}, {"overcrowded", -2},
+            {"cold", -1}, {"hot", -1}, {"smelly", -2}, {"unsafe", -2}, {"dangerous", -3}, {"problem", -1},
+            {"problems", -1}, {"issue", -1}, {"issues", -1}, {"fail", -2}, {"failed", -2},
+            {"failing", -2}, {"fails", -2}, {"missing", -1}, {"lacking", -2}, {"lack", -1},
+            {"difficult", -1}, {"hard", -1}, {"stressful", -2}, {"stressed", -2}, {"worse", -2},
+            {"waste", -2}, {"wasted", -2}, {"ignored", -2}, {"unorganized", -2}, {"disorganized", -2},
+            {"unprepared", -2}, {"uncomfortable", -2}, {"outdated", -1}, {"expensive", -1},
+            {"complain", -2}, {"complaint", -2}, {"sad", -2}, {"angry", -3}, {"upset", -2},
+            {"unacceptable", -3}, {"leaking", -2}, {"leaks", -2}, {"mess", -2},
+            {"messy", -2}, {"delayed", -1}, {"cancelled", -1}, {"canceled", -1}, {"overpriced", -2},
+            {"unreliable", -2}, {"inconsistent", -1}, {"rushed", -1}, {"harsh", -2}, {"bored", -2}
+    };
+    
+    private final Map<String, Double> lexicon;
+    
+    /**
+     * @param lexicon Sentiment weight by lower-case word
+     */
+    public TextAnalyzer(Map<String, Double> lexicon) {
+        this.lexicon = lexicon;
+    }
+    
+    /**
+     * @return An analyzer using the built-in English lexicon
+     */
+    public static TextAnalyzer standard() {
+        return new TextAnalyzer(standardLexicon());
+    }
+    
+    /**
+     * Creates an analyzer with the built-in lexicon, extended or overridden
+     * by the file set in analysis.lexiconFile: one word and its weight per
+     * line, separated by white space, # starting a comment
+     * @return New TextAnalyzer; the built-in lexicon alone if the file cannot be read
+     */
+    public static TextAnalyzer fromConfig() {
+        Map<String, Double> lexicon = standardLexicon();
+        String lexiconFile = AppConfig.getString("analysis.lexiconFile", "");
+        if (!lexiconFile.isEmpty()) {
+            try {
+                readLexicon(new File(lexiconFile), lexicon);
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Cannot read analysis.lexiconFile " + lexiconFile + ", using the built-in lexicon: "
+                                   + e.getMessage());
+                lexicon = standardLexicon();
+            }
+        }
+        return new TextAnalyzer(lexicon);
+    }
+    
+    /**
+     * Analyzes one message
+     * @param feedbackId The feedback entry the message belongs to
+     * @param message The message, possibly null
+     * @return MessageAnalysis with the sentiment and keywords
+     */
+    public MessageAnalysis analyze(int feedbackId, String message) {
+        String[] tokens = tokenize(message);
+        return new MessageAnalysis(feedbackId, sentiment(tokens), terms(tokens));
+    }
+    
+    /**
+     * Returns the sentiment score of a message
+     * @param message The message
+     * @return Score from -1 to 1
+     */
+    public double sentiment(String message) {
+        return sentiment(tokenize(message));
+    }
+    
+    private double sentiment(String[] tokens) {
+        double sum = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            Double weight = lexicon.get(tokens[i]);
+            if (weight == null) {
+                continue;
+            }
+            double score = weight;
+            if (i > 0 && INTENSIFIERS.contains(tokens[i - 1])) {
+                score *= INTENSIFIER_FACTOR;
+            }
+            for (int j = Math.max(0, i - NEGATION_REACH); j < i; j++) {
+                if (NEGATIONS.contains(tokens[j])) {
+                    score *= NEGATION_FACTOR;
+                    break;
+                }
+            }
+            sum += score;
+        }
+        return sum / Math.sqrt(sum * sum + ALPHA);
+    }
+    
+    /**
+     * Distinct keywords in order of appearance, each followed by the pair
+     * it starts with the next keyword, if any
+     */
+    private static List<String> terms(String[] tokens) {
+        Set<String> terms = new LinkedHashSet<>();
+        String previous = null;
+        for (String token : tokens) {
+            String keyword = keyword(token);
+            if (keyword == null) {
+                previous = null;
+                continue;
+            }
+            if (previous != null) {
+                terms.add(previous + " " + keyword);
+            }
+            terms.add(keyword);
+            if (terms.size() >= MAX_TERMS) {
+                break;
+            }
+            previous = keyword;
+        }
+        return new ArrayList<>(terms);
+    }
+    
+    /**
+     * @return The keyword a word stands for, or null if it is not one
+     */
+    private static String keyword(String token) {
+        if (STOP_WORDS.contains(token)) {
+            return null;
+        }
+        if (token.endsWith("'s")) {
+            token = token.substring(0, token.length() - 2);
+        }
+        if (token.length() < MIN_KEYWORD_LENGTH || token.indexOf('\'') >= 0) {
+            return null;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.isLetter(token.charAt(i))) {
+                return token;
+            }
+        }
+        return null; // Numbers are not keywords
+    }
+    
+    /**
+     * Splits a message into lower-case words, keeping apostrophes inside
+     * words so that contractions such as "don't" stay whole
+     */
+    static String[] tokenize(String message) {
+        if (message == null) {
+            return new String[0];
+        }
+        String text = message.toLowerCase(Locale.ROOT).replace('\u2019', '\'');
+        List<String> tokens = new ArrayList<>();
+        for (String part : NON_WORD.split(text)) {
+            int start = 0;
+            int end = part.length();
+            while (start < end && part.charAt(start) == '\'') {
+                start++;
+            }
+            while (end > start && part.charAt(end - 1) == '\'') {
+                end--;
+            }
+            if (start < end) {
+                tokens.add(part.substring(start, end));
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+    
+    private static Map<String, Double> standardLexicon() {
+        Map<String, Double> lexicon = new HashMap<>();
+        for (Object[] entry : LEXICON) {
+            lexicon.put((String) entry[0], ((Integer) entry[1]).doubleValue());
+        }
+        return lexicon;
+    }
+    
+    private static void readLexicon(File file, Map<String, Double> lexicon) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                if (comment >= 0) {
+                    line = line.substring(0, comment);
+                }
+                String[] parts = line.trim().split("\\s+");
+                if (parts.length == 2) {
+                    lexicon.put(parts[0].toLowerCase(Locale.ROOT), Double.parseDouble(parts[1]));
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.feedbacksystem.analytics;
+
+/**
+ * The most recent window of a trend and the window of the same length
+ * before it
+ */
+public class TrendComparison {
+    private final TrendWindow current;
+    private final TrendWindow previous;
+    
+    public TrendComparison(TrendWindow current, TrendWindow previous) {
+        this.current = current;
+        this.previous = previous;
+    }
+    
+    public TrendWindow getCurrent() {
+        return current;
+    }
+    
+    public TrendWindow getPrevious() {
+        return previous;
+    }
+    
+    /**
+     * Returns how much the average rating moved
+     * @return Current average minus previous average, or NaN if either window is empty
+     */
+    public double getAverageChange() {
+        if (current.getCount() == 0 || previous.getCount() == 0) {
+            return Double.NaN;
+        }
+        return current.getAverageRating() - previous.getAverageRating();
+    }
+}
\ No newline at end of file
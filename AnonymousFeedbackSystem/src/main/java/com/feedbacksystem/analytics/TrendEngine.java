@@ -0,0 +1,393 @@
+package com.feedbacksystem.analytics;
+
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.dao.FeedbackRepository;
+import com.feedbacksystem.dao.StatsRepository;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackChanges;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rolling rating trends per category: entry counts and rating sums in
+ * hourly, daily and weekly buckets (UTC, weeks starting on Monday).
+ *
+ * Each category keeps a fixed ring of buckets per granularity, so memory
+ * depends on the number of categories and buckets, not on the number of
+ * rows. The rings are rebuilt from the daily aggregates and the last
+ * hours of feedback, then kept current by replaying the change feed of
+ * {@link FeedbackRepository#getChangesSince}: inserted rows are added to
+ * their buckets and deleted ones taken out again. Changes made by other
+ * processes arrive the same way. Near-duplicates are not counted, as in
+ * the rating aggregates.
+ *
+ * The windows only cover the main database; feedback already moved to an
+ * archive partition is not counted.
+ */
+public class TrendEngine {
+    private static final long HOUR_MILLIS = 3600000L;
+    private static final long DAY_MILLIS = 86400000L;
+    // Epoch day 0 was a Thursday; this shifts weeks to start on Monday
+    private static final long WEEK_OFFSET_DAYS = 3;
+    // Beyond this many changes rebuilding is cheaper than replaying
+    private static final int MAX_CHANGES = 10000;
+    
+    /**
+     * Bucket length of a trend
+     */
+    public enum Granularity {
+        HOUR, DAY, WEEK
+    }
+    
+    /**
+     * Receives the aggregates a rebuild starts from; see
+     * {@link StatsRepository#loadTrends}
+     */
+    public interface Loader {
+        /**
+         * @param version Data version the aggregates were read at
+         * @param lastId Highest feedback id at that version
+         */
+        void mark(long version, int lastId);
+        
+        /**
+         * @param category The category, null or "" for none
+         * @param day UTC epoch day
+         */
+        void addDay(String category, long day, long count, long ratingSum);
+        
+        /**
+         * @param category The category, null or "" for none
+         * @param hour UTC epoch hour
+         */
+        void addHour(String category, long hour, long count, long ratingSum);
+    }
+    
+    private final int[] sizes;
+    private final Object refreshLock = new Object();
+    
+    // Guarded by this
+    private Map<String, Ring[]> rings = new TreeMap<>();
+    private long version = -1;
+    private int lastId;
+    
+    /**
+     * Counts and rating sums of the most recent buckets of one granularity.
+     * Bucket b lives in slot b mod size until a newer bucket reuses it.
+     */
+    private static final class Ring {
+        final long[] counts;
+        final long[] sums;
+        long newest = Long.MIN_VALUE;
+        
+        Ring(int size) {
+            counts = new long[size];
+            sums = new long[size];
+        }
+        
+        void add(long bucket, long count, long ratingSum) {
+            if (newest == Long.MIN_VALUE || bucket > newest) {
+                if (count < 0) {
+                    return; // Never counted, so nothing to take out
+                }
+                advance(bucket);
+            } else if (bucket <= newest - counts.length) {
+                return; // Fell out of the window
+            }
+            int slot = slot(bucket);
+            counts[slot] += count;
+            sums[slot] += ratingSum;
+        }
+        
+        /**
+         * Makes bucket the newest one, clearing the buckets it passes
+         */
+        void advance(long bucket) {
+            long from = newest == Long.MIN_VALUE ? bucket - counts.length + 1
+                                                 : Math.max(newest + 1, bucket - counts.length + 1);
+            for (long b = from; b <= bucket; b++) {
+                counts[slot(b)] = 0;
+                sums[slot(b)] = 0;
+            }
+            newest = bucket;
+        }
+        
+        boolean holds(long bucket) {
+            return newest != Long.MIN_VALUE && bucket <= newest && bucket > newest - counts.length;
+        }
+        
+        int slot(long bucket) {
+            return (int) Math.floorMod(bucket, (long) counts.length);
+        }
+    }
+    
+    /**
+     * Fills a fresh set of rings, swapped in once complete
+     */
+    private final class Rebuild implements Loader {
+        final Map<String, Ring[]> rings = new TreeMap<>();
+        final long now;
+        long version;
+        int lastId;
+        
+        Rebuild(long nowMillis) {
+            this.now = nowMillis;
+        }
+        
+        @Override
+        public void mark(long version, int lastId) {
+            this.version = version;
+            this.lastId = lastId;
+        }
+        
+        @Override
+        public void addDay(String category, long day, long count, long ratingSum) {
+            Ring[] categoryRings = ringsOf(rings, category, now);
+            categoryRings[Granularity.DAY.ordinal()].add(day, count, ratingSum);
+            categoryRings[Granularity.WEEK.ordinal()].add(weekOfDay(day), count, ratingSum);
+        }
+        
+        @Override
+        public void addHour(String category, long hour, long count, long ratingSum) {
+            ringsOf(rings, category, now)[Granularity.HOUR.ordinal()].add(hour, count, ratingSum);
+        }
+    }
+    
+    /**
+     * @param hours Number of hourly buckets kept
+     * @param days Number of daily buckets kept
+     * @param weeks Number of weekly buckets kept
+     */
+    public TrendEngine(int hours, int days, int weeks) {
+        if (hours < 1 || days < 1 || weeks < 1) {
+            throw new IllegalArgumentException("Trend windows need at least one bucket");
+        }
+        this.sizes = new int[] {hours, days, weeks};
+    }
+    
+    /**
+     * Creates an engine with the windows set in feedback.properties
+     * (trends.hours, trends.days, trends.weeks)
+     */
+    public static TrendEngine fromConfig() {
+        return new TrendEngine(Math.max(2, AppConfig.getInt("trends.hours", 48)),
+                               Math.max(2, AppConfig.getInt("trends.days", 28)),
+                               Math.max(2, AppConfig.getInt("trends.weeks", 12)));
+    }
+    
+    /**
+     * Brings the trends up to date. The first call rebuilds them; later
+     * calls replay only the feedback inserted and deleted since, unless the
+     * change feed asks for a reload.
+     * @param feedbackRepository Source of the change feed
+     * @param statsRepository Source of the aggregates a rebuild reads
+     * @return true if the trends may have changed
+     * @throws SQLException if the changes or aggregates cannot be read
+     */
+    public boolean refresh(FeedbackRepository feedbackRepository, StatsRepository statsRepository)
+            throws SQLException {
+        synchronized (refreshLock) {
+            long sinceVersion;
+            int sinceId;
+            synchronized (this) {
+                sinceVersion = version;
+                sinceId = lastId;
+            }
+            if (sinceVersion < 0) {
+                rebuild(statsRepository);
+                return true;
+            }
+            
+            FeedbackChanges changes = feedbackRepository.getChangesSince(sinceVersion, sinceId, MAX_CHANGES);
+            if (changes.isReloadRequired()) {
+                rebuild(statsRepository);
+                return true;
+            }
+            long now = System.currentTimeMillis();
+            synchronized (this) {
+                for (Feedback feedback : changes.getInserted()) {
+                    addRow(feedback, 1, now);
+                }
+                for (Feedback feedback : changes.getDeleted()) {
+                    addRow(feedback, -1, now);
+                }
+                version = changes.getVersion();
+                lastId = changes.getLastId();
+            }
+            return !changes.isEmpty();
+        }
+    }
+    
+    /**
+     * Replaces the trends with ones read from the aggregates. Reads one row
+     * per category and day of the daily and weekly windows, and the
+     * feedback of the hourly window.
+     * @param statsRepository Source of the aggregates
+     * @throws SQLException if the aggregates cannot be read; the old trends are kept then
+     */
+    public void rebuild(StatsRepository statsRepository) throws SQLException {
+        synchronized (refreshLock) {
+            long now = System.currentTimeMillis();
+            long fromDay = Math.min(bucketOf(Granularity.DAY, now) - sizes[Granularity.DAY.ordinal()] + 1,
+                    (bucketOf(Granularity.WEEK, now) - sizes[Granularity.WEEK.ordinal()] + 1) * 7
+                            - WEEK_OFFSET_DAYS);
+            long fromHour = bucketOf(Granularity.HOUR, now) - sizes[Granularity.HOUR.ordinal()] + 1;
+            
+            Rebuild rebuild = new Rebuild(now);
+            statsRepository.loadTrends(fromDay, fromHour, rebuild);
+            synchronized (this) {
+                rings = rebuild.rings;
+                version = rebuild.version;
+                lastId = rebuild.lastId;
+            }
+        }
+    }
+    
+    /**
+     * @return The categories seen since the last rebuild, "" standing for none
+     */
+    public synchronized List<String> getCategories() {
+        return new ArrayList<>(rings.keySet());
+    }
+    
+    /**
+     * @return Data version the trends are current with, or -1 before the first refresh
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+    
+    /**
+     * @return Number of buckets kept for a granularity
+     */
+    public int getBuckets(Granularity granularity) {
+        return sizes[granularity.ordinal()];
+    }
+    
+    /**
+     * Returns every bucket of a window ending now, for sparklines. The last
+     * bucket is still filling.
+     * @param category The category, or null for all categories
+     * @param granularity Bucket length
+     * @param nowMillis Current time
+     * @return One TrendWindow per bucket, oldest first, empty buckets included
+     */
+    public synchronized List<TrendWindow> getSeries(String category, Granularity granularity, long nowMillis) {
+        long newest = bucketOf(granularity, nowMillis);
+        int size = sizes[granularity.ordinal()];
+        List<TrendWindow> series = new ArrayList<>(size);
+        for (long bucket = newest - size + 1; bucket <= newest; bucket++) {
+            series.add(window(category, granularity, bucket, bucket));
+        }
+        return series;
+    }
+    
+    /**
+     * Compares the most recent buckets with as many buckets before them,
+     * e.g. the last 7 days with the 7 days before
+     * @param category The category, or null for all categories
+     * @param granularity Bucket length
+     * @param buckets Number of buckets per window, at most half of those kept
+     * @param nowMillis Current time; its bucket is the newest one compared
+     * @return TrendComparison
+     */
+    public synchronized TrendComparison compare(String category, Granularity granularity, int buckets,
+                                                long nowMillis) {
+        if (buckets < 1 || 2 * buckets > sizes[granularity.ordinal()]) {
+            throw new IllegalArgumentException("Cannot compare " + buckets + " buckets of "
+                                               + sizes[granularity.ordinal()]);
+        }
+        long newest = bucketOf(granularity, nowMillis);
+        return new TrendComparison(window(category, granularity, newest - buckets + 1, newest),
+                                   window(category, granularity, newest - 2 * buckets + 1, newest - buckets));
+    }
+    
+    /**
+     * Returns the bucket holding a time
+     * @return Epoch hour, epoch day or Monday-based week number, in UTC
+     */
+    public static long bucketOf(Granularity granularity, long millis) {
+        switch (granularity) {
+            case HOUR:
+                return Math.floorDiv(millis, HOUR_MILLIS);
+            case DAY:
+                return Math.floorDiv(millis, DAY_MILLIS);
+            default:
+                return weekOfDay(Math.floorDiv(millis, DAY_MILLIS));
+        }
+    }
+    
+    /**
+     * Returns the time a bucket starts at
+     */
+    public static long startOf(Granularity granularity, long bucket) {
+        switch (granularity) {
+            case HOUR:
+                return bucket * HOUR_MILLIS;
+            case DAY:
+                return bucket * DAY_MILLIS;
+            default:
+                return (bucket * 7 - WEEK_OFFSET_DAYS) * DAY_MILLIS;
+        }
+    }
+    
+    private static long weekOfDay(long day) {
+        return Math.floorDiv(day + WEEK_OFFSET_DAYS, 7);
+    }
+    
+    /**
+     * Sums the buckets first to last of one category or of all
+     */
+    private TrendWindow window(String category, Granularity granularity, long first, long last) {
+        long count = 0;
+        long ratingSum = 0;
+        for (Map.Entry<String, Ring[]> entry : rings.entrySet()) {
+            if (category != null && !category.equals(entry.getKey())) {
+                continue;
+            }
+            Ring ring = entry.getValue()[granularity.ordinal()];
+            for (long bucket = first; bucket <= last; bucket++) {
+                if (ring.holds(bucket)) {
+                    count += ring.counts[ring.slot(bucket)];
+                    ratingSum += ring.sums[ring.slot(bucket)];
+                }
+            }
+        }
+        return new TrendWindow(startOf(granularity, first), startOf(granularity, last + 1), count, ratingSum);
+    }
+    
+    /**
+     * Adds a row to its buckets, or takes it out with a sign of -1
+     */
+    private void addRow(Feedback feedback, int sign, long nowMillis) {
+        if (feedback.getDuplicateOf() > 0) {
+            return;
+        }
+        long millis = feedback.getDateSubmitted().getTime();
+        Ring[] categoryRings = ringsOf(rings, feedback.getCategory(), nowMillis);
+        for (Granularity granularity : Granularity.values()) {
+            categoryRings[granularity.ordinal()].add(bucketOf(granularity, millis), sign,
+                                                     sign * (long) feedback.getRating());
+        }
+    }
+    
+    /**
+     * Returns the rings of a category, creating them with their window ending now
+     */
+    private Ring[] ringsOf(Map<String, Ring[]> rings, String category, long nowMillis) {
+        String key = category != null ? category : "";
+        Ring[] categoryRings = rings.get(key);
+        if (categoryRings == null) {
+            categoryRings = new Ring[sizes.length];
+            for (Granularity granularity : Granularity.values()) {
+                categoryRings[granularity.ordinal()] = new Ring(sizes[granularity.ordinal()]);
+                categoryRings[granularity.ordinal()].advance(bucketOf(granularity, nowMillis));
+            }
+            rings.put(key, categoryRings);
+        }
+        return categoryRings;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.feedbacksystem.analytics;
+
+/**
+ * Number of ratings and their sum over a span of time, for one category
+ * or for all of them
+ */
+public class TrendWindow {
+    private final long startMillis;
+    private final long endMillis;
+    private final long count;
+    private final long ratingSum;
+    
+    /**
+     * @param startMillis Start of the window, in epoch milliseconds
+     * @param endMillis End of the window, exclusive
+     * @param count Number of feedback entries
+     * @param ratingSum Sum of their ratings
+     */
+    public TrendWindow(long startMillis, long endMillis, long count, long ratingSum) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.count = count;
+        this.ratingSum = ratingSum;
+    }
+    
+    public long getStartMillis() {
+        return startMillis;
+    }
+    
+    public long getEndMillis() {
+        return endMillis;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public long getRatingSum() {
+        return ratingSum;
+    }
+    
+    /**
+     * Returns the average rating
+     * @return Average rating, or 0 if there are no entries
+     */
+    public double getAverageRating() {
+        return count > 0 ? (double) ratingSum / count : 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.feedbacksystem.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Short-lived memory of successful logins, so that repeating a login with
+ * the same credentials skips the database and the deliberately slow
+ * password hash. Only a keyed HMAC of the credentials is kept, under a
+ * random key that never leaves the process.
+ */
+public class AuthCache {
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final byte[] key = new byte[32];
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    
+    private static class Entry {
+        final byte[] digest;
+        final long expiresAt;
+        
+        Entry(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+    
+    /**
+     * @param ttlMillis How long a successful login is remembered; 0 disables the cache
+     * @param maxEntries Most usernames remembered at once
+     */
+    public AuthCache(long ttlMillis, int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        new SecureRandom().nextBytes(key);
+    }
+    
+    /**
+     * @param username The username
+     * @param password The password
+     * @param nowMillis The current time
+     * @return true if these credentials logged in successfully within the time to live
+     */
+    public boolean contains(String username, String password, long nowMillis) {
+        Entry entry = entries.get(username);
+        if (entry == null) {
+            return false;
+        }
+        if (entry.expiresAt <= nowMillis) {
+            entries.remove(username, entry);
+            return false;
+        }
+        return MessageDigest.isEqual(entry.digest, digest(username, password));
+    }
+    
+    /**
+     * Remembers a successful login
+     * @param username The username
+     * @param password The password
+     * @param nowMillis The current time
+     */
+    public void put(String username, String password, long nowMillis) {
+        if (ttlMillis <= 0) {
+            return;
+        }
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(entry -> entry.expiresAt <= nowMillis);
+            if (entries.size() >= maxEntries) {
+                return;
+            }
+        }
+        entries.put(username, new Entry(digest(username, password), nowMillis + ttlMillis));
+    }
+    
+    /**
+     * Forgets a username, e.g. after its password changed
+     * @param username The username
+     */
+    public void invalidate(String username) {
+        entries.remove(username);
+    }
+    
+    private byte[] digest(String username, String password) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(key, MAC_ALGORITHM));
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            // Every Java 8 runtime is required to provide HmacSHA256
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,111 @@
+package com.feedbacksystem.auth;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free per-key attempt limiter.
+ *
+ * Each key allows a burst of attempts, after which one more attempt is
+ * allowed per interval. The state of a key is a single "theoretical
+ * arrival time" updated with compare-and-set (the generic cell rate
+ * algorithm), so concurrent attempts never block each other and a
+ * rejected attempt costs one map lookup. Keys live in a ConcurrentHashMap,
+ * which stripes its own locking for the rare insert.
+ *
+ * When the map is full, a new key takes the place of the one whose last
+ * attempt lies furthest back, so a flood of made-up keys cannot keep a
+ * real user from being tracked; it can at most make the limiter forget
+ * an old key, and cycling through that many keys takes longer than the
+ * key would have needed to recover anyway.
+ */
+public class LoginRateLimiter {
+    private final long intervalMillis;
+    private final long toleranceMillis;
+    private final int maxKeys;
+    private final ConcurrentMap<String, AtomicLong> states = new ConcurrentHashMap<>();
+    
+    /**
+     * @param burst Attempts allowed in quick succession
+     * @param intervalMillis Time after which one more attempt is allowed
+     * @param maxKeys Most keys tracked at once; when full, a new key replaces the least recently used one
+     */
+    public LoginRateLimiter(int burst, long intervalMillis, int maxKeys) {
+        this.intervalMillis = intervalMillis;
+        this.toleranceMillis = intervalMillis * (burst - 1);
+        this.maxKeys = maxKeys;
+    }
+    
+    /**
+     * Creates a limiter for a single key that allows at most a number of
+     * attempts per second, all of them at once if need be
+     * @param maxPerSecond Attempts allowed per second
+     * @return New LoginRateLimiter
+     */
+    public static LoginRateLimiter perSecond(int maxPerSecond) {
+        int limit = Math.max(1, maxPerSecond);
+        return new LoginRateLimiter(limit, 1000 / limit, 1);
+    }
+    
+    /**
+     * Records an attempt if one is allowed now
+     * @param key The key to limit, e.g. a username
+     * @param nowMillis The current time
+     * @return 0 if the attempt is allowed, otherwise milliseconds until the next one is
+     */
+    public long tryAcquire(String key, long nowMillis) {
+        AtomicLong state = states.get(key);
+        if (state == null) {
+            if (states.size() >= maxKeys) {
+                evict(nowMillis);
+            }
+            state = states.computeIfAbsent(key, k -> new AtomicLong(Long.MIN_VALUE));
+        }
+        
+        while (true) {
+            long arrival = state.get();
+            long start = Math.max(arrival, nowMillis);
+            long wait = start - toleranceMillis - nowMillis;
+            if (wait > 0) {
+                return wait;
+            }
+            if (state.compareAndSet(arrival, start + intervalMillis)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * Forgets the attempts of a key, e.g. after a successful login
+     * @param key The key
+     */
+    public void reset(String key) {
+        states.remove(key);
+    }
+    
+    /**
+     * Drops keys that have recovered their full burst, or if none has, the
+     * key used least recently
+     */
+    private void evict(final long nowMillis) {
+        states.values().removeIf(state -> state.get() <= nowMillis);
+        if (states.size() < maxKeys) {
+            return;
+        }
+        // The arrival time only moves forward with each attempt, so the lowest is the oldest
+        String oldest = null;
+        long oldestArrival = Long.MAX_VALUE;
+        for (Map.Entry<String, AtomicLong> entry : states.entrySet()) {
+            long arrival = entry.getValue().get();
+            if (arrival < oldestArrival) {
+                oldest = entry.getKey();
+                oldestArrival = arrival;
+            }
+        }
+        if (oldest != null) {
+            states.remove(oldest);
+        }
+    }
+}
\ No newline at end of file
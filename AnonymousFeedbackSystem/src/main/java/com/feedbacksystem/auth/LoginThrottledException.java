@@ -0,0 +1,21 @@
+package com.feedbacksystem.auth;
+
+/**
+ * Thrown when a login attempt is rejected by the rate limiter before the
+ * credentials are checked
+ */
+public class LoginThrottledException extends RuntimeException {
+    private final long retryAfterMillis;
+    
+    public LoginThrottledException(long retryAfterMillis) {
+        super("Too many login attempts; try again in " + Math.max(1, (retryAfterMillis + 999) / 1000) + " seconds");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    /**
+     * @return Milliseconds until another attempt is allowed
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,105 @@
+package com.feedbacksystem.auth;
+
+import com.feedbacksystem.config.AppConfig;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2-HMAC-SHA256 password hashes.
+ *
+ * Hashes are stored as pbkdf2-sha256$iterations$salt$hash with Base64
+ * salt and hash, so the cost can be raised later without invalidating
+ * existing hashes: {@link #needsRehash} reports hashes made with a lower
+ * cost, and they are replaced at the next successful login.
+ */
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom random = new SecureRandom();
+    
+    private final int iterations;
+    
+    /**
+     * @param iterations PBKDF2 iteration count of new hashes
+     */
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("iterations must be positive: " + iterations);
+        }
+        this.iterations = iterations;
+    }
+    
+    /**
+     * Creates a hasher with the configured cost (auth.pbkdf2Iterations)
+     * @return PasswordHasher
+     */
+    public static PasswordHasher fromConfig() {
+        return new PasswordHasher(AppConfig.getInt("auth.pbkdf2Iterations", 600000));
+    }
+    
+    /**
+     * Hashes a password with a new random salt
+     * @param password The password
+     * @return Encoded hash
+     */
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$" +
+                encoder.encodeToString(derive(password, salt, iterations, HASH_BITS));
+    }
+    
+    /**
+     * Checks a password against an encoded hash in constant time
+     * @param password The password to check
+     * @param encoded Hash produced by {@link #hash}
+     * @return true if the password matches; false if not or if the hash is malformed
+     */
+    public boolean verify(String password, String encoded) {
+        String[] parts = encoded != null ? encoded.split("\\$") : new String[0];
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        try {
+            int hashIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            byte[] actual = derive(password, salt, hashIterations, expected.length * 8);
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * @param encoded Hash produced by {@link #hash}
+     * @return true if the hash was made with a different cost than this hasher uses
+     */
+    public boolean needsRehash(String encoded) {
+        String[] parts = encoded != null ? encoded.split("\\$") : new String[0];
+        return parts.length != 4 || !PREFIX.equals(parts[0]) || !String.valueOf(iterations).equals(parts[1]);
+    }
+    
+    private static byte[] derive(String password, byte[] salt, int iterations, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // Every Java 8 runtime is required to provide this algorithm
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    public int getIterations() {
+        return iterations;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.feedbacksystem.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared executor for blocking work such as database calls.
+ * Uses one virtual thread per task on JDKs that support them and falls back
+ * to a cached pool of daemon threads otherwise.
+ */
+public class BackgroundExecutor {
+    private static final ExecutorService shared = newExecutor("feedback-background");
+    
+    private BackgroundExecutor() {}
+    
+    /**
+     * Returns the application-wide background executor
+     * @return Shared ExecutorService
+     */
+    public static ExecutorService getShared() {
+        return shared;
+    }
+    
+    /**
+     * Runs a task on the shared background executor
+     * @param task The task to run
+     */
+    public static void execute(Runnable task) {
+        shared.execute(task);
+    }
+    
+    /**
+     * Creates a new executor with one virtual thread per task where available
+     * @param name Thread name prefix used for platform threads
+     * @return New ExecutorService
+     */
+    public static ExecutorService newExecutor(final String name) {
+        try {
+            // Looked up reflectively so the code still runs on JDKs without virtual threads
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+                
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+    }
+}
\ No newline at end of file
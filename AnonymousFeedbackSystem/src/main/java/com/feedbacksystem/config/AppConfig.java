@@ -0,0 +1,77 @@
+package com.feedbacksystem.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Application settings read from feedback.properties in the working
+ * directory. Any setting can be overridden with a JVM system property of
+ * the same name, e.g. -Dingest.batchSize=128.
+ */
+public class AppConfig {
+    private static final String CONFIG_FILE = "feedback.properties";
+    private static final Properties properties = load();
+    
+    private AppConfig() {}
+    
+    private static Properties load() {
+        Properties props = new Properties();
+        File file = new File(CONFIG_FILE);
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return props;
+    }
+    
+    /**
+     * Returns a setting as a string
+     * @param key The setting name
+     * @param defaultValue Value used when the setting is absent
+     * @return The configured value or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = properties.getProperty(key);
+        }
+        return value != null ? value.trim() : defaultValue;
+    }
+    
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid number for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+    
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
\ No newline at end of file
@@ -1,33 +1,167 @@
 package com.feedbacksystem.dao;
 
+import com.feedbacksystem.auth.AuthCache;
+import com.feedbacksystem.auth.LoginRateLimiter;
+import com.feedbacksystem.auth.LoginThrottledException;
+import com.feedbacksystem.auth.PasswordHasher;
+import com.feedbacksystem.config.AppConfig;
 import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.metrics.OperationMetrics;
 import com.feedbacksystem.model.Admin;
 import java.sql.*;
 
 /**
- * Data Access Object for Admin operations
+ * Data Access Object for Admin operations, the SQLite AdminRepository.
+ *
+ * Passwords are stored as salted PBKDF2 hashes. Login attempts are rate
+ * limited per username, and for all usernames together, before the
+ * database is touched; successful logins are remembered for a short time
+ * so that repeating them costs neither a query nor a hash. Throttled
+ * attempts are recorded as errors of AdminDAO.authenticateAdmin.
  */
-public class AdminDAO {
+public class AdminDAO implements AdminRepository {
+    
+    static final String AUTHENTICATE_SQL = "SELECT id, password_hash FROM admin WHERE username = ?";
+    static final String UPDATE_PASSWORD_SQL = "UPDATE admin SET password_hash = ?, password = NULL WHERE username = ?";
+    
+    // Shared by every instance, so limits hold across login forms and threads
+    private static final PasswordHasher hasher = PasswordHasher.fromConfig();
+    private static final LoginRateLimiter userLimiter = new LoginRateLimiter(
+            AppConfig.getInt("auth.maxAttempts", 5),
+            AppConfig.getLong("auth.attemptIntervalSeconds", 12) * 1000, 10000);
+    private static final LoginRateLimiter globalLimiter = LoginRateLimiter.perSecond(
+            AppConfig.getInt("auth.maxLoginsPerSecond", 20));
+    private static final AuthCache authCache = new AuthCache(
+            AppConfig.getLong("auth.cacheSeconds", 300) * 1000, 100);
+    // Checked against when the username does not exist, so the response takes as long either way
+    private static volatile String dummyHash;
+    
+    private static final OperationMetrics AUTHENTICATE_METRICS = Metrics.operation("AdminDAO.authenticateAdmin");
+    private static final OperationMetrics SET_PASSWORD_METRICS = Metrics.operation("AdminDAO.setPassword");
     
     /**
      * Authenticates an admin user
      * @param username The admin username
      * @param password The admin password
      * @return true if authentication is successful, false otherwise
+     * @throws LoginThrottledException if too many attempts were made recently
      * @throws SQLException if database operation fails
      */
+    @Override
     public boolean authenticateAdmin(String username, String password) throws SQLException {
-        String sql = "SELECT * FROM admin WHERE username = ? AND password = ?";
-        
+        long start = System.nanoTime();
+        try {
+            long now = System.currentTimeMillis();
+            long wait = userLimiter.tryAcquire(username, now);
+            if (wait > 0) {
+                throw new LoginThrottledException(wait);
+            }
+            if (authCache.contains(username, password, now)) {
+                userLimiter.reset(username);
+                return true;
+            }
+            wait = globalLimiter.tryAcquire("", now);
+            if (wait > 0) {
+                throw new LoginThrottledException(wait);
+            }
+            
+            String encoded = findPasswordHash(username);
+            if (encoded == null) {
+                hasher.verify(password, getDummyHash());
+                return false;
+            }
+            if (!hasher.verify(password, encoded)) {
+                return false;
+            }
+            
+            userLimiter.reset(username);
+            authCache.put(username, password, now);
+            if (hasher.needsRehash(encoded)) {
+                // The configured cost changed since this hash was made
+                setPassword(username, password);
+            }
+            return true;
+        } catch (SQLException | RuntimeException e) {
+            AUTHENTICATE_METRICS.recordError();
+            throw e;
+        } finally {
+            AUTHENTICATE_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Stores a new password for an admin user
+     * @param username The admin username
+     * @param password The new password
+     * @return true if the user exists and was updated
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public boolean setPassword(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            boolean updated = storePasswordHash(username, hasher.hash(password));
+            authCache.invalidate(username);
+            return updated;
+        } catch (SQLException | RuntimeException e) {
+            SET_PASSWORD_METRICS.recordError();
+            throw e;
+        } finally {
+            SET_PASSWORD_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Reads the stored password hash of an admin user. Overridden by
+     * InMemoryAdminDAO, which keeps the throttling and caching above.
+     * @return The encoded hash, or null if there is no such user
+     */
+    String findPasswordHash(String username) throws SQLException {
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+             PreparedStatement pstmt = conn.prepareStatement(AUTHENTICATE_SQL)) {
             
             pstmt.setString(1, username);
-            pstmt.setString(2, password);
             
             try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next(); // Returns true if a record is found
+                if (rs.next()) {
+                    AUTHENTICATE_METRICS.recordRows(1);
+                    return rs.getString("password_hash");
+                }
+                return null;
             }
         }
     }
+    
+    /**
+     * Replaces the stored password hash of an admin user
+     * @return true if the user exists
+     */
+    boolean storePasswordHash(String username, String encoded) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPDATE_PASSWORD_SQL)) {
+            
+            pstmt.setString(1, encoded);
+            pstmt.setString(2, username);
+            int rowsAffected = pstmt.executeUpdate();
+            SET_PASSWORD_METRICS.recordRows(rowsAffected);
+            return rowsAffected > 0;
+        }
+    }
+    
+    /**
+     * Hashes a password with the configured cost
+     */
+    static String hash(String password) {
+        return hasher.hash(password);
+    }
+    
+    private static String getDummyHash() {
+        String hash = dummyHash;
+        if (hash == null) {
+            hash = hasher.hash("not a password");
+            dummyHash = hash;
+        }
+        return hash;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,29 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.auth.LoginThrottledException;
+import java.sql.SQLException;
+
+/**
+ * Admin accounts and their passwords
+ */
+public interface AdminRepository {
+    
+    /**
+     * Authenticates an admin user
+     * @param username The admin username
+     * @param password The admin password
+     * @return true if authentication is successful, false otherwise
+     * @throws LoginThrottledException if too many attempts were made recently
+     * @throws SQLException if the account cannot be read
+     */
+    boolean authenticateAdmin(String username, String password) throws SQLException;
+    
+    /**
+     * Stores a new password for an admin user
+     * @param username The admin username
+     * @param password The new password
+     * @return true if the user exists and was updated
+     * @throws SQLException if the password cannot be stored
+     */
+    boolean setPassword(String username, String password) throws SQLException;
+}
\ No newline at end of file
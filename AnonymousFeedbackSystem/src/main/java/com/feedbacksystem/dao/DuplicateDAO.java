@@ -0,0 +1,92 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.Feedback;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for near-duplicate detection
+ */
+public class DuplicateDAO implements DuplicateRepository {
+    
+    // Newest first, through idx_feedback_category_date_id
+    static final String RECENT_ORIGINALS_SQL =
+            "SELECT id, category, message, date_submitted FROM feedback " +
+            "WHERE category = ? AND date_submitted >= ? AND duplicate_of IS NULL " +
+            "ORDER BY date_submitted DESC, id DESC LIMIT ?";
+    static final String ADD_DUPLICATES_SQL =
+            "UPDATE feedback SET duplicate_count = duplicate_count + ? WHERE id = ?";
+    
+    /**
+     * Retrieves the most recent feedback of a category that is not itself
+     * a duplicate. The rating is not loaded.
+     * @param category The category
+     * @param sinceMillis Only entries submitted at or after this time are returned
+     * @param limit Maximum number of entries
+     * @return Entries, oldest first
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public List<Feedback> getRecentOriginals(String category, long sinceMillis, int limit) throws SQLException {
+        List<Feedback> feedbackList = new ArrayList<>();
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(RECENT_ORIGINALS_SQL)) {
+            
+            pstmt.setString(1, category);
+            pstmt.setLong(2, sinceMillis);
+            pstmt.setInt(3, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    feedbackList.add(new Feedback(rs.getInt("id"), rs.getString("category"),
+                            rs.getString("message"), 0, new Date(rs.getLong("date_submitted"))));
+                }
+            }
+        }
+        
+        Collections.reverse(feedbackList);
+        return feedbackList;
+    }
+    
+    /**
+     * Counts collapsed duplicates against their originals in one transaction
+     * @param counts Number of collapsed submissions by original id
+     * @throws SQLException if database operation fails; nothing is counted then
+     */
+    @Override
+    public void addDuplicates(Map<Integer, Integer> counts) throws SQLException {
+        if (counts.isEmpty()) {
+            return;
+        }
+        
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                addDuplicates(conn, counts);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Counts collapsed duplicates within the caller's transaction on the writer
+     */
+    static void addDuplicates(Connection conn, Map<Integer, Integer> counts) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ADD_DUPLICATES_SQL)) {
+            for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+                pstmt.setInt(1, count.getValue());
+                pstmt.setInt(2, count.getKey());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.model.Feedback;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage operations of near-duplicate detection
+ */
+public interface DuplicateRepository {
+    
+    /**
+     * Retrieves the most recent feedback of a category that is not itself
+     * a duplicate. The rating is not loaded.
+     * @param category The category
+     * @param sinceMillis Only entries submitted at or after this time are returned
+     * @param limit Maximum number of entries
+     * @return Entries, oldest first
+     * @throws SQLException if the entries cannot be read
+     */
+    List<Feedback> getRecentOriginals(String category, long sinceMillis, int limit) throws SQLException;
+    
+    /**
+     * Counts collapsed duplicates against their originals, all or none
+     * @param counts Number of collapsed submissions by original id
+     * @throws SQLException if the counts cannot be stored
+     */
+    void addDuplicates(Map<Integer, Integer> counts) throws SQLException;
+}
\ No newline at end of file
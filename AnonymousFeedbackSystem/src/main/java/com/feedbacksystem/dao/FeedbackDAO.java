@@ -1,15 +1,160 @@
 package com.feedbacksystem.dao;
 
 import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.Partition;
+import com.feedbacksystem.db.PartitionStore;
+import com.feedbacksystem.events.FeedbackEvent;
+import com.feedbacksystem.events.FeedbackEvents;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.metrics.OperationMetrics;
 import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackChanges;
+import com.feedbacksystem.model.FeedbackSnapshot;
+import com.feedbacksystem.model.PageCursor;
+import java.io.IOException;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 /**
- * Data Access Object for Feedback operations
+ * Data Access Object for Feedback operations, the SQLite FeedbackRepository.
+ * Every public method records its latency, errors and rows in {@link Metrics}.
+ * Inserts and deletes are published to {@link FeedbackEvents} once committed.
+ * Pages, searches and the change feed read the main database; the full
+ * list, time ranges and deletes also cover the archive partitions.
  */
-public class FeedbackDAO {
+public class FeedbackDAO implements FeedbackRepository {
+    
+    private static final String COLUMNS = "id, category, message, rating, date_submitted";
+    private static final String ORDER_BY = " ORDER BY date_submitted DESC, id DESC";
+    
+    // Every query the DAO runs; QueryPlanCheck verifies each one is index-backed
+    static final String INSERT_SQL =
+            "INSERT INTO feedback (category, message, rating, date_submitted, duplicate_of, submission_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    static final String SELECT_ALL_SQL =
+            "SELECT " + COLUMNS + " FROM feedback" + ORDER_BY;
+    static final String SELECT_BY_CATEGORY_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE category = ?" + ORDER_BY;
+    static final String PAGE_FIRST_SQL =
+            "SELECT " + COLUMNS + " FROM feedback" + ORDER_BY + " LIMIT ?";
+    static final String PAGE_FIRST_BY_CATEGORY_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE category = ?" + ORDER_BY + " LIMIT ?";
+    // Row-value comparison lets SQLite seek straight to the cursor in the index
+    static final String PAGE_AFTER_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE (date_submitted, id) < (?, ?)" + ORDER_BY + " LIMIT ?";
+    static final String PAGE_AFTER_BY_CATEGORY_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE category = ? AND (date_submitted, id) < (?, ?)" +
+            ORDER_BY + " LIMIT ?";
+    static final String PAGE_AT_SQL =
+            "SELECT " + COLUMNS + " FROM feedback" + ORDER_BY + " LIMIT ? OFFSET ?";
+    static final String PAGE_AT_BY_CATEGORY_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE category = ?" + ORDER_BY + " LIMIT ? OFFSET ?";
+    static final String COUNT_SQL =
+            "SELECT COUNT(*) FROM feedback";
+    static final String COUNT_BY_CATEGORY_SQL =
+            "SELECT COUNT(*) FROM feedback WHERE category = ?";
+    static final String DELETE_SQL =
+            "DELETE FROM feedback WHERE id = ?";
+    // Oldest first, for exports
+    private static final String RANGE = "date_submitted >= ? AND date_submitted < ?";
+    static final String STREAM_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE " + RANGE + " ORDER BY date_submitted, id";
+    static final String STREAM_BY_CATEGORY_SQL =
+            "SELECT " + COLUMNS + " FROM feedback WHERE category = ? AND " + RANGE + " ORDER BY date_submitted, id";
+    static final String COUNT_RANGE_SQL =
+            "SELECT COUNT(*) FROM feedback WHERE " + RANGE;
+    static final String COUNT_RANGE_BY_CATEGORY_SQL =
+            "SELECT COUNT(*) FROM feedback WHERE category = ? AND " + RANGE;
+    // Change tracking for delta refreshes
+    static final String DATA_VERSION_SQL =
+            "SELECT version, reset_version FROM feedback_data_version WHERE id = 1";
+    static final String MAX_ID_SQL =
+            "SELECT IFNULL(MAX(id), 0) FROM feedback";
+    static final String INSERTED_SINCE_SQL =
+            "SELECT " + COLUMNS + ", duplicate_of FROM feedback WHERE id > ? ORDER BY id LIMIT ?";
+    static final String DELETED_SINCE_SQL =
+            "SELECT id, category, rating, date_submitted, duplicate_of FROM feedback_tombstone " +
+            "WHERE version > ? AND id <= ? " +
+            "ORDER BY version LIMIT ?";
+    // The tombstone of a row just deleted, read in the deleting transaction for its event
+    static final String DELETED_EVENT_SQL =
+            "SELECT category, rating, date_submitted, duplicate_of, version FROM feedback_tombstone WHERE id = ?";
+    // CROSS JOIN keeps the full-text index as the outer loop so FTS5 can produce rows in rank order
+    private static final String SEARCH_FROM =
+            " FROM feedback_fts CROSS JOIN feedback f ON f.id = feedback_fts.rowid WHERE feedback_fts MATCH ?";
+    private static final String SEARCH_COLUMNS = "SELECT f.id, f.category, f.message, f.rating, f.date_submitted";
+    static final String SEARCH_SQL =
+            SEARCH_COLUMNS + SEARCH_FROM + " ORDER BY feedback_fts.rank LIMIT ? OFFSET ?";
+    static final String SEARCH_BY_CATEGORY_SQL =
+            SEARCH_COLUMNS + SEARCH_FROM + " AND f.category = ? ORDER BY feedback_fts.rank LIMIT ? OFFSET ?";
+    static final String SEARCH_NEWEST_SQL =
+            SEARCH_COLUMNS + SEARCH_FROM + " ORDER BY feedback_fts.rowid DESC LIMIT ? OFFSET ?";
+    static final String SEARCH_NEWEST_BY_CATEGORY_SQL =
+            SEARCH_COLUMNS + SEARCH_FROM + " AND f.category = ? ORDER BY feedback_fts.rowid DESC LIMIT ? OFFSET ?";
+    static final String SEARCH_COUNT_SQL =
+            "SELECT COUNT(*) FROM feedback_fts WHERE feedback_fts MATCH ?";
+    static final String SEARCH_COUNT_BY_CATEGORY_SQL =
+            "SELECT COUNT(*)" + SEARCH_FROM + " AND f.category = ?";
+    
+    // The order of ORDER_BY, for merging the lists of several databases
+    private static final Comparator<Feedback> NEWEST_FIRST = new Comparator<Feedback>() {
+        @Override
+        public int compare(Feedback a, Feedback b) {
+            int byDate = b.getDateSubmitted().compareTo(a.getDateSubmitted());
+            return byDate != 0 ? byDate : Integer.compare(b.getId(), a.getId());
+        }
+    };
+    
+    private static volatile WriteBehind writeBehind;
+    
+    private static final OperationMetrics INSERT_METRICS = Metrics.operation("FeedbackDAO.insertFeedback");
+    private static final OperationMetrics INSERT_BATCH_METRICS = Metrics.operation("FeedbackDAO.insertFeedbackBatch");
+    private static final OperationMetrics GET_ALL_METRICS = Metrics.operation("FeedbackDAO.getAllFeedback");
+    private static final OperationMetrics BY_CATEGORY_METRICS = Metrics.operation("FeedbackDAO.getFeedbackByCategory");
+    private static final OperationMetrics PAGE_METRICS = Metrics.operation("FeedbackDAO.getFeedbackPage");
+    private static final OperationMetrics PAGE_AT_METRICS = Metrics.operation("FeedbackDAO.getFeedbackPageAt");
+    private static final OperationMetrics COUNT_METRICS = Metrics.operation("FeedbackDAO.countFeedback");
+    private static final OperationMetrics ARCHIVED_COUNT_METRICS = Metrics.operation("FeedbackDAO.countArchivedFeedback");
+    private static final OperationMetrics SNAPSHOT_METRICS = Metrics.operation("FeedbackDAO.getFeedbackSnapshot");
+    private static final OperationMetrics CHANGES_METRICS = Metrics.operation("FeedbackDAO.getChangesSince");
+    private static final OperationMetrics STREAM_METRICS = Metrics.operation("FeedbackDAO.streamFeedback");
+    private static final OperationMetrics COUNT_RANGE_METRICS = Metrics.operation("FeedbackDAO.countFeedbackInRange");
+    private static final OperationMetrics SEARCH_METRICS = Metrics.operation("FeedbackDAO.searchFeedback");
+    private static final OperationMetrics SEARCH_COUNT_METRICS = Metrics.operation("FeedbackDAO.countSearchResults");
+    private static final OperationMetrics DELETE_METRICS = Metrics.operation("FeedbackDAO.deleteFeedback");
+    private static final OperationMetrics VERSION_METRICS = Metrics.operation("FeedbackDAO.getDataVersion");
+    
+    /**
+     * Writes that have been accepted but may not be in the feedback table yet
+     */
+    public interface WriteBehind {
+        /**
+         * Waits until the writes the calling thread had accepted are in the
+         * feedback table, as far as that is possible in reasonable time
+         * @throws SQLException if waiting itself fails
+         */
+        void awaitStored() throws SQLException;
+    }
+    
+    /**
+     * Makes every read wait for the writes its thread had accepted, so that
+     * a submitter sees its own feedback even while it is held in a
+     * write-behind log
+     * @param pending The write-behind log, or null to stop waiting
+     */
+    public static void setWriteBehind(WriteBehind pending) {
+        writeBehind = pending;
+    }
+    
+    private static void awaitWriteBehind() throws SQLException {
+        WriteBehind pending = writeBehind;
+        if (pending != null) {
+            pending.awaitStored();
+        }
+    }
     
     /**
      * Inserts a new feedback entry into the database
@@ -17,43 +162,192 @@ public class FeedbackDAO {
      * @return true if insertion was successful, false otherwise
      * @throws SQLException if database operation fails
      */
+    @Override
     public boolean insertFeedback(Feedback feedback) throws SQLException {
-        String sql = "INSERT INTO feedback (category, message, rating, date_submitted) VALUES (?, ?, ?, ?)";
-        
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try {
+            String sql = INSERT_SQL;
             
-            pstmt.setString(1, feedback.getCategory());
-            pstmt.setString(2, feedback.getMessage());
-            pstmt.setInt(3, feedback.getRating());
-            pstmt.setDate(4, new java.sql.Date(feedback.getDateSubmitted().getTime()));
+            try (Connection conn = DatabaseManager.getWriteConnection()) {
+                // One transaction, so the event reads the version this insert produced
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    
+                    pstmt.setString(1, feedback.getCategory());
+                    pstmt.setString(2, feedback.getMessage());
+                    pstmt.setInt(3, feedback.getRating());
+                    pstmt.setLong(4, feedback.getDateSubmitted().getTime());
+                    setDuplicateOf(pstmt, 5, feedback);
+                    pstmt.setString(6, feedback.getSubmissionId());
+                    
+                    int rowsAffected = pstmt.executeUpdate();
+                    FeedbackEvent event = null;
+                    if (rowsAffected > 0 && FeedbackEvents.hasListeners()) {
+                        event = insertedEvent(conn, Collections.singletonList(feedback), lastInsertId(conn));
+                    }
+                    conn.commit();
+                    INSERT_METRICS.recordRows(rowsAffected);
+                    if (event != null) {
+                        FeedbackEvents.publish(event);
+                    }
+                    return rowsAffected > 0;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            INSERT_METRICS.recordError();
+            throw e;
+        } finally {
+            INSERT_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Inserts several feedback entries in a single transaction, so the whole
+     * batch costs one commit. On success each entry's id is set.
+     * @param feedbackList The feedback objects to insert
+     * @throws SQLException if database operation fails; nothing is inserted then
+     */
+    @Override
+    public void insertFeedbackBatch(List<Feedback> feedbackList) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (feedbackList.isEmpty()) {
+                return;
+            }
             
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            try (Connection conn = DatabaseManager.getWriteConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    long firstId = insertBatch(conn, feedbackList);
+                    FeedbackEvent event = FeedbackEvents.hasListeners()
+                            ? insertedEvent(conn, feedbackList, firstId) : null;
+                    conn.commit();
+                    INSERT_BATCH_METRICS.recordRows(feedbackList.size());
+                    
+                    long id = firstId;
+                    for (Feedback feedback : feedbackList) {
+                        feedback.setId((int) id++);
+                    }
+                    if (event != null) {
+                        FeedbackEvents.publish(event);
+                    }
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            INSERT_BATCH_METRICS.recordError();
+            throw e;
+        } finally {
+            INSERT_BATCH_METRICS.recordTime(start);
         }
     }
     
     /**
-     * Retrieves all feedback entries from the database
+     * Inserts feedback entries within the caller's transaction on the writer
+     * @return Id of the first entry; the others follow consecutively
+     */
+    static long insertBatch(Connection conn, List<Feedback> feedbackList) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_SQL)) {
+            
+            for (Feedback feedback : feedbackList) {
+                pstmt.setString(1, feedback.getCategory());
+                pstmt.setString(2, feedback.getMessage());
+                pstmt.setInt(3, feedback.getRating());
+                pstmt.setLong(4, feedback.getDateSubmitted().getTime());
+                setDuplicateOf(pstmt, 5, feedback);
+                pstmt.setString(6, feedback.getSubmissionId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            
+            // The writer is exclusive, so AUTOINCREMENT ids in this batch are consecutive
+            return lastInsertId(conn) - feedbackList.size() + 1;
+        }
+    }
+    
+    private static long lastInsertId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+    
+    /**
+     * Builds the event of entries just inserted, within the inserting
+     * transaction. The insert trigger moves the data version once per row.
+     * @param firstId Id of the first entry; the others follow consecutively
+     */
+    private static FeedbackEvent insertedEvent(Connection conn, List<Feedback> feedbackList, long firstId)
+            throws SQLException {
+        long version = readDataVersion(conn)[0];
+        List<Feedback> inserted = new ArrayList<>(feedbackList.size());
+        long id = firstId;
+        for (Feedback feedback : feedbackList) {
+            Feedback copy = new Feedback((int) id++, feedback.getCategory(), feedback.getMessage(),
+                                         feedback.getRating(), feedback.getDateSubmitted());
+            copy.setDuplicateOf(Math.max(0, feedback.getDuplicateOf()));
+            inserted.add(copy);
+        }
+        return new FeedbackEvent(version - feedbackList.size(), version, inserted,
+                                 Collections.<Feedback>emptyList());
+    }
+    
+    /**
+     * Retrieves all feedback entries from the database and its archive partitions
      * @return List of Feedback objects
      * @throws SQLException if database operation fails
      */
+    @Override
     public List<Feedback> getAllFeedback() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            List<Feedback> feedbackList;
+            PartitionStore partitions = DatabaseManager.getPartitions();
+            if (partitions == null) {
+                try (Connection conn = DatabaseManager.getConnection()) {
+                    feedbackList = getAllFeedback(conn);
+                }
+            } else {
+                feedbackList = new ArrayList<>();
+                for (List<Feedback> partial : partitions.queryAll(partitions.list(),
+                        new PartitionStore.Query<List<Feedback>>() {
+                            @Override
+                            public List<Feedback> run(Connection conn) throws SQLException {
+                                return getAllFeedback(conn);
+                            }
+                        })) {
+                    feedbackList.addAll(partial);
+                }
+                // Entries not moved yet can be as old as archived ones
+                Collections.sort(feedbackList, NEWEST_FIRST);
+            }
+            
+            GET_ALL_METRICS.recordRows(feedbackList.size());
+            return feedbackList;
+        } catch (SQLException | RuntimeException e) {
+            GET_ALL_METRICS.recordError();
+            throw e;
+        } finally {
+            GET_ALL_METRICS.recordTime(start);
+        }
+    }
+    
+    private List<Feedback> getAllFeedback(Connection conn) throws SQLException {
         List<Feedback> feedbackList = new ArrayList<>();
-        String sql = "SELECT * FROM feedback ORDER BY date_submitted DESC";
+        String sql = SELECT_ALL_SQL;
         
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql);
+        try (PreparedStatement pstmt = conn.prepareStatement(sql);
              ResultSet rs = pstmt.executeQuery()) {
             
             while (rs.next()) {
-                Feedback feedback = new Feedback();
-                feedback.setId(rs.getInt("id"));
-                feedback.setCategory(rs.getString("category"));
-                feedback.setMessage(rs.getString("message"));
-                feedback.setRating(rs.getInt("rating"));
-                feedback.setDateSubmitted(rs.getDate("date_submitted"));
-                feedbackList.add(feedback);
+                feedbackList.add(mapFeedback(rs));
             }
         }
         
@@ -66,24 +360,89 @@ public class FeedbackDAO {
      * @return List of Feedback objects
      * @throws SQLException if database operation fails
      */
+    @Override
     public List<Feedback> getFeedbackByCategory(String category) throws SQLException {
-        List<Feedback> feedbackList = new ArrayList<>();
-        String sql = "SELECT * FROM feedback WHERE category = ? ORDER BY date_submitted DESC";
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            List<Feedback> feedbackList = new ArrayList<>();
+            String sql = SELECT_BY_CATEGORY_SQL;
+            
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setString(1, category);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        feedbackList.add(mapFeedback(rs));
+                    }
+                }
+            }
+            
+            BY_CATEGORY_METRICS.recordRows(feedbackList.size());
+            return feedbackList;
+        } catch (SQLException | RuntimeException e) {
+            BY_CATEGORY_METRICS.recordError();
+            throw e;
+        } finally {
+            BY_CATEGORY_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Retrieves one page of feedback using keyset pagination on
+     * (date_submitted, id), newest first. Paging this way costs the same
+     * for the first page and the last one.
+     * @param category The category to filter by, or null for all categories
+     * @param after Cursor of the last row of the previous page, or null for the first page
+     * @param limit Maximum number of rows to return
+     * @return List of Feedback objects, empty once the end is reached
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public List<Feedback> getFeedbackPage(String category, PageCursor after, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            try (Connection conn = DatabaseManager.getConnection()) {
+                List<Feedback> page = getFeedbackPage(conn, category, after, limit);
+                PAGE_METRICS.recordRows(page.size());
+                return page;
+            }
+        } catch (SQLException | RuntimeException e) {
+            PAGE_METRICS.recordError();
+            throw e;
+        } finally {
+            PAGE_METRICS.recordTime(start);
+        }
+    }
+    
+    private List<Feedback> getFeedbackPage(Connection conn, String category, PageCursor after,
+                                           int limit) throws SQLException {
+        List<Feedback> feedbackList = new ArrayList<>(limit);
+        String sql;
+        if (after == null) {
+            sql = category != null ? PAGE_FIRST_BY_CATEGORY_SQL : PAGE_FIRST_SQL;
+        } else {
+            sql = category != null ? PAGE_AFTER_BY_CATEGORY_SQL : PAGE_AFTER_SQL;
+        }
         
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            pstmt.setString(1, category);
+            int index = 1;
+            if (category != null) {
+                pstmt.setString(index++, category);
+            }
+            if (after != null) {
+                pstmt.setLong(index++, after.getDateSubmitted());
+                pstmt.setInt(index++, after.getId());
+            }
+            pstmt.setInt(index, limit);
             
             try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    Feedback feedback = new Feedback();
-                    feedback.setId(rs.getInt("id"));
-                    feedback.setCategory(rs.getString("category"));
-                    feedback.setMessage(rs.getString("message"));
-                    feedback.setRating(rs.getInt("rating"));
-                    feedback.setDateSubmitted(rs.getDate("date_submitted"));
-                    feedbackList.add(feedback);
+                    feedbackList.add(mapFeedback(rs));
                 }
             }
         }
@@ -92,20 +451,639 @@ public class FeedbackDAO {
     }
     
     /**
-     * Deletes a feedback entry by ID
+     * Retrieves one page of feedback starting at a row offset. Used only when a
+     * caller jumps to a position it has no keyset cursor for; sequential
+     * paging should use {@link #getFeedbackPage(String, PageCursor, int)}.
+     * @param category The category to filter by, or null for all categories
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     * @return List of Feedback objects
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public List<Feedback> getFeedbackPageAt(String category, int offset, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            List<Feedback> feedbackList = new ArrayList<>(limit);
+            String sql = category != null ? PAGE_AT_BY_CATEGORY_SQL : PAGE_AT_SQL;
+            
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                int index = 1;
+                if (category != null) {
+                    pstmt.setString(index++, category);
+                }
+                pstmt.setInt(index++, limit);
+                pstmt.setInt(index, offset);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        feedbackList.add(mapFeedback(rs));
+                    }
+                }
+            }
+            
+            PAGE_AT_METRICS.recordRows(feedbackList.size());
+            return feedbackList;
+        } catch (SQLException | RuntimeException e) {
+            PAGE_AT_METRICS.recordError();
+            throw e;
+        } finally {
+            PAGE_AT_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Counts feedback entries
+     * @param category The category to filter by, or null for all categories
+     * @return Number of matching entries
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public int countFeedback(String category) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            try (Connection conn = DatabaseManager.getConnection()) {
+                int count = countFeedback(conn, category);
+                COUNT_METRICS.recordRows(count);
+                return count;
+            }
+        } catch (SQLException | RuntimeException e) {
+            COUNT_METRICS.recordError();
+            throw e;
+        } finally {
+            COUNT_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Counts the feedback entries moved to archive partitions
+     * @param category The category to filter by, or null for all categories
+     * @return Number of archived entries, 0 if partitioning is disabled
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public long countArchivedFeedback(String category) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            long count = 0;
+            PartitionStore partitions = DatabaseManager.getPartitions();
+            if (partitions != null) {
+                for (Partition partition : partitions.list()) {
+                    try (Connection conn = partitions.getConnection(partition)) {
+                        count += countFeedback(conn, category);
+                    }
+                }
+            }
+            
+            ARCHIVED_COUNT_METRICS.recordRows(count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            ARCHIVED_COUNT_METRICS.recordError();
+            throw e;
+        } finally {
+            ARCHIVED_COUNT_METRICS.recordTime(start);
+        }
+    }
+    
+    private int countFeedback(Connection conn, String category) throws SQLException {
+        String sql = category != null ? COUNT_BY_CATEGORY_SQL : COUNT_SQL;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            if (category != null) {
+                pstmt.setString(1, category);
+            }
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+    
+    /**
+     * Reads the row count, the first page and the change mark of a category
+     * from a single consistent snapshot, as the starting point for
+     * {@link #getChangesSince}
+     * @param category The category to filter by, or null for all categories
+     * @param limit Maximum number of rows in the first page
+     * @return FeedbackSnapshot
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public FeedbackSnapshot getFeedbackSnapshot(String category, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            try (Connection conn = DatabaseManager.getConnection()) {
+                // One read transaction, so all four reads see the same data
+                conn.setAutoCommit(false);
+                long version = readDataVersion(conn)[0];
+                int lastId;
+                try (PreparedStatement pstmt = conn.prepareStatement(MAX_ID_SQL);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    lastId = rs.next() ? rs.getInt(1) : 0;
+                }
+                int count = countFeedback(conn, category);
+                List<Feedback> firstPage = getFeedbackPage(conn, category, null, limit);
+                conn.commit();
+                SNAPSHOT_METRICS.recordRows(firstPage.size());
+                return new FeedbackSnapshot(count, firstPage, version, lastId);
+            }
+        } catch (SQLException | RuntimeException e) {
+            SNAPSHOT_METRICS.recordError();
+            throw e;
+        } finally {
+            SNAPSHOT_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Reads the rows inserted and deleted since a snapshot. Reads only the
+     * changes, so the cost depends on recent activity rather than on the
+     * size of the table.
+     * @param version Data version of the snapshot or of the last changes applied
+     * @param lastId Highest feedback id already seen
+     * @param maxChanges Most inserted or deleted rows to return; more than
+     *                   that and a full reload is requested instead
+     * @return FeedbackChanges, which may ask the caller to reload everything
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public FeedbackChanges getChangesSince(long version, int lastId, int maxChanges) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            try (Connection conn = DatabaseManager.getConnection()) {
+                conn.setAutoCommit(false);
+                long[] current = readDataVersion(conn);
+                if (current[1] > version) {
+                    // Rows were updated in place or tombstones pruned since then
+                    return FeedbackChanges.reloadRequired(current[0]);
+                }
+                if (current[0] == version) {
+                    return new FeedbackChanges(version, lastId, new ArrayList<Feedback>(), new ArrayList<Feedback>());
+                }
+                
+                List<Feedback> inserted = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERTED_SINCE_SQL)) {
+                    pstmt.setInt(1, lastId);
+                    pstmt.setInt(2, maxChanges + 1);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Feedback feedback = mapFeedback(rs);
+                            feedback.setDuplicateOf(rs.getInt("duplicate_of"));
+                            inserted.add(feedback);
+                        }
+                    }
+                }
+                
+                // Rows inserted after lastId and deleted again were never seen, so only older ids matter
+                List<Feedback> deleted = new ArrayList<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(DELETED_SINCE_SQL)) {
+                    pstmt.setLong(1, version);
+                    pstmt.setInt(2, lastId);
+                    pstmt.setInt(3, maxChanges + 1);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            Feedback tombstone = new Feedback();
+                            tombstone.setId(rs.getInt("id"));
+                            tombstone.setCategory(rs.getString("category"));
+                            tombstone.setRating(rs.getInt("rating"));
+                            tombstone.setDateSubmitted(new java.util.Date(rs.getLong("date_submitted")));
+                            tombstone.setDuplicateOf(rs.getInt("duplicate_of"));
+                            deleted.add(tombstone);
+                        }
+                    }
+                }
+                conn.commit();
+                CHANGES_METRICS.recordRows(inserted.size() + deleted.size());
+                
+                if (inserted.size() > maxChanges || deleted.size() > maxChanges) {
+                    return FeedbackChanges.reloadRequired(current[0]);
+                }
+                int newLastId = inserted.isEmpty() ? lastId : inserted.get(inserted.size() - 1).getId();
+                return new FeedbackChanges(current[0], newLastId, inserted, deleted);
+            }
+        } catch (SQLException | RuntimeException e) {
+            CHANGES_METRICS.recordError();
+            throw e;
+        } finally {
+            CHANGES_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Reads the data version and the version before which changes cannot be
+     * replayed
+     * @return {version, reset_version}
+     */
+    private static long[] readDataVersion(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(DATA_VERSION_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (!rs.next()) {
+                throw new SQLException("feedback_data_version is empty");
+            }
+            return new long[] {rs.getLong(1), rs.getLong(2)};
+        }
+    }
+    
+    /**
+     * Reads feedback entries oldest first through a forward-only cursor and
+     * passes each one to a handler without collecting them, so memory use
+     * does not depend on the number of entries. Archive partitions in the
+     * range are included.
+     * @param category The category to filter by, or null for all categories
+     * @param fromMillis Earliest submission time to include, in epoch milliseconds
+     * @param toMillis Submission time to stop before, in epoch milliseconds
+     * @param handler Receives each entry
+     * @return Number of entries passed to the handler
+     * @throws SQLException if database operation fails
+     * @throws IOException if the handler fails
+     */
+    @Override
+    public long streamFeedback(String category, long fromMillis, long toMillis,
+                               FeedbackHandler handler) throws SQLException, IOException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            long rows = 0;
+            // Archive partitions hold the older entries, so reading them first keeps the order
+            PartitionStore partitions = DatabaseManager.getPartitions();
+            if (partitions != null) {
+                for (Partition partition : partitions.getOverlapping(fromMillis, toMillis)) {
+                    try (Connection conn = partitions.getConnection(partition)) {
+                        rows += streamFeedback(conn, category, fromMillis, toMillis, handler);
+                    }
+                }
+            }
+            try (Connection conn = DatabaseManager.getConnection()) {
+                rows += streamFeedback(conn, category, fromMillis, toMillis, handler);
+            }
+            
+            STREAM_METRICS.recordRows(rows);
+            return rows;
+        } catch (SQLException | IOException | RuntimeException e) {
+            STREAM_METRICS.recordError();
+            throw e;
+        } finally {
+            STREAM_METRICS.recordTime(start);
+        }
+    }
+    
+    private long streamFeedback(Connection conn, String category, long fromMillis, long toMillis,
+                                FeedbackHandler handler) throws SQLException, IOException {
+        String sql = category != null ? STREAM_BY_CATEGORY_SQL : STREAM_SQL;
+        long rows = 0;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                                                             ResultSet.CONCUR_READ_ONLY)) {
+            
+            int index = 1;
+            if (category != null) {
+                pstmt.setString(index++, category);
+            }
+            pstmt.setLong(index++, fromMillis);
+            pstmt.setLong(index, toMillis);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.handle(mapFeedback(rs));
+                    rows++;
+                }
+            }
+        }
+        return rows;
+    }
+    
+    /**
+     * Counts feedback entries submitted within a time range, including
+     * those in archive partitions
+     * @param category The category to filter by, or null for all categories
+     * @param fromMillis Earliest submission time to include, in epoch milliseconds
+     * @param toMillis Submission time to stop before, in epoch milliseconds
+     * @return Number of matching entries
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public long countFeedback(final String category, final long fromMillis, final long toMillis)
+            throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            long count = 0;
+            PartitionStore partitions = DatabaseManager.getPartitions();
+            if (partitions == null) {
+                try (Connection conn = DatabaseManager.getConnection()) {
+                    count = countFeedback(conn, category, fromMillis, toMillis);
+                }
+                COUNT_RANGE_METRICS.recordRows(count);
+                return count;
+            }
+            
+            for (long partial : partitions.queryAll(partitions.getOverlapping(fromMillis, toMillis),
+                    new PartitionStore.Query<Long>() {
+                        @Override
+                        public Long run(Connection conn) throws SQLException {
+                            return countFeedback(conn, category, fromMillis, toMillis);
+                        }
+                    })) {
+                count += partial;
+            }
+            COUNT_RANGE_METRICS.recordRows(count);
+            return count;
+        } catch (SQLException | RuntimeException e) {
+            COUNT_RANGE_METRICS.recordError();
+            throw e;
+        } finally {
+            COUNT_RANGE_METRICS.recordTime(start);
+        }
+    }
+    
+    private long countFeedback(Connection conn, String category, long fromMillis, long toMillis)
+            throws SQLException {
+        String sql = category != null ? COUNT_RANGE_BY_CATEGORY_SQL : COUNT_RANGE_SQL;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            if (category != null) {
+                pstmt.setString(index++, category);
+            }
+            pstmt.setLong(index++, fromMillis);
+            pstmt.setLong(index, toMillis);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    /**
+     * Searches feedback messages. Every word must occur in the message; a
+     * word ending in * matches any word starting with it.
+     * @param query The search text as typed by the user
+     * @param category The category to filter by, or null for all categories
+     * @param byRelevance true for best matches first, false for newest first;
+     *                    see {@link #MAX_RANKED_MATCHES}
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of rows to return
+     * @return List of Feedback objects
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public List<Feedback> searchFeedback(String query, String category, boolean byRelevance,
+                                         int offset, int limit) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            List<Feedback> feedbackList = new ArrayList<>(limit);
+            String matchQuery = toMatchQuery(query);
+            if (matchQuery == null) {
+                return feedbackList;
+            }
+            String sql;
+            if (byRelevance) {
+                sql = category != null ? SEARCH_BY_CATEGORY_SQL : SEARCH_SQL;
+            } else {
+                sql = category != null ? SEARCH_NEWEST_BY_CATEGORY_SQL : SEARCH_NEWEST_SQL;
+            }
+            
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                int index = 1;
+                pstmt.setString(index++, matchQuery);
+                if (category != null) {
+                    pstmt.setString(index++, category);
+                }
+                pstmt.setInt(index++, limit);
+                pstmt.setInt(index, offset);
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        feedbackList.add(mapFeedback(rs));
+                    }
+                }
+            }
+            
+            SEARCH_METRICS.recordRows(feedbackList.size());
+            return feedbackList;
+        } catch (SQLException | RuntimeException e) {
+            SEARCH_METRICS.recordError();
+            throw e;
+        } finally {
+            SEARCH_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Counts the feedback entries matching a search
+     * @param query The search text as typed by the user
+     * @param category The category to filter by, or null for all categories
+     * @return Number of matching entries
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public int countSearchResults(String query, String category) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            awaitWriteBehind();
+            String matchQuery = toMatchQuery(query);
+            if (matchQuery == null) {
+                return 0;
+            }
+            String sql = category != null ? SEARCH_COUNT_BY_CATEGORY_SQL : SEARCH_COUNT_SQL;
+            
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                
+                pstmt.setString(1, matchQuery);
+                if (category != null) {
+                    pstmt.setString(2, category);
+                }
+                
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    int count = rs.next() ? rs.getInt(1) : 0;
+                    SEARCH_COUNT_METRICS.recordRows(count);
+                    return count;
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            SEARCH_COUNT_METRICS.recordError();
+            throw e;
+        } finally {
+            SEARCH_COUNT_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Turns user input into an FTS5 query. Each word is quoted, so
+     * punctuation such as "CS-101" or a stray quote cannot cause a syntax
+     * error, and the words are combined with AND.
+     * @return The MATCH expression, or null if the input has no words
+     */
+    private static String toMatchQuery(String query) {
+        if (query == null) {
+            return null;
+        }
+        StringBuilder match = new StringBuilder();
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            if (prefix) {
+                word = word.substring(0, word.length() - 1);
+            }
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(word.replace("\"", "\"\"")).append('"');
+            if (prefix) {
+                match.append('*');
+            }
+        }
+        return match.length() > 0 ? match.toString() : null;
+    }
+    
+    /**
+     * Deletes a feedback entry by ID, from the archive partitions if it is
+     * not in the main database
      * @param id The ID of the feedback to delete
      * @return true if deletion was successful, false otherwise
      * @throws SQLException if database operation fails
      */
+    @Override
     public boolean deleteFeedback(int id) throws SQLException {
-        String sql = "DELETE FROM feedback WHERE id = ?";
-        
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        long start = System.nanoTime();
+        try {
+            String sql = DELETE_SQL;
+            boolean deleted;
             
+            try (Connection conn = DatabaseManager.getWriteConnection()) {
+                // One transaction, so the event reads the tombstone this delete produced
+                conn.setAutoCommit(false);
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    
+                    pstmt.setInt(1, id);
+                    int rowsAffected = pstmt.executeUpdate();
+                    FeedbackEvent event = null;
+                    if (rowsAffected > 0 && FeedbackEvents.hasListeners()) {
+                        event = deletedEvent(conn, id);
+                    }
+                    conn.commit();
+                    if (event != null) {
+                        FeedbackEvents.publish(event);
+                    }
+                    deleted = rowsAffected > 0;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            
+            if (!deleted) {
+                deleted = deleteArchived(id);
+            }
+            DELETE_METRICS.recordRows(deleted ? 1 : 0);
+            return deleted;
+        } catch (SQLException | RuntimeException e) {
+            DELETE_METRICS.recordError();
+            throw e;
+        } finally {
+            DELETE_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Deletes an entry from the archive partition holding it. Archived
+     * entries are not in the change feed, so no event is published; the
+     * partition's own trigger updates its rating aggregates.
+     */
+    private static boolean deleteArchived(int id) throws SQLException {
+        PartitionStore partitions = DatabaseManager.getPartitions();
+        if (partitions == null) {
+            return false;
+        }
+        for (Partition partition : partitions.list()) {
+            try (Connection conn = partitions.getConnection(partition);
+                 PreparedStatement pstmt = conn.prepareStatement(DELETE_SQL)) {
+                pstmt.setInt(1, id);
+                if (pstmt.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Reads the data version, which every insert and delete moves. Cheap
+     * enough to poll for writes made by other processes.
+     * @return The current data version
+     * @throws SQLException if database operation fails
+     */
+    public long getDataVersion() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            return readDataVersion(conn)[0];
+        } catch (SQLException | RuntimeException e) {
+            VERSION_METRICS.recordError();
+            throw e;
+        } finally {
+            VERSION_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Builds the event of an entry just deleted from its tombstone, within
+     * the deleting transaction
+     */
+    private static FeedbackEvent deletedEvent(Connection conn, int id) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(DELETED_EVENT_SQL)) {
             pstmt.setInt(1, id);
-            int rowsAffected = pstmt.executeUpdate();
-            return rowsAffected > 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("No tombstone for deleted feedback " + id);
+                }
+                Feedback tombstone = new Feedback();
+                tombstone.setId(id);
+                tombstone.setCategory(rs.getString("category"));
+                tombstone.setRating(rs.getInt("rating"));
+                tombstone.setDateSubmitted(new java.util.Date(rs.getLong("date_submitted")));
+                tombstone.setDuplicateOf(rs.getInt("duplicate_of"));
+                long version = rs.getLong("version");
+                return new FeedbackEvent(version - 1, version, Collections.<Feedback>emptyList(),
+                                         Collections.singletonList(tombstone));
+            }
         }
     }
+    
+    /**
+     * Binds the duplicate_of column, NULL for originals
+     */
+    private static void setDuplicateOf(PreparedStatement pstmt, int index, Feedback feedback) throws SQLException {
+        if (feedback.getDuplicateOf() > 0) {
+            pstmt.setInt(index, feedback.getDuplicateOf());
+        } else {
+            pstmt.setNull(index, Types.INTEGER);
+        }
+    }
+    
+    /**
+     * Maps the current result set row to a Feedback object
+     */
+    private Feedback mapFeedback(ResultSet rs) throws SQLException {
+        Feedback feedback = new Feedback();
+        feedback.setId(rs.getInt("id"));
+        feedback.setCategory(rs.getString("category"));
+        feedback.setMessage(rs.getString("message"));
+        feedback.setRating(rs.getInt("rating"));
+        feedback.setDateSubmitted(new java.util.Date(rs.getLong("date_submitted")));
+        return feedback;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,177 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackChanges;
+import com.feedbacksystem.model.FeedbackSnapshot;
+import com.feedbacksystem.model.PageCursor;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Storage of feedback entries, as used by the forms, the ingestor and the
+ * exporter. FeedbackDAO keeps them in SQLite and InMemoryFeedbackDAO in
+ * memory; {@link Repositories} returns the configured one.
+ *
+ * Lists are newest first by (date_submitted, id) unless stated otherwise.
+ * Pages, searches, snapshots and changes cover the current feedback only;
+ * entries moved to archive partitions are included where stated.
+ * Every implementation must pass RepositoryConformanceCheck.
+ */
+public interface FeedbackRepository {
+    
+    /**
+     * Searches with more matches than this are listed newest first instead
+     * of by relevance: ranking scores every match, while newest-first
+     * streams from the index and stops after one page
+     */
+    int MAX_RANKED_MATCHES = 20000;
+    
+    /**
+     * Receives feedback entries one at a time from {@link #streamFeedback}
+     */
+    interface FeedbackHandler {
+        void handle(Feedback feedback) throws IOException;
+    }
+    
+    /**
+     * Inserts a new feedback entry
+     * @param feedback The feedback object to insert
+     * @return true if insertion was successful, false otherwise
+     * @throws SQLException if the entry cannot be stored
+     */
+    boolean insertFeedback(Feedback feedback) throws SQLException;
+    
+    /**
+     * Inserts several feedback entries at once, all or none. On success each
+     * entry's id is set.
+     * @param feedbackList The feedback objects to insert
+     * @throws SQLException if the entries cannot be stored; nothing is inserted then
+     */
+    void insertFeedbackBatch(List<Feedback> feedbackList) throws SQLException;
+    
+    /**
+     * @return Every feedback entry, archived ones included
+     * @throws SQLException if the entries cannot be read
+     */
+    List<Feedback> getAllFeedback() throws SQLException;
+    
+    /**
+     * @param category The category to filter by
+     * @return The category's feedback entries
+     * @throws SQLException if the entries cannot be read
+     */
+    List<Feedback> getFeedbackByCategory(String category) throws SQLException;
+    
+    /**
+     * Retrieves the page of feedback following a cursor
+     * @param category The category to filter by, or null for all categories
+     * @param after Cursor of the last row of the previous page, or null for the first page
+     * @param limit Maximum number of rows to return
+     * @return List of Feedback objects, empty once the end is reached
+     * @throws SQLException if the entries cannot be read
+     */
+    List<Feedback> getFeedbackPage(String category, PageCursor after, int limit) throws SQLException;
+    
+    /**
+     * Retrieves one page of feedback starting at a row offset
+     * @param category The category to filter by, or null for all categories
+     * @param offset Number of rows to skip
+     * @param limit Maximum number of rows to return
+     * @return List of Feedback objects
+     * @throws SQLException if the entries cannot be read
+     */
+    List<Feedback> getFeedbackPageAt(String category, int offset, int limit) throws SQLException;
+    
+    /**
+     * @param category The category to filter by, or null for all categories
+     * @return Number of matching entries
+     * @throws SQLException if the entries cannot be counted
+     */
+    int countFeedback(String category) throws SQLException;
+    
+    /**
+     * Counts the entries moved to archive partitions, which pages and
+     * searches do not list
+     * @param category The category to filter by, or null for all categories
+     * @return Number of archived entries
+     * @throws SQLException if the entries cannot be counted
+     */
+    long countArchivedFeedback(String category) throws SQLException;
+    
+    /**
+     * Reads the row count, the first page and the change mark of a category
+     * consistently, as the starting point for {@link #getChangesSince}
+     * @param category The category to filter by, or null for all categories
+     * @param limit Maximum number of rows in the first page
+     * @return FeedbackSnapshot
+     * @throws SQLException if the entries cannot be read
+     */
+    FeedbackSnapshot getFeedbackSnapshot(String category, int limit) throws SQLException;
+    
+    /**
+     * Reads the rows inserted and deleted since a snapshot
+     * @param version Data version of the snapshot or of the last changes applied
+     * @param lastId Highest feedback id already seen
+     * @param maxChanges Most inserted or deleted rows to return; more than
+     *                   that and a full reload is requested instead
+     * @return FeedbackChanges, which may ask the caller to reload everything
+     * @throws SQLException if the changes cannot be read
+     */
+    FeedbackChanges getChangesSince(long version, int lastId, int maxChanges) throws SQLException;
+    
+    /**
+     * Passes the feedback entries of a time range to a handler one at a
+     * time, oldest first, without collecting them; archived ones included
+     * @param category The category to filter by, or null for all categories
+     * @param fromMillis Earliest submission time to include, in epoch milliseconds
+     * @param toMillis Submission time to stop before, in epoch milliseconds
+     * @param handler Receives each entry
+     * @return Number of entries passed to the handler
+     * @throws SQLException if the entries cannot be read
+     * @throws IOException if the handler fails
+     */
+    long streamFeedback(String category, long fromMillis, long toMillis,
+                        FeedbackHandler handler) throws SQLException, IOException;
+    
+    /**
+     * Counts feedback entries submitted within a time range, archived ones included
+     * @param category The category to filter by, or null for all categories
+     * @param fromMillis Earliest submission time to include, in epoch milliseconds
+     * @param toMillis Submission time to stop before, in epoch milliseconds
+     * @return Number of matching entries
+     * @throws SQLException if the entries cannot be counted
+     */
+    long countFeedback(String category, long fromMillis, long toMillis) throws SQLException;
+    
+    /**
+     * Searches feedback messages. Every word must occur in the message,
+     * ignoring case; a word ending in * matches any word starting with it.
+     * @param query The search text as typed by the user
+     * @param category The category to filter by, or null for all categories
+     * @param byRelevance true for best matches first, false for newest first
+     * @param offset Number of matches to skip
+     * @param limit Maximum number of rows to return
+     * @return List of Feedback objects
+     * @throws SQLException if the entries cannot be read
+     */
+    List<Feedback> searchFeedback(String query, String category, boolean byRelevance,
+                                  int offset, int limit) throws SQLException;
+    
+    /**
+     * Counts the feedback entries matching a search
+     * @param query The search text as typed by the user
+     * @param category The category to filter by, or null for all categories
+     * @return Number of matching entries
+     * @throws SQLException if the entries cannot be counted
+     */
+    int countSearchResults(String query, String category) throws SQLException;
+    
+    /**
+     * Deletes a feedback entry by ID, archived or not
+     * @param id The ID of the feedback to delete
+     * @return true if deletion was successful, false otherwise
+     * @throws SQLException if the entry cannot be deleted
+     */
+    boolean deleteFeedback(int id) throws SQLException;
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.feedbacksystem.dao;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * AdminRepository held in memory, for use with InMemoryFeedbackDAO.
+ *
+ * Starts with the same default account as a new database (admin /
+ * admin123). Password changes last until the process exits. Logins are
+ * throttled and cached exactly as by AdminDAO.
+ */
+public class InMemoryAdminDAO extends AdminDAO {
+    
+    private final ConcurrentMap<String, String> passwordHashes = new ConcurrentHashMap<>();
+    
+    public InMemoryAdminDAO() {
+        passwordHashes.put("admin", hash("admin123"));
+    }
+    
+    @Override
+    String findPasswordHash(String username) {
+        return username != null ? passwordHashes.get(username) : null;
+    }
+    
+    @Override
+    boolean storePasswordHash(String username, String encoded) {
+        return username != null && passwordHashes.replace(username, encoded) != null;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,843 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.analytics.TrendEngine;
+import com.feedbacksystem.events.FeedbackEvent;
+import com.feedbacksystem.events.FeedbackEvents;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackChanges;
+import com.feedbacksystem.model.FeedbackSnapshot;
+import com.feedbacksystem.model.PageCursor;
+import com.feedbacksystem.model.RatingStats;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.regex.Pattern;
+
+/**
+ * Feedback storage held entirely in memory, for event kiosks that take
+ * submissions faster than SQLite can commit them, and for fast test runs.
+ *
+ * Entries are kept in concurrent skip lists ordered newest first by
+ * (date_submitted, id): one over everything, one per category and one by
+ * id. Reads walk them without taking a lock, so paging, counting and
+ * time-range streams cost what the indexed SQLite queries do. Writes are
+ * applied one at a time, as SQLite's single writer does; the snapshot and
+ * change reads of the dashboard retry if a write overlapped them. Rating
+ * aggregates are updated with every write, while search scans the messages.
+ * Inserts and deletes are published to FeedbackEvents after the write.
+ *
+ * With a snapshot file the entries are written to disk every few seconds
+ * when they have changed, and when the repository is closed, and read back
+ * when it is created. Entries added after the last snapshot are lost if the
+ * process is killed.
+ */
+public class InMemoryFeedbackDAO implements FeedbackRepository, StatsRepository, DuplicateRepository {
+    private static final int SNAPSHOT_MAGIC = 0x46424d31;
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+    
+    private final int keepTombstones;
+    private final StampedLock writeLock = new StampedLock();
+    private final Index all = new Index();
+    private final ConcurrentMap<String, Index> byCategory = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Integer, Entry> byId = new ConcurrentSkipListMap<>();
+    // Removed entries by the data version of their removal
+    private final ConcurrentSkipListMap<Long, Entry> tombstones = new ConcurrentSkipListMap<>();
+    private int tombstoneCount;
+    // Rating aggregates by category ("" for none) and UTC epoch day
+    private final ConcurrentMap<String, ConcurrentSkipListMap<Long, AtomicLongArray>> stats = new ConcurrentHashMap<>();
+    
+    // Written under the write lock
+    private volatile int lastId;
+    private volatile long version;
+    private volatile long resetVersion;
+    
+    private final File snapshotFile;
+    private final ScheduledExecutorService snapshotter;
+    private final Object snapshotLock = new Object();
+    private long snapshotVersion;
+    
+    /**
+     * One stored feedback entry. Ordered newest first, as the lists are.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        final int id;
+        final String category;
+        final String message;
+        final int rating;
+        final long date;
+        final int duplicateOf;
+        volatile int duplicateCount;
+        
+        Entry(int id, String category, String message, int rating, long date, int duplicateOf) {
+            this.id = id;
+            this.category = category;
+            this.message = message;
+            this.rating = rating;
+            this.date = date;
+            this.duplicateOf = duplicateOf;
+        }
+        
+        /**
+         * A position to search from, not a stored entry
+         */
+        static Entry probe(long date, int id) {
+            return new Entry(id, null, null, 0, date, 0);
+        }
+        
+        @Override
+        public int compareTo(Entry other) {
+            if (date != other.date) {
+                return date > other.date ? -1 : 1;
+            }
+            return Integer.compare(other.id, id);
+        }
+        
+        Feedback toFeedback() {
+            Feedback feedback = new Feedback(id, category, message, rating, new Date(date));
+            feedback.setDuplicateOf(duplicateOf);
+            return feedback;
+        }
+    }
+    
+    /**
+     * Entries of everything or of one category, with their count
+     */
+    private static final class Index {
+        final ConcurrentSkipListSet<Entry> entries = new ConcurrentSkipListSet<>();
+        // Written under the write lock
+        volatile int size;
+    }
+    
+    /**
+     * Creates an empty repository that is never written to disk
+     * @param keepTombstones Deletions remembered so that dashboards can refresh without a full reload
+     */
+    public InMemoryFeedbackDAO(int keepTombstones) {
+        this.keepTombstones = keepTombstones;
+        this.snapshotFile = null;
+        this.snapshotter = null;
+    }
+    
+    /**
+     * Creates a repository backed by a snapshot file, loading the file if it
+     * exists
+     * @param keepTombstones Deletions remembered so that dashboards can refresh without a full reload
+     * @param snapshotFile File the entries are saved to
+     * @param snapshotMillis Interval between saves, or 0 to save only on close()
+     * @throws IOException if the snapshot file exists but cannot be read
+     */
+    public InMemoryFeedbackDAO(int keepTombstones, File snapshotFile, long snapshotMillis) throws IOException {
+        this.keepTombstones = keepTombstones;
+        this.snapshotFile = snapshotFile;
+        if (snapshotFile.exists()) {
+            loadSnapshot();
+        }
+        
+        if (snapshotMillis > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "feedback-memory-snapshot");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            snapshotter.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        saveSnapshot();
+                    } catch (IOException | RuntimeException e) {
+                        // The previous snapshot is still intact; tried again next time
+                        e.printStackTrace();
+                    }
+                }
+            }, snapshotMillis, snapshotMillis, TimeUnit.MILLISECONDS);
+        } else {
+            snapshotter = null;
+        }
+    }
+    
+    @Override
+    public boolean insertFeedback(Feedback feedback) {
+        insertFeedbackBatch(Collections.singletonList(feedback), false);
+        return true;
+    }
+    
+    @Override
+    public void insertFeedbackBatch(List<Feedback> feedbackList) {
+        insertFeedbackBatch(feedbackList, true);
+    }
+    
+    private void insertFeedbackBatch(List<Feedback> feedbackList, boolean setIds) {
+        if (feedbackList.isEmpty()) {
+            return;
+        }
+        // Checked up front, so a bad entry leaves the whole batch out like a rolled back transaction
+        for (Feedback feedback : feedbackList) {
+            if (feedback.getDateSubmitted() == null) {
+                throw new NullPointerException("dateSubmitted");
+            }
+        }
+        
+        List<Feedback> inserted = FeedbackEvents.hasListeners() ? new ArrayList<Feedback>() : null;
+        FeedbackEvent event = null;
+        long stamp = writeLock.writeLock();
+        try {
+            int id = lastId;
+            for (Feedback feedback : feedbackList) {
+                Entry entry = new Entry(++id, feedback.getCategory(), feedback.getMessage(), feedback.getRating(),
+                                        feedback.getDateSubmitted().getTime(), Math.max(0, feedback.getDuplicateOf()));
+                add(entry);
+                if (setIds) {
+                    feedback.setId(entry.id);
+                }
+                if (inserted != null) {
+                    inserted.add(entry.toFeedback());
+                }
+            }
+            lastId = id;
+            version++;
+            if (inserted != null) {
+                event = new FeedbackEvent(version - 1, version, inserted, Collections.<Feedback>emptyList());
+            }
+        } finally {
+            writeLock.unlockWrite(stamp);
+        }
+        if (event != null) {
+            FeedbackEvents.publish(event);
+        }
+    }
+    
+    @Override
+    public List<Feedback> getAllFeedback() {
+        return toFeedback(all.entries, 0, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<Feedback> getFeedbackByCategory(String category) {
+        if (category == null) {
+            // Matches nothing, as category = NULL does in SQL
+            return new ArrayList<>();
+        }
+        return toFeedback(index(category).entries, 0, Integer.MAX_VALUE);
+    }
+    
+    @Override
+    public List<Feedback> getFeedbackPage(String category, PageCursor after, int limit) {
+        NavigableSet<Entry> entries = index(category).entries;
+        if (after != null) {
+            entries = entries.tailSet(Entry.probe(after.getDateSubmitted(), after.getId()), false);
+        }
+        return toFeedback(entries, 0, limit);
+    }
+    
+    @Override
+    public List<Feedback> getFeedbackPageAt(String category, int offset, int limit) {
+        return toFeedback(index(category).entries, offset, limit);
+    }
+    
+    @Override
+    public int countFeedback(String category) {
+        return index(category).size;
+    }
+    
+    @Override
+    public long countArchivedFeedback(String category) {
+        // Nothing is archived in memory
+        return 0;
+    }
+    
+    @Override
+    public FeedbackSnapshot getFeedbackSnapshot(String category, int limit) {
+        long stamp = writeLock.tryOptimisticRead();
+        FeedbackSnapshot snapshot = readSnapshot(category, limit);
+        if (!writeLock.validate(stamp)) {
+            stamp = writeLock.readLock();
+            try {
+                snapshot = readSnapshot(category, limit);
+            } finally {
+                writeLock.unlockRead(stamp);
+            }
+        }
+        return snapshot;
+    }
+    
+    private FeedbackSnapshot readSnapshot(String category, int limit) {
+        long currentVersion = version;
+        int currentLastId = lastId;
+        Index index = index(category);
+        return new FeedbackSnapshot(index.size, toFeedback(index.entries, 0, limit), currentVersion, currentLastId);
+    }
+    
+    @Override
+    public FeedbackChanges getChangesSince(long version, int lastId, int maxChanges) {
+        long stamp = writeLock.tryOptimisticRead();
+        FeedbackChanges changes = readChanges(version, lastId, maxChanges);
+        if (!writeLock.validate(stamp)) {
+            stamp = writeLock.readLock();
+            try {
+                changes = readChanges(version, lastId, maxChanges);
+            } finally {
+                writeLock.unlockRead(stamp);
+            }
+        }
+        return changes;
+    }
+    
+    private FeedbackChanges readChanges(long since, int sinceId, int maxChanges) {
+        long current = version;
+        if (resetVersion > since) {
+            // The deletions since then are no longer all remembered
+            return FeedbackChanges.reloadRequired(current);
+        }
+        if (current == since) {
+            return new FeedbackChanges(since, sinceId, new ArrayList<Feedback>(), new ArrayList<Feedback>());
+        }
+        
+        List<Feedback> inserted = toFeedback(byId.tailMap(sinceId, false).values(), 0, maxChanges + 1);
+        // Rows inserted after sinceId and deleted again were never seen, so only older ids matter
+        List<Feedback> deleted = new ArrayList<>();
+        for (Entry entry : tombstones.subMap(since, false, current, true).values()) {
+            if (entry.id <= sinceId) {
+                deleted.add(toTombstone(entry));
+                if (deleted.size() > maxChanges) {
+                    break;
+                }
+            }
+        }
+        
+        if (inserted.size() > maxChanges || deleted.size() > maxChanges) {
+            return FeedbackChanges.reloadRequired(current);
+        }
+        int newLastId = inserted.isEmpty() ? sinceId : inserted.get(inserted.size() - 1).getId();
+        return new FeedbackChanges(current, newLastId, inserted, deleted);
+    }
+    
+    private static Feedback toTombstone(Entry entry) {
+        Feedback tombstone = new Feedback();
+        tombstone.setId(entry.id);
+        tombstone.setCategory(entry.category);
+        tombstone.setRating(entry.rating);
+        tombstone.setDateSubmitted(new Date(entry.date));
+        tombstone.setDuplicateOf(entry.duplicateOf);
+        return tombstone;
+    }
+    
+    @Override
+    public long streamFeedback(String category, long fromMillis, long toMillis,
+                               FeedbackHandler handler) throws IOException {
+        long rows = 0;
+        for (Entry entry : range(category, fromMillis, toMillis).descendingSet()) {
+            handler.handle(entry.toFeedback());
+            rows++;
+        }
+        return rows;
+    }
+    
+    @Override
+    public long countFeedback(String category, long fromMillis, long toMillis) {
+        return range(category, fromMillis, toMillis).size();
+    }
+    
+    /**
+     * Entries submitted at or after fromMillis and before toMillis, newest first
+     */
+    private NavigableSet<Entry> range(String category, long fromMillis, long toMillis) {
+        NavigableSet<Entry> entries = index(category).entries;
+        if (fromMillis >= toMillis) {
+            return Collections.emptyNavigableSet();
+        }
+        // Among entries of the same time the lowest id comes last
+        return entries.subSet(Entry.probe(toMillis, Integer.MIN_VALUE), false,
+                              Entry.probe(fromMillis, Integer.MIN_VALUE), true);
+    }
+    
+    @Override
+    public List<Feedback> searchFeedback(String query, String category, boolean byRelevance,
+                                         int offset, int limit) {
+        List<Feedback> feedbackList = new ArrayList<>();
+        List<String[]> terms = toTerms(query);
+        if (terms == null) {
+            return feedbackList;
+        }
+        
+        if (!byRelevance) {
+            int skipped = 0;
+            for (Entry entry : index(category).entries) {
+                if (feedbackList.size() >= limit) {
+                    break;
+                }
+                if (score(entry.message, terms) > 0 && skipped++ >= offset) {
+                    feedbackList.add(entry.toFeedback());
+                }
+            }
+            return feedbackList;
+        }
+        
+        // Best score first, newest first among equal scores
+        final Map<Entry, Double> scores = new HashMap<>();
+        List<Entry> matches = new ArrayList<>();
+        for (Entry entry : index(category).entries) {
+            double score = score(entry.message, terms);
+            if (score > 0) {
+                scores.put(entry, score);
+                matches.add(entry);
+            }
+        }
+        Collections.sort(matches, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                int byScore = Double.compare(scores.get(b), scores.get(a));
+                return byScore != 0 ? byScore : a.compareTo(b);
+            }
+        });
+        return toFeedback(matches, offset, limit);
+    }
+    
+    @Override
+    public int countSearchResults(String query, String category) {
+        List<String[]> terms = toTerms(query);
+        if (terms == null) {
+            return 0;
+        }
+        int count = 0;
+        for (Entry entry : index(category).entries) {
+            if (score(entry.message, terms) > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Splits user input like FeedbackDAO does for FTS5: each whitespace
+     * separated word is a phrase of one or more tokens, and a phrase whose
+     * word ended in * has a prefix as its last token, marked by a trailing *
+     * @return The phrases, or null if the input has no words
+     */
+    private static List<String[]> toTerms(String query) {
+        if (query == null) {
+            return null;
+        }
+        List<String[]> terms = new ArrayList<>();
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            String[] tokens = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            if (tokens.length == 0) {
+                continue;
+            }
+            if (prefix) {
+                tokens[tokens.length - 1] += "*";
+            }
+            terms.add(tokens);
+        }
+        return terms.isEmpty() ? null : terms;
+    }
+    
+    private static String[] tokenize(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        String[] tokens = NON_WORD.split(lower);
+        if (tokens.length > 0 && tokens[0].isEmpty()) {
+            String[] trimmed = new String[tokens.length - 1];
+            System.arraycopy(tokens, 1, trimmed, 0, trimmed.length);
+            return trimmed;
+        }
+        return tokens;
+    }
+    
+    /**
+     * Scores a message against every phrase: the number of times the
+     * phrases occur, relative to the message's length
+     * @return The score, or 0 unless every phrase occurs
+     */
+    private static double score(String message, List<String[]> terms) {
+        if (message == null) {
+            return 0;
+        }
+        String[] tokens = tokenize(message);
+        int occurrences = 0;
+        for (String[] phrase : terms) {
+            int found = 0;
+            for (int start = 0; start + phrase.length <= tokens.length; start++) {
+                if (matchesAt(tokens, start, phrase)) {
+                    found++;
+                }
+            }
+            if (found == 0) {
+                return 0;
+            }
+            occurrences += found;
+        }
+        return occurrences / (double) tokens.length;
+    }
+    
+    private static boolean matchesAt(String[] tokens, int start, String[] phrase) {
+        for (int i = 0; i < phrase.length; i++) {
+            String expected = phrase[i];
+            String token = tokens[start + i];
+            boolean matches = expected.endsWith("*")
+                    ? token.startsWith(expected.substring(0, expected.length() - 1))
+                    : token.equals(expected);
+            if (!matches) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public boolean deleteFeedback(int id) {
+        FeedbackEvent event = null;
+        long stamp = writeLock.writeLock();
+        try {
+            Entry entry = byId.remove(id);
+            if (entry == null) {
+                return false;
+            }
+            remove(all, entry);
+            remove(index(entry.category), entry);
+            if (entry.duplicateOf == 0) {
+                addStats(entry, -1);
+            }
+            
+            version++;
+            tombstones.put(version, entry);
+            if (++tombstoneCount > keepTombstones) {
+                tombstoneCount--;
+                // Dashboards older than the forgotten deletion have to reload
+                resetVersion = tombstones.pollFirstEntry().getKey();
+            }
+            if (FeedbackEvents.hasListeners()) {
+                event = new FeedbackEvent(version - 1, version, Collections.<Feedback>emptyList(),
+                                          Collections.singletonList(toTombstone(entry)));
+            }
+        } finally {
+            writeLock.unlockWrite(stamp);
+        }
+        if (event != null) {
+            FeedbackEvents.publish(event);
+        }
+        return true;
+    }
+    
+    @Override
+    public List<RatingStats> getCategoryStats() {
+        List<RatingStats> statsList = new ArrayList<>();
+        for (Map.Entry<String, ConcurrentSkipListMap<Long, AtomicLongArray>> category
+                : new TreeMap<>(stats).entrySet()) {
+            long[] total = new long[7];
+            for (AtomicLongArray day : category.getValue().values()) {
+                addTo(total, day);
+            }
+            if (total[0] > 0) {
+                statsList.add(toStats(category.getKey(), -1, total));
+            }
+        }
+        return statsList;
+    }
+    
+    @Override
+    public List<RatingStats> getDailyStats(String category, long fromDay) {
+        Map<Long, long[]> totals = new TreeMap<>(Collections.<Long>reverseOrder());
+        for (Map.Entry<String, ConcurrentSkipListMap<Long, AtomicLongArray>> days : stats.entrySet()) {
+            if (category != null && !category.equals(days.getKey())) {
+                continue;
+            }
+            for (Map.Entry<Long, AtomicLongArray> day : days.getValue().tailMap(fromDay, true).entrySet()) {
+                long[] total = totals.get(day.getKey());
+                if (total == null) {
+                    total = new long[7];
+                    totals.put(day.getKey(), total);
+                }
+                addTo(total, day.getValue());
+            }
+        }
+        
+        List<RatingStats> statsList = new ArrayList<>();
+        for (Map.Entry<Long, long[]> day : totals.entrySet()) {
+            if (day.getValue()[0] > 0) {
+                statsList.add(toStats(category, day.getKey(), day.getValue()));
+            }
+        }
+        return statsList;
+    }
+    
+    @Override
+    public void loadTrends(long fromDay, long fromHour, TrendEngine.Loader loader) {
+        // Held for the whole read, as the loader cannot take back what it was given
+        long stamp = writeLock.readLock();
+        try {
+            loader.mark(version, lastId);
+            for (Map.Entry<String, ConcurrentSkipListMap<Long, AtomicLongArray>> days : stats.entrySet()) {
+                for (Map.Entry<Long, AtomicLongArray> day : days.getValue().tailMap(fromDay, true).entrySet()) {
+                    loader.addDay(days.getKey(), day.getKey(), day.getValue().get(0), day.getValue().get(1));
+                }
+            }
+            for (Entry entry : range(null, fromHour * 3600000L, Long.MAX_VALUE)) {
+                if (entry.duplicateOf == 0) {
+                    loader.addHour(entry.category, Math.floorDiv(entry.date, 3600000L), 1, entry.rating);
+                }
+            }
+        } finally {
+            writeLock.unlockRead(stamp);
+        }
+    }
+    
+    @Override
+    public List<Feedback> getRecentOriginals(String category, long sinceMillis, int limit) {
+        List<Feedback> feedbackList = new ArrayList<>();
+        for (Entry entry : index(category).entries) {
+            if (entry.date < sinceMillis || feedbackList.size() >= limit) {
+                break;
+            }
+            if (entry.duplicateOf == 0) {
+                feedbackList.add(new Feedback(entry.id, entry.category, entry.message, 0, new Date(entry.date)));
+            }
+        }
+        Collections.reverse(feedbackList);
+        return feedbackList;
+    }
+    
+    @Override
+    public void addDuplicates(Map<Integer, Integer> counts) {
+        long stamp = writeLock.writeLock();
+        try {
+            for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+                Entry entry = byId.get(count.getKey());
+                if (entry != null) {
+                    entry.duplicateCount += count.getValue();
+                }
+            }
+            version++;
+        } finally {
+            writeLock.unlockWrite(stamp);
+        }
+    }
+    
+    /**
+     * Writes the entries to the snapshot file if they changed since the last
+     * save. The file is replaced in one step, so a crash while saving leaves
+     * the previous snapshot.
+     * @throws IOException if the file cannot be written
+     */
+    public void saveSnapshot() throws IOException {
+        if (snapshotFile == null) {
+            return;
+        }
+        synchronized (snapshotLock) {
+            long savedVersion = version;
+            if (savedVersion == snapshotVersion && snapshotFile.exists()) {
+                return;
+            }
+            int savedLastId = lastId;
+            // Entries written meanwhile may or may not be included; the next save has them
+            List<Entry> entries = new ArrayList<>(byId.values());
+            
+            File temp = new File(snapshotFile.getPath() + ".tmp");
+            try (FileOutputStream file = new FileOutputStream(temp);
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(savedLastId);
+                out.writeInt(entries.size());
+                for (Entry entry : entries) {
+                    out.writeInt(entry.id);
+                    writeString(out, entry.category);
+                    writeString(out, entry.message);
+                    out.writeInt(entry.rating);
+                    out.writeLong(entry.date);
+                    out.writeInt(entry.duplicateOf);
+                    out.writeInt(entry.duplicateCount);
+                }
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp.toPath(), snapshotFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotVersion = savedVersion;
+        }
+    }
+    
+    private void loadSnapshot() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException(snapshotFile + " is not a feedback snapshot");
+            }
+            int savedLastId = in.readInt();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                int id = in.readInt();
+                String category = readString(in);
+                String message = readString(in);
+                Entry entry = new Entry(id, category, message, in.readInt(), in.readLong(), in.readInt());
+                entry.duplicateCount = in.readInt();
+                add(entry);
+                savedLastId = Math.max(savedLastId, id);
+            }
+            lastId = savedLastId;
+        }
+        // Changes from before the restart cannot be replayed
+        version = 1;
+        resetVersion = 1;
+        snapshotVersion = 1;
+    }
+    
+    /**
+     * Stops the periodic saves and writes a final snapshot
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void close() throws IOException {
+        if (snapshotter != null) {
+            snapshotter.shutdown();
+            try {
+                snapshotter.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        saveSnapshot();
+    }
+    
+    /**
+     * @return The index of a category, or of everything for null
+     */
+    private Index index(String category) {
+        if (category == null) {
+            return all;
+        }
+        Index index = byCategory.get(category);
+        if (index == null) {
+            Index created = new Index();
+            index = byCategory.putIfAbsent(category, created);
+            if (index == null) {
+                index = created;
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Adds an entry to every list; called under the write lock or while loading
+     */
+    private void add(Entry entry) {
+        byId.put(entry.id, entry);
+        all.entries.add(entry);
+        all.size++;
+        Index index = index(entry.category != null ? entry.category : "");
+        index.entries.add(entry);
+        index.size++;
+        if (entry.duplicateOf == 0) {
+            addStats(entry, 1);
+        }
+    }
+    
+    private static void remove(Index index, Entry entry) {
+        if (index.entries.remove(entry)) {
+            index.size--;
+        }
+    }
+    
+    /**
+     * Adds an entry to its category's aggregates of its day, or takes it out
+     * again with a sign of -1. Layout: count, rating sum, then the number of
+     * ratings 1 to 5.
+     */
+    private void addStats(Entry entry, int sign) {
+        String category = entry.category != null ? entry.category : "";
+        ConcurrentSkipListMap<Long, AtomicLongArray> days = stats.get(category);
+        if (days == null) {
+            days = new ConcurrentSkipListMap<>();
+            ConcurrentSkipListMap<Long, AtomicLongArray> existing = stats.putIfAbsent(category, days);
+            if (existing != null) {
+                days = existing;
+            }
+        }
+        long day = entry.date / 86400000L;
+        AtomicLongArray sums = days.get(day);
+        if (sums == null) {
+            sums = new AtomicLongArray(7);
+            days.put(day, sums);
+        }
+        sums.addAndGet(0, sign);
+        sums.addAndGet(1, sign * (long) entry.rating);
+        if (entry.rating >= 1 && entry.rating <= 5) {
+            sums.addAndGet(1 + entry.rating, sign);
+        }
+    }
+    
+    private static void addTo(long[] total, AtomicLongArray sums) {
+        for (int i = 0; i < total.length; i++) {
+            total[i] += sums.get(i);
+        }
+    }
+    
+    private static RatingStats toStats(String category, long day, long[] sums) {
+        long[] histogram = new long[5];
+        System.arraycopy(sums, 2, histogram, 0, histogram.length);
+        return new RatingStats(category, day, sums[0], sums[1], histogram);
+    }
+    
+    private static List<Feedback> toFeedback(Iterable<Entry> entries, int offset, int limit) {
+        List<Feedback> feedbackList = new ArrayList<>(Math.min(limit, 1024));
+        int skipped = 0;
+        for (Entry entry : entries) {
+            if (feedbackList.size() >= limit) {
+                break;
+            }
+            if (skipped < offset) {
+                skipped++;
+                continue;
+            }
+            feedbackList.add(entry.toFeedback());
+        }
+        return feedbackList;
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,157 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.Partition;
+import com.feedbacksystem.db.PartitionStore;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for moving feedback into archive partitions and
+ * expiring it there.
+ *
+ * Like RetentionDAO, every method does a bounded amount of work in short
+ * write transactions of its own.
+ */
+public class PartitionDAO {
+    
+    private static final String COLUMNS =
+            "id, category, message, rating, date_submitted, duplicate_of, duplicate_count";
+    
+    static final String OLDEST_SQL =
+            "SELECT MIN(date_submitted) FROM feedback";
+    // Oldest first through idx_feedback_date_id; run twice per chunk, so the order must be total
+    static final String ARCHIVE_CHUNK_SQL =
+            "SELECT id FROM feedback WHERE date_submitted < ? ORDER BY date_submitted, id LIMIT ?";
+    // Skips through idx_feedback_category_date_id, one seek per category instead of a pass over every entry
+    static final String CATEGORIES_SQL =
+            "WITH RECURSIVE categories (category) AS (" +
+            "SELECT MIN(category) FROM feedback " +
+            "UNION ALL SELECT (SELECT MIN(category) FROM feedback WHERE category > categories.category) " +
+            "FROM categories WHERE categories.category IS NOT NULL) " +
+            "SELECT category FROM categories WHERE category IS NOT NULL";
+    // The main database's triggers record the deletes in the aggregates, search index and tombstones
+    private static final String COPY_SQL =
+            "INSERT OR IGNORE INTO archive.feedback (" + COLUMNS + ") " +
+            "SELECT " + COLUMNS + " FROM main.feedback WHERE id IN (" + ARCHIVE_CHUNK_SQL + ")";
+    // Only what the archive holds by now; the archive's id is its rowid
+    private static final String REMOVE_SQL =
+            "DELETE FROM main.feedback WHERE id IN (" + ARCHIVE_CHUNK_SQL + ") " +
+            "AND EXISTS (SELECT 1 FROM archive.feedback a WHERE a.id = feedback.id)";
+    
+    /**
+     * Moves up to limit of the oldest feedback entries submitted before a
+     * cutoff into their archive partition, creating it if needed. Entries
+     * are only moved into one partition per call.
+     *
+     * The partition is attached to the writer. SQLite does not commit a
+     * transaction atomically across files in WAL mode, so the copy commits
+     * in the archive first, and a second transaction then deletes from the
+     * main database only the entries the archive holds. A crash in between
+     * leaves entries in both databases; the copy ignores entries already
+     * archived, and the next call finishes the move.
+     * @param partitions The archive
+     * @param cutoffMillis Entries submitted before this time are moved
+     * @param limit Maximum number of entries moved in this call
+     * @return Number of entries moved; 0 once nothing before the cutoff is left
+     * @throws SQLException if database operation fails
+     */
+    public int archiveChunk(PartitionStore partitions, long cutoffMillis, int limit) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            long oldest;
+            try (PreparedStatement pstmt = conn.prepareStatement(OLDEST_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next() || rs.getObject(1) == null) {
+                    return 0;
+                }
+                oldest = rs.getLong(1);
+            }
+            if (oldest >= cutoffMillis) {
+                return 0;
+            }
+            
+            Partition partition = partitions.getOrCreate(oldest);
+            long before = Math.min(cutoffMillis, partition.getEndMillis());
+            
+            try (PreparedStatement pstmt = conn.prepareStatement("ATTACH DATABASE ? AS archive")) {
+                pstmt.setString(1, partition.getFile().getPath());
+                pstmt.execute();
+            }
+            try {
+                // Committed on its own; it only writes to the archive
+                try (PreparedStatement pstmt = conn.prepareStatement(COPY_SQL)) {
+                    pstmt.setLong(1, before);
+                    pstmt.setInt(2, limit);
+                    pstmt.executeUpdate();
+                }
+                
+                conn.setAutoCommit(false);
+                try {
+                    int moved;
+                    try (PreparedStatement pstmt = conn.prepareStatement(REMOVE_SQL)) {
+                        pstmt.setLong(1, before);
+                        pstmt.setInt(2, limit);
+                        moved = pstmt.executeUpdate();
+                    }
+                    conn.commit();
+                    return moved;
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("DETACH DATABASE archive");
+                }
+            }
+        }
+    }
+    
+    /**
+     * Deletes up to limit feedback entries of a category submitted before a
+     * cutoff from an archive partition, oldest first
+     * @param partitions The archive
+     * @param partition The partition to purge
+     * @param category The category to purge
+     * @param cutoffMillis Entries submitted before this time are deleted
+     * @param limit Maximum number of entries deleted in this transaction
+     * @return Number of entries deleted
+     * @throws SQLException if database operation fails
+     */
+    public int purgeExpired(PartitionStore partitions, Partition partition, String category,
+                            long cutoffMillis, int limit) throws SQLException {
+        try (Connection conn = partitions.getConnection(partition);
+             PreparedStatement pstmt = conn.prepareStatement(RetentionDAO.PURGE_SQL)) {
+            
+            pstmt.setString(1, category);
+            pstmt.setLong(2, cutoffMillis);
+            pstmt.setInt(3, limit);
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Returns the categories that still have feedback in an archive partition
+     * @param partitions The archive
+     * @param partition The partition
+     * @return Category names; empty if the partition holds no feedback
+     * @throws SQLException if database operation fails
+     */
+    public List<String> getCategories(PartitionStore partitions, Partition partition) throws SQLException {
+        List<String> categories = new ArrayList<>();
+        
+        try (Connection conn = partitions.getConnection(partition);
+             PreparedStatement pstmt = conn.prepareStatement(CATEGORIES_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                categories.add(rs.getString(1));
+            }
+        }
+        
+        return categories;
+    }
+}
\ No newline at end of file
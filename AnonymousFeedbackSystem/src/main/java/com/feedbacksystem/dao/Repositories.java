@@ -0,0 +1,95 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.config.AppConfig;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Returns the repositories of the configured storage backend
+ * (storage.backend in feedback.properties):
+ * <ul>
+ *   <li>sqlite (default): FeedbackDAO, StatsDAO, DuplicateDAO and AdminDAO
+ *       on DatabaseManager's database</li>
+ *   <li>memory: InMemoryFeedbackDAO and InMemoryAdminDAO, snapshotted to
+ *       storage.memory.snapshotFile every storage.memory.snapshotSeconds
+ *       if a file is set</li>
+ * </ul>
+ * The memory backend is created once per process and shared, so the
+ * submission form, the dashboard and the HTTP server see the same entries.
+ */
+public final class Repositories {
+    private static InMemoryFeedbackDAO memory;
+    private static InMemoryAdminDAO memoryAdmin;
+    
+    private Repositories() {
+    }
+    
+    /**
+     * @return true if storage.backend is memory
+     */
+    public static boolean isInMemory() {
+        return "memory".equalsIgnoreCase(AppConfig.getString("storage.backend", "sqlite"));
+    }
+    
+    public static synchronized FeedbackRepository feedback() {
+        return isInMemory() ? getMemory() : new FeedbackDAO();
+    }
+    
+    public static synchronized StatsRepository stats() {
+        return isInMemory() ? getMemory() : new StatsDAO();
+    }
+    
+    public static synchronized DuplicateRepository duplicates() {
+        return isInMemory() ? getMemory() : new DuplicateDAO();
+    }
+    
+    public static synchronized AdminRepository admin() {
+        if (!isInMemory()) {
+            return new AdminDAO();
+        }
+        if (memoryAdmin == null) {
+            memoryAdmin = new InMemoryAdminDAO();
+        }
+        return memoryAdmin;
+    }
+    
+    /**
+     * Saves the memory backend's snapshot, if there is one. Runs at shutdown,
+     * and again from the ingestor's shutdown once its queue has drained.
+     */
+    public static synchronized void close() {
+        if (memory != null) {
+            try {
+                memory.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    private static InMemoryFeedbackDAO getMemory() {
+        if (memory == null) {
+            int keepTombstones = AppConfig.getInt("retention.keepTombstones", 10000);
+            String snapshotFile = AppConfig.getString("storage.memory.snapshotFile", "");
+            if (snapshotFile.isEmpty()) {
+                memory = new InMemoryFeedbackDAO(keepTombstones);
+            } else {
+                try {
+                    memory = new InMemoryFeedbackDAO(keepTombstones, new File(snapshotFile),
+                            AppConfig.getLong("storage.memory.snapshotSeconds", 30) * 1000);
+                } catch (IOException e) {
+                    // Starting empty would overwrite the snapshot at the next save
+                    throw new IllegalStateException("Cannot read the feedback snapshot " + snapshotFile, e);
+                }
+            }
+            
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    close();
+                }
+            }, "feedback-memory-shutdown"));
+        }
+        return memory;
+    }
+}
\ No newline at end of file
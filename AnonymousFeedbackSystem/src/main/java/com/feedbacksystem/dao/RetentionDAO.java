@@ -0,0 +1,164 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.db.DatabaseManager;
+import java.sql.*;
+
+/**
+ * Data Access Object for the retention purge.
+ *
+ * Every method does a bounded amount of work in its own short write
+ * transaction, so the purge can be interleaved with normal submissions
+ * instead of holding the writer for the whole run.
+ */
+public class RetentionDAO {
+    
+    // Oldest first, through idx_feedback_category_date_id
+    static final String PURGE_SQL =
+            "DELETE FROM feedback WHERE id IN (" +
+            "SELECT id FROM feedback WHERE category = ? AND date_submitted < ? ORDER BY date_submitted LIMIT ?)";
+    static final String COUNT_EXPIRED_SQL =
+            "SELECT COUNT(*) FROM feedback WHERE category = ? AND date_submitted < ?";
+    // Version of the oldest tombstone to keep
+    static final String TOMBSTONE_CUTOFF_SQL =
+            "SELECT version FROM feedback_tombstone ORDER BY version DESC LIMIT 1 OFFSET ?";
+    static final String PRUNE_TOMBSTONES_SQL =
+            "DELETE FROM feedback_tombstone WHERE id IN (" +
+            "SELECT id FROM feedback_tombstone WHERE version < ? LIMIT ?)";
+    // Clients that last saw a version before the pruned tombstones can no longer catch up
+    static final String MARK_RESET_SQL =
+            "UPDATE feedback_data_version SET reset_version = MAX(reset_version, ?) WHERE id = 1";
+    
+    /**
+     * Deletes up to limit feedback entries of a category submitted before a cutoff,
+     * oldest first
+     * @param category The category to purge
+     * @param cutoffMillis Entries submitted before this time are deleted
+     * @param limit Maximum number of entries deleted in this transaction
+     * @return Number of entries deleted
+     * @throws SQLException if database operation fails
+     */
+    public int purgeExpired(String category, long cutoffMillis, int limit) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(PURGE_SQL)) {
+            
+            pstmt.setString(1, category);
+            pstmt.setLong(2, cutoffMillis);
+            pstmt.setInt(3, limit);
+            return pstmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Counts the feedback entries of a category submitted before a cutoff
+     * @param category The category to count
+     * @param cutoffMillis Entries submitted before this time are counted
+     * @return Number of expired entries
+     * @throws SQLException if database operation fails
+     */
+    public int countExpired(String category, long cutoffMillis) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_EXPIRED_SQL)) {
+            
+            pstmt.setString(1, category);
+            pstmt.setLong(2, cutoffMillis);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+    
+    /**
+     * Deletes up to limit of the oldest tombstones, keeping the newest ones so
+     * that dashboards which refreshed recently can still apply deletions in place
+     * @param keep Number of newest tombstones to keep
+     * @param limit Maximum number of tombstones deleted in this transaction
+     * @return Number of tombstones deleted
+     * @throws SQLException if database operation fails
+     */
+    public int pruneTombstones(int keep, int limit) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long cutoffVersion;
+                try (PreparedStatement pstmt = conn.prepareStatement(TOMBSTONE_CUTOFF_SQL)) {
+                    pstmt.setInt(1, keep);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (!rs.next()) {
+                            conn.rollback();
+                            return 0; // No more than keep tombstones
+                        }
+                        cutoffVersion = rs.getLong(1);
+                    }
+                }
+                
+                // Tombstones before cutoffVersion are removed, so a client must have seen cutoffVersion - 1
+                try (PreparedStatement pstmt = conn.prepareStatement(MARK_RESET_SQL)) {
+                    pstmt.setLong(1, cutoffVersion - 1);
+                    pstmt.executeUpdate();
+                }
+                int pruned;
+                try (PreparedStatement pstmt = conn.prepareStatement(PRUNE_TOMBSTONES_SQL)) {
+                    pstmt.setLong(1, cutoffVersion);
+                    pstmt.setInt(2, limit);
+                    pruned = pstmt.executeUpdate();
+                }
+                conn.commit();
+                return pruned;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Returns the size of the database in pages, including free pages
+     * @return Page count
+     * @throws SQLException if database operation fails
+     */
+    public long getPageCount() throws SQLException {
+        return readPragma("page_count");
+    }
+    
+    /**
+     * Returns the number of unused pages that incremental vacuum can release
+     * @return Free page count
+     * @throws SQLException if database operation fails
+     */
+    public long getFreePageCount() throws SQLException {
+        return readPragma("freelist_count");
+    }
+    
+    public long getPageSize() throws SQLException {
+        return readPragma("page_size");
+    }
+    
+    /**
+     * Releases up to pages free pages back to the file system
+     * @param pages Maximum number of pages to release in this step
+     * @return Number of pages released
+     * @throws SQLException if database operation fails
+     */
+    public long incrementalVacuum(int pages) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            long before = readPragma(stmt, "freelist_count");
+            // executeUpdate steps the pragma to completion; execute would free a single page
+            stmt.executeUpdate("PRAGMA incremental_vacuum(" + pages + ")");
+            return before - readPragma(stmt, "freelist_count");
+        }
+    }
+    
+    private long readPragma(String name) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            return readPragma(stmt, name);
+        }
+    }
+    
+    private long readPragma(Statement stmt, String name) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.analytics.TrendEngine;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.PartitionStore;
+import com.feedbacksystem.model.RatingStats;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Data Access Object for the rating aggregates in feedback_daily_stats.
+ *
+ * The aggregates are kept in sync with the feedback table by triggers, so
+ * reading them costs the same however many feedback rows there are. Rows
+ * flagged as near-duplicates (duplicate_of set) are not counted.
+ * verifyStats and rebuildStats recompute them from the feedback table.
+ *
+ * With partitioned storage each archive partition keeps its own aggregates;
+ * getCategoryStats and getDailyStats add them to the main database's.
+ */
+public class StatsDAO implements StatsRepository {
+    
+    private static final String SUMS = "SUM(feedback_count), SUM(rating_sum), " +
+            "SUM(rating_1), SUM(rating_2), SUM(rating_3), SUM(rating_4), SUM(rating_5)";
+    private static final String STATS_COLUMNS = "category, day, feedback_count, rating_sum, " +
+            "rating_1, rating_2, rating_3, rating_4, rating_5";
+    // The aggregates as the triggers should have produced them, computed from scratch
+    private static final String EXPECTED_SQL =
+            "SELECT IFNULL(category, '') AS category, date_submitted / 86400000 AS day, COUNT(*), IFNULL(SUM(rating), 0), " +
+            "SUM(rating IS 1), SUM(rating IS 2), SUM(rating IS 3), SUM(rating IS 4), SUM(rating IS 5) " +
+            "FROM feedback WHERE duplicate_of IS NULL GROUP BY 1, 2";
+    
+    static final String CATEGORY_STATS_SQL =
+            "SELECT category, " + SUMS + " FROM feedback_daily_stats GROUP BY category";
+    static final String DAILY_STATS_SQL =
+            "SELECT day, " + SUMS + " FROM feedback_daily_stats WHERE day >= ? GROUP BY day ORDER BY day DESC";
+    static final String DAILY_STATS_BY_CATEGORY_SQL =
+            "SELECT day, " + SUMS + " FROM feedback_daily_stats WHERE category = ? AND day >= ? " +
+            "GROUP BY day ORDER BY day DESC";
+    static final String TREND_DAYS_SQL =
+            "SELECT category, day, feedback_count, rating_sum FROM feedback_daily_stats WHERE day >= ?";
+    // Grouped by hour while reading, so the range is read in index order without a temporary sort
+    static final String TREND_HOURS_SQL =
+            "SELECT category, rating, date_submitted FROM feedback WHERE date_submitted >= ? AND duplicate_of IS NULL";
+    // Full scans of feedback by design, so not registered with QueryPlanCheck
+    static final String VERIFY_SQL =
+            "SELECT COUNT(*) FROM (" +
+            "SELECT category, day FROM (" + EXPECTED_SQL + " EXCEPT SELECT " + STATS_COLUMNS + " FROM feedback_daily_stats) " +
+            "UNION " +
+            "SELECT category, day FROM (SELECT " + STATS_COLUMNS + " FROM feedback_daily_stats EXCEPT " + EXPECTED_SQL + "))";
+    static final String REBUILD_SQL =
+            "INSERT INTO feedback_daily_stats (" + STATS_COLUMNS + ") " + EXPECTED_SQL;
+    
+    /**
+     * Returns the rating aggregates of every category over all days
+     * @return List of RatingStats, one per category
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public List<RatingStats> getCategoryStats() throws SQLException {
+        PartitionStore partitions = DatabaseManager.getPartitions();
+        if (partitions == null) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                return readCategoryStats(conn);
+            }
+        }
+        
+        List<List<RatingStats>> results = partitions.queryAll(partitions.list(),
+                new PartitionStore.Query<List<RatingStats>>() {
+                    @Override
+                    public List<RatingStats> run(Connection conn) throws SQLException {
+                        return readCategoryStats(conn);
+                    }
+                });
+        Map<String, RatingStats> merged = new TreeMap<>();
+        for (List<RatingStats> statsList : results) {
+            for (RatingStats stats : statsList) {
+                merged.put(stats.getCategory(), add(merged.get(stats.getCategory()), stats));
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+    
+    /**
+     * Returns the rating aggregates per day, newest day first
+     * @param category The category to filter by, or null for all categories
+     * @param fromDay First UTC epoch day to include
+     * @return List of RatingStats, one per day that has feedback
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public List<RatingStats> getDailyStats(final String category, final long fromDay) throws SQLException {
+        PartitionStore partitions = DatabaseManager.getPartitions();
+        if (partitions == null) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                return readDailyStats(conn, category, fromDay);
+            }
+        }
+        
+        List<List<RatingStats>> results = partitions.queryAll(
+                partitions.getOverlapping(fromDay * 86400000L, Long.MAX_VALUE),
+                new PartitionStore.Query<List<RatingStats>>() {
+                    @Override
+                    public List<RatingStats> run(Connection conn) throws SQLException {
+                        return readDailyStats(conn, category, fromDay);
+                    }
+                });
+        Map<Long, RatingStats> merged = new TreeMap<>(Collections.<Long>reverseOrder());
+        for (List<RatingStats> statsList : results) {
+            for (RatingStats stats : statsList) {
+                merged.put(stats.getDay(), add(merged.get(stats.getDay()), stats));
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+    
+    /**
+     * Reads what a TrendEngine is rebuilt from in one read transaction.
+     * Archive partitions are not read.
+     * @param fromDay First UTC epoch day to include
+     * @param fromHour First UTC epoch hour whose feedback is included
+     * @param loader Receives the change mark, then the aggregates
+     * @throws SQLException if database operation fails
+     */
+    @Override
+    public void loadTrends(long fromDay, long fromHour, TrendEngine.Loader loader) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            // One read transaction, so the mark matches the aggregates read
+            conn.setAutoCommit(false);
+            long version;
+            try (PreparedStatement pstmt = conn.prepareStatement(FeedbackDAO.DATA_VERSION_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                version = rs.next() ? rs.getLong(1) : 0;
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(FeedbackDAO.MAX_ID_SQL);
+                 ResultSet rs = pstmt.executeQuery()) {
+                loader.mark(version, rs.next() ? rs.getInt(1) : 0);
+            }
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(TREND_DAYS_SQL)) {
+                pstmt.setLong(1, fromDay);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        loader.addDay(rs.getString(1), rs.getLong(2), rs.getLong(3), rs.getLong(4));
+                    }
+                }
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement(TREND_HOURS_SQL)) {
+                pstmt.setLong(1, fromHour * 3600000L);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        loader.addHour(rs.getString(1), rs.getLong(3) / 3600000L, 1, rs.getInt(2));
+                    }
+                }
+            }
+            conn.commit();
+        }
+    }
+    
+    /**
+     * Recomputes the aggregates from the feedback table and compares them
+     * with the stored ones. Reads every feedback row.
+     * @return Number of (category, day) groups that differ; 0 if consistent
+     * @throws SQLException if database operation fails
+     */
+    public int verifyStats() throws SQLException {
+        String sql = VERIFY_SQL;
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    /**
+     * Replaces the stored aggregates with ones recomputed from the feedback
+     * table, in a single transaction. Reads every feedback row.
+     * @throws SQLException if database operation fails; the old aggregates are kept then
+     */
+    public void rebuildStats() throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM feedback_daily_stats");
+                stmt.executeUpdate(REBUILD_SQL);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    private List<RatingStats> readCategoryStats(Connection conn) throws SQLException {
+        List<RatingStats> statsList = new ArrayList<>();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(CATEGORY_STATS_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                statsList.add(mapStats(rs, rs.getString(1), -1));
+            }
+        }
+        
+        return statsList;
+    }
+    
+    private List<RatingStats> readDailyStats(Connection conn, String category, long fromDay) throws SQLException {
+        List<RatingStats> statsList = new ArrayList<>();
+        String sql = category != null ? DAILY_STATS_BY_CATEGORY_SQL : DAILY_STATS_SQL;
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            if (category != null) {
+                pstmt.setString(index++, category);
+            }
+            pstmt.setLong(index, fromDay);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    statsList.add(mapStats(rs, category, rs.getLong(1)));
+                }
+            }
+        }
+        
+        return statsList;
+    }
+    
+    /**
+     * Adds the aggregates of the same category or day from another database
+     * @param total Aggregates so far, or null
+     */
+    private static RatingStats add(RatingStats total, RatingStats stats) {
+        if (total == null) {
+            return stats;
+        }
+        long[] histogram = new long[5];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = total.getRatingCount(i + 1) + stats.getRatingCount(i + 1);
+        }
+        return new RatingStats(total.getCategory(), total.getDay(), total.getCount() + stats.getCount(),
+                               total.getRatingSum() + stats.getRatingSum(), histogram);
+    }
+    
+    /**
+     * Maps the sums following the first column to a RatingStats object
+     */
+    private RatingStats mapStats(ResultSet rs, String category, long day) throws SQLException {
+        long[] histogram = new long[5];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = rs.getLong(4 + i);
+        }
+        return new RatingStats(category, day, rs.getLong(2), rs.getLong(3), histogram);
+    }
+}
\ No newline at end of file
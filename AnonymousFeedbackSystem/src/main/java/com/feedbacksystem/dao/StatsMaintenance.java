@@ -0,0 +1,54 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.db.DatabaseManager;
+import java.sql.SQLException;
+
+/**
+ * Verifies the rating aggregates against the feedback table and optionally
+ * rebuilds them. The triggers keep the aggregates consistent on their own;
+ * this is the tool for checking that after a crash, a restore from backup
+ * or manual edits to the database.
+ *
+ * Usage: java com.feedbacksystem.dao.StatsMaintenance [--rebuild] [database-file]
+ * Without --rebuild, exits with status 1 if the aggregates are out of sync.
+ */
+public class StatsMaintenance {
+    
+    public static void main(String[] args) throws SQLException {
+        boolean rebuild = false;
+        String database = null;
+        for (String arg : args) {
+            if ("--rebuild".equals(arg)) {
+                rebuild = true;
+            } else {
+                database = arg;
+            }
+        }
+        if (database != null) {
+            DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database);
+        }
+        
+        StatsDAO statsDAO = new StatsDAO();
+        int mismatches;
+        try {
+            mismatches = statsDAO.verifyStats();
+            if (mismatches == 0) {
+                System.out.println("Rating aggregates are consistent with the feedback table.");
+            } else {
+                System.out.println(mismatches + " category/day aggregates differ from the feedback table.");
+            }
+            
+            if (rebuild) {
+                statsDAO.rebuildStats();
+                mismatches = statsDAO.verifyStats();
+                System.out.println("Rebuilt rating aggregates; " + mismatches + " differences remain.");
+            }
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+        
+        if (mismatches != 0) {
+            System.exit(1);
+        }
+    }
+}
\ No newline at end of file
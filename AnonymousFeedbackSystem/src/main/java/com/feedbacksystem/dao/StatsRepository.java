@@ -0,0 +1,40 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.analytics.TrendEngine;
+import com.feedbacksystem.model.RatingStats;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Rating aggregates of the stored feedback. Entries flagged as
+ * near-duplicates are not counted.
+ */
+public interface StatsRepository {
+    
+    /**
+     * Returns the rating aggregates of every category over all days
+     * @return List of RatingStats, one per category, ordered by category
+     * @throws SQLException if the aggregates cannot be read
+     */
+    List<RatingStats> getCategoryStats() throws SQLException;
+    
+    /**
+     * Returns the rating aggregates per day, newest day first
+     * @param category The category to filter by, or null for all categories
+     * @param fromDay First UTC epoch day to include
+     * @return List of RatingStats, one per day that has feedback
+     * @throws SQLException if the aggregates cannot be read
+     */
+    List<RatingStats> getDailyStats(String category, long fromDay) throws SQLException;
+    
+    /**
+     * Reads what a TrendEngine is rebuilt from, all at the same data
+     * version: the aggregates per category and day, and the ratings of
+     * the feedback submitted within the hourly window
+     * @param fromDay First UTC epoch day to include
+     * @param fromHour First UTC epoch hour whose feedback is included
+     * @param loader Receives the change mark, then the aggregates
+     * @throws SQLException if the aggregates cannot be read
+     */
+    void loadTrends(long fromDay, long fromHour, TrendEngine.Loader loader) throws SQLException;
+}
\ No newline at end of file
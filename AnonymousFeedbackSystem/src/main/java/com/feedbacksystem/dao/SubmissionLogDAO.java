@@ -0,0 +1,130 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.Feedback;
+import java.sql.*;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for compacting the submission log and replaying the
+ * submission journal into the feedback table.
+ *
+ * Each log keeps a checkpoint: the position up to which its records have
+ * been stored. The checkpoint moves in the same transaction as the records
+ * it covers, so after a crash every record is stored exactly once.
+ */
+public class SubmissionLogDAO {
+    
+    static final String CHECKPOINT_SQL =
+            "SELECT position FROM submission_log_checkpoint WHERE log = ?";
+    static final String SET_CHECKPOINT_SQL =
+            "INSERT OR REPLACE INTO submission_log_checkpoint (log, position) VALUES (?, ?)";
+    // A journaled submission may have been stored by its original write after all
+    static final String REPLAY_SQL =
+            "INSERT INTO feedback (category, message, rating, date_submitted, duplicate_of, submission_id) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (submission_id) WHERE submission_id IS NOT NULL DO NOTHING";
+    
+    /**
+     * Returns the position up to which a log has been stored
+     * @param log Name of the log
+     * @return Checkpoint position, 0 if nothing has been stored yet
+     * @throws SQLException if database operation fails
+     */
+    public long getCheckpoint(String log) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(CHECKPOINT_SQL)) {
+            
+            pstmt.setString(1, log);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+    
+    /**
+     * Stores a run of log records and moves the checkpoint past them in one
+     * transaction. On success each inserted entry's id is set.
+     * @param log Name of the log
+     * @param inserts Entries to insert
+     * @param duplicates Number of collapsed submissions by original id
+     * @param checkpoint Position after the last record stored
+     * @throws SQLException if database operation fails; nothing is stored then
+     */
+    public void compact(String log, List<Feedback> inserts, Map<Integer, Integer> duplicates,
+                        long checkpoint) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long firstId = inserts.isEmpty() ? 0 : FeedbackDAO.insertBatch(conn, inserts);
+                if (!duplicates.isEmpty()) {
+                    DuplicateDAO.addDuplicates(conn, duplicates);
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(SET_CHECKPOINT_SQL)) {
+                    pstmt.setString(1, log);
+                    pstmt.setLong(2, checkpoint);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                
+                long id = firstId;
+                for (Feedback feedback : inserts) {
+                    feedback.setId((int) id++);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Stores journaled submissions and moves the checkpoint past them in one
+     * transaction. A submission whose id is already in the feedback table is
+     * skipped, so each one is stored once however often it is replayed.
+     * @param log Name of the journal
+     * @param entries Entries to store, each with its submission id
+     * @param checkpoint Position after the last entry
+     * @return Number of entries inserted
+     * @throws SQLException if database operation fails; nothing is stored then
+     */
+    public int replay(String log, List<Feedback> entries, long checkpoint) throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int inserted = 0;
+                if (!entries.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(REPLAY_SQL)) {
+                        for (Feedback feedback : entries) {
+                            pstmt.setString(1, feedback.getCategory());
+                            pstmt.setString(2, feedback.getMessage());
+                            pstmt.setInt(3, feedback.getRating());
+                            pstmt.setLong(4, feedback.getDateSubmitted().getTime());
+                            if (feedback.getDuplicateOf() > 0) {
+                                pstmt.setInt(5, feedback.getDuplicateOf());
+                            } else {
+                                pstmt.setNull(5, Types.INTEGER);
+                            }
+                            pstmt.setString(6, feedback.getSubmissionId());
+                            pstmt.addBatch();
+                        }
+                        for (int count : pstmt.executeBatch()) {
+                            inserted += Math.max(0, count);
+                        }
+                    }
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(SET_CHECKPOINT_SQL)) {
+                    pstmt.setString(1, log);
+                    pstmt.setLong(2, checkpoint);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                return inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,293 @@
+package com.feedbacksystem.dao;
+
+import com.feedbacksystem.analysis.MessageAnalysis;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.AnalyzedFeedback;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.KeywordStats;
+import com.feedbacksystem.util.SimpleJson;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the results of the background text analysis.
+ *
+ * feedback_analysis holds the sentiment and keywords of each analyzed
+ * entry; feedback_keyword_stats counts per category how many entries use
+ * each keyword. Entries are analyzed in id order and a checkpoint records
+ * the last id covered, moved in the same transaction as the results.
+ * A trigger takes deleted entries out of the keyword counts again.
+ * Near-duplicates get a sentiment but are not counted for keywords.
+ */
+public class TextAnalysisDAO {
+    
+    private static final String ANALYZED_COLUMNS =
+            "SELECT f.id, f.category, f.message, f.rating, f.date_submitted, a.sentiment " +
+            "FROM feedback_analysis a CROSS JOIN feedback f ON f.id = a.id WHERE ";
+    
+    static final String CHECKPOINT_SQL =
+            "SELECT last_id FROM feedback_analysis_checkpoint WHERE id = 1";
+    static final String SET_CHECKPOINT_SQL =
+            "UPDATE feedback_analysis_checkpoint SET last_id = MAX(last_id, ?) WHERE id = 1";
+    static final String PENDING_SQL =
+            "SELECT id, category, message, duplicate_of FROM feedback WHERE id > ? ORDER BY id LIMIT ?";
+    static final String COUNT_PENDING_SQL =
+            "SELECT COUNT(*) FROM feedback WHERE id > ?";
+    // Only entries that still exist are stored, and an entry analyzed twice keeps its first result
+    static final String INSERT_ANALYSIS_SQL =
+            "INSERT INTO feedback_analysis (id, category, sentiment, terms) " +
+            "SELECT id, IFNULL(category, ''), ?, ? FROM feedback WHERE id = ? ON CONFLICT (id) DO NOTHING";
+    static final String ADD_KEYWORD_SQL =
+            "INSERT INTO feedback_keyword_stats (category, term, documents, sentiment_sum) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (category, term) DO UPDATE SET documents = documents + excluded.documents, " +
+            "sentiment_sum = sentiment_sum + excluded.sentiment_sum";
+    static final String TOP_KEYWORDS_SQL =
+            "SELECT category, term, documents, sentiment_sum FROM feedback_keyword_stats " +
+            "WHERE category = ? ORDER BY documents DESC, term LIMIT ?";
+    // Adds up every category's counts by design, so not registered with QueryPlanCheck
+    static final String TOP_KEYWORDS_ALL_SQL =
+            "SELECT NULL, term, SUM(documents), SUM(sentiment_sum) FROM feedback_keyword_stats " +
+            "GROUP BY term ORDER BY 3 DESC, term LIMIT ?";
+    static final String BY_SENTIMENT_SQL = ANALYZED_COLUMNS +
+            "a.sentiment >= ? AND a.sentiment < ? ORDER BY a.sentiment, a.id LIMIT ?";
+    static final String BY_SENTIMENT_DESC_SQL = ANALYZED_COLUMNS +
+            "a.sentiment >= ? AND a.sentiment < ? ORDER BY a.sentiment DESC, a.id DESC LIMIT ?";
+    static final String BY_SENTIMENT_CATEGORY_SQL = ANALYZED_COLUMNS +
+            "a.category = ? AND a.sentiment >= ? AND a.sentiment < ? ORDER BY a.sentiment, a.id LIMIT ?";
+    static final String BY_SENTIMENT_CATEGORY_DESC_SQL = ANALYZED_COLUMNS +
+            "a.category = ? AND a.sentiment >= ? AND a.sentiment < ? " +
+            "ORDER BY a.sentiment DESC, a.id DESC LIMIT ?";
+    
+    /**
+     * Returns the id up to which entries have been analyzed
+     * @return Last analyzed id, 0 if nothing has been analyzed yet
+     * @throws SQLException if database operation fails
+     */
+    public long getCheckpoint() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(CHECKPOINT_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+    
+    /**
+     * Retrieves entries not analyzed yet. Only id, category, message and
+     * duplicate_of are loaded.
+     * @param afterId Only entries with a greater id are returned
+     * @param limit Maximum number of entries
+     * @return Entries in id order
+     * @throws SQLException if database operation fails
+     */
+    public List<Feedback> getPending(long afterId, int limit) throws SQLException {
+        List<Feedback> feedbackList = new ArrayList<>();
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(PENDING_SQL)) {
+            
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Feedback feedback = new Feedback();
+                    feedback.setId(rs.getInt(1));
+                    feedback.setCategory(rs.getString(2));
+                    feedback.setMessage(rs.getString(3));
+                    feedback.setDuplicateOf(rs.getInt(4));
+                    feedbackList.add(feedback);
+                }
+            }
+        }
+        
+        return feedbackList;
+    }
+    
+    /**
+     * Counts the entries not analyzed yet
+     * @param afterId The current checkpoint
+     * @return Number of entries with a greater id
+     * @throws SQLException if database operation fails
+     */
+    public int countPending(long afterId) throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_PENDING_SQL)) {
+            
+            pstmt.setLong(1, afterId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+    
+    /**
+     * Stores the analysis of a chunk of entries and moves the checkpoint
+     * past it in one transaction. Entries deleted or analyzed by another
+     * process in the meantime are skipped, so nothing is counted twice.
+     * @param entries The entries analyzed, as returned by getPending
+     * @param results Their analyses, in the same order
+     * @param checkpoint Id of the last entry of the chunk
+     * @return Number of entries stored
+     * @throws SQLException if database operation fails; nothing is stored then
+     */
+    public int storeChunk(List<Feedback> entries, List<MessageAnalysis> results, long checkpoint)
+            throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int stored = 0;
+                // Keyword counts of the chunk by category, then term: {documents, sentiment sum}
+                Map<String, Map<String, double[]>> keywords = new HashMap<>();
+                try (PreparedStatement pstmt = conn.prepareStatement(INSERT_ANALYSIS_SQL)) {
+                    for (int i = 0; i < entries.size(); i++) {
+                        Feedback feedback = entries.get(i);
+                        MessageAnalysis analysis = results.get(i);
+                        boolean counted = feedback.getDuplicateOf() == 0;
+                        pstmt.setDouble(1, analysis.getSentiment());
+                        pstmt.setString(2, counted ? toJson(analysis.getTerms()) : "[]");
+                        pstmt.setInt(3, feedback.getId());
+                        if (pstmt.executeUpdate() == 0) {
+                            continue;
+                        }
+                        stored++;
+                        if (counted) {
+                            String category = feedback.getCategory() != null ? feedback.getCategory() : "";
+                            addTerms(keywords, category, analysis);
+                        }
+                    }
+                }
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(ADD_KEYWORD_SQL)) {
+                    for (Map.Entry<String, Map<String, double[]>> category : keywords.entrySet()) {
+                        for (Map.Entry<String, double[]> term : category.getValue().entrySet()) {
+                            pstmt.setString(1, category.getKey());
+                            pstmt.setString(2, term.getKey());
+                            pstmt.setLong(3, (long) term.getValue()[0]);
+                            pstmt.setDouble(4, term.getValue()[1]);
+                            pstmt.addBatch();
+                        }
+                    }
+                    pstmt.executeBatch();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(SET_CHECKPOINT_SQL)) {
+                    pstmt.setLong(1, checkpoint);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                return stored;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Returns the keywords used by the most entries
+     * @param category The category, or null to add up all categories
+     * @param limit Maximum number of keywords
+     * @return Keywords, most used first
+     * @throws SQLException if database operation fails
+     */
+    public List<KeywordStats> getTopKeywords(String category, int limit) throws SQLException {
+        List<KeywordStats> keywords = new ArrayList<>();
+        String sql = category != null ? TOP_KEYWORDS_SQL : TOP_KEYWORDS_ALL_SQL;
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            if (category != null) {
+                pstmt.setString(index++, category);
+            }
+            pstmt.setInt(index, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    keywords.add(new KeywordStats(rs.getString(1), rs.getString(2),
+                                                  rs.getLong(3), rs.getDouble(4)));
+                }
+            }
+        }
+        
+        return keywords;
+    }
+    
+    /**
+     * Retrieves analyzed entries ordered by sentiment
+     * @param category The category to filter by, or null for all categories
+     * @param fromSentiment Lowest sentiment included
+     * @param toSentiment Sentiment at which entries are no longer included
+     * @param mostPositiveFirst Whether to start with the most positive entries
+     * @param limit Maximum number of entries
+     * @return Entries with their sentiment
+     * @throws SQLException if database operation fails
+     */
+    public List<AnalyzedFeedback> getFeedbackBySentiment(String category, double fromSentiment, double toSentiment,
+                                                         boolean mostPositiveFirst, int limit) throws SQLException {
+        List<AnalyzedFeedback> feedbackList = new ArrayList<>();
+        String sql;
+        if (category != null) {
+            sql = mostPositiveFirst ? BY_SENTIMENT_CATEGORY_DESC_SQL : BY_SENTIMENT_CATEGORY_SQL;
+        } else {
+            sql = mostPositiveFirst ? BY_SENTIMENT_DESC_SQL : BY_SENTIMENT_SQL;
+        }
+        
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            
+            int index = 1;
+            if (category != null) {
+                pstmt.setString(index++, category);
+            }
+            pstmt.setDouble(index++, fromSentiment);
+            pstmt.setDouble(index++, toSentiment);
+            pstmt.setInt(index, limit);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Feedback feedback = new Feedback(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                                     rs.getInt(4), new Date(rs.getLong(5)));
+                    feedbackList.add(new AnalyzedFeedback(feedback, rs.getDouble(6)));
+                }
+            }
+        }
+        
+        return feedbackList;
+    }
+    
+    private static void addTerms(Map<String, Map<String, double[]>> keywords, String category,
+                                 MessageAnalysis analysis) {
+        Map<String, double[]> terms = keywords.get(category);
+        if (terms == null) {
+            terms = new HashMap<>();
+            keywords.put(category, terms);
+        }
+        for (String term : analysis.getTerms()) {
+            double[] counts = terms.get(term);
+            if (counts == null) {
+                counts = new double[2];
+                terms.put(term, counts);
+            }
+            counts[0]++;
+            counts[1] += analysis.getSentiment();
+        }
+    }
+    
+    /**
+     * Writes terms as a JSON array of strings, as read back by json_each
+     */
+    static String toJson(List<String> terms) {
+        StringBuilder json = new StringBuilder("[");
+        for (String term : terms) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            SimpleJson.quote(term, json);
+        }
+        return json.append(']').toString();
+    }
+}
\ No newline at end of file
@@ -1,72 +1,393 @@
 package com.feedbacksystem.db;
 
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.metrics.ConnectionMetrics;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.metrics.OperationMetrics;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Database utility class for managing SQLite database connections
+ * Database utility class for managing SQLite database connections.
+ *
+ * The database is opened once in WAL mode. Reads are served from a small pool
+ * of read connections while all writes go through a single dedicated writer
+ * connection, which matches SQLite's one-writer/many-readers model.
+ * Closing a handle returned by this class returns it to the pool.
+ *
+ * Time spent waiting for a connection is recorded as the operations
+ * DatabaseManager.getConnection and DatabaseManager.getWriteConnection, and
+ * connections opened, closed, borrowed and returned are counted in
+ * {@link Metrics#connections()}.
  */
 public class DatabaseManager {
-    private static final String DB_URL = "jdbc:sqlite:feedback.db";
-    private static Connection connection;
+    private static String dbUrl = AppConfig.getString("db.url", "jdbc:sqlite:feedback.db");
+    static final int READ_POOL_SIZE = 4;
+    static final int BUSY_TIMEOUT_MS = 5000;
+    private static final long ACQUIRE_TIMEOUT_MS = 10000;
+    private static final int SQLITE_BUSY = 5;
+    private static final int SQLITE_LOCKED = 6;
+    private static final int SQLITE_TOOBIG = 18;
+    private static final int SQLITE_CONSTRAINT = 19;
+    private static final int SQLITE_MISMATCH = 20;
+    
+    private static final Object initLock = new Object();
+    private static volatile boolean initialized;
+    
+    private static final BlockingQueue<Connection> idleReaders = new ArrayBlockingQueue<>(READ_POOL_SIZE);
+    private static final List<Connection> allReaders = new ArrayList<>();
+    private static final ReentrantLock writerLock = new ReentrantLock(true);
+    private static Connection writer;
+    private static PartitionStore partitions;
+    
+    private static final OperationMetrics READ_ACQUIRE_METRICS = Metrics.operation("DatabaseManager.getConnection");
+    private static final OperationMetrics WRITE_ACQUIRE_METRICS = Metrics.operation("DatabaseManager.getWriteConnection");
+    private static final ConnectionMetrics connectionMetrics = Metrics.connections();
+    
+    /**
+     * Points the application at a different database, e.g. a scratch file for
+     * tools and benchmarks. Must be called before the first connection is made.
+     * @param url JDBC URL of the SQLite database
+     */
+    public static void setDatabaseUrl(String url) {
+        synchronized (initLock) {
+            if (initialized) {
+                throw new IllegalStateException("Database already initialized with " + dbUrl);
+            }
+            dbUrl = url;
+        }
+    }
+    
+    /**
+     * Returns the archive partitions when partition.enabled is set
+     * @return The application's PartitionStore, or null if partitioning is disabled
+     */
+    public static PartitionStore getPartitions() {
+        if (!AppConfig.getBoolean("partition.enabled", false)) {
+            return null;
+        }
+        synchronized (initLock) {
+            if (partitions == null) {
+                partitions = PartitionStore.fromConfig();
+            }
+            return partitions;
+        }
+    }
     
     /**
-     * Establishes a connection to the SQLite database
-     * @return Connection object
-     * @throws SQLException if connection fails
+     * Borrows a read connection from the pool. Closing the returned handle
+     * hands the connection back to the pool.
+     * @return Connection handle for queries
+     * @throws SQLException if no connection could be obtained
      */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+        long start = System.nanoTime();
+        Connection physical;
+        try {
+            physical = acquireReader();
+        } catch (SQLException | RuntimeException e) {
+            READ_ACQUIRE_METRICS.recordError();
+            throw e;
+        } finally {
+            READ_ACQUIRE_METRICS.recordTime(start);
+        }
+        connectionMetrics.readerBorrowed();
+        
+        return PooledConnection.wrap(physical, new PooledConnection.ReleaseCallback() {
+            @Override
+            public void release(Connection connection) {
+                releaseReader(connection);
+            }
+        });
+    }
+    
+    /**
+     * Acquires exclusive use of the writer connection. The writer stays locked
+     * until the returned handle is closed, so keep write sections short.
+     * @return Connection handle for inserts, updates and deletes
+     * @throws SQLException if the writer could not be acquired
+     */
+    public static Connection getWriteConnection() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            acquireWriter();
+        } catch (SQLException | RuntimeException e) {
+            WRITE_ACQUIRE_METRICS.recordError();
+            throw e;
+        } finally {
+            WRITE_ACQUIRE_METRICS.recordTime(start);
+        }
+        connectionMetrics.writerAcquired();
+        
+        return PooledConnection.wrap(writer, new PooledConnection.ReleaseCallback() {
+            @Override
+            public void release(Connection connection) {
+                releaseWriter(connection);
+            }
+        });
+    }
+    
+    /**
+     * Takes an idle reader, opens a new one, or waits for one to be returned
+     */
+    private static Connection acquireReader() throws SQLException {
+        ensureInitialized();
+        
+        Connection physical = idleReaders.poll();
+        if (physical == null) {
+            physical = openReaderIfBelowLimit();
+        }
+        if (physical == null) {
+            try {
+                physical = idleReaders.poll(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a read connection", e);
+            }
+            if (physical == null) {
+                throw new SQLException("Timed out waiting for a read connection");
+            }
+        }
+        return physical;
+    }
+    
+    /**
+     * Locks the writer and reopens it if it was discarded. On success the
+     * caller holds writerLock.
+     */
+    private static void acquireWriter() throws SQLException {
+        ensureInitialized();
+        
+        try {
+            if (!writerLock.tryLock(ACQUIRE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Timed out waiting for the writer connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the writer connection", e);
+        }
+        
+        try {
+            if (writer == null || writer.isClosed()) {
+                writer = openWriter();
+            }
+        } catch (SQLException e) {
+            writerLock.unlock();
+            throw e;
+        }
+    }
+    
+    /**
+     * Loads the driver, opens the writer and migrates the schema exactly once
+     * @throws SQLException if initialization fails
+     */
+    private static void ensureInitialized() throws SQLException {
+        if (initialized) {
+            return;
+        }
+        synchronized (initLock) {
+            if (initialized) {
+                return;
+            }
             try {
                 // Load SQLite JDBC driver
                 Class.forName("org.sqlite.JDBC");
-                connection = DriverManager.getConnection(DB_URL);
-                createTablesIfNotExists();
             } catch (ClassNotFoundException e) {
                 throw new SQLException("SQLite JDBC Driver not found", e);
             }
+            
+            writer = openWriter();
+            new SchemaMigrator().migrate(writer);
+            
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    closeConnection();
+                }
+            }, "feedback-db-shutdown"));
+            
+            initialized = true;
         }
-        return connection;
     }
     
     /**
-     * Creates the required tables if they don't exist
-     * @throws SQLException if table creation fails
+     * Opens the writer connection and switches the database to WAL mode
      */
-    private static void createTablesIfNotExists() throws SQLException {
-        try (Statement stmt = connection.createStatement()) {
-            // Create admin table
-            stmt.execute("CREATE TABLE IF NOT EXISTS admin (" +
-                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        "username VARCHAR(50), " +
-                        "password VARCHAR(50))");
-            
-            // Create feedback table
-            stmt.execute("CREATE TABLE IF NOT EXISTS feedback (" +
-                        "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                        "category VARCHAR(50), " +
-                        "message TEXT, " +
-                        "rating INTEGER, " +
-                        "date_submitted DATE)");
-            
-            // Insert default admin if not exists
-            stmt.execute("INSERT OR IGNORE INTO admin (id, username, password) VALUES (1, 'admin', 'admin123')");
+    private static Connection openWriter() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbUrl);
+        connectionMetrics.writerOpened();
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            stmt.execute("PRAGMA journal_mode = WAL");
+            // Submissions are group-committed by FeedbackIngestor and the other writes (deletes,
+            // admin changes, maintenance) are rare, so a full fsync per commit is affordable
+            stmt.execute("PRAGMA synchronous = FULL");
+        }
+        return conn;
+    }
+    
+    /**
+     * Opens a new read connection if the pool has not reached its size limit
+     * @return New connection, or null if the pool is already full
+     */
+    private static Connection openReaderIfBelowLimit() throws SQLException {
+        synchronized (allReaders) {
+            if (allReaders.size() >= READ_POOL_SIZE) {
+                return null;
+            }
+            Connection conn = DriverManager.getConnection(dbUrl);
+            connectionMetrics.readerOpened();
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+                stmt.execute("PRAGMA query_only = ON");
+            }
+            allReaders.add(conn);
+            return conn;
+        }
+    }
+    
+    private static void releaseReader(Connection physical) {
+        connectionMetrics.readerReturned();
+        if (resetForReuse(physical)) {
+            idleReaders.offer(physical);
+        } else {
+            synchronized (allReaders) {
+                allReaders.remove(physical);
+            }
+            closeReader(physical);
+        }
+    }
+    
+    private static void releaseWriter(Connection physical) {
+        connectionMetrics.writerReleased();
+        try {
+            if (!resetForReuse(physical)) {
+                closeWriter(physical);
+                writer = null;
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+    
+    /**
+     * Rolls back any transaction left open by the borrower
+     * @return true if the connection can be reused
+     */
+    private static boolean resetForReuse(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+    
+    /**
+     * Whether a failure, or any of its causes, is a SQLite lock error
+     * (SQLITE_BUSY or SQLITE_LOCKED): another connection or process held the
+     * lock for longer than the busy timeout
+     */
+    public static boolean isLockError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                // sqlite-jdbc reports the SQLite result code; extended codes keep it in the low byte
+                int code = ((SQLException) cause).getErrorCode() & 0xff;
+                if (code == SQLITE_BUSY || code == SQLITE_LOCKED) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Whether a failure, or any of its causes, is about the row written
+     * rather than the database: a violated constraint (SQLITE_CONSTRAINT),
+     * a value of the wrong type (SQLITE_MISMATCH) or one too big
+     * (SQLITE_TOOBIG). Writing the same row again fails the same way.
+     */
+    public static boolean isRowError(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                int code = ((SQLException) cause).getErrorCode() & 0xff;
+                if (code == SQLITE_CONSTRAINT || code == SQLITE_MISMATCH || code == SQLITE_TOOBIG) {
+                    return true;
+                }
+            }
         }
+        return false;
     }
     
     /**
-     * Closes the database connection
+     * Closes all pooled connections. Outstanding handles become unusable.
      */
     public static void closeConnection() {
+        synchronized (initLock) {
+            if (partitions != null) {
+                partitions.close();
+                partitions = null;
+            }
+        }
+        
+        synchronized (allReaders) {
+            for (Connection conn : allReaders) {
+                closeReader(conn);
+            }
+            allReaders.clear();
+            idleReaders.clear();
+        }
+        
+        writerLock.lock();
+        try {
+            if (writer != null) {
+                closeWriter(writer);
+                writer = null;
+            }
+        } finally {
+            writerLock.unlock();
+        }
+    }
+    
+    private static void closeReader(Connection conn) {
+        if (closeQuietly(conn)) {
+            connectionMetrics.readerClosed();
+        }
+    }
+    
+    private static void closeWriter(Connection conn) {
+        if (closeQuietly(conn)) {
+            connectionMetrics.writerClosed();
+        }
+    }
+    
+    /**
+     * @return true if this call closed the connection
+     */
+    private static boolean closeQuietly(Connection conn) {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            if (!conn.isClosed()) {
+                conn.close();
+                return true;
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package com.feedbacksystem.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A single versioned schema change applied by SchemaMigrator
+ */
+public abstract class Migration {
+    private final int version;
+    private final String description;
+    
+    protected Migration(int version, String description) {
+        this.version = version;
+        this.description = description;
+    }
+    
+    /**
+     * Creates a migration that runs a fixed list of SQL statements
+     * @param version Schema version this migration produces
+     * @param description Short description recorded in schema_version
+     * @param statements SQL statements executed in order
+     * @return Migration
+     */
+    public static Migration of(int version, String description, final String... statements) {
+        return new Migration(version, description) {
+            @Override
+            public void apply(Connection conn) throws SQLException {
+                try (Statement stmt = conn.createStatement()) {
+                    for (String sql : statements) {
+                        stmt.execute(sql);
+                    }
+                }
+            }
+        };
+    }
+    
+    /**
+     * Applies the schema change. Runs inside a transaction unless
+     * {@link #isTransactional()} returns false.
+     * @param conn The writer connection
+     * @throws SQLException if the change fails
+     */
+    public abstract void apply(Connection conn) throws SQLException;
+    
+    /**
+     * Whether the migration can run inside a transaction. Statements such as
+     * VACUUM cannot, so migrations using them override this.
+     */
+    public boolean isTransactional() {
+        return true;
+    }
+    
+    public int getVersion() {
+        return version;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.feedbacksystem.db;
+
+import java.io.File;
+
+/**
+ * One archive partition: a database file holding the feedback submitted
+ * within a fixed time range
+ */
+public class Partition {
+    private final String key;
+    private final File file;
+    private final long startMillis;
+    private final long endMillis;
+    
+    Partition(String key, File file, long startMillis, long endMillis) {
+        this.key = key;
+        this.file = file;
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+    }
+    
+    /**
+     * @return true if the partition holds any time in [fromMillis, toMillis)
+     */
+    public boolean overlaps(long fromMillis, long toMillis) {
+        return startMillis < toMillis && endMillis > fromMillis;
+    }
+    
+    public String getKey() {
+        return key;
+    }
+    
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     * @return Earliest submission time held, in epoch milliseconds
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+    
+    /**
+     * @return Submission time the partition stops before, in epoch milliseconds
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return "Partition{" +
+                "key='" + key + '\'' +
+                ", file=" + file +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,63 @@
+package com.feedbacksystem.db;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Divides time into partitions of a fixed number of UTC calendar months,
+ * aligned to the start of the year: 1 gives monthly partitions, 3 quarters,
+ * 6 half-years. A partition is named after its first month, e.g. "2024-09".
+ */
+public class PartitionScheme {
+    private final int months;
+    
+    /**
+     * @param months Calendar months per partition; must divide 12
+     */
+    public PartitionScheme(int months) {
+        if (months < 1 || 12 % months != 0) {
+            throw new IllegalArgumentException("Months per partition must divide 12: " + months);
+        }
+        this.months = months;
+    }
+    
+    /**
+     * @param millis A time in epoch milliseconds
+     * @return Name of the partition holding that time
+     */
+    public String keyOf(long millis) {
+        return firstMonth(millis).toString();
+    }
+    
+    /**
+     * @param millis A time in epoch milliseconds
+     * @return Start of the partition holding that time, in epoch milliseconds
+     */
+    public long startOf(long millis) {
+        return toMillis(firstMonth(millis));
+    }
+    
+    /**
+     * @param millis A time in epoch milliseconds
+     * @return End (exclusive) of the partition holding that time, in epoch milliseconds
+     */
+    public long endOf(long millis) {
+        return toMillis(firstMonth(millis).plusMonths(months));
+    }
+    
+    public int getMonths() {
+        return months;
+    }
+    
+    private YearMonth firstMonth(long millis) {
+        YearMonth month = YearMonth.from(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+        return month.withMonth(month.getMonthValue() - (month.getMonthValue() - 1) % months);
+    }
+    
+    private static long toMillis(YearMonth month) {
+        LocalDate first = month.atDay(1);
+        return first.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+    }
+}
\ No newline at end of file
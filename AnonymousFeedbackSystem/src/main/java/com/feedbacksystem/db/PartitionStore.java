@@ -0,0 +1,474 @@
+package com.feedbacksystem.db;
+
+import com.feedbacksystem.config.AppConfig;
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Archive of older feedback, split by submission time into one SQLite file
+ * per partition (feedback-2024-09.db and so on).
+ *
+ * The main database stays the hot partition that submissions, the
+ * dashboard list and search work on. Feedback older than the hot window is
+ * moved into the archive files by PartitionDAO. Each file has the same
+ * feedback table and rating aggregates as the main database, so the DAOs
+ * run their usual queries against it; queries over a time range only open
+ * the files that overlap it and {@link #queryAll} runs them in parallel.
+ * An expired partition is removed by deleting its file.
+ *
+ * Files are opened when first queried and their idle connections kept for
+ * reuse, a few per file.
+ */
+public class PartitionStore {
+    private static final Pattern FILE_NAME = Pattern.compile("feedback-(\\d{4}-\\d{2})\\.db");
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int MAX_IDLE_PER_PARTITION = 2;
+    // Borrowers each hold one permit; dropping a partition takes them all
+    private static final int MAX_BORROWERS = 1 << 16;
+    private static final long DROP_TIMEOUT_MS = 30000;
+    
+    private static final String[] SCHEMA = {
+            "CREATE TABLE partition_range (" +
+            "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+            "start_millis INTEGER NOT NULL, " +
+            "end_millis INTEGER NOT NULL)",
+            // Ids are kept from the main database, so no AUTOINCREMENT
+            "CREATE TABLE feedback (" +
+            "id INTEGER PRIMARY KEY, " +
+            "category VARCHAR(50), " +
+            "message TEXT, " +
+            "rating INTEGER, " +
+            "date_submitted INTEGER NOT NULL, " +
+            "duplicate_of INTEGER, " +
+            "duplicate_count INTEGER NOT NULL DEFAULT 0)",
+            "CREATE INDEX idx_feedback_date_id ON feedback (date_submitted, id)",
+            "CREATE INDEX idx_feedback_category_date_id ON feedback (category, date_submitted, id)",
+            "CREATE TABLE feedback_daily_stats (" +
+            "category TEXT NOT NULL, " +
+            "day INTEGER NOT NULL, " +
+            "feedback_count INTEGER NOT NULL, " +
+            "rating_sum INTEGER NOT NULL, " +
+            "rating_1 INTEGER NOT NULL, " +
+            "rating_2 INTEGER NOT NULL, " +
+            "rating_3 INTEGER NOT NULL, " +
+            "rating_4 INTEGER NOT NULL, " +
+            "rating_5 INTEGER NOT NULL, " +
+            "PRIMARY KEY (category, day)) WITHOUT ROWID",
+            "CREATE INDEX idx_feedback_daily_stats_day ON feedback_daily_stats (day, category)",
+            "CREATE TRIGGER feedback_stats_insert AFTER INSERT ON feedback " +
+            "WHEN NEW.duplicate_of IS NULL BEGIN " +
+            SchemaMigrator.addToStats("NEW") +
+            "END",
+            "CREATE TRIGGER feedback_stats_delete AFTER DELETE ON feedback " +
+            "WHEN OLD.duplicate_of IS NULL BEGIN " +
+            SchemaMigrator.removeFromStats("OLD") +
+            "END"
+    };
+    
+    /**
+     * A query run against one database, the main one or a partition
+     */
+    public interface Query<T> {
+        T run(Connection conn) throws SQLException;
+    }
+    
+    private final File directory;
+    private final PartitionScheme scheme;
+    private final int hotMonths;
+    private final ExecutorService executor;
+    // Known partitions by key, oldest first
+    private final TreeMap<String, Partition> partitions = new TreeMap<>();
+    private final Map<String, Semaphore> borrowers = new HashMap<>();
+    private final Map<String, Deque<Connection>> idle = new HashMap<>();
+    private boolean scanned;
+    
+    /**
+     * @param directory Directory holding the partition files; created if missing
+     * @param scheme How submission times map to partitions
+     * @param hotMonths Whole months of recent feedback kept in the main database
+     * @param parallelism Most databases queried at the same time by {@link #queryAll}
+     */
+    public PartitionStore(File directory, PartitionScheme scheme, int hotMonths, int parallelism) {
+        this.directory = directory;
+        this.scheme = scheme;
+        this.hotMonths = hotMonths;
+        this.executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+            
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feedback-partition-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+    
+    /**
+     * Creates a store configured from feedback.properties (partition.directory,
+     * partition.months, partition.hotMonths, partition.parallelism)
+     * @return New PartitionStore
+     */
+    public static PartitionStore fromConfig() {
+        return new PartitionStore(new File(AppConfig.getString("partition.directory", "partitions")),
+                new PartitionScheme(AppConfig.getInt("partition.months", 1)),
+                AppConfig.getInt("partition.hotMonths", 3),
+                AppConfig.getInt("partition.parallelism", 4));
+    }
+    
+    /**
+     * Returns the time before which feedback belongs in the archive: the
+     * start of the partition holding the time hotMonths months ago
+     * @param nowMillis The current time
+     * @return Cutoff in epoch milliseconds
+     */
+    public long getArchiveCutoff(long nowMillis) {
+        long hotStart = Instant.ofEpochMilli(nowMillis).atOffset(ZoneOffset.UTC)
+                               .minusMonths(hotMonths).toInstant().toEpochMilli();
+        return scheme.startOf(hotStart);
+    }
+    
+    /**
+     * @return Every partition, oldest first
+     * @throws SQLException if a partition file cannot be read
+     */
+    public synchronized List<Partition> list() throws SQLException {
+        scan();
+        return new ArrayList<>(partitions.values());
+    }
+    
+    /**
+     * Returns the partitions holding any feedback submitted in a time range
+     * @param fromMillis Start of the range, inclusive
+     * @param toMillis End of the range, exclusive
+     * @return Partitions, oldest first
+     * @throws SQLException if a partition file cannot be read
+     */
+    public synchronized List<Partition> getOverlapping(long fromMillis, long toMillis) throws SQLException {
+        scan();
+        List<Partition> overlapping = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            if (partition.overlaps(fromMillis, toMillis)) {
+                overlapping.add(partition);
+            }
+        }
+        return overlapping;
+    }
+    
+    /**
+     * Returns the partition for a submission time, creating its file if needed
+     * @param millis Submission time in epoch milliseconds
+     * @return The partition
+     * @throws SQLException if the file cannot be created
+     */
+    public synchronized Partition getOrCreate(long millis) throws SQLException {
+        scan();
+        for (Partition partition : partitions.values()) {
+            if (partition.overlaps(millis, millis + 1)) {
+                return partition;
+            }
+        }
+        
+        String key = scheme.keyOf(millis);
+        File file = new File(directory, "feedback-" + key + ".db");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new SQLException("Cannot create partition directory " + directory);
+        }
+        long start = scheme.startOf(millis);
+        long end = scheme.endOf(millis);
+        try (Connection conn = open(file)) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("PRAGMA journal_mode = WAL");
+            }
+            // One transaction, so a crash leaves either a complete file or an empty one
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : SCHEMA) {
+                    stmt.execute(sql);
+                }
+                stmt.executeUpdate("INSERT INTO partition_range (id, start_millis, end_millis) VALUES (1, " +
+                                   start + ", " + end + ")");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        return register(key, file, start, end);
+    }
+    
+    /**
+     * Borrows a connection to a partition. Closing the returned handle
+     * hands the connection back for reuse.
+     * @param partition The partition
+     * @return Connection handle
+     * @throws SQLException if the partition was dropped or cannot be opened
+     */
+    public Connection getConnection(Partition partition) throws SQLException {
+        final String key = partition.getKey();
+        final Semaphore permits;
+        Connection physical;
+        synchronized (this) {
+            permits = borrowers.get(key);
+            if (permits == null || !permits.tryAcquire()) {
+                throw new SQLException("Partition " + key + " has been dropped");
+            }
+            Deque<Connection> connections = idle.get(key);
+            physical = connections != null ? connections.poll() : null;
+        }
+        
+        if (physical == null) {
+            try {
+                physical = open(partition.getFile());
+            } catch (SQLException | RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+        return PooledConnection.wrap(physical, new PooledConnection.ReleaseCallback() {
+            @Override
+            public void release(Connection connection) {
+                releaseIdle(key, connection);
+                permits.release();
+            }
+        });
+    }
+    
+    /**
+     * Runs a query against the main database and a set of partitions in
+     * parallel
+     * @param selected The partitions to query
+     * @param query The query
+     * @return Results, one per partition in the given order followed by the main database's
+     * @throws SQLException if any of the queries fails
+     */
+    public <T> List<T> queryAll(List<Partition> selected, final Query<T> query) throws SQLException {
+        List<Future<T>> futures = new ArrayList<>(selected.size() + 1);
+        for (final Partition partition : selected) {
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws SQLException {
+                    try (Connection conn = getConnection(partition)) {
+                        return query.run(conn);
+                    }
+                }
+            }));
+        }
+        
+        List<T> results = new ArrayList<>(futures.size() + 1);
+        try {
+            // The main database is queried on the calling thread meanwhile
+            T main;
+            try (Connection conn = DatabaseManager.getConnection()) {
+                main = query.run(conn);
+            }
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            results.add(main);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while querying partitions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException) {
+                throw (SQLException) e.getCause();
+            }
+            throw new SQLException("Partition query failed", e.getCause());
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+    
+    /**
+     * Deletes a partition's file, waiting for queries using it to finish
+     * @param partition The partition to drop
+     * @return Bytes freed
+     * @throws SQLException if the partition is still in use or the file cannot be deleted
+     */
+    public long drop(Partition partition) throws SQLException {
+        String key = partition.getKey();
+        Semaphore permits;
+        synchronized (this) {
+            permits = borrowers.remove(key);
+            if (permits == null) {
+                return 0; // Already dropped
+            }
+            partitions.remove(key);
+        }
+        
+        try {
+            if (!permits.tryAcquire(MAX_BORROWERS, DROP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new SQLException("Partition " + key + " is still in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while dropping partition " + key, e);
+        }
+        
+        Deque<Connection> connections;
+        synchronized (this) {
+            connections = idle.remove(key);
+        }
+        if (connections != null) {
+            for (Connection conn : connections) {
+                closeQuietly(conn);
+            }
+        }
+        
+        long bytes = 0;
+        File file = partition.getFile();
+        for (File part : new File[] {file, new File(file.getPath() + "-wal"), new File(file.getPath() + "-shm")}) {
+            long length = part.length();
+            if (part.exists() && !part.delete()) {
+                throw new SQLException("Cannot delete " + part);
+            }
+            bytes += length;
+        }
+        return bytes;
+    }
+    
+    /**
+     * Closes all idle partition connections
+     */
+    public synchronized void close() {
+        for (Deque<Connection> connections : idle.values()) {
+            for (Connection conn : connections) {
+                closeQuietly(conn);
+            }
+        }
+        idle.clear();
+    }
+    
+    public PartitionScheme getScheme() {
+        return scheme;
+    }
+    
+    public File getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Reads the range of every partition file once. A file without a range
+     * was left empty by a crash during creation and is removed.
+     */
+    private void scan() throws SQLException {
+        if (scanned) {
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getName());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long[] range = readRange(file);
+                if (range == null) {
+                    if (!file.delete()) {
+                        throw new SQLException("Cannot remove incomplete partition " + file);
+                    }
+                    continue;
+                }
+                register(matcher.group(1), file, range[0], range[1]);
+            }
+        }
+        scanned = true;
+    }
+    
+    private long[] readRange(File file) throws SQLException {
+        try (Connection conn = open(file);
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT COUNT(*) FROM sqlite_master WHERE name = 'partition_range'")) {
+                if (!rs.next() || rs.getInt(1) == 0) {
+                    return null;
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT start_millis, end_millis FROM partition_range")) {
+                return rs.next() ? new long[] {rs.getLong(1), rs.getLong(2)} : null;
+            }
+        }
+    }
+    
+    private Partition register(String key, File file, long start, long end) {
+        Partition partition = new Partition(key, file, start, end);
+        partitions.put(key, partition);
+        borrowers.put(key, new Semaphore(MAX_BORROWERS));
+        return partition;
+    }
+    
+    private Connection open(File file) throws SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("SQLite JDBC Driver not found", e);
+        }
+        Connection conn = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        } catch (SQLException e) {
+            closeQuietly(conn);
+            throw e;
+        }
+        return conn;
+    }
+    
+    private synchronized void releaseIdle(String key, Connection physical) {
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            closeQuietly(physical);
+            return;
+        }
+        
+        Deque<Connection> connections = idle.get(key);
+        if (connections == null && borrowers.containsKey(key)) {
+            connections = new ArrayDeque<>();
+            idle.put(key, connections);
+        }
+        if (connections != null && connections.size() < MAX_IDLE_PER_PARTITION) {
+            connections.push(physical);
+        } else {
+            closeQuietly(physical);
+        }
+    }
+    
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
\ No newline at end of file
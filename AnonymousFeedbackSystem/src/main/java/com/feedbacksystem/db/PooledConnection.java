@@ -0,0 +1,79 @@
+package com.feedbacksystem.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Connection handle handed out by DatabaseManager.
+ * Closing the handle returns the underlying physical connection to its pool
+ * instead of closing the database.
+ */
+class PooledConnection implements InvocationHandler {
+    
+    /**
+     * Callback invoked when a handle is closed
+     */
+    interface ReleaseCallback {
+        void release(Connection physical);
+    }
+    
+    private final Connection physical;
+    private final ReleaseCallback callback;
+    private boolean closed;
+    
+    private PooledConnection(Connection physical, ReleaseCallback callback) {
+        this.physical = physical;
+        this.callback = callback;
+    }
+    
+    /**
+     * Wraps a physical connection in a pooled handle
+     * @param physical The physical connection to wrap
+     * @param callback Called once when the handle is closed
+     * @return Connection handle
+     */
+    static Connection wrap(Connection physical, ReleaseCallback callback) {
+        return (Connection) Proxy.newProxyInstance(
+                PooledConnection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                new PooledConnection(physical, callback));
+    }
+    
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        
+        if ("close".equals(name)) {
+            if (!closed) {
+                closed = true;
+                callback.release(physical);
+            }
+            return null;
+        }
+        if ("isClosed".equals(name)) {
+            return closed || physical.isClosed();
+        }
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        }
+        if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        }
+        if ("toString".equals(name)) {
+            return "PooledConnection[" + physical + (closed ? ", closed]" : "]");
+        }
+        if (closed) {
+            throw new SQLException("Connection handle has already been closed");
+        }
+        
+        try {
+            return method.invoke(physical, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
\ No newline at end of file
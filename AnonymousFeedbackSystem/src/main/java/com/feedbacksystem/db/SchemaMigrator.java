@@ -0,0 +1,402 @@
+package com.feedbacksystem.db;
+
+import com.feedbacksystem.auth.PasswordHasher;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date at startup.
+ *
+ * The applied version is tracked in the schema_version table. Migrations
+ * newer than that version run in order, each in its own transaction
+ * together with the row recording it, so a failed migration leaves the
+ * schema at the previous version. Add new migrations to the end of
+ * {@link #MIGRATIONS}; never edit one that has already shipped.
+ */
+public class SchemaMigrator {
+    
+    static final List<Migration> MIGRATIONS = Collections.unmodifiableList(Arrays.asList(
+            Migration.of(1, "Create admin and feedback tables",
+                    "CREATE TABLE IF NOT EXISTS admin (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "username VARCHAR(50), " +
+                    "password VARCHAR(50))",
+                    "CREATE TABLE IF NOT EXISTS feedback (" +
+                    "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    "category VARCHAR(50), " +
+                    "message TEXT, " +
+                    "rating INTEGER, " +
+                    "date_submitted DATE)",
+                    "INSERT OR IGNORE INTO admin (id, username, password) VALUES (1, 'admin', 'admin123')"),
+            
+            new Migration(2, "Store feedback dates as integer epoch milliseconds") {
+                @Override
+                public void apply(Connection conn) throws SQLException {
+                    try (Statement stmt = conn.createStatement()) {
+                        // Dropping the table also drops its AUTOINCREMENT high-water mark
+                        long sequence = 0;
+                        try (ResultSet rs = stmt.executeQuery(
+                                "SELECT seq FROM sqlite_sequence WHERE name = 'feedback'")) {
+                            if (rs.next()) {
+                                sequence = rs.getLong(1);
+                            }
+                        }
+                        
+                        stmt.execute("CREATE TABLE feedback_new (" +
+                                     "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                                     "category VARCHAR(50), " +
+                                     "message TEXT, " +
+                                     "rating INTEGER, " +
+                                     "date_submitted INTEGER NOT NULL)");
+                        // Older rows may hold text dates; newer ones already hold milliseconds
+                        stmt.execute("INSERT INTO feedback_new (id, category, message, rating, date_submitted) " +
+                                     "SELECT id, category, message, rating, " +
+                                     "CASE WHEN typeof(date_submitted) IN ('integer', 'real') " +
+                                     "THEN CAST(date_submitted AS INTEGER) " +
+                                     "ELSE COALESCE(CAST(strftime('%s', date_submitted) AS INTEGER) * 1000, 0) END " +
+                                     "FROM feedback");
+                        stmt.execute("DROP TABLE feedback");
+                        stmt.execute("ALTER TABLE feedback_new RENAME TO feedback");
+                        
+                        // The copy leaves no sequence row if the table was empty, e.g. after a purge
+                        int updated;
+                        try (PreparedStatement pstmt = conn.prepareStatement(
+                                "UPDATE sqlite_sequence SET seq = MAX(seq, ?) WHERE name = 'feedback'")) {
+                            pstmt.setLong(1, sequence);
+                            updated = pstmt.executeUpdate();
+                        }
+                        if (updated == 0 && sequence > 0) {
+                            try (PreparedStatement pstmt = conn.prepareStatement(
+                                    "INSERT INTO sqlite_sequence (name, seq) VALUES ('feedback', ?)")) {
+                                pstmt.setLong(1, sequence);
+                                pstmt.executeUpdate();
+                            }
+                        }
+                    }
+                }
+            },
+            
+            Migration.of(3, "Index feedback by date and by category",
+                    "CREATE INDEX IF NOT EXISTS idx_feedback_date_id ON feedback (date_submitted, id)",
+                    "CREATE INDEX IF NOT EXISTS idx_feedback_category_date_id ON feedback (category, date_submitted, id)"),
+            
+            Migration.of(4, "Make admin usernames unique",
+                    "DELETE FROM admin WHERE id NOT IN (SELECT MIN(id) FROM admin GROUP BY username)",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_admin_username ON admin (username)"),
+            
+            // Days are UTC epoch days; rating_N counts the entries rated N
+            Migration.of(5, "Maintain per-category daily rating aggregates",
+                    "CREATE TABLE feedback_daily_stats (" +
+                    "category TEXT NOT NULL, " +
+                    "day INTEGER NOT NULL, " +
+                    "feedback_count INTEGER NOT NULL, " +
+                    "rating_sum INTEGER NOT NULL, " +
+                    "rating_1 INTEGER NOT NULL, " +
+                    "rating_2 INTEGER NOT NULL, " +
+                    "rating_3 INTEGER NOT NULL, " +
+                    "rating_4 INTEGER NOT NULL, " +
+                    "rating_5 INTEGER NOT NULL, " +
+                    "PRIMARY KEY (category, day)) WITHOUT ROWID",
+                    "CREATE INDEX idx_feedback_daily_stats_day ON feedback_daily_stats (day, category)",
+                    "INSERT INTO feedback_daily_stats " +
+                    "SELECT IFNULL(category, ''), date_submitted / 86400000, COUNT(*), IFNULL(SUM(rating), 0), " +
+                    "SUM(rating IS 1), SUM(rating IS 2), SUM(rating IS 3), SUM(rating IS 4), SUM(rating IS 5) " +
+                    "FROM feedback GROUP BY 1, 2",
+                    // The triggers run inside the transaction of the statement that fired them,
+                    // so the aggregates commit or roll back together with the feedback rows
+                    "CREATE TRIGGER feedback_stats_insert AFTER INSERT ON feedback BEGIN " +
+                    addToStats("NEW") +
+                    "END",
+                    "CREATE TRIGGER feedback_stats_delete AFTER DELETE ON feedback BEGIN " +
+                    removeFromStats("OLD") +
+                    "END",
+                    "CREATE TRIGGER feedback_stats_update AFTER UPDATE OF category, rating, date_submitted ON feedback BEGIN " +
+                    removeFromStats("OLD") +
+                    addToStats("NEW") +
+                    "END"),
+            
+            // External-content index: the text lives only in feedback, the index only holds tokens
+            Migration.of(6, "Add full-text index on feedback messages",
+                    "CREATE VIRTUAL TABLE feedback_fts USING fts5(message, content = 'feedback', " +
+                    "content_rowid = 'id', tokenize = 'unicode61 remove_diacritics 2')",
+                    "INSERT INTO feedback_fts (feedback_fts) VALUES ('rebuild')",
+                    "CREATE TRIGGER feedback_fts_insert AFTER INSERT ON feedback BEGIN " +
+                    "INSERT INTO feedback_fts (rowid, message) VALUES (NEW.id, NEW.message); " +
+                    "END",
+                    "CREATE TRIGGER feedback_fts_delete AFTER DELETE ON feedback BEGIN " +
+                    "INSERT INTO feedback_fts (feedback_fts, rowid, message) VALUES ('delete', OLD.id, OLD.message); " +
+                    "END",
+                    "CREATE TRIGGER feedback_fts_update AFTER UPDATE OF message ON feedback BEGIN " +
+                    "INSERT INTO feedback_fts (feedback_fts, rowid, message) VALUES ('delete', OLD.id, OLD.message); " +
+                    "INSERT INTO feedback_fts (rowid, message) VALUES (NEW.id, NEW.message); " +
+                    "END"),
+            
+            // version counts writes to feedback; clients that last saw a version below
+            // reset_version cannot replay the changes and must reload
+            Migration.of(7, "Track feedback changes for delta refreshes",
+                    "CREATE TABLE feedback_data_version (" +
+                    "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                    "version INTEGER NOT NULL, " +
+                    "reset_version INTEGER NOT NULL)",
+                    "INSERT INTO feedback_data_version (id, version, reset_version) VALUES (1, 0, 0)",
+                    "CREATE TABLE feedback_tombstone (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "category TEXT, " +
+                    "date_submitted INTEGER NOT NULL, " +
+                    "version INTEGER NOT NULL)",
+                    "CREATE INDEX idx_feedback_tombstone_version ON feedback_tombstone (version)",
+                    "CREATE TRIGGER feedback_version_insert AFTER INSERT ON feedback BEGIN " +
+                    "UPDATE feedback_data_version SET version = version + 1 WHERE id = 1; " +
+                    "END",
+                    "CREATE TRIGGER feedback_version_delete AFTER DELETE ON feedback BEGIN " +
+                    "UPDATE feedback_data_version SET version = version + 1 WHERE id = 1; " +
+                    "INSERT OR REPLACE INTO feedback_tombstone (id, category, date_submitted, version) " +
+                    "VALUES (OLD.id, OLD.category, OLD.date_submitted, " +
+                    "(SELECT version FROM feedback_data_version WHERE id = 1)); " +
+                    "END",
+                    // An update can move a row anywhere in the list, so it is not replayed
+                    "CREATE TRIGGER feedback_version_update AFTER UPDATE ON feedback BEGIN " +
+                    "UPDATE feedback_data_version SET version = version + 1, reset_version = version + 1 WHERE id = 1; " +
+                    "END"),
+            
+            // Lets the retention purge hand freed pages back to the file system with
+            // PRAGMA incremental_vacuum. Switching modes rewrites the whole file once.
+            new Migration(8, "Enable incremental auto-vacuum") {
+                @Override
+                public void apply(Connection conn) throws SQLException {
+                    try (Statement stmt = conn.createStatement()) {
+                        try (ResultSet rs = stmt.executeQuery("PRAGMA auto_vacuum")) {
+                            if (rs.next() && rs.getInt(1) == 2) {
+                                return; // Already incremental
+                            }
+                        }
+                        stmt.execute("PRAGMA auto_vacuum = INCREMENTAL");
+                        stmt.execute("VACUUM");
+                    }
+                }
+                
+                @Override
+                public boolean isTransactional() {
+                    return false; // VACUUM cannot run inside a transaction
+                }
+            },
+            
+            // Replaces the plaintext passwords with salted hashes; password is left NULL
+            new Migration(9, "Hash admin passwords") {
+                @Override
+                public void apply(Connection conn) throws SQLException {
+                    try (Statement stmt = conn.createStatement()) {
+                        stmt.execute("ALTER TABLE admin ADD COLUMN password_hash TEXT");
+                    }
+                    PasswordHasher hasher = PasswordHasher.fromConfig();
+                    try (Statement stmt = conn.createStatement();
+                         ResultSet rs = stmt.executeQuery("SELECT id, password FROM admin WHERE password IS NOT NULL");
+                         PreparedStatement update = conn.prepareStatement(
+                                 "UPDATE admin SET password_hash = ?, password = NULL WHERE id = ?")) {
+                        while (rs.next()) {
+                            update.setString(1, hasher.hash(rs.getString("password")));
+                            update.setInt(2, rs.getInt("id"));
+                            update.executeUpdate();
+                        }
+                    }
+                }
+            },
+            
+            // Flagged near-duplicates point at their original and stay out of the rating
+            // aggregates; collapsed ones only raise the original's duplicate_count, which
+            // is not a change clients need to reload for
+            Migration.of(10, "Detect duplicate feedback",
+                    "ALTER TABLE feedback ADD COLUMN duplicate_of INTEGER",
+                    "ALTER TABLE feedback ADD COLUMN duplicate_count INTEGER NOT NULL DEFAULT 0",
+                    "DROP TRIGGER feedback_stats_insert",
+                    "DROP TRIGGER feedback_stats_delete",
+                    "DROP TRIGGER feedback_stats_update",
+                    "CREATE TRIGGER feedback_stats_insert AFTER INSERT ON feedback " +
+                    "WHEN NEW.duplicate_of IS NULL BEGIN " +
+                    addToStats("NEW") +
+                    "END",
+                    "CREATE TRIGGER feedback_stats_delete AFTER DELETE ON feedback " +
+                    "WHEN OLD.duplicate_of IS NULL BEGIN " +
+                    removeFromStats("OLD") +
+                    "END",
+                    "CREATE TRIGGER feedback_stats_update AFTER UPDATE OF category, rating, date_submitted ON feedback " +
+                    "WHEN OLD.duplicate_of IS NULL BEGIN " +
+                    removeFromStats("OLD") +
+                    addToStats("NEW") +
+                    "END",
+                    "DROP TRIGGER feedback_version_update",
+                    "CREATE TRIGGER feedback_version_update AFTER UPDATE OF category, message, rating, date_submitted " +
+                    "ON feedback BEGIN " +
+                    "UPDATE feedback_data_version SET version = version + 1, reset_version = version + 1 WHERE id = 1; " +
+                    "END"),
+            
+            // Position up to which each submission log has been copied into feedback
+            Migration.of(11, "Track submission log checkpoints",
+                    "CREATE TABLE submission_log_checkpoint (" +
+                    "log TEXT PRIMARY KEY, " +
+                    "position INTEGER NOT NULL)"),
+            
+            // Lets the rating trends take deleted rows back out. Tombstones written before
+            // this carry no rating, so every client reloads once.
+            Migration.of(12, "Record ratings of deleted feedback",
+                    "ALTER TABLE feedback_tombstone ADD COLUMN rating INTEGER",
+                    "ALTER TABLE feedback_tombstone ADD COLUMN duplicate_of INTEGER",
+                    "DROP TRIGGER feedback_version_delete",
+                    "CREATE TRIGGER feedback_version_delete AFTER DELETE ON feedback BEGIN " +
+                    "UPDATE feedback_data_version SET version = version + 1 WHERE id = 1; " +
+                    "INSERT OR REPLACE INTO feedback_tombstone (id, category, date_submitted, rating, duplicate_of, version) " +
+                    "VALUES (OLD.id, OLD.category, OLD.date_submitted, OLD.rating, OLD.duplicate_of, " +
+                    "(SELECT version FROM feedback_data_version WHERE id = 1)); " +
+                    "END",
+                    "UPDATE feedback_data_version SET reset_version = version WHERE id = 1"),
+            
+            // Results of the background text analysis. terms holds the JSON array of keywords
+            // counted for an entry, so deleting it can take them out of the keyword counts again.
+            Migration.of(13, "Store sentiment and keywords of feedback messages",
+                    "CREATE TABLE feedback_analysis (" +
+                    "id INTEGER PRIMARY KEY, " +
+                    "category TEXT NOT NULL, " +
+                    "sentiment REAL NOT NULL, " +
+                    "terms TEXT NOT NULL)",
+                    "CREATE INDEX idx_feedback_analysis_sentiment ON feedback_analysis (sentiment, id)",
+                    "CREATE INDEX idx_feedback_analysis_category_sentiment ON feedback_analysis (category, sentiment, id)",
+                    "CREATE TABLE feedback_keyword_stats (" +
+                    "category TEXT NOT NULL, " +
+                    "term TEXT NOT NULL, " +
+                    "documents INTEGER NOT NULL, " +
+                    "sentiment_sum REAL NOT NULL, " +
+                    "PRIMARY KEY (category, term)) WITHOUT ROWID",
+                    "CREATE INDEX idx_feedback_keyword_stats_rank ON feedback_keyword_stats (category, documents DESC, term)",
+                    "CREATE TABLE feedback_analysis_checkpoint (" +
+                    "id INTEGER PRIMARY KEY CHECK (id = 1), " +
+                    "last_id INTEGER NOT NULL)",
+                    "INSERT INTO feedback_analysis_checkpoint (id, last_id) VALUES (1, 0)",
+                    "CREATE TRIGGER feedback_analysis_delete AFTER DELETE ON feedback BEGIN " +
+                    "UPDATE feedback_keyword_stats SET documents = documents - 1, " +
+                    "sentiment_sum = sentiment_sum - (SELECT sentiment FROM feedback_analysis WHERE id = OLD.id) " +
+                    "WHERE category = IFNULL(OLD.category, '') AND term IN (" +
+                    "SELECT value FROM json_each((SELECT terms FROM feedback_analysis WHERE id = OLD.id))); " +
+                    "DELETE FROM feedback_keyword_stats WHERE category = IFNULL(OLD.category, '') AND documents <= 0; " +
+                    "DELETE FROM feedback_analysis WHERE id = OLD.id; " +
+                    "END"),
+            
+            // Lets a journaled submission be replayed without storing it twice. Rows written
+            // before this, and by clients that set no id, keep NULL and stay out of the index.
+            Migration.of(14, "Identify submissions for exactly-once retries",
+                    "ALTER TABLE feedback ADD COLUMN submission_id TEXT",
+                    "CREATE UNIQUE INDEX idx_feedback_submission_id ON feedback (submission_id) " +
+                    "WHERE submission_id IS NOT NULL")
+    ));
+    
+    /**
+     * Trigger statement adding a feedback row to its day's aggregates
+     * @param row NEW or OLD
+     */
+    static String addToStats(String row) {
+        return "INSERT INTO feedback_daily_stats VALUES (IFNULL(" + row + ".category, ''), " +
+               row + ".date_submitted / 86400000, 1, IFNULL(" + row + ".rating, 0), " +
+               row + ".rating IS 1, " + row + ".rating IS 2, " + row + ".rating IS 3, " +
+               row + ".rating IS 4, " + row + ".rating IS 5) " +
+               "ON CONFLICT (category, day) DO UPDATE SET " +
+               "feedback_count = feedback_count + 1, " +
+               "rating_sum = rating_sum + excluded.rating_sum, " +
+               "rating_1 = rating_1 + excluded.rating_1, " +
+               "rating_2 = rating_2 + excluded.rating_2, " +
+               "rating_3 = rating_3 + excluded.rating_3, " +
+               "rating_4 = rating_4 + excluded.rating_4, " +
+               "rating_5 = rating_5 + excluded.rating_5; ";
+    }
+    
+    /**
+     * Trigger statements removing a feedback row from its day's aggregates
+     * and dropping the day once it is empty
+     * @param row NEW or OLD
+     */
+    static String removeFromStats(String row) {
+        String key = "WHERE category = IFNULL(" + row + ".category, '') AND day = " + row + ".date_submitted / 86400000";
+        return "UPDATE feedback_daily_stats SET " +
+               "feedback_count = feedback_count - 1, " +
+               "rating_sum = rating_sum - IFNULL(" + row + ".rating, 0), " +
+               "rating_1 = rating_1 - (" + row + ".rating IS 1), " +
+               "rating_2 = rating_2 - (" + row + ".rating IS 2), " +
+               "rating_3 = rating_3 - (" + row + ".rating IS 3), " +
+               "rating_4 = rating_4 - (" + row + ".rating IS 4), " +
+               "rating_5 = rating_5 - (" + row + ".rating IS 5) " +
+               key + "; " +
+               "DELETE FROM feedback_daily_stats " + key + " AND feedback_count <= 0; ";
+    }
+    
+    /**
+     * Applies all pending migrations
+     * @param conn The writer connection
+     * @return The schema version after migrating
+     * @throws SQLException if a migration fails
+     */
+    public int migrate(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                         "version INTEGER PRIMARY KEY, " +
+                         "description TEXT NOT NULL, " +
+                         "applied_at INTEGER NOT NULL)");
+        }
+        
+        int current = getCurrentVersion(conn);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.getVersion() <= current) {
+                continue;
+            }
+            apply(conn, migration);
+            current = migration.getVersion();
+        }
+        return current;
+    }
+    
+    /**
+     * Returns the latest applied schema version
+     * @param conn Connection to the database
+     * @return The version, or 0 for a database that has never been migrated
+     * @throws SQLException if the version cannot be read
+     */
+    public int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        boolean transactional = migration.isTransactional();
+        if (transactional) {
+            conn.setAutoCommit(false);
+        }
+        try {
+            migration.apply(conn);
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                pstmt.setInt(1, migration.getVersion());
+                pstmt.setString(2, migration.getDescription());
+                pstmt.setLong(3, System.currentTimeMillis());
+                pstmt.executeUpdate();
+            }
+            if (transactional) {
+                conn.commit();
+            }
+        } catch (SQLException e) {
+            if (transactional) {
+                conn.rollback();
+            }
+            throw new SQLException("Schema migration " + migration.getVersion() + " (" +
+                                   migration.getDescription() + ") failed: " + e.getMessage(), e);
+        } finally {
+            if (transactional) {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,86 @@
+package com.feedbacksystem.events;
+
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.dao.Repositories;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notices feedback written by other processes sharing the database.
+ *
+ * Every insert and delete moves the data version that the triggers keep in
+ * feedback_data_version, so reading that one row is enough to tell whether
+ * anything changed. When it has moved past the versions published in this
+ * process, a row-less event tells the listeners to read the changes.
+ */
+class ChangePoller {
+    private final FeedbackDAO feedbackDAO = new FeedbackDAO();
+    private final long intervalMillis;
+    private ScheduledExecutorService scheduler;
+    // Only touched on the poller thread
+    private long lastVersion = -1;
+    
+    /**
+     * @param intervalMillis Milliseconds between two reads of the data version
+     */
+    ChangePoller(long intervalMillis) {
+        this.intervalMillis = intervalMillis;
+    }
+    
+    /**
+     * Creates a poller configured from feedback.properties (live.pollMillis)
+     * @return New ChangePoller, or null if polling is disabled or the
+     *         in-memory backend, which no other process can write to, is used
+     */
+    static ChangePoller fromConfig() {
+        long intervalMillis = AppConfig.getLong("live.pollMillis", 1000);
+        if (intervalMillis <= 0 || Repositories.isInMemory()) {
+            return null;
+        }
+        return new ChangePoller(intervalMillis);
+    }
+    
+    synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feedback-change-poller");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    poll();
+                } catch (SQLException e) {
+                    // Try again at the next poll
+                    e.printStackTrace();
+                }
+            }
+        }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    private void poll() throws SQLException {
+        long version = feedbackDAO.getDataVersion();
+        if (version > lastVersion && version > FeedbackEvents.getPublishedVersion()) {
+            FeedbackEvents.publish(FeedbackEvent.changedElsewhere(version));
+        }
+        lastVersion = version;
+    }
+}
\ No newline at end of file
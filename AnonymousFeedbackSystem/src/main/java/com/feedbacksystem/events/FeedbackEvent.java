@@ -0,0 +1,73 @@
+package com.feedbacksystem.events;
+
+import com.feedbacksystem.model.Feedback;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Feedback inserted or deleted by one write, between two data versions.
+ *
+ * A listener whose rows are at fromVersion can apply the event and move to
+ * toVersion. Any other fromVersion means it missed a write and has to read
+ * the changes from the repository instead. Events for writes made by other
+ * processes carry no rows, only the version they were noticed at.
+ */
+public class FeedbackEvent {
+    private final long fromVersion;
+    private final long toVersion;
+    private final List<Feedback> inserted;
+    private final List<Feedback> deleted;
+    
+    /**
+     * @param fromVersion Data version before the write
+     * @param toVersion Data version after the write
+     * @param inserted New rows, in id order, with duplicate_of set
+     * @param deleted Tombstones of removed rows, holding id, category, rating,
+     *                date and duplicate_of
+     */
+    public FeedbackEvent(long fromVersion, long toVersion, List<Feedback> inserted, List<Feedback> deleted) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.inserted = inserted;
+        this.deleted = deleted;
+    }
+    
+    /**
+     * Writes that happened elsewhere and have to be read from the repository
+     * @param version The data version they were noticed at
+     * @return FeedbackEvent without rows
+     */
+    public static FeedbackEvent changedElsewhere(long version) {
+        return new FeedbackEvent(-1, version, Collections.<Feedback>emptyList(), Collections.<Feedback>emptyList());
+    }
+    
+    public long getFromVersion() {
+        return fromVersion;
+    }
+    
+    public long getToVersion() {
+        return toVersion;
+    }
+    
+    public List<Feedback> getInserted() {
+        return inserted;
+    }
+    
+    public List<Feedback> getDeleted() {
+        return deleted;
+    }
+    
+    /**
+     * @return true if the rows were not seen in this process
+     */
+    public boolean isChangedElsewhere() {
+        return fromVersion < 0;
+    }
+    
+    /**
+     * @return Highest id inserted, or 0 if none
+     */
+    public int getLastId() {
+        return inserted.isEmpty() ? 0 : inserted.get(inserted.size() - 1).getId();
+    }
+}
\ No newline at end of file
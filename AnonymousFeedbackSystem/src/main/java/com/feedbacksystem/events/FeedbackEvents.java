@@ -0,0 +1,84 @@
+package com.feedbacksystem.events;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process event bus for feedback writes.
+ *
+ * The repositories publish every insert and delete they commit, with the
+ * rows and the data versions around the write, but only while someone is
+ * subscribed, so the write path costs nothing extra otherwise. Writes made
+ * by other processes sharing the database, or by the background purge,
+ * are not published by anyone here; while there are subscribers a
+ * ChangePoller watches the data version and publishes a row-less event
+ * when it moves past what was published.
+ */
+public final class FeedbackEvents {
+    private static final List<FeedbackListener> listeners = new CopyOnWriteArrayList<>();
+    // Highest data version published with its rows
+    private static volatile long publishedVersion;
+    private static ChangePoller poller;
+    
+    private FeedbackEvents() {
+    }
+    
+    /**
+     * Starts delivering events to a listener, and starts the change poller
+     * with the first one
+     * @param listener The listener
+     */
+    public static synchronized void subscribe(FeedbackListener listener) {
+        listeners.add(listener);
+        if (poller == null) {
+            poller = ChangePoller.fromConfig();
+            if (poller != null) {
+                poller.start();
+            }
+        }
+    }
+    
+    /**
+     * Stops delivering events to a listener, and stops the change poller
+     * with the last one
+     * @param listener The listener
+     */
+    public static synchronized void unsubscribe(FeedbackListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty() && poller != null) {
+            poller.stop();
+            poller = null;
+        }
+    }
+    
+    /**
+     * @return true if events are delivered to anyone; writers skip building them otherwise
+     */
+    public static boolean hasListeners() {
+        return !listeners.isEmpty();
+    }
+    
+    /**
+     * Delivers an event to every listener. A failing listener does not stop
+     * the others or the write.
+     * @param event The write
+     */
+    public static void publish(FeedbackEvent event) {
+        if (!event.isChangedElsewhere()) {
+            synchronized (FeedbackEvents.class) {
+                publishedVersion = Math.max(publishedVersion, event.getToVersion());
+            }
+        }
+        for (FeedbackListener listener : listeners) {
+            try {
+                listener.feedbackChanged(event);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+    
+    static long getPublishedVersion() {
+        return publishedVersion;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.feedbacksystem.events;
+
+/**
+ * Receives every feedback write published to {@link FeedbackEvents}
+ */
+public interface FeedbackListener {
+    /**
+     * Called on the thread that made the write, after it was committed, or
+     * on the change poller's thread. Must return quickly; hand the event to
+     * another thread for anything slow.
+     * @param event The write
+     */
+    void feedbackChanged(FeedbackEvent event);
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.feedbacksystem.export;
+
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Exports feedback from the command line, without opening any window.
+ *
+ * Usage: java com.feedbacksystem.export.ExportCommand [--format csv|jsonl] [--gzip]
+ *            [--category NAME] [--from YYYY-MM-DD] [--to YYYY-MM-DD] [--db FILE] OUTPUT
+ * --from and --to are inclusive days in the local time zone.
+ */
+public class ExportCommand {
+    private static final String USAGE =
+            "Usage: java com.feedbacksystem.export.ExportCommand [--format csv|jsonl] [--gzip]\n" +
+            "           [--category NAME] [--from YYYY-MM-DD] [--to YYYY-MM-DD] [--db FILE] OUTPUT";
+    
+    public static void main(String[] args) throws SQLException {
+        System.setProperty("java.awt.headless", "true");
+        
+        FeedbackExporter.Format format = FeedbackExporter.Format.CSV;
+        boolean gzip = false;
+        String category = null;
+        long fromMillis = Long.MIN_VALUE;
+        long toMillis = Long.MAX_VALUE;
+        String output = null;
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--gzip".equals(arg)) {
+                    gzip = true;
+                } else if ("--format".equals(arg)) {
+                    String name = value(args, ++i);
+                    try {
+                        format = FeedbackExporter.Format.valueOf(name.toUpperCase());
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown format: " + name);
+                    }
+                } else if ("--category".equals(arg)) {
+                    category = value(args, ++i);
+                } else if ("--from".equals(arg)) {
+                    fromMillis = FeedbackExporter.startOf(LocalDate.parse(value(args, ++i)));
+                } else if ("--to".equals(arg)) {
+                    toMillis = FeedbackExporter.endOf(LocalDate.parse(value(args, ++i)));
+                } else if ("--db".equals(arg)) {
+                    DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + value(args, ++i));
+                } else if (arg.startsWith("--") || output != null) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                } else {
+                    output = arg;
+                }
+            }
+            if (output == null) {
+                throw new IllegalArgumentException("No output file given");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        FeedbackExporter exporter = new FeedbackExporter(new FeedbackDAO(), format, gzip);
+        try {
+            long rows = exporter.export(new File(output), category, fromMillis, toMillis,
+                                        new FeedbackExporter.ProgressListener() {
+                private long lastReport;
+                
+                @Override
+                public void onProgress(long rowsWritten, long totalRows) {
+                    long now = System.currentTimeMillis();
+                    if (now - lastReport >= 1000 || rowsWritten == totalRows) {
+                        lastReport = now;
+                        long percent = totalRows > 0 ? rowsWritten * 100 / totalRows : 100;
+                        System.err.println("Exported " + rowsWritten + " of " + totalRows + " rows (" + percent + "%)");
+                    }
+                }
+            });
+            System.out.println("Wrote " + rows + " rows to " + output);
+        } catch (IOException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+    }
+    
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
\ No newline at end of file
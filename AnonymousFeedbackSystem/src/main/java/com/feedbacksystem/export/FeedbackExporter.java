@@ -0,0 +1,233 @@
+package com.feedbacksystem.export;
+
+import com.feedbacksystem.dao.FeedbackRepository;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.util.SimpleJson;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes feedback to a CSV or JSON Lines file, optionally gzip-compressed.
+ *
+ * Rows are streamed from a forward-only cursor into a buffered file
+ * channel, so memory use stays the same however many rows are exported.
+ * The file is written under a temporary name and renamed once complete;
+ * a failed or cancelled export leaves nothing behind. Interrupting the
+ * exporting thread cancels the export.
+ */
+public class FeedbackExporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL = 1000;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+    
+    /**
+     * Output file formats
+     */
+    public enum Format {
+        CSV("csv"),
+        JSONL("jsonl");
+        
+        private final String extension;
+        
+        Format(String extension) {
+            this.extension = extension;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+    }
+    
+    /**
+     * Receives progress updates on the exporting thread
+     */
+    public interface ProgressListener {
+        /**
+         * @param rowsWritten Rows written so far
+         * @param totalRows Rows matching the filters when the export started
+         */
+        void onProgress(long rowsWritten, long totalRows);
+    }
+    
+    private final FeedbackRepository feedbackRepository;
+    private final Format format;
+    private final boolean gzip;
+    private final ZoneId zone = ZoneId.systemDefault();
+    
+    public FeedbackExporter(FeedbackRepository feedbackRepository, Format format, boolean gzip) {
+        this.feedbackRepository = feedbackRepository;
+        this.format = format;
+        this.gzip = gzip;
+    }
+    
+    /**
+     * Returns the usual file name suffix for this exporter's output
+     * @return e.g. ".csv" or ".jsonl.gz"
+     */
+    public String getFileSuffix() {
+        return "." + format.getExtension() + (gzip ? ".gz" : "");
+    }
+    
+    /**
+     * Exports the matching feedback, oldest first
+     * @param target The file to write; replaced if it exists
+     * @param category The category to export, or null for all categories
+     * @param fromMillis Earliest submission time to include, in epoch milliseconds
+     * @param toMillis Submission time to stop before, in epoch milliseconds
+     * @param listener Receives progress updates
+     * @return Number of rows written
+     * @throws SQLException if reading the feedback fails
+     * @throws IOException if writing fails; InterruptedIOException if the export was cancelled
+     */
+    public long export(File target, String category, long fromMillis, long toMillis,
+                       ProgressListener listener) throws SQLException, IOException {
+        long totalRows = feedbackRepository.countFeedback(category, fromMillis, toMillis);
+        listener.onProgress(0, totalRows);
+        
+        Path targetPath = target.toPath().toAbsolutePath();
+        Path partial = targetPath.resolveSibling(targetPath.getFileName() + ".partial");
+        RowWriter rowWriter;
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 Writer writer = openWriter(channel)) {
+                rowWriter = new RowWriter(writer, totalRows, listener);
+                if (format == Format.CSV) {
+                    writer.write("id,category,message,rating,date_submitted\r\n");
+                }
+                feedbackRepository.streamFeedback(category, fromMillis, toMillis, rowWriter);
+            }
+            Files.move(partial, targetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(partial);
+            }
+        }
+        
+        listener.onProgress(rowWriter.rows, totalRows);
+        return rowWriter.rows;
+    }
+    
+    private Writer openWriter(FileChannel channel) throws IOException {
+        OutputStream out = Channels.newOutputStream(channel);
+        if (gzip) {
+            out = new GZIPOutputStream(out, BUFFER_SIZE);
+        }
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+    
+    /**
+     * Returns the first millisecond of a day in the local time zone
+     */
+    public static long startOf(LocalDate date) {
+        return date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+    
+    /**
+     * Returns the first millisecond after a day in the local time zone
+     */
+    public static long endOf(LocalDate date) {
+        return startOf(date.plusDays(1));
+    }
+    
+    /**
+     * Formats each entry into a reused buffer and writes it out
+     */
+    private class RowWriter implements FeedbackRepository.FeedbackHandler {
+        private final Writer writer;
+        private final long totalRows;
+        private final ProgressListener listener;
+        private final StringBuilder line = new StringBuilder(256);
+        private long rows;
+        
+        RowWriter(Writer writer, long totalRows, ProgressListener listener) {
+            this.writer = writer;
+            this.totalRows = totalRows;
+            this.listener = listener;
+        }
+        
+        @Override
+        public void handle(Feedback feedback) throws IOException {
+            line.setLength(0);
+            String date = DATE_FORMAT.format(Instant.ofEpochMilli(feedback.getDateSubmitted().getTime()).atZone(zone));
+            if (format == Format.CSV) {
+                line.append(feedback.getId()).append(',');
+                appendCsv(feedback.getCategory());
+                line.append(',');
+                appendCsv(feedback.getMessage());
+                line.append(',').append(feedback.getRating()).append(',').append(date).append("\r\n");
+            } else {
+                line.append("{\"id\":").append(feedback.getId()).append(",\"category\":");
+                appendJson(feedback.getCategory());
+                line.append(",\"message\":");
+                appendJson(feedback.getMessage());
+                line.append(",\"rating\":").append(feedback.getRating());
+                line.append(",\"date_submitted\":\"").append(date).append("\"}\n");
+            }
+            writer.append(line);
+            
+            rows++;
+            if (rows % PROGRESS_INTERVAL == 0) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedIOException("Export cancelled");
+                }
+                listener.onProgress(rows, totalRows);
+            }
+        }
+        
+        /**
+         * Appends a CSV field, quoted when needed. Text that a spreadsheet
+         * would run as a formula gets a leading apostrophe.
+         */
+        private void appendCsv(String value) {
+            if (value == null) {
+                return;
+            }
+            if (!value.isEmpty() && "=+-@\t\r".indexOf(value.charAt(0)) >= 0) {
+                value = "'" + value;
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                line.append(value);
+                return;
+            }
+            line.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    line.append('"');
+                }
+                line.append(c);
+            }
+            line.append('"');
+        }
+        
+        private void appendJson(String value) {
+            if (value == null) {
+                line.append("null");
+            } else {
+                SimpleJson.quote(value, line);
+            }
+        }
+    }
+}
\ No newline at end of file
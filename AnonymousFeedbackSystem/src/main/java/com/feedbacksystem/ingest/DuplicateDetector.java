@@ -0,0 +1,173 @@
+package com.feedbacksystem.ingest;
+
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.dao.DuplicateRepository;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.metrics.OperationMetrics;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackValidator;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detects submissions that nearly repeat a recent one in the same category,
+ * such as the same complaint pasted many times with small edits.
+ *
+ * Each message is reduced to a MinHash signature over word pairs and looked
+ * up in a bounded FingerprintIndex per category holding the signatures of
+ * recent originals. Two messages are near-duplicates when the estimated
+ * share of word pairs they have in common is at least minSimilarity. Short
+ * messages are not checked, as they repeat legitimately ("Great teacher,
+ * thank you").
+ *
+ * Checks are timed as the operation DuplicateDetector.check; the rows of
+ * that operation count the duplicates found.
+ */
+public class DuplicateDetector {
+    private static final OperationMetrics CHECK_METRICS = Metrics.operation("DuplicateDetector.check");
+    
+    /**
+     * What happens to a near-duplicate submission
+     */
+    public enum Action {
+        /** Not checked */
+        OFF,
+        /** Stored, marked as a duplicate of the original and left out of the rating statistics */
+        FLAG,
+        /** Refused with DuplicateFeedbackException */
+        REJECT,
+        /** Not stored; the original's duplicate count goes up instead */
+        COLLAPSE
+    }
+    
+    private final Action action;
+    private final int minAgreement;
+    private final int minWords;
+    private final long windowMillis;
+    private final int capacity;
+    private final Map<String, FingerprintIndex> indexes = new HashMap<>();
+    
+    /**
+     * @param action What to do with near-duplicates
+     * @param minSimilarity Share of word pairs two messages must have in common to be duplicates (0-1)
+     * @param minWords Messages with fewer words are not checked
+     * @param windowMillis How long a submission is remembered
+     * @param capacity Most submissions remembered per category
+     */
+    public DuplicateDetector(Action action, double minSimilarity, int minWords, long windowMillis, int capacity) {
+        if (!(minSimilarity > 0 && minSimilarity <= 1)) {
+            throw new IllegalArgumentException("minSimilarity must be greater than 0 and at most 1");
+        }
+        this.action = action;
+        this.minAgreement = (int) Math.ceil(minSimilarity * MinHash.SIZE);
+        this.minWords = minWords;
+        this.windowMillis = windowMillis;
+        this.capacity = capacity;
+        if (action != Action.OFF) {
+            for (String category : FeedbackValidator.CATEGORIES) {
+                indexes.put(category, new FingerprintIndex(capacity));
+            }
+        }
+    }
+    
+    /**
+     * Creates a detector configured from feedback.properties (dedup.action,
+     * dedup.minSimilarityPercent, dedup.minWords, dedup.windowMinutes,
+     * dedup.capacity)
+     * @return New DuplicateDetector
+     */
+    public static DuplicateDetector fromConfig() {
+        String action = AppConfig.getString("dedup.action", "flag");
+        Action parsed;
+        try {
+            parsed = Action.valueOf(action.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown dedup.action '" + action + "', using flag");
+            parsed = Action.FLAG;
+        }
+        return new DuplicateDetector(parsed,
+                AppConfig.getInt("dedup.minSimilarityPercent", 70) / 100.0,
+                AppConfig.getInt("dedup.minWords", 5),
+                TimeUnit.MINUTES.toMillis(AppConfig.getLong("dedup.windowMinutes", 1440)),
+                AppConfig.getInt("dedup.capacity", 4096));
+    }
+    
+    public Action getAction() {
+        return action;
+    }
+    
+    /**
+     * Looks for a recent near-duplicate of a submission. If there is none,
+     * the submission is remembered as an original.
+     * @param feedback The submission; its date is used as the submission time
+     * @return The earlier feedback it repeats (id 0 if that is not stored yet),
+     *         or null if it is not a duplicate or is not checked
+     */
+    public Feedback check(Feedback feedback) {
+        FingerprintIndex index = indexes.get(feedback.getCategory());
+        if (index == null) {
+            return null;
+        }
+        
+        long start = System.nanoTime();
+        try {
+            int[] signature = new int[MinHash.SIZE];
+            if (MinHash.signature(feedback.getMessage(), signature) < minWords) {
+                return null;
+            }
+            long time = feedback.getDateSubmitted().getTime();
+            synchronized (index) {
+                Feedback original = index.find(signature, minAgreement, time - windowMillis);
+                if (original != null) {
+                    CHECK_METRICS.recordRows(1);
+                    return original;
+                }
+                index.add(signature, time, feedback);
+                return null;
+            }
+        } finally {
+            CHECK_METRICS.recordTime(start);
+        }
+    }
+    
+    /**
+     * Forgets a submission that check remembered as an original, e.g. because it
+     * could not be stored, so that resubmitting it is not taken for a
+     * duplicate of itself
+     * @param feedback The submission passed to check
+     */
+    public void forget(Feedback feedback) {
+        FingerprintIndex index = indexes.get(feedback.getCategory());
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            index.remove(feedback);
+        }
+    }
+    
+    /**
+     * Refills the indexes with the recent originals stored in the database,
+     * so detection survives a restart
+     * @param duplicateRepository Repository to read them from
+     * @param nowMillis The current time
+     * @throws SQLException if database operation fails
+     */
+    public void rebuild(DuplicateRepository duplicateRepository, long nowMillis) throws SQLException {
+        for (Map.Entry<String, FingerprintIndex> entry : indexes.entrySet()) {
+            List<Feedback> recent = duplicateRepository.getRecentOriginals(entry.getKey(), nowMillis - windowMillis, capacity);
+            FingerprintIndex index = entry.getValue();
+            int[] signature = new int[MinHash.SIZE];
+            synchronized (index) {
+                for (Feedback feedback : recent) {
+                    if (MinHash.signature(feedback.getMessage(), signature) >= minWords) {
+                        index.add(signature, feedback.getDateSubmitted().getTime(), feedback);
+                    }
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
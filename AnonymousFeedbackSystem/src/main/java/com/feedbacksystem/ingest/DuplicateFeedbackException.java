@@ -0,0 +1,21 @@
+package com.feedbacksystem.ingest;
+
+/**
+ * Thrown when a submission is rejected because it nearly repeats a recent
+ * one in the same category
+ */
+public class DuplicateFeedbackException extends RuntimeException {
+    private final int originalId;
+    
+    public DuplicateFeedbackException(int originalId) {
+        super("This feedback is too similar to one that was submitted recently.");
+        this.originalId = originalId;
+    }
+    
+    /**
+     * @return Id of the earlier feedback, or 0 if it is not stored yet
+     */
+    public int getOriginalId() {
+        return originalId;
+    }
+}
\ No newline at end of file
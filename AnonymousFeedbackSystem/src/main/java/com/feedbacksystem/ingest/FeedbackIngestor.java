@@ -0,0 +1,666 @@
+package com.feedbacksystem.ingest;
+
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.dao.DuplicateDAO;
+import com.feedbacksystem.dao.DuplicateRepository;
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.dao.FeedbackRepository;
+import com.feedbacksystem.dao.Repositories;
+import com.feedbacksystem.dao.SubmissionLogDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.metrics.OperationMetrics;
+import com.feedbacksystem.model.Feedback;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Asynchronous group-commit stage in front of the FeedbackRepository.
+ *
+ * Submissions are placed on a bounded queue and a single writer thread
+ * drains them in batches, each written in one transaction. A caller's
+ * future completes once the batch containing its feedback has committed.
+ * When the queue is full, submit() waits up to the offer timeout and then
+ * rejects the submission instead of letting the backlog grow without bound.
+ *
+ * Every submission first passes the DuplicateDetector. Depending on its
+ * action a near-duplicate of a recent submission is refused right away,
+ * stored with duplicate_of pointing at the original, or collapsed into the
+ * original's duplicate_count; a collapsed submission's future completes
+ * with the original's id. A submission that fails is removed from the
+ * detector again, so its retry is not refused as a duplicate of it.
+ *
+ * With ingest.backend=log, submissions are appended to a SubmissionLog
+ * instead of being queued, and a submission's future completes as soon as
+ * its record is on disk, with an id of 0 unless the LogCompactor has stored
+ * it already. The compactor moves the log into the database in the
+ * background, and reads through FeedbackDAO wait for it, so they still see
+ * every accepted submission.
+ *
+ * Without the log backend, a SubmissionJournal can stand in for the
+ * database: a submission whose write finds the database locked, whose
+ * queue stays full, or which is not committed within the journal's ack
+ * timeout is appended to the local journal instead, and its future
+ * completes with an id of 0 once the record is on disk. Other write errors
+ * belong to the submission and fail its future. Each submission gets a random submission id, so
+ * when the journal replays it the database stores it only once, even if
+ * the original write commits late. Collapsed duplicates are never
+ * journaled, since a replay could not raise the original's count exactly
+ * once; they fail as before.
+ *
+ * The time from submit() until a submission's future completes, queueing
+ * and commit included, is recorded as the operation FeedbackIngestor.submit.
+ */
+public class FeedbackIngestor {
+    private static final OperationMetrics SUBMIT_METRICS = Metrics.operation("FeedbackIngestor.submit");
+    private static FeedbackIngestor shared;
+    
+    private final FeedbackRepository feedbackRepository;
+    private final DuplicateRepository duplicateRepository;
+    private final DuplicateDetector duplicateDetector;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long offerTimeoutMillis;
+    private final BlockingQueue<PendingFeedback> queue;
+    private final Thread writerThread;
+    // Only with the log backend, which has no queue or writer thread
+    private final SubmissionLog log;
+    private final LogCompactor compactor;
+    // Only with the queue, and null if the journal is turned off
+    private final SubmissionJournal journal;
+    private final long journalAckMillis;
+    private volatile boolean running = true;
+    
+    /**
+     * A queued submission and the future to complete when it is written
+     */
+    private class PendingFeedback {
+        final Feedback feedback;
+        final CompletableFuture<Feedback> future = new CompletableFuture<>();
+        final long submittedNanos = System.nanoTime();
+        // The earlier feedback this one nearly repeats, or null
+        Feedback original;
+        // Taken by whichever of the write, its failure or the journal comes first
+        private final AtomicBoolean settled = new AtomicBoolean();
+        
+        PendingFeedback(Feedback feedback) {
+            this.feedback = feedback;
+        }
+        
+        /**
+         * @return true for the first caller only, who then completes the future
+         */
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+        
+        boolean isSettled() {
+            return settled.get();
+        }
+        
+        void complete() {
+            if (settle()) {
+                succeed();
+            }
+        }
+        
+        void fail(Throwable error) {
+            if (settle()) {
+                reportFailure(error);
+            }
+        }
+        
+        void succeed() {
+            SUBMIT_METRICS.recordTime(submittedNanos);
+            future.complete(feedback);
+        }
+        
+        void reportFailure(Throwable error) {
+            if (original == null) {
+                // Remembered as an original by the check, but never stored
+                duplicateDetector.forget(feedback);
+            }
+            SUBMIT_METRICS.recordError();
+            SUBMIT_METRICS.recordTime(submittedNanos);
+            future.completeExceptionally(error);
+        }
+    }
+    
+    /**
+     * Creates an ingestor and starts its writer thread
+     * @param feedbackRepository Repository the batches are written to
+     * @param duplicateRepository Repository of the originals that duplicates are counted against
+     * @param duplicateDetector Detector applied to every submission
+     * @param batchSize Maximum number of submissions per transaction
+     * @param lingerMillis How long the writer waits for a batch to fill up
+     * @param queueCapacity Maximum number of queued submissions
+     * @param offerTimeoutMillis How long submit() waits for space in a full queue
+     */
+    public FeedbackIngestor(FeedbackRepository feedbackRepository, DuplicateRepository duplicateRepository,
+                            DuplicateDetector duplicateDetector, int batchSize,
+                            long lingerMillis, int queueCapacity, long offerTimeoutMillis) {
+        this(feedbackRepository, duplicateRepository, duplicateDetector, batchSize,
+             lingerMillis, queueCapacity, offerTimeoutMillis, null, 0);
+    }
+    
+    /**
+     * Creates an ingestor that falls back on a journal, and starts its writer thread
+     * @param journal Journal for submissions the database does not take in time, or null
+     * @param journalAckMillis How long a submission waits for its commit before it is journaled
+     */
+    FeedbackIngestor(FeedbackRepository feedbackRepository, DuplicateRepository duplicateRepository,
+                     DuplicateDetector duplicateDetector, int batchSize, long lingerMillis,
+                     int queueCapacity, long offerTimeoutMillis,
+                     SubmissionJournal journal, long journalAckMillis) {
+        this.feedbackRepository = feedbackRepository;
+        this.duplicateRepository = duplicateRepository;
+        this.duplicateDetector = duplicateDetector;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.log = null;
+        this.compactor = null;
+        this.journal = journal;
+        this.journalAckMillis = journalAckMillis;
+        
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "feedback-ingest-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    /**
+     * Creates an ingestor that appends to a submission log, recovering and
+     * compacting what an earlier run left in it
+     * @param duplicateDetector Detector applied to every submission
+     * @param directory Directory of the log's segment files; one per process
+     * @param segmentBytes Size of each segment file
+     * @param fsyncMillis Interval between forces to disk, or 0 to force every submission
+     * @param batchSize Maximum number of records stored per transaction
+     * @param compactMillis Interval between compactions when no reader is waiting
+     * @throws IOException if the log cannot be opened
+     * @throws SQLException if the log's checkpoint cannot be read
+     */
+    public FeedbackIngestor(final DuplicateDetector duplicateDetector, File directory, int segmentBytes,
+                            long fsyncMillis, int batchSize, long compactMillis) throws IOException, SQLException {
+        this.feedbackRepository = null;
+        this.duplicateRepository = new DuplicateDAO();
+        this.duplicateDetector = duplicateDetector;
+        this.batchSize = batchSize;
+        this.lingerMillis = 0;
+        this.offerTimeoutMillis = 0;
+        this.queue = null;
+        this.writerThread = null;
+        this.journal = null;
+        this.journalAckMillis = 0;
+        
+        SubmissionLogDAO logDAO = new SubmissionLogDAO();
+        String name = directory.getCanonicalPath();
+        long checkpoint = logDAO.getCheckpoint(name);
+        this.log = new SubmissionLog(directory, segmentBytes, checkpoint, fsyncMillis);
+        if (log.getRecoveredBytes() > 0) {
+            System.err.println("Submission log " + name + ": cleared " + log.getRecoveredBytes() +
+                               " bytes of an interrupted write");
+        }
+        this.compactor = new LogCompactor(log, logDAO, name, checkpoint, batchSize, compactMillis);
+        compactor.start();
+        FeedbackDAO.setWriteBehind(compactor);
+        
+        BackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    duplicateDetector.rebuild(duplicateRepository, System.currentTimeMillis());
+                } catch (SQLException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+    }
+    
+    /**
+     * Returns the application-wide ingestor, configured from feedback.properties
+     * (storage.backend, ingest.backend, ingest.batchSize, ingest.lingerMillis, ingest.queueCapacity,
+     * ingest.offerTimeoutMillis, the ingest.log.* and ingest.journal.* settings and the dedup.* settings)
+     * @return Shared FeedbackIngestor
+     */
+    public static synchronized FeedbackIngestor getShared() {
+        if (shared == null) {
+            boolean logBackend = "log".equalsIgnoreCase(AppConfig.getString("ingest.backend", "sqlite"));
+            if (logBackend && Repositories.isInMemory()) {
+                // The log is compacted into SQLite, which the memory backend does not use
+                System.err.println("ingest.backend=log is ignored with storage.backend=memory");
+            } else if (logBackend) {
+                try {
+                    shared = new FeedbackIngestor(DuplicateDetector.fromConfig(),
+                            new File(AppConfig.getString("ingest.log.directory", "submission-log")),
+                            AppConfig.getInt("ingest.log.segmentBytes", 4 << 20),
+                            AppConfig.getLong("ingest.log.fsyncMillis", 10),
+                            AppConfig.getInt("ingest.log.batchSize", 1000),
+                            AppConfig.getLong("ingest.log.compactMillis", 200));
+                } catch (IOException | SQLException e) {
+                    // Submissions still work, written straight to the database
+                    e.printStackTrace();
+                }
+            }
+            if (shared == null) {
+                shared = new FeedbackIngestor(Repositories.feedback(), Repositories.duplicates(),
+                        DuplicateDetector.fromConfig(),
+                        AppConfig.getInt("ingest.batchSize", 64),
+                        AppConfig.getLong("ingest.lingerMillis", 5),
+                        AppConfig.getInt("ingest.queueCapacity", 1024),
+                        AppConfig.getLong("ingest.offerTimeoutMillis", 2000),
+                        openJournal(),
+                        AppConfig.getLong("ingest.journal.ackMillis", 1000));
+            }
+            
+            final FeedbackIngestor ingestor = shared;
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    ingestor.shutdown();
+                    // Once more now that the queue has drained into it
+                    Repositories.close();
+                }
+            }, "feedback-ingest-shutdown"));
+        }
+        return shared;
+    }
+    
+    /**
+     * Opens the journal configured in feedback.properties and starts replaying it
+     * @return The journal, or null if it is turned off or cannot be opened
+     */
+    private static SubmissionJournal openJournal() {
+        if (!AppConfig.getBoolean("ingest.journal.enabled", true) || Repositories.isInMemory()) {
+            return null;
+        }
+        try {
+            SubmissionJournal journal = new SubmissionJournal(
+                    new File(AppConfig.getString("ingest.journal.directory", "submission-journal")),
+                    AppConfig.getInt("ingest.journal.segmentBytes", 1 << 20),
+                    AppConfig.getInt("ingest.batchSize", 64),
+                    AppConfig.getLong("ingest.journal.retryMillis", 250),
+                    AppConfig.getLong("ingest.journal.maxRetryMillis", 30000));
+            journal.start();
+            return journal;
+        } catch (IOException | SQLException e) {
+            // Submissions still work, only without the journal to fall back on
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Queues feedback for insertion
+     * @param feedback The feedback to insert
+     * @return Future completed with the feedback (id set) once it is committed,
+     *         or once it is on disk with the log backend (id possibly 0) or in
+     *         the journal (id 0), or exceptionally with SQLException if the write failed,
+     *         RejectedExecutionException if the queue stayed full or
+     *         DuplicateFeedbackException if it repeats a recent submission
+     *         and duplicates are rejected
+     */
+    public CompletableFuture<Feedback> submit(Feedback feedback) {
+        PendingFeedback pending = new PendingFeedback(feedback);
+        if (!running) {
+            pending.fail(new RejectedExecutionException("Ingestor has been shut down"));
+            return pending.future;
+        }
+        
+        // Checked before queueing, so a rejected flood never takes up queue space
+        pending.original = duplicateDetector.check(feedback);
+        if (pending.original != null && duplicateDetector.getAction() == DuplicateDetector.Action.REJECT) {
+            pending.fail(new DuplicateFeedbackException(pending.original.getId()));
+            return pending.future;
+        }
+        if (compactor != null) {
+            appendToLog(pending);
+            return pending.future;
+        }
+        
+        if (journal != null) {
+            feedback.setSubmissionId(UUID.randomUUID().toString());
+            if (canJournal(pending)) {
+                final PendingFeedback slow = pending;
+                journal.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        // Does nothing if the write has completed by now
+                        appendToJournal(slow, null);
+                    }
+                }, journalAckMillis);
+            }
+        }
+        
+        try {
+            if (!queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                failOrJournal(pending, new RejectedExecutionException("Too many submissions in progress, please try again"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.fail(e);
+        }
+        return pending.future;
+    }
+    
+    /**
+     * Number of submissions waiting to be written
+     */
+    public int getQueueDepth() {
+        return compactor != null ? compactor.getPendingCount() : queue.size();
+    }
+    
+    /**
+     * Number of journaled submissions waiting to be stored in the database
+     */
+    public int getJournalDepth() {
+        return journal != null ? journal.getBacklog() : 0;
+    }
+    
+    /**
+     * Stops accepting submissions and waits for queued ones to be written
+     */
+    public void shutdown() {
+        running = false;
+        if (compactor != null) {
+            compactor.shutdown();
+            FeedbackDAO.setWriteBehind(null);
+            try {
+                log.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return;
+        }
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+    
+    /**
+     * Whether a submission can be journaled: anything stored as a row of its
+     * own, but not a collapsed duplicate
+     */
+    private boolean canJournal(PendingFeedback pending) {
+        return journal != null
+               && (pending.original == null || duplicateDetector.getAction() != DuplicateDetector.Action.COLLAPSE);
+    }
+    
+    /**
+     * Journals a submission whose write found the database locked. Any other
+     * failure is the submission's own and would only fail again in the
+     * journal, so it is reported.
+     */
+    private void writeFailed(PendingFeedback pending, SQLException error) {
+        if (DatabaseManager.isLockError(error)) {
+            failOrJournal(pending, error);
+        } else {
+            pending.fail(error);
+        }
+    }
+    
+    private void failOrJournal(PendingFeedback pending, Throwable error) {
+        if (canJournal(pending)) {
+            appendToJournal(pending, error);
+        } else {
+            pending.fail(error);
+        }
+    }
+    
+    /**
+     * Journals a submission unless its write has completed already. The
+     * future completes once the record is on disk, unless the write
+     * completes first.
+     * @param error Why the write was given up on, or null if it was only slow.
+     *              If the journal cannot be written either, the error is
+     *              reported; a slow write is left to complete the future.
+     */
+    private void appendToJournal(final PendingFeedback pending, Throwable error) {
+        // A slow write may still commit, so it keeps its claim on the future until the record is on disk
+        if (error == null ? pending.isSettled() : !pending.settle()) {
+            return;
+        }
+        final boolean slow = error == null;
+        // A copy, since the writer may still be working on the original
+        Feedback feedback = pending.feedback;
+        Feedback copy = new Feedback(feedback.getCategory(), feedback.getMessage(),
+                                     feedback.getRating(), feedback.getDateSubmitted());
+        copy.setSubmissionId(feedback.getSubmissionId());
+        if (pending.original != null && pending.original.getId() != 0) {
+            copy.setDuplicateOf(pending.original.getId());
+        }
+        
+        try {
+            journal.append(copy, new Runnable() {
+                @Override
+                public void run() {
+                    if (slow) {
+                        pending.complete();
+                    } else {
+                        pending.succeed();
+                    }
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            if (slow) {
+                // The write may still commit and complete the future
+                e.printStackTrace();
+                return;
+            }
+            error.addSuppressed(e);
+            pending.reportFailure(error);
+        }
+    }
+    
+    private void appendToLog(final PendingFeedback pending) {
+        byte kind = LogRecord.INSERT;
+        int originalId = 0;
+        long originalPosition = -1;
+        if (pending.original != null) {
+            kind = duplicateDetector.getAction() == DuplicateDetector.Action.COLLAPSE
+                    ? LogRecord.COLLAPSED : LogRecord.FLAGGED;
+            // Position first: the compactor sets the id before it forgets the position
+            originalPosition = compactor.positionOf(pending.original);
+            originalId = pending.original.getId();
+            if (originalId != 0) {
+                originalPosition = -1;
+                if (kind == LogRecord.COLLAPSED) {
+                    pending.feedback.setId(originalId);
+                }
+            }
+        }
+        
+        try {
+            compactor.append(new LogRecord(kind, pending.feedback, originalId, originalPosition), new Runnable() {
+                @Override
+                public void run() {
+                    pending.complete();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            pending.fail(e);
+        }
+    }
+    
+    private void writeLoop() {
+        try {
+            duplicateDetector.rebuild(duplicateRepository, System.currentTimeMillis());
+        } catch (SQLException | RuntimeException e) {
+            // Detection still works for new submissions, only the history is missing
+            e.printStackTrace();
+        }
+        
+        List<PendingFeedback> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingFeedback first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                
+                // Give concurrent submitters a short window to join this commit
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingFeedback next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+        
+        // Anything that slipped in after the final drain is rejected, not left hanging
+        PendingFeedback late;
+        while ((late = queue.poll()) != null) {
+            late.fail(new RejectedExecutionException("Ingestor has been shut down"));
+        }
+    }
+    
+    /**
+     * Writes a batch. A duplicate whose original is in the same batch waits
+     * until the original has an id and is then written in a second step.
+     */
+    private void writeBatch(List<PendingFeedback> batch) {
+        List<PendingFeedback> inserts = new ArrayList<>(batch.size());
+        List<PendingFeedback> collapses = new ArrayList<>();
+        List<PendingFeedback> waiting = new ArrayList<>();
+        for (PendingFeedback pending : batch) {
+            if (pending.original == null) {
+                inserts.add(pending);
+            } else if (pending.original.getId() == 0) {
+                waiting.add(pending);
+            } else if (duplicateDetector.getAction() == DuplicateDetector.Action.COLLAPSE) {
+                collapses.add(pending);
+            } else {
+                pending.feedback.setDuplicateOf(pending.original.getId());
+                inserts.add(pending);
+            }
+        }
+        
+        insertBatch(inserts);
+        if (waiting.isEmpty()) {
+            collapseBatch(collapses);
+            return;
+        }
+        
+        inserts.clear();
+        for (PendingFeedback pending : waiting) {
+            int originalId = pending.original.getId();
+            if (originalId == 0) {
+                // The original failed or is not written yet, so this one is stored as it is
+                inserts.add(pending);
+            } else if (duplicateDetector.getAction() == DuplicateDetector.Action.COLLAPSE) {
+                collapses.add(pending);
+            } else {
+                pending.feedback.setDuplicateOf(originalId);
+                inserts.add(pending);
+            }
+        }
+        insertBatch(inserts);
+        collapseBatch(collapses);
+    }
+    
+    /**
+     * Counts collapsed duplicates against their originals; their futures
+     * complete with the original's id
+     */
+    private void collapseBatch(List<PendingFeedback> collapses) {
+        if (collapses.isEmpty()) {
+            return;
+        }
+        Map<Integer, Integer> counts = new LinkedHashMap<>();
+        for (PendingFeedback pending : collapses) {
+            Integer count = counts.get(pending.original.getId());
+            counts.put(pending.original.getId(), count == null ? 1 : count + 1);
+        }
+        
+        try {
+            duplicateRepository.addDuplicates(counts);
+            for (PendingFeedback pending : collapses) {
+                pending.feedback.setId(pending.original.getId());
+                pending.complete();
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (PendingFeedback pending : collapses) {
+                pending.fail(e);
+            }
+        }
+    }
+    
+    private void insertBatch(List<PendingFeedback> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Feedback> feedbackList = new ArrayList<>(batch.size());
+        for (PendingFeedback pending : batch) {
+            feedbackList.add(pending.feedback);
+        }
+        
+        try {
+            feedbackRepository.insertFeedbackBatch(feedbackList);
+            for (PendingFeedback pending : batch) {
+                pending.complete();
+            }
+        } catch (SQLException e) {
+            if (batch.size() == 1 || DatabaseManager.isLockError(e)) {
+                // A held lock is not a bad row, and each retry would wait out the busy timeout again
+                for (PendingFeedback pending : batch) {
+                    writeFailed(pending, e);
+                }
+                return;
+            }
+            // Retry one by one so a single bad row does not fail its neighbours
+            for (PendingFeedback pending : batch) {
+                try {
+                    feedbackRepository.insertFeedbackBatch(Collections.singletonList(pending.feedback));
+                    pending.complete();
+                } catch (SQLException rowError) {
+                    writeFailed(pending, rowError);
+                }
+            }
+        } catch (RuntimeException e) {
+            for (PendingFeedback pending : batch) {
+                pending.fail(e);
+            }
+        }
+    }
+}
\ No newline at end of file
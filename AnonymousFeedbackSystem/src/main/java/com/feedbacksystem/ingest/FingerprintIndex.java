@@ -0,0 +1,162 @@
+package com.feedbacksystem.ingest;
+
+import com.feedbacksystem.model.Feedback;
+
+/**
+ * Bounded index of the MinHash signatures of recent messages of one
+ * category, answering "is there a recent message at least this similar?"
+ * in constant time.
+ *
+ * Signatures live in a ring of fixed capacity; the oldest is overwritten
+ * when it is full. Locality-sensitive hashing finds the candidates: the
+ * signature is cut into bands of {@link #ROWS} values, and each band has a
+ * hash table from band contents to the ring slots holding it, chained
+ * newest first. Similar messages very likely agree on at least one whole
+ * band, while unrelated ones almost never do. Each candidate is then
+ * confirmed by comparing whole signatures. All storage is preallocated
+ * arrays; adding and looking up allocate nothing.
+ *
+ * Not thread-safe; DuplicateDetector synchronizes on the index.
+ */
+class FingerprintIndex {
+    static final int ROWS = 4;
+    static final int BANDS = MinHash.SIZE / ROWS;
+    // Slots checked per band; bounds the lookup however full the chains are
+    private static final int MAX_PROBES = 8;
+    
+    private final int capacity;
+    private final int bucketMask;
+    private final int[] signatures;
+    private final long[] times;
+    private final long[] sequences;
+    private final Feedback[] entries;
+    // Slot + 1 of the newest entry in each band bucket, 0 if empty
+    private final int[] heads;
+    // Slot + 1 of the next older entry in the same band bucket
+    private final int[] next;
+    private long added;
+    
+    /**
+     * @param capacity Number of signatures kept; rounded up to a power of two
+     */
+    FingerprintIndex(int capacity) {
+        int size = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        this.capacity = size;
+        this.bucketMask = size * 2 - 1;
+        signatures = new int[size * MinHash.SIZE];
+        times = new long[size];
+        sequences = new long[size];
+        entries = new Feedback[size];
+        heads = new int[BANDS * size * 2];
+        next = new int[BANDS * size];
+    }
+    
+    /**
+     * Finds the newest entry whose signature agrees on enough values
+     * @param signature Signature to look up
+     * @param minAgreement Smallest number of agreeing values that still matches
+     * @param notBefore Entries added before this time are ignored
+     * @return The matching entry, or null
+     */
+    Feedback find(int[] signature, int minAgreement, long notBefore) {
+        Feedback best = null;
+        long bestSequence = -1;
+        for (int band = 0; band < BANDS; band++) {
+            int slot = heads[bucket(band, signature, 0)] - 1;
+            long previousSequence = Long.MAX_VALUE;
+            for (int probe = 0; probe < MAX_PROBES && slot >= 0; probe++) {
+                // Chains run newest first; an out-of-order slot was reused, so the chain ends
+                if (sequences[slot] >= previousSequence || sequences[slot] <= bestSequence) {
+                    break;
+                }
+                previousSequence = sequences[slot];
+                if (times[slot] >= notBefore && sameBand(band, signature, slot)
+                        && MinHash.agreement(signature, 0, signatures, slot * MinHash.SIZE) >= minAgreement) {
+                    best = entries[slot];
+                    bestSequence = sequences[slot];
+                    break;
+                }
+                slot = next[band * capacity + slot] - 1;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Adds a signature, overwriting the oldest one if the index is full
+     * @param signature The signature; copied
+     * @param time When the entry was submitted, in epoch milliseconds
+     * @param entry The feedback it belongs to
+     */
+    void add(int[] signature, long time, Feedback entry) {
+        int slot = (int) (added & (capacity - 1));
+        if (added >= capacity) {
+            evict(slot);
+        }
+        System.arraycopy(signature, 0, signatures, slot * MinHash.SIZE, MinHash.SIZE);
+        times[slot] = time;
+        sequences[slot] = added;
+        entries[slot] = entry;
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(band, signature, 0);
+            next[band * capacity + slot] = heads[bucket];
+            heads[bucket] = slot + 1;
+        }
+        added++;
+    }
+    
+    /**
+     * Removes an entry so that it no longer matches. Scans the whole ring,
+     * which is fine for the rare submission whose write failed.
+     * @param entry The feedback passed to add, compared by identity
+     * @return true if it was found
+     */
+    boolean remove(Feedback entry) {
+        for (int slot = 0; slot < capacity; slot++) {
+            if (entries[slot] == entry) {
+                // Left in its chains; an entry older than any window is never matched
+                times[slot] = Long.MIN_VALUE;
+                entries[slot] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Unlinks a slot about to be reused from the heads of its chains
+     */
+    private void evict(int slot) {
+        for (int band = 0; band < BANDS; band++) {
+            int bucket = bucket(band, signatures, slot * MinHash.SIZE);
+            if (heads[bucket] == slot + 1) {
+                heads[bucket] = next[band * capacity + slot];
+            }
+        }
+        entries[slot] = null;
+    }
+    
+    int size() {
+        return (int) Math.min(added, capacity);
+    }
+    
+    private boolean sameBand(int band, int[] signature, int slot) {
+        int start = band * ROWS;
+        int stored = slot * MinHash.SIZE + start;
+        for (int i = 0; i < ROWS; i++) {
+            if (signatures[stored + i] != signature[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private int bucket(int band, int[] signature, int offset) {
+        int hash = band;
+        for (int i = band * ROWS; i < (band + 1) * ROWS; i++) {
+            hash = hash * 0x9E3779B1 + signature[offset + i];
+        }
+        hash ^= hash >>> 16;
+        return band * (bucketMask + 1) + (hash & bucketMask);
+    }
+}
\ No newline at end of file
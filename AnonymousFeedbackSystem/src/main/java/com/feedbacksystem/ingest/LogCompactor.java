@@ -0,0 +1,304 @@
+package com.feedbacksystem.ingest;
+
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.dao.SubmissionLogDAO;
+import com.feedbacksystem.model.Feedback;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Background thread that copies records from the SubmissionLog into the
+ * feedback table, in log order and in batches of one transaction each,
+ * and deletes the log segments it has finished with.
+ *
+ * Duplicates written before their original was stored refer to it by log
+ * position. A batch ends before such a record if its original is in the
+ * same batch, so the original has its id by the time the record is stored.
+ * Originals that can no longer be resolved, e.g. after a restart, are
+ * treated like an original that failed to store: the record is stored as
+ * it is.
+ *
+ * Other threads' submissions reach the database with the next compaction.
+ * Reads through FeedbackDAO call {@link #awaitStored()}, which only waits
+ * for what the reading thread appended itself, so a kiosk that submits and
+ * then reads sees its own feedback. The wait ends early when a compaction
+ * fails: a record that cannot be stored delays its own visibility, not the
+ * reads.
+ */
+class LogCompactor implements FeedbackDAO.WriteBehind {
+    private static final int RESOLVED_CAPACITY = 65536;
+    private static final long AWAIT_TIMEOUT_MS = 10000;
+    
+    private final SubmissionLog log;
+    private final SubmissionLogDAO logDAO;
+    private final String name;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private boolean requested;
+    private long checkpoint;
+    // Compactions that failed; a waiting reader gives up on the first
+    private long failures;
+    // End of the calling thread's last append, until it has been waited for
+    private final ThreadLocal<Long> sessionEnd = new ThreadLocal<>();
+    
+    // Submissions of this run not yet stored, by position and by instance; guarded by pending
+    private final Map<Long, Feedback> pending = new HashMap<>();
+    private final Map<Feedback, Long> positions = new IdentityHashMap<>();
+    // Ids of recently stored records by position
+    private final Map<Long, Integer> resolved = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+            return size() > RESOLVED_CAPACITY;
+        }
+    };
+    
+    /**
+     * @param log The log to compact
+     * @param logDAO DAO used to store records and the checkpoint
+     * @param name Name of the log's checkpoint
+     * @param checkpoint Position up to which the log is already stored
+     * @param batchSize Maximum number of records per transaction
+     * @param intervalMillis How often the log is compacted when no reader is waiting
+     */
+    LogCompactor(SubmissionLog log, SubmissionLogDAO logDAO, String name, long checkpoint,
+                 int batchSize, long intervalMillis) {
+        this.log = log;
+        this.logDAO = logDAO;
+        this.name = name;
+        this.checkpoint = checkpoint;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+        this.thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                compactLoop();
+            }
+        }, "feedback-log-compactor");
+        thread.setDaemon(true);
+    }
+    
+    void start() {
+        thread.start();
+    }
+    
+    /**
+     * Appends a submission and remembers it, so its id is set once it is stored
+     * @param record The record
+     * @param onDurable Run once the record is on disk
+     * @throws IOException if the log cannot be written
+     */
+    void append(LogRecord record, Runnable onDurable) throws IOException {
+        Feedback live = record.feedback;
+        synchronized (pending) {
+            long position = log.append(record, onDurable);
+            pending.put(position, live);
+            positions.put(live, position);
+            // Appends are serialized here, so the end is this record's
+            sessionEnd.set(log.getEndPosition());
+        }
+        log.forceIfUnscheduled();
+    }
+    
+    /**
+     * @return Log position of a submission not yet stored, or -1
+     */
+    long positionOf(Feedback feedback) {
+        synchronized (pending) {
+            Long position = positions.get(feedback);
+            return position != null ? position : -1;
+        }
+    }
+    
+    /**
+     * @return Number of submissions of this run not yet stored
+     */
+    int getPendingCount() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+    
+    /**
+     * Compacts right away and waits until the calling thread's own appends
+     * are stored. Gives up, without an error, when a compaction fails, the
+     * wait times out or the thread is interrupted; the read then runs
+     * without them.
+     */
+    @Override
+    public void awaitStored() {
+        Long target = sessionEnd.get();
+        if (target == null) {
+            return;
+        }
+        // Waited for once; a later read does not wait again for the same records
+        sessionEnd.remove();
+        long deadline = System.currentTimeMillis() + AWAIT_TIMEOUT_MS;
+        synchronized (this) {
+            long failed = failures;
+            while (checkpoint < target && running && failures == failed) {
+                requested = true;
+                notifyAll();
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return;
+                }
+                try {
+                    wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+    
+    /**
+     * Compacts what is left and stops the thread
+     */
+    void shutdown() {
+        running = false;
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            thread.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void compactLoop() {
+        while (true) {
+            boolean urgent;
+            synchronized (this) {
+                if (running && !requested) {
+                    try {
+                        wait(intervalMillis);
+                    } catch (InterruptedException e) {
+                        running = false;
+                    }
+                }
+                urgent = requested || !running;
+                requested = false;
+            }
+            
+            try {
+                if (urgent) {
+                    // A reader is waiting, so do not wait for the next scheduled fsync
+                    log.force();
+                }
+                while (compactBatch()) {
+                    // Keep going until the durable records are stored
+                }
+            } catch (SQLException | IOException | RuntimeException e) {
+                // Left in the log; tried again at the next interval
+                e.printStackTrace();
+                synchronized (this) {
+                    failures++;
+                    notifyAll();
+                }
+                if (!running) {
+                    return;
+                }
+                sleep();
+            }
+            if (!running) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Stores the next batch of durable records
+     * @return true if a batch was stored
+     */
+    private boolean compactBatch() throws SQLException {
+        long from;
+        synchronized (this) {
+            from = checkpoint;
+        }
+        List<LogRecord> records = new ArrayList<>(batchSize);
+        long next = log.read(from, batchSize, records);
+        if (records.isEmpty()) {
+            advance(next);
+            return false;
+        }
+        
+        List<LogRecord> stored = new ArrayList<>(records.size());
+        List<Feedback> inserts = new ArrayList<>(records.size());
+        Map<Integer, Integer> duplicates = new LinkedHashMap<>();
+        Map<Long, LogRecord> inBatch = new HashMap<>();
+        for (LogRecord record : records) {
+            int originalId = record.originalId;
+            if (originalId == 0 && record.originalPosition >= 0) {
+                if (inBatch.containsKey(record.originalPosition)) {
+                    // Stored in the next batch, once the original has its id
+                    next = record.position;
+                    break;
+                }
+                Integer id = resolved.get(record.originalPosition);
+                originalId = id != null ? id : 0;
+            }
+            
+            Feedback feedback = record.feedback;
+            if (record.kind == LogRecord.COLLAPSED && originalId != 0) {
+                Integer count = duplicates.get(originalId);
+                duplicates.put(originalId, count == null ? 1 : count + 1);
+                feedback.setId(originalId);
+            } else {
+                if (record.kind == LogRecord.FLAGGED && originalId != 0) {
+                    feedback.setDuplicateOf(originalId);
+                }
+                inserts.add(feedback);
+            }
+            stored.add(record);
+            inBatch.put(record.position, record);
+        }
+        
+        logDAO.compact(name, inserts, duplicates, next);
+        
+        synchronized (pending) {
+            for (LogRecord record : stored) {
+                resolved.put(record.position, record.feedback.getId());
+                Feedback live = pending.remove(record.position);
+                if (live != null) {
+                    positions.remove(live);
+                    live.setId(record.feedback.getId());
+                    live.setDuplicateOf(record.feedback.getDuplicateOf());
+                }
+            }
+        }
+        advance(next);
+        return true;
+    }
+    
+    private void advance(long next) {
+        boolean moved;
+        synchronized (this) {
+            moved = next > checkpoint;
+            if (moved) {
+                checkpoint = next;
+                notifyAll();
+            }
+        }
+        if (moved) {
+            log.release(next);
+        }
+    }
+    
+    private void sleep() {
+        try {
+            Thread.sleep(intervalMillis);
+        } catch (InterruptedException e) {
+            running = false;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.feedbacksystem.ingest;
+
+import com.feedbacksystem.model.Feedback;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * One submission as stored in the SubmissionLog.
+ *
+ * Payload layout: kind (1 byte), original id (4), original position (8),
+ * submission time (8), rating (4), then category, message and submission
+ * id, each as a length (-1 for null) followed by UTF-8 bytes. Records
+ * written before the submission id was added end after the message.
+ */
+class LogRecord {
+    static final byte INSERT = 0;
+    // Stored with duplicate_of set to the original
+    static final byte FLAGGED = 1;
+    // Only raises the original's duplicate_count
+    static final byte COLLAPSED = 2;
+    
+    final byte kind;
+    final Feedback feedback;
+    // The original's id if it was known when the record was written, else 0
+    final int originalId;
+    // Log position of the original if it was not yet stored, else -1
+    final long originalPosition;
+    // Set when read back from the log
+    long position;
+    
+    LogRecord(byte kind, Feedback feedback, int originalId, long originalPosition) {
+        this.kind = kind;
+        this.feedback = feedback;
+        this.originalId = originalId;
+        this.originalPosition = originalPosition;
+    }
+    
+    byte[] encode() {
+        byte[] category = bytes(feedback.getCategory());
+        byte[] message = bytes(feedback.getMessage());
+        byte[] submissionId = bytes(feedback.getSubmissionId());
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 8 + 8 + 4 + 4 + length(category) + 4 + length(message) +
+                                                4 + length(submissionId));
+        buffer.put(kind);
+        buffer.putInt(originalId);
+        buffer.putLong(originalPosition);
+        buffer.putLong(feedback.getDateSubmitted().getTime());
+        buffer.putInt(feedback.getRating());
+        put(buffer, category);
+        put(buffer, message);
+        put(buffer, submissionId);
+        return buffer.array();
+    }
+    
+    /**
+     * Decodes a payload whose checksum has already been verified
+     */
+    static LogRecord decode(ByteBuffer payload) {
+        byte kind = payload.get();
+        int originalId = payload.getInt();
+        long originalPosition = payload.getLong();
+        long dateMillis = payload.getLong();
+        int rating = payload.getInt();
+        String category = string(payload);
+        String message = string(payload);
+        Feedback feedback = new Feedback(category, message, rating, new Date(dateMillis));
+        if (payload.hasRemaining()) {
+            feedback.setSubmissionId(string(payload));
+        }
+        return new LogRecord(kind, feedback, originalId, originalPosition);
+    }
+    
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+    
+    private static int length(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+    
+    private static void put(ByteBuffer buffer, byte[] bytes) {
+        if (bytes == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+    
+    private static String string(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,106 @@
+package com.feedbacksystem.ingest;
+
+/**
+ * MinHash signature of a message for near-duplicate detection.
+ *
+ * The message is split into words (letters and digits, case-folded, so
+ * punctuation and spacing do not matter) and every pair of adjacent words
+ * is one shingle. Each of the {@link #SIZE} signature values is the minimum
+ * of a different hash function over all shingles, so two messages agree on
+ * a signature value with probability equal to the Jaccard similarity of
+ * their shingle sets. Hashing walks the characters once and allocates
+ * nothing beyond the signature.
+ */
+final class MinHash {
+    static final int SIZE = 64;
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Multiply-shift hash functions; the multipliers are odd
+    private static final long[] MULTIPLIERS = new long[SIZE];
+    private static final long[] INCREMENTS = new long[SIZE];
+    
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int i = 0; i < SIZE; i++) {
+            MULTIPLIERS[i] = mix(seed += 0x9E3779B97F4A7C15L) | 1;
+            INCREMENTS[i] = mix(seed += 0x9E3779B97F4A7C15L);
+        }
+    }
+    
+    private MinHash() {}
+    
+    /**
+     * Computes the signature of a message
+     * @param message The message text
+     * @param signature Array of {@link #SIZE} values to fill
+     * @return Number of words in the message; the signature is meaningless if 0
+     */
+    static int signature(String message, int[] signature) {
+        for (int i = 0; i < SIZE; i++) {
+            signature[i] = Integer.MAX_VALUE;
+        }
+        long previousWord = 0;
+        long word = FNV_OFFSET;
+        boolean inWord = false;
+        int words = 0;
+        
+        int length = message.length();
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? message.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word = (word ^ Character.toLowerCase(c)) * FNV_PRIME;
+                inWord = true;
+            } else if (inWord) {
+                if (words > 0) {
+                    addShingle(signature, mix(previousWord * 31 + word));
+                }
+                previousWord = word;
+                word = FNV_OFFSET;
+                inWord = false;
+                words++;
+            }
+        }
+        if (words == 1) {
+            addShingle(signature, mix(previousWord));
+        }
+        return words;
+    }
+    
+    /**
+     * Estimates the Jaccard similarity of two signatures stored in arrays
+     * @return Number of the {@link #SIZE} values that agree
+     */
+    static int agreement(int[] a, int aOffset, int[] b, int bOffset) {
+        int equal = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (a[aOffset + i] == b[bOffset + i]) {
+                equal++;
+            }
+        }
+        return equal;
+    }
+    
+    private static void addShingle(int[] signature, long hash) {
+        for (int i = 0; i < SIZE; i++) {
+            // High bits of a multiply-shift hash are the well distributed ones; the shift keeps them non-negative
+            int value = (int) ((hash * MULTIPLIERS[i] + INCREMENTS[i]) >>> 33);
+            if (value < signature[i]) {
+                signature[i] = value;
+            }
+        }
+    }
+    
+    /**
+     * Spreads the bits of a hash (the MurmurHash3 finalizer), so every
+     * bit depends on every character
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,401 @@
+package com.feedbacksystem.ingest;
+
+import com.feedbacksystem.dao.SubmissionLogDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.metrics.JournalMetrics;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.util.SimpleJson;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local journal for submissions whose database write failed or did not
+ * finish in time, e.g. because another kiosk held SQLite's write lock.
+ * A journaled submission is acknowledged once its record is on disk and
+ * stored in the database later.
+ *
+ * Records go to a SubmissionLog of their own, forced to disk on every
+ * append. A flusher thread replays them in order, a batch per transaction;
+ * when a replay fails it waits an exponentially growing delay, half of it
+ * random so that kiosks which failed together do not retry in lockstep.
+ * Every record carries the submission id its original write used, and the
+ * replay skips ids already in the feedback table, so a write that was only
+ * slow and commits after all is not stored a second time. The checkpoint
+ * moves in the same transaction as the replayed rows.
+ *
+ * A batch that fails for any reason other than a locked database is
+ * replayed one record at a time. A record that the database refuses on its
+ * own, e.g. for a violated constraint, is written to dead-letter.jsonl in
+ * the directory, with the error, and skipped, so it does not hold up the
+ * records behind it. Any other failure is retried as above.
+ *
+ * The directory holds a random journal id that names the checkpoint, so
+ * kiosks sharing one database keep theirs apart even when installed in
+ * the same path, and a lock file that keeps a second process out.
+ */
+class SubmissionJournal {
+    private static final String ID_FILE = "journal.id";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final String DEAD_LETTER_FILE = "dead-letter.jsonl";
+    private static final JournalMetrics METRICS = Metrics.journal();
+    
+    private final SubmissionLog log;
+    private final SubmissionLogDAO logDAO;
+    private final String name;
+    private final int batchSize;
+    private final long retryMillis;
+    private final long maxRetryMillis;
+    private final File deadLetterFile;
+    private final FileChannel lockChannel;
+    private final ScheduledExecutorService timer;
+    private final Thread flusher;
+    private final AtomicInteger backlog = new AtomicInteger();
+    private volatile boolean running = true;
+    private boolean requested;
+    // Only touched by the flusher thread
+    private long checkpoint;
+    
+    /**
+     * Opens the journal, counting the records an earlier run left in it
+     * @param directory Directory of the journal; one per process
+     * @param segmentBytes Size of each segment file
+     * @param batchSize Maximum number of records replayed per transaction
+     * @param retryMillis Delay before the first retry of a failed replay
+     * @param maxRetryMillis Longest delay between retries
+     * @throws IOException if the journal cannot be opened or another process has it open
+     * @throws SQLException if the journal's checkpoint cannot be read
+     */
+    SubmissionJournal(File directory, int segmentBytes, int batchSize,
+                      long retryMillis, long maxRetryMillis) throws IOException, SQLException {
+        this(directory, segmentBytes, batchSize, retryMillis, maxRetryMillis, new SubmissionLogDAO());
+    }
+    
+    /**
+     * Opens the journal, replaying it through the given DAO
+     */
+    SubmissionJournal(File directory, int segmentBytes, int batchSize, long retryMillis, long maxRetryMillis,
+                      SubmissionLogDAO logDAO) throws IOException, SQLException {
+        this.logDAO = logDAO;
+        this.batchSize = batchSize;
+        this.retryMillis = retryMillis;
+        this.maxRetryMillis = maxRetryMillis;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+        this.deadLetterFile = new File(directory, DEAD_LETTER_FILE);
+        
+        lockChannel = FileChannel.open(new File(directory, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (tryLock(lockChannel) == null) {
+                throw new IOException("Submission journal " + directory + " is in use by another process");
+            }
+            name = "journal:" + readId(new File(directory, ID_FILE));
+            checkpoint = logDAO.getCheckpoint(name);
+            // Forced on every append: the journal is the fallback path, so appends are rare
+            log = new SubmissionLog(directory, segmentBytes, checkpoint, 0);
+        } catch (IOException | SQLException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        if (log.getRecoveredBytes() > 0) {
+            System.err.println("Submission journal " + directory + ": cleared " + log.getRecoveredBytes() +
+                               " bytes of an interrupted write");
+        }
+        
+        int recovered = 0;
+        List<LogRecord> records = new ArrayList<>(batchSize);
+        long position = checkpoint;
+        do {
+            records.clear();
+            position = log.read(position, batchSize, records);
+            recovered += records.size();
+        } while (!records.isEmpty());
+        backlog.set(recovered);
+        METRICS.recovered(recovered);
+        
+        timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feedback-journal-timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "feedback-journal-flusher");
+        flusher.setDaemon(true);
+    }
+    
+    void start() {
+        flusher.start();
+    }
+    
+    /**
+     * Appends a submission and forces it to disk
+     * @param feedback The submission, with its submission id and duplicate_of set
+     * @param onDurable Run once the record is on disk
+     * @throws IOException if the journal cannot be written
+     */
+    void append(Feedback feedback, Runnable onDurable) throws IOException {
+        int duplicateOf = feedback.getDuplicateOf();
+        LogRecord record = duplicateOf > 0
+                ? new LogRecord(LogRecord.FLAGGED, feedback, duplicateOf, -1)
+                : new LogRecord(LogRecord.INSERT, feedback, 0, -1);
+        // Counted first, so a replay racing the append never takes the count below zero
+        backlog.incrementAndGet();
+        try {
+            log.append(record, onDurable);
+        } catch (IOException | RuntimeException e) {
+            backlog.decrementAndGet();
+            throw e;
+        }
+        METRICS.appended();
+        log.forceIfUnscheduled();
+        synchronized (this) {
+            requested = true;
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Runs a task after a delay on the journal's timer thread
+     */
+    void schedule(Runnable task, long delayMillis) {
+        timer.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * @return Number of journaled submissions not yet in the database
+     */
+    int getBacklog() {
+        return backlog.get();
+    }
+    
+    /**
+     * Stops the flusher and closes the journal. What is left in it is
+     * replayed at the next start.
+     */
+    void close() {
+        running = false;
+        timer.shutdownNow();
+        synchronized (this) {
+            notifyAll();
+        }
+        try {
+            flusher.join(10000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            log.close();
+            lockChannel.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private void flushLoop() {
+        int failures = 0;
+        while (running) {
+            try {
+                while (running && replayBatch()) {
+                    // Keep going until the journal is empty
+                }
+                failures = 0;
+                awaitAppend();
+            } catch (SQLException | RuntimeException e) {
+                failures++;
+                METRICS.retried();
+                if (failures == 1) {
+                    // Only the first failure of a run is reported; the retries would repeat it
+                    e.printStackTrace();
+                }
+                pause(retryDelay(failures));
+            }
+        }
+    }
+    
+    /**
+     * Stores the next batch of durable records
+     * @return true if a batch was stored
+     */
+    private boolean replayBatch() throws SQLException {
+        List<LogRecord> records = new ArrayList<>(batchSize);
+        long next = log.read(checkpoint, batchSize, records);
+        if (records.isEmpty()) {
+            advance(next);
+            return false;
+        }
+        
+        List<Feedback> entries = new ArrayList<>(records.size());
+        for (LogRecord record : records) {
+            if (record.kind == LogRecord.FLAGGED) {
+                record.feedback.setDuplicateOf(record.originalId);
+            }
+            entries.add(record.feedback);
+        }
+        int inserted;
+        try {
+            inserted = logDAO.replay(name, entries, next);
+        } catch (SQLException e) {
+            if (DatabaseManager.isLockError(e)) {
+                throw e;
+            }
+            // Some record cannot be stored; find it by storing them one at a time
+            replayEach(records, next);
+            return true;
+        }
+        backlog.addAndGet(-records.size());
+        METRICS.replayed(records.size(), inserted);
+        advance(next);
+        return true;
+    }
+    
+    /**
+     * Stores records one per transaction, setting aside those the database
+     * refuses
+     * @param next Position after the last record
+     */
+    private void replayEach(List<LogRecord> records, long next) throws SQLException {
+        for (int i = 0; i < records.size(); i++) {
+            LogRecord record = records.get(i);
+            long end = i + 1 < records.size() ? records.get(i + 1).position : next;
+            try {
+                METRICS.replayed(1, logDAO.replay(name, Collections.singletonList(record.feedback), end));
+            } catch (SQLException e) {
+                if (!DatabaseManager.isRowError(e)) {
+                    throw e;
+                }
+                writeDeadLetter(record.feedback, e);
+                // Written again if this fails, which is harmless next to losing it
+                logDAO.replay(name, Collections.<Feedback>emptyList(), end);
+                System.err.println("Submission journal: set aside submission " + record.feedback.getSubmissionId() +
+                                   " in " + deadLetterFile + ": " + e.getMessage());
+                METRICS.deadLettered();
+            }
+            backlog.decrementAndGet();
+            advance(end);
+        }
+    }
+    
+    /**
+     * Appends a submission that cannot be stored to the dead-letter file,
+     * one JSON object per line, and forces it to disk
+     */
+    private void writeDeadLetter(Feedback feedback, SQLException error) throws SQLException {
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"submissionId\":");
+        SimpleJson.quote(feedback.getSubmissionId(), line);
+        line.append(",\"category\":");
+        SimpleJson.quote(feedback.getCategory(), line);
+        line.append(",\"message\":");
+        SimpleJson.quote(feedback.getMessage(), line);
+        line.append(",\"rating\":").append(feedback.getRating());
+        line.append(",\"dateSubmitted\":").append(feedback.getDateSubmitted().getTime());
+        line.append(",\"duplicateOf\":").append(feedback.getDuplicateOf());
+        line.append(",\"error\":");
+        SimpleJson.quote(String.valueOf(error.getMessage()), line);
+        line.append("}\n");
+        try (FileOutputStream out = new FileOutputStream(deadLetterFile, true)) {
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        } catch (IOException e) {
+            // Kept in the journal and tried again rather than lost
+            SQLException failure = new SQLException("Cannot write " + deadLetterFile, e);
+            failure.addSuppressed(error);
+            throw failure;
+        }
+    }
+    
+    private void advance(long next) {
+        if (next > checkpoint) {
+            checkpoint = next;
+            log.release(next);
+        }
+    }
+    
+    /**
+     * Delay before the given retry: up to maxRetryMillis, doubling with each
+     * failure, half of it random
+     */
+    private long retryDelay(int failures) {
+        long ceiling = Math.min(maxRetryMillis, retryMillis << Math.min(failures - 1, 16));
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+    
+    private synchronized void awaitAppend() {
+        while (running && !requested) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                running = false;
+            }
+        }
+        requested = false;
+    }
+    
+    /**
+     * Waits out a retry delay; appends do not cut it short, close() does
+     */
+    private synchronized void pause(long millis) {
+        long deadline = System.currentTimeMillis() + millis;
+        long remaining = millis;
+        while (running && remaining > 0) {
+            try {
+                wait(remaining);
+            } catch (InterruptedException e) {
+                running = false;
+            }
+            remaining = deadline - System.currentTimeMillis();
+        }
+    }
+    
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by this process already
+            return null;
+        }
+    }
+    
+    /**
+     * Reads the journal's id, creating it on first use
+     */
+    private static String readId(File file) throws IOException {
+        if (file.isFile()) {
+            String id = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+            if (!id.isEmpty()) {
+                return id;
+            }
+        }
+        String id = UUID.randomUUID().toString();
+        Files.write(file.toPath(), id.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,445 @@
+package com.feedbacksystem.ingest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of submissions in memory-mapped segment files, written
+ * ahead of the database so that accepting a submission never waits for
+ * SQLite's write lock.
+ *
+ * Each record is a length, a CRC-32 of the payload and the payload itself.
+ * A segment is preallocated with zeros, so a zero length marks the end of
+ * its records; when a record does not fit, the segment is sealed and the
+ * next one started. Appends are forced to disk by a background thread every
+ * few milliseconds, and a record's callback runs once it is on disk.
+ *
+ * A record is addressed by its position: the segment number in the upper
+ * 32 bits and the offset within the segment in the lower ones. The
+ * LogCompactor copies records into the database and then releases the
+ * segments it has finished with.
+ *
+ * On open, every existing segment is scanned up to the first record that is
+ * incomplete or fails its checksum, which is where a crash interrupted the
+ * last write; the rest of that segment is cleared and appends continue in a
+ * new segment.
+ */
+class SubmissionLog {
+    static final int HEADER_BYTES = 8;
+    private static final Pattern FILE_NAME = Pattern.compile("segment-(\\d{16})\\.log");
+    
+    /**
+     * A mapped segment file. Bytes before end are never changed again.
+     */
+    private static class Segment {
+        final long number;
+        final File file;
+        final MappedByteBuffer buffer;
+        volatile int end;
+        int forcedEnd;
+        
+        Segment(long number, File file, MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+    
+    /**
+     * Callback waiting for the log to be forced past a position
+     */
+    private static class Waiter {
+        final long position;
+        final Runnable callback;
+        
+        Waiter(long position, Runnable callback) {
+            this.position = position;
+            this.callback = callback;
+        }
+    }
+    
+    private final File directory;
+    private final int segmentBytes;
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private final Object forceLock = new Object();
+    private final ScheduledExecutorService flusher;
+    private final long recoveredBytes;
+    private Segment active;
+    private volatile long durablePosition;
+    
+    /**
+     * Opens the log, recovering the segments left by an earlier run
+     * @param directory Directory holding the segment files; created if missing
+     * @param segmentBytes Size of new segment files
+     * @param checkpoint Position up to which records are already in the database;
+     *                   segments before it are deleted
+     * @param fsyncMillis Interval between forces to disk, or 0 to force after every append
+     * @throws IOException if the segment files cannot be read or created
+     */
+    SubmissionLog(File directory, int segmentBytes, long checkpoint, long fsyncMillis) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create log directory " + directory);
+        }
+        
+        long recovered = 0;
+        long nextNumber = segmentOf(checkpoint) + 1;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                Matcher matcher = FILE_NAME.matcher(file.getName());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                long number = Long.parseLong(matcher.group(1));
+                if (number < segmentOf(checkpoint)) {
+                    delete(file);
+                    continue;
+                }
+                Segment segment = new Segment(number, file, map(file, file.length()));
+                recovered += recover(segment);
+                segments.put(number, segment);
+                nextNumber = Math.max(nextNumber, number + 1);
+            }
+        }
+        recoveredBytes = recovered;
+        
+        active = createSegment(nextNumber);
+        durablePosition = position(active.number, 0);
+        
+        if (fsyncMillis > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "feedback-log-fsync");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flusher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        force();
+                    } catch (IOException | RuntimeException e) {
+                        // Waiting appends stay pending until a later force succeeds
+                        e.printStackTrace();
+                    }
+                }
+            }, fsyncMillis, fsyncMillis, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+    
+    static long position(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+    
+    static long segmentOf(long position) {
+        return position >>> 32;
+    }
+    
+    static int offsetOf(long position) {
+        return (int) position;
+    }
+    
+    /**
+     * Appends a record
+     * @param record The record
+     * @param onDurable Run on the forcing thread once the record is on disk
+     * @return The record's position
+     * @throws IOException if a new segment cannot be created
+     * @throws IllegalArgumentException if the record is larger than a segment
+     */
+    long append(LogRecord record, Runnable onDurable) throws IOException {
+        byte[] payload = record.encode();
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        int size = HEADER_BYTES + payload.length;
+        if (size > segmentBytes) {
+            throw new IllegalArgumentException("Submission of " + payload.length + " bytes does not fit in a log segment");
+        }
+        
+        long position;
+        synchronized (this) {
+            if (active.buffer.capacity() - active.end < size) {
+                // The zeros after the last record mark the sealed segment's end
+                active = createSegment(active.number + 1);
+            }
+            int offset = active.end;
+            ByteBuffer buffer = active.buffer.duplicate();
+            buffer.position(offset);
+            buffer.putInt(payload.length);
+            buffer.putInt((int) crc.getValue());
+            buffer.put(payload);
+            active.end = offset + size;
+            position = position(active.number, offset);
+            waiters.add(new Waiter(position(active.number, active.end), onDurable));
+        }
+        return position;
+    }
+    
+    /**
+     * Forces the log right away if it is not forced on a schedule. Called
+     * after an append, outside any lock the callbacks could need.
+     */
+    void forceIfUnscheduled() throws IOException {
+        if (flusher == null) {
+            force();
+        }
+    }
+    
+    /**
+     * Forces appended records to disk and runs the callbacks of those now durable
+     * @throws IOException if the records cannot be written
+     */
+    void force() throws IOException {
+        synchronized (forceLock) {
+            List<Segment> dirty = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            long target;
+            synchronized (this) {
+                target = position(active.number, active.end);
+                if (target == durablePosition) {
+                    return;
+                }
+                for (Segment segment : segments.tailMap(segmentOf(durablePosition), true).values()) {
+                    if (segment.forcedEnd < segment.end) {
+                        dirty.add(segment);
+                        ends.add(segment.end);
+                    }
+                }
+            }
+            
+            for (Segment segment : dirty) {
+                segment.buffer.force();
+            }
+            
+            List<Runnable> callbacks = new ArrayList<>();
+            synchronized (this) {
+                for (int i = 0; i < dirty.size(); i++) {
+                    dirty.get(i).forcedEnd = ends.get(i);
+                }
+                durablePosition = target;
+                while (!waiters.isEmpty() && waiters.peek().position <= target) {
+                    callbacks.add(waiters.poll().callback);
+                }
+            }
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reads durable records in order
+     * @param from Position to start at, as returned by the previous read or a checkpoint
+     * @param limit Maximum number of records
+     * @param records Receives the records, their positions set
+     * @return Position to continue from
+     */
+    long read(long from, int limit, List<LogRecord> records) {
+        long position = from;
+        long durable = durablePosition;
+        while (records.size() < limit && position < durable) {
+            Segment segment;
+            boolean sealed;
+            synchronized (this) {
+                Map.Entry<Long, Segment> entry = segments.ceilingEntry(segmentOf(position));
+                if (entry == null) {
+                    return position;
+                }
+                segment = entry.getValue();
+                sealed = segment != active;
+            }
+            if (segment.number != segmentOf(position)) {
+                position = position(segment.number, 0);
+                continue;
+            }
+            
+            int offset = offsetOf(position);
+            int end = segmentOf(durable) == segment.number ? offsetOf(durable) : segment.end;
+            ByteBuffer buffer = segment.buffer.duplicate();
+            while (records.size() < limit && offset < end) {
+                int length = buffer.getInt(offset);
+                buffer.limit(offset + HEADER_BYTES + length).position(offset + HEADER_BYTES);
+                LogRecord record = LogRecord.decode(buffer.slice());
+                buffer.limit(buffer.capacity());
+                record.position = position(segment.number, offset);
+                records.add(record);
+                offset += HEADER_BYTES + length;
+            }
+            position = sealed && offset == segment.end
+                    ? position(segment.number + 1, 0)
+                    : position(segment.number, offset);
+        }
+        return position;
+    }
+    
+    /**
+     * Deletes the segments whose records all come before a position
+     * @param checkpoint Position up to which records are in the database
+     */
+    void release(long checkpoint) {
+        List<Segment> released = new ArrayList<>();
+        synchronized (this) {
+            while (!segments.isEmpty() && segments.firstKey() < segmentOf(checkpoint)
+                   && segments.firstEntry().getValue() != active) {
+                released.add(segments.pollFirstEntry().getValue());
+            }
+        }
+        for (Segment segment : released) {
+            unmap(segment.buffer);
+            delete(segment.file);
+        }
+    }
+    
+    /**
+     * @return Position after the last appended record
+     */
+    synchronized long getEndPosition() {
+        return position(active.number, active.end);
+    }
+    
+    /**
+     * @return Position after the last record forced to disk
+     */
+    long getDurablePosition() {
+        return durablePosition;
+    }
+    
+    /**
+     * @return Bytes of incomplete records cleared when the log was opened
+     */
+    long getRecoveredBytes() {
+        return recoveredBytes;
+    }
+    
+    File getDirectory() {
+        return directory;
+    }
+    
+    /**
+     * Forces the remaining records to disk and stops the flushing thread
+     */
+    void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        force();
+    }
+    
+    /**
+     * Finds the end of a segment's valid records and clears anything after it
+     * @return Number of bytes cleared
+     */
+    private static long recover(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        int offset = 0;
+        while (offset + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > buffer.capacity() - offset - HEADER_BYTES) {
+                break;
+            }
+            CRC32 crc = new CRC32();
+            for (int i = offset + HEADER_BYTES; i < offset + HEADER_BYTES + length; i++) {
+                crc.update(buffer.get(i));
+            }
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        segment.end = offset;
+        segment.forcedEnd = offset;
+        
+        long cleared = 0;
+        for (int i = offset; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                cleared++;
+            }
+        }
+        if (cleared > 0) {
+            segment.buffer.force();
+        }
+        return cleared;
+    }
+    
+    private Segment createSegment(long number) throws IOException {
+        File file = new File(directory, String.format("segment-%016d.log", number));
+        Segment segment = new Segment(number, file, map(file, segmentBytes));
+        segments.put(number, segment);
+        return segment;
+    }
+    
+    private static MappedByteBuffer map(File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            // The mapping stays valid after the channel is closed
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+    
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            // Still mapped on Windows if unmapping failed; cleared on a later start
+            System.err.println("Could not delete log segment " + file);
+        }
+    }
+    
+    /**
+     * Releases a mapping right away instead of when it is garbage collected,
+     * so that its file can be deleted on Windows
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException e) {
+            try {
+                // Java 8
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            } catch (ReflectiveOperationException | RuntimeException ignored) {
+                // Left to the garbage collector
+            }
+        }
+    }
+}
\ No newline at end of file
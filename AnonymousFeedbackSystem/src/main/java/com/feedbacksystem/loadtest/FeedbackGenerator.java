@@ -0,0 +1,112 @@
+package com.feedbacksystem.loadtest;
+
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackValidator;
+import java.util.Date;
+import java.util.Random;
+
+/**
+ * Generates feedback that looks like what students actually submit.
+ *
+ * Categories and ratings follow skewed distributions: most feedback is
+ * about teachers, and ratings cluster at 4 and 5 with a smaller bump at 1.
+ * Message lengths are log-normal, so most messages are a sentence or two
+ * and a few run to several paragraphs. The words come from a small
+ * vocabulary, which is enough to exercise the full-text index.
+ */
+public class FeedbackGenerator {
+    // Weights in the order of FeedbackValidator.CATEGORIES: Teacher, Event, Facility, Other
+    private static final int[] CATEGORY_WEIGHTS = {45, 20, 25, 10};
+    // Weights of ratings 1 to 5
+    private static final int[] RATING_WEIGHTS = {8, 7, 15, 30, 40};
+    private static final double MEDIAN_MESSAGE_LENGTH = 90;
+    private static final double MESSAGE_LENGTH_SIGMA = 0.8;
+    private static final int MAX_MESSAGE_LENGTH = 4000;
+    
+    private static final String[] WORDS = {
+        "the", "class", "lecture", "was", "really", "very", "not", "helpful", "clear", "confusing",
+        "teacher", "explains", "well", "assignments", "too", "long", "exam", "fair", "difficult",
+        "library", "wifi", "slow", "canteen", "food", "cold", "event", "organised", "fun", "late",
+        "schedule", "notes", "slides", "examples", "more", "practice", "lab", "equipment", "broken",
+        "projector", "room", "crowded", "quiet", "friendly", "staff", "please", "improve", "great",
+        "workshop", "speaker", "interesting", "boring", "deadline", "feedback", "grading", "quick",
+        "parking", "hostel", "clean", "water", "timing", "session", "questions", "answered", "and"
+    };
+    
+    private final Random random;
+    
+    /**
+     * @param random Source of randomness; a seeded Random makes runs repeatable
+     */
+    public FeedbackGenerator(Random random) {
+        this.random = random;
+    }
+    
+    /**
+     * Generates one valid submission
+     * @param dateSubmitted Submission time to set
+     * @return Feedback that passes FeedbackValidator
+     */
+    public Feedback next(Date dateSubmitted) {
+        String category = FeedbackValidator.CATEGORIES.get(pick(CATEGORY_WEIGHTS));
+        int rating = FeedbackValidator.MIN_RATING + pick(RATING_WEIGHTS);
+        return new Feedback(category, nextMessage(), rating, dateSubmitted);
+    }
+    
+    /**
+     * Returns one of the categories, weighted like generated submissions
+     */
+    public String nextCategory() {
+        return FeedbackValidator.CATEGORIES.get(pick(CATEGORY_WEIGHTS));
+    }
+    
+    /**
+     * Returns a word that occurs in generated messages, for searches
+     */
+    public String nextWord() {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+    
+    private String nextMessage() {
+        double length = MEDIAN_MESSAGE_LENGTH * Math.exp(MESSAGE_LENGTH_SIGMA * random.nextGaussian());
+        int target = (int) Math.max(FeedbackValidator.MIN_MESSAGE_LENGTH, Math.min(MAX_MESSAGE_LENGTH, length));
+        
+        StringBuilder message = new StringBuilder(target + 16);
+        boolean sentenceStart = true;
+        while (message.length() < target) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            if (message.length() > 0) {
+                message.append(' ');
+            }
+            if (sentenceStart) {
+                message.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                sentenceStart = false;
+            } else {
+                message.append(word);
+            }
+            if (random.nextInt(12) == 0) {
+                message.append('.');
+                sentenceStart = true;
+            }
+        }
+        if (!sentenceStart) {
+            message.append('.');
+        }
+        return message.toString();
+    }
+    
+    private int pick(int[] weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            value -= weights[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,516 @@
+package com.feedbacksystem.loadtest;
+
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.dao.FeedbackRepository;
+import com.feedbacksystem.dao.Repositories;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.ingest.FeedbackIngestor;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.metrics.OperationMetrics;
+import com.feedbacksystem.model.Feedback;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simulates a feedback window against a scratch database, without any UI:
+ * many students submitting once each while a few admins browse the
+ * dashboard, then reports throughput, latency percentiles, SQLITE_BUSY
+ * counts and error rates per operation.
+ *
+ * Students arrive at random times spread evenly over the run and each
+ * submits once through the FeedbackIngestor, as the HTTP server does, or
+ * straight through the FeedbackRepository with --direct. Their latency is measured
+ * from the time they were due to submit, so a stalled system shows up as
+ * slow submissions rather than as fewer of them. Each admin repeatedly
+ * picks an action from the mix, runs it, and pauses for a random think
+ * time. Every student and admin runs on its own virtual thread where the
+ * JDK supports them.
+ *
+ * Usage: java com.feedbacksystem.loadtest.LoadGenerator [--students N] [--duration SECONDS]
+ *            [--admins N] [--think-ms MS] [--mix browse=60,filter=25,full=5,delete=10]
+ *            [--seed-rows N] [--direct] [--random-seed N] [--max-error-rate FRACTION]
+ *            [--max-p99-ms MS] [--db FILE]
+ * Without --db a temporary database is created and deleted afterwards.
+ * Exits with status 1 if the error rate or the submission p99 exceeds its limit.
+ */
+public class LoadGenerator {
+    private static final String USAGE =
+            "Usage: java com.feedbacksystem.loadtest.LoadGenerator [--students N] [--duration SECONDS]\n" +
+            "           [--admins N] [--think-ms MS] [--mix browse=60,filter=25,full=5,delete=10]\n" +
+            "           [--seed-rows N] [--direct] [--random-seed N] [--max-error-rate FRACTION]\n" +
+            "           [--max-p99-ms MS] [--db FILE]";
+    private static final int SEED_BATCH_SIZE = 1000;
+    private static final int DASHBOARD_PAGE_SIZE = 100;
+    private static final long SEED_SPAN_MILLIS = TimeUnit.DAYS.toMillis(365);
+    private static final long PROGRESS_INTERVAL_MILLIS = 10000;
+    
+    /**
+     * What an admin does on one visit to the dashboard
+     */
+    enum AdminAction {
+        /** First page of all feedback plus the total count */
+        BROWSE("browse", 60),
+        /** First page and count of one category */
+        FILTER("filter", 25),
+        /** Every entry, as the dashboard loaded it before paging */
+        FULL("full", 5),
+        /** Deletes one entry */
+        DELETE("delete", 10);
+        
+        final String label;
+        final int defaultWeight;
+        
+        AdminAction(String label, int defaultWeight) {
+            this.label = label;
+            this.defaultWeight = defaultWeight;
+        }
+    }
+    
+    private final FeedbackRepository feedbackRepository = Repositories.feedback();
+    private final int students;
+    private final long durationNanos;
+    private final int admins;
+    private final long thinkMillis;
+    private final int[] mix;
+    private final boolean direct;
+    private final long randomSeed;
+    
+    private final LoadStats submitStats = new LoadStats("submit");
+    private final LoadStats[] adminStats = new LoadStats[AdminAction.values().length];
+    private final AtomicInteger maxId = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final OperationMetrics writerWait = Metrics.operation("DatabaseManager.getWriteConnection");
+    
+    /**
+     * @param students Number of submissions, one per student
+     * @param durationSeconds Window over which the submissions are spread
+     * @param admins Number of admins browsing concurrently
+     * @param thinkMillis Mean pause between two actions of one admin
+     * @param mix Relative weight of each AdminAction, by ordinal
+     * @param direct Insert through the FeedbackRepository instead of the FeedbackIngestor
+     * @param randomSeed Seed for generated feedback and admin choices
+     */
+    public LoadGenerator(int students, int durationSeconds, int admins, long thinkMillis,
+                         int[] mix, boolean direct, long randomSeed) {
+        this.students = students;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.admins = admins;
+        this.thinkMillis = thinkMillis;
+        this.mix = mix.clone();
+        this.direct = direct;
+        this.randomSeed = randomSeed;
+        for (AdminAction action : AdminAction.values()) {
+            adminStats[action.ordinal()] = new LoadStats(action.label);
+        }
+    }
+    
+    /**
+     * Fills the database with feedback submitted over the past year, so
+     * reads during the run work on a realistically sized table
+     * @param rows Number of entries to insert
+     * @throws SQLException if an insert fails
+     */
+    public void seed(int rows) throws SQLException {
+        Random random = new Random(randomSeed - 1);
+        FeedbackGenerator generator = new FeedbackGenerator(random);
+        long now = System.currentTimeMillis();
+        
+        List<Feedback> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < rows; i++) {
+            batch.add(generator.next(new Date(now - (long) (random.nextDouble() * SEED_SPAN_MILLIS))));
+            if (batch.size() == SEED_BATCH_SIZE || i == rows - 1) {
+                feedbackRepository.insertFeedbackBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+    
+    /**
+     * Runs the simulation and waits for every student and admin to finish
+     * @throws SQLException if the database cannot be read before the start
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void run() throws SQLException, InterruptedException {
+        maxId.set(feedbackRepository.getFeedbackSnapshot(null, 1).getLastId());
+        // Report only waits during the run, not during startup and seeding
+        writerWait.reset();
+        
+        // Generated up front so the students' threads only submit
+        Random random = new Random(randomSeed);
+        FeedbackGenerator generator = new FeedbackGenerator(random);
+        List<Feedback> submissions = new ArrayList<>(students);
+        long[] offsets = new long[students];
+        for (int i = 0; i < students; i++) {
+            submissions.add(generator.next(null));
+            offsets[i] = (long) (random.nextDouble() * durationNanos);
+        }
+        
+        final FeedbackIngestor ingestor = direct ? null : FeedbackIngestor.getShared();
+        ExecutorService executor = BackgroundExecutor.newExecutor("feedback-load");
+        final CountDownLatch studentsDone = new CountDownLatch(students);
+        final CountDownLatch adminsDone = new CountDownLatch(admins);
+        final long start = System.nanoTime();
+        final long end = start + durationNanos;
+        
+        try {
+            for (int i = 0; i < students; i++) {
+                final Feedback feedback = submissions.get(i);
+                final long due = start + offsets[i];
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            sleepUntil(due);
+                            submit(ingestor, feedback, due);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            studentsDone.countDown();
+                        }
+                    }
+                });
+            }
+            for (int i = 0; i < admins; i++) {
+                final Random adminRandom = new Random(randomSeed + 1 + i);
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            browse(adminRandom, end);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } finally {
+                            adminsDone.countDown();
+                        }
+                    }
+                });
+            }
+            
+            long total = students;
+            while (!studentsDone.await(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+                System.err.println(elapsed + " s: " + submitted.sum() + " of " + total + " submitted, " +
+                                   submitStats.getErrors() + " failed");
+            }
+            adminsDone.await();
+        } finally {
+            executor.shutdownNow();
+            if (ingestor != null) {
+                ingestor.shutdown();
+            }
+        }
+    }
+    
+    private void submit(FeedbackIngestor ingestor, Feedback feedback, long due) throws InterruptedException {
+        feedback.setDateSubmitted(new Date());
+        try {
+            if (ingestor != null) {
+                ingestor.submit(feedback).get();
+            } else {
+                feedbackRepository.insertFeedbackBatch(Collections.singletonList(feedback));
+            }
+            submitStats.recordSuccess(due);
+            updateMaxId(feedback.getId());
+        } catch (ExecutionException e) {
+            submitStats.recordFailure(due, e.getCause() != null ? e.getCause() : e);
+        } catch (SQLException | RuntimeException e) {
+            submitStats.recordFailure(due, e);
+        } finally {
+            submitted.increment();
+        }
+    }
+    
+    private void browse(Random random, long end) throws InterruptedException {
+        FeedbackGenerator generator = new FeedbackGenerator(random);
+        while (System.nanoTime() < end) {
+            AdminAction action = AdminAction.values()[pick(random)];
+            LoadStats stats = adminStats[action.ordinal()];
+            long start = System.nanoTime();
+            try {
+                switch (action) {
+                    case BROWSE:
+                        feedbackRepository.getFeedbackPage(null, null, DASHBOARD_PAGE_SIZE);
+                        feedbackRepository.countFeedback(null);
+                        break;
+                    case FILTER:
+                        String category = generator.nextCategory();
+                        feedbackRepository.getFeedbackPage(category, null, DASHBOARD_PAGE_SIZE);
+                        feedbackRepository.countFeedback(category);
+                        break;
+                    case FULL:
+                        feedbackRepository.getAllFeedback();
+                        break;
+                    case DELETE:
+                        feedbackRepository.deleteFeedback(1 + random.nextInt(Math.max(1, maxId.get())));
+                        break;
+                }
+                stats.recordSuccess(start);
+            } catch (SQLException | RuntimeException e) {
+                stats.recordFailure(start, e);
+            }
+            
+            // Exponential think time: admins act at random, not in lockstep
+            long pause = (long) (-thinkMillis * Math.log(1 - random.nextDouble()));
+            sleepUntil(Math.min(end, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pause)));
+        }
+    }
+    
+    private int pick(Random random) {
+        int total = 0;
+        for (int weight : mix) {
+            total += weight;
+        }
+        int value = random.nextInt(total);
+        for (int i = 0; i < mix.length; i++) {
+            value -= mix[i];
+            if (value < 0) {
+                return i;
+            }
+        }
+        return mix.length - 1;
+    }
+    
+    private void updateMaxId(int id) {
+        int current = maxId.get();
+        while (id > current && !maxId.compareAndSet(current, id)) {
+            current = maxId.get();
+        }
+    }
+    
+    private static void sleepUntil(long deadlineNanos) throws InterruptedException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+    
+    /**
+     * Prints the results table and any failure messages
+     * @param elapsedSeconds Length of the run, for throughput
+     */
+    public void printReport(double elapsedSeconds) {
+        System.out.println(String.format(Locale.ROOT, "%-8s %8s %7s %6s %8s %9s %9s %9s %9s %9s",
+                "", "count", "errors", "busy", "ops/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        printRow(submitStats, elapsedSeconds);
+        for (LoadStats stats : adminStats) {
+            printRow(stats, elapsedSeconds);
+        }
+        
+        System.out.println(String.format(Locale.ROOT, "Writer connection wait: p99 %.2f ms, max %.2f ms",
+                writerWait.getP99Millis(), writerWait.getMaxMillis()));
+        
+        printErrors(submitStats);
+        for (LoadStats stats : adminStats) {
+            printErrors(stats);
+        }
+    }
+    
+    private static void printRow(LoadStats stats, double elapsedSeconds) {
+        if (stats.getAttempts() == 0) {
+            return;
+        }
+        System.out.println(String.format(Locale.ROOT, "%-8s %8d %7d %6d %8.1f %9.2f %9.2f %9.2f %9.2f %9.2f",
+                stats.getName(), stats.getAttempts(), stats.getErrors(), stats.getBusy(),
+                stats.getAttempts() / elapsedSeconds,
+                millis(stats.getLatency().getQuantileNanos(0.5)),
+                millis(stats.getLatency().getQuantileNanos(0.9)),
+                millis(stats.getLatency().getQuantileNanos(0.99)),
+                millis(stats.getLatency().getQuantileNanos(0.999)),
+                millis(stats.getLatency().getMaxNanos())));
+    }
+    
+    private static void printErrors(LoadStats stats) {
+        for (Map.Entry<String, LongAdder> error : stats.getErrorMessages().entrySet()) {
+            System.out.println(stats.getName() + " failed " + error.getValue().sum() + "x: " + error.getKey());
+        }
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+    
+    /**
+     * Failed attempts of all operations as a fraction of all attempts
+     */
+    public double getErrorRate() {
+        long attempts = submitStats.getAttempts();
+        long errors = submitStats.getErrors();
+        for (LoadStats stats : adminStats) {
+            attempts += stats.getAttempts();
+            errors += stats.getErrors();
+        }
+        return attempts == 0 ? 0 : (double) errors / attempts;
+    }
+    
+    public LoadStats getSubmitStats() {
+        return submitStats;
+    }
+    
+    /**
+     * Parses a mix such as "browse=60,filter=25,full=5,delete=10". Actions
+     * left out keep their default weight; give them 0 to disable them.
+     */
+    static int[] parseMix(String text) {
+        int[] weights = new int[AdminAction.values().length];
+        for (AdminAction action : AdminAction.values()) {
+            weights[action.ordinal()] = action.defaultWeight;
+        }
+        if (text == null) {
+            return weights;
+        }
+        for (String part : text.split(",")) {
+            String[] pair = part.trim().split("=");
+            AdminAction found = null;
+            for (AdminAction action : AdminAction.values()) {
+                if (action.label.equals(pair[0])) {
+                    found = action;
+                }
+            }
+            if (found == null || pair.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry: " + part);
+            }
+            int weight = Integer.parseInt(pair[1]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights cannot be negative: " + part);
+            }
+            weights[found.ordinal()] = weight;
+        }
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("At least one admin action needs a positive weight");
+        }
+        return weights;
+    }
+    
+    public static void main(String[] args) throws SQLException, IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        
+        int students = 2000;
+        int duration = 300;
+        int admins = 5;
+        long thinkMillis = 2000;
+        String mixText = null;
+        int seedRows = 10000;
+        boolean direct = false;
+        long randomSeed = 42;
+        double maxErrorRate = 0.01;
+        double maxP99Millis = 0;
+        String database = null;
+        int[] mix;
+        
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--students".equals(arg)) {
+                    students = Integer.parseInt(value(args, ++i));
+                } else if ("--duration".equals(arg)) {
+                    duration = Integer.parseInt(value(args, ++i));
+                } else if ("--admins".equals(arg)) {
+                    admins = Integer.parseInt(value(args, ++i));
+                } else if ("--think-ms".equals(arg)) {
+                    thinkMillis = Long.parseLong(value(args, ++i));
+                } else if ("--mix".equals(arg)) {
+                    mixText = value(args, ++i);
+                } else if ("--seed-rows".equals(arg)) {
+                    seedRows = Integer.parseInt(value(args, ++i));
+                } else if ("--direct".equals(arg)) {
+                    direct = true;
+                } else if ("--random-seed".equals(arg)) {
+                    randomSeed = Long.parseLong(value(args, ++i));
+                } else if ("--max-error-rate".equals(arg)) {
+                    maxErrorRate = Double.parseDouble(value(args, ++i));
+                } else if ("--max-p99-ms".equals(arg)) {
+                    maxP99Millis = Double.parseDouble(value(args, ++i));
+                } else if ("--db".equals(arg)) {
+                    database = value(args, ++i);
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (students < 0 || duration <= 0 || admins < 0 || thinkMillis < 0 || seedRows < 0) {
+                throw new IllegalArgumentException("Counts and times cannot be negative, and --duration must be positive");
+            }
+            mix = parseMix(mixText);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        File file;
+        if (database != null) {
+            file = new File(database);
+        } else {
+            file = File.createTempFile("feedback-load", ".db");
+            file.deleteOnExit();
+            new File(file.getPath() + "-wal").deleteOnExit();
+            new File(file.getPath() + "-shm").deleteOnExit();
+        }
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + file.getPath());
+        
+        LoadGenerator generator = new LoadGenerator(students, duration, admins, thinkMillis, mix, direct, randomSeed);
+        boolean passed;
+        try {
+            if (seedRows > 0) {
+                long seedStart = System.nanoTime();
+                generator.seed(seedRows);
+                System.err.println(String.format(Locale.ROOT, "Seeded %d entries in %.1f s", seedRows,
+                        (System.nanoTime() - seedStart) / 1e9));
+            }
+            
+            System.err.println("Simulating " + students + " students over " + duration + " s with " + admins +
+                               " admins, submitting " + (direct ? "through the repository" : "through the ingestor") +
+                               ", database " + file.getPath());
+            long start = System.nanoTime();
+            generator.run();
+            double elapsed = Math.max(duration, (System.nanoTime() - start) / 1e9);
+            generator.printReport(elapsed);
+            
+            double errorRate = generator.getErrorRate();
+            double submitP99 = millis(generator.getSubmitStats().getLatency().getQuantileNanos(0.99));
+            passed = true;
+            if (errorRate > maxErrorRate) {
+                System.out.println(String.format(Locale.ROOT, "FAIL: error rate %.2f%% is above %.2f%%",
+                        errorRate * 100, maxErrorRate * 100));
+                passed = false;
+            }
+            if (maxP99Millis > 0 && submitP99 > maxP99Millis) {
+                System.out.println(String.format(Locale.ROOT, "FAIL: submission p99 %.2f ms is above %.2f ms",
+                        submitP99, maxP99Millis));
+                passed = false;
+            }
+            if (passed) {
+                System.out.println(String.format(Locale.ROOT, "PASS: error rate %.2f%%, submission p99 %.2f ms",
+                        errorRate * 100, submitP99));
+            }
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+    
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,88 @@
+package com.feedbacksystem.loadtest;
+
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.metrics.LatencyHistogram;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome of one kind of operation during a load test: latency of every
+ * attempt, failures, and how many of those failures were SQLite lock
+ * errors (SQLITE_BUSY or SQLITE_LOCKED).
+ */
+public class LoadStats {
+    private static final int MAX_DISTINCT_ERRORS = 20;
+    
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder busy = new LongAdder();
+    private final Map<String, LongAdder> errorMessages = new ConcurrentHashMap<>();
+    
+    public LoadStats(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Records a successful attempt
+     * @param startNanos System.nanoTime() at which the attempt was due to start
+     */
+    public void recordSuccess(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+    
+    /**
+     * Records a failed attempt
+     * @param startNanos System.nanoTime() at which the attempt was due to start
+     * @param error The failure
+     */
+    public void recordFailure(long startNanos, Throwable error) {
+        latency.record(System.nanoTime() - startNanos);
+        errors.increment();
+        if (DatabaseManager.isLockError(error)) {
+            busy.increment();
+        }
+        
+        String message = error.toString();
+        LongAdder count = errorMessages.get(message);
+        if (count == null && errorMessages.size() < MAX_DISTINCT_ERRORS) {
+            LongAdder added = new LongAdder();
+            count = errorMessages.putIfAbsent(message, added);
+            if (count == null) {
+                count = added;
+            }
+        }
+        if (count != null) {
+            count.increment();
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+    
+    public long getAttempts() {
+        return latency.getCount();
+    }
+    
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    public long getBusy() {
+        return busy.sum();
+    }
+    
+    /**
+     * Distinct failure messages and how often each occurred; only the first
+     * few distinct messages are kept
+     */
+    public Map<String, LongAdder> getErrorMessages() {
+        return errorMessages;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.feedbacksystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for DatabaseManager: physical connections opened and closed, and
+ * pooled handles borrowed and returned. A steadily growing opened count
+ * means connections are being discarded instead of reused; a growing
+ * in-use count means handles are leaking.
+ */
+public class ConnectionMetrics implements ConnectionMetricsMXBean {
+    private final LongAdder readersOpened = new LongAdder();
+    private final LongAdder readersClosed = new LongAdder();
+    private final LongAdder writersOpened = new LongAdder();
+    private final LongAdder writersClosed = new LongAdder();
+    private final LongAdder readerBorrows = new LongAdder();
+    private final LongAdder readerReturns = new LongAdder();
+    private final LongAdder writerAcquires = new LongAdder();
+    private final LongAdder writerReleases = new LongAdder();
+    
+    ConnectionMetrics() {}
+    
+    public void readerOpened() {
+        readersOpened.increment();
+    }
+    
+    public void readerClosed() {
+        readersClosed.increment();
+    }
+    
+    public void writerOpened() {
+        writersOpened.increment();
+    }
+    
+    public void writerClosed() {
+        writersClosed.increment();
+    }
+    
+    public void readerBorrowed() {
+        readerBorrows.increment();
+    }
+    
+    public void readerReturned() {
+        readerReturns.increment();
+    }
+    
+    public void writerAcquired() {
+        writerAcquires.increment();
+    }
+    
+    public void writerReleased() {
+        writerReleases.increment();
+    }
+    
+    @Override
+    public long getReadersOpened() {
+        return readersOpened.sum();
+    }
+    
+    @Override
+    public long getReadersClosed() {
+        return readersClosed.sum();
+    }
+    
+    @Override
+    public long getWritersOpened() {
+        return writersOpened.sum();
+    }
+    
+    @Override
+    public long getWritersClosed() {
+        return writersClosed.sum();
+    }
+    
+    @Override
+    public long getReaderBorrows() {
+        return readerBorrows.sum();
+    }
+    
+    @Override
+    public long getReaderReturns() {
+        return readerReturns.sum();
+    }
+    
+    @Override
+    public long getWriterAcquires() {
+        return writerAcquires.sum();
+    }
+    
+    @Override
+    public long getWriterReleases() {
+        return writerReleases.sum();
+    }
+    
+    @Override
+    public long getInUse() {
+        return readerBorrows.sum() - readerReturns.sum() + writerAcquires.sum() - writerReleases.sum();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,28 @@
+package com.feedbacksystem.metrics;
+
+/**
+ * JMX view of the connection pool counters
+ */
+public interface ConnectionMetricsMXBean {
+    
+    long getReadersOpened();
+    
+    long getReadersClosed();
+    
+    long getWritersOpened();
+    
+    long getWritersClosed();
+    
+    long getReaderBorrows();
+    
+    long getReaderReturns();
+    
+    long getWriterAcquires();
+    
+    long getWriterReleases();
+    
+    /**
+     * Handles borrowed and not yet returned, readers and writer together
+     */
+    long getInUse();
+}
\ No newline at end of file
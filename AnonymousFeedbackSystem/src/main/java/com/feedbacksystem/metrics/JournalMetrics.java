@@ -0,0 +1,87 @@
+package com.feedbacksystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for the submission journal: submissions appended because their
+ * database write failed or was slow, those later stored by the replay or
+ * found already stored by the original write, failed replay attempts and
+ * submissions set aside in the dead-letter file because they could not be
+ * stored. A backlog that keeps growing means the database stays out of reach.
+ */
+public class JournalMetrics implements JournalMetricsMXBean {
+    private final LongAdder appended = new LongAdder();
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder alreadyStored = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final AtomicLong backlog = new AtomicLong();
+    
+    JournalMetrics() {}
+    
+    /**
+     * Counts submissions a previous run left in the journal
+     */
+    public void recovered(int count) {
+        backlog.addAndGet(count);
+    }
+    
+    public void appended() {
+        appended.increment();
+        backlog.incrementAndGet();
+    }
+    
+    /**
+     * Counts a replayed batch
+     * @param count Number of submissions in the batch
+     * @param inserted Number of them not stored before
+     */
+    public void replayed(int count, int inserted) {
+        stored.add(inserted);
+        alreadyStored.add(count - inserted);
+        backlog.addAndGet(-count);
+    }
+    
+    public void retried() {
+        retries.increment();
+    }
+    
+    /**
+     * Counts a submission set aside instead of stored
+     */
+    public void deadLettered() {
+        deadLettered.increment();
+        backlog.decrementAndGet();
+    }
+    
+    @Override
+    public long getAppended() {
+        return appended.sum();
+    }
+    
+    @Override
+    public long getStored() {
+        return stored.sum();
+    }
+    
+    @Override
+    public long getAlreadyStored() {
+        return alreadyStored.sum();
+    }
+    
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+    
+    @Override
+    public long getDeadLettered() {
+        return deadLettered.sum();
+    }
+    
+    @Override
+    public long getBacklog() {
+        return backlog.get();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.feedbacksystem.metrics;
+
+/**
+ * JMX view of the submission journal counters
+ */
+public interface JournalMetricsMXBean {
+    
+    long getAppended();
+    
+    long getStored();
+    
+    long getAlreadyStored();
+    
+    long getRetries();
+    
+    /**
+     * Submissions written to the dead-letter file because they could not be stored
+     */
+    long getDeadLettered();
+    
+    /**
+     * Journaled submissions not yet in the database
+     */
+    long getBacklog();
+}
\ No newline at end of file
@@ -0,0 +1,117 @@
+package com.feedbacksystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ *
+ * Each power of two is split into 16 sub-buckets, so any recorded value is
+ * reported within about 6% of its true size, from nanoseconds up to days,
+ * using a fixed array of 960 counters. Recording is a bucket index
+ * computation and a couple of atomic increments; it never allocates or
+ * locks, so it can sit on every DAO call. Percentiles are computed from a
+ * copy of the counters when read.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 4;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_COUNT;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+    
+    /**
+     * Records one value
+     * @param nanos Duration in nanoseconds; negative values count as zero
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(bucketOf(nanos));
+        count.increment();
+        sum.add(nanos);
+        
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+    
+    public long getCount() {
+        return count.sum();
+    }
+    
+    public long getSumNanos() {
+        return sum.sum();
+    }
+    
+    public long getMaxNanos() {
+        return max.get();
+    }
+    
+    /**
+     * Returns the value below which the given fraction of recorded values fall
+     * @param quantile Fraction between 0 and 1, e.g. 0.99
+     * @return Estimated duration in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getQuantileNanos(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                // The midpoint of the bucket, but never above the largest value seen
+                return Math.min(lowerBound(i) + (bucketWidth(i) - 1) / 2, max.get());
+            }
+        }
+        return max.get();
+    }
+    
+    /**
+     * Clears all recorded values. Values recorded concurrently may be lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+    
+    static int bucketOf(long value) {
+        if (value < SUB_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> shift) & (SUB_COUNT - 1);
+        return (shift + 1) * SUB_COUNT + sub;
+    }
+    
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_COUNT - 1;
+        return (long) (SUB_COUNT + bucket % SUB_COUNT) << shift;
+    }
+    
+    private static long bucketWidth(int bucket) {
+        return bucket < SUB_COUNT ? 1 : 1L << (bucket / SUB_COUNT - 1);
+    }
+}
\ No newline at end of file
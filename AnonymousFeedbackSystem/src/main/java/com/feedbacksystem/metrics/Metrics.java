@@ -0,0 +1,141 @@
+package com.feedbacksystem.metrics;
+
+import com.feedbacksystem.config.AppConfig;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Registry of the application's operation, connection and journal metrics.
+ *
+ * Every metric is registered with the platform MBean server under the
+ * com.feedbacksystem domain, so jconsole, VisualVM or jcmd can watch it
+ * in a running process, and can be rendered in the Prometheus text format
+ * for scraping. Set metrics.jmx=false to skip the JMX registration.
+ */
+public class Metrics {
+    private static final String DOMAIN = "com.feedbacksystem";
+    private static final boolean JMX_ENABLED = AppConfig.getBoolean("metrics.jmx", true);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    
+    private static final Map<String, OperationMetrics> operations = new ConcurrentSkipListMap<>();
+    private static final ConnectionMetrics connections = register("type=Connections", new ConnectionMetrics());
+    private static final JournalMetrics journal = register("type=Journal", new JournalMetrics());
+    
+    private Metrics() {}
+    
+    /**
+     * Returns the metrics of an operation, creating and registering them on
+     * first use. Look this up once and keep it in a static final field.
+     * @param name Operation name, e.g. "FeedbackDAO.insertFeedback"
+     * @return OperationMetrics shared by all callers using the same name
+     */
+    public static OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics == null) {
+            synchronized (operations) {
+                metrics = operations.get(name);
+                if (metrics == null) {
+                    metrics = register("type=Operation,name=" + name, new OperationMetrics(name));
+                    operations.put(name, metrics);
+                }
+            }
+        }
+        return metrics;
+    }
+    
+    /**
+     * Returns the connection pool counters
+     * @return Shared ConnectionMetrics
+     */
+    public static ConnectionMetrics connections() {
+        return connections;
+    }
+    
+    /**
+     * Returns the submission journal counters
+     * @return Shared JournalMetrics
+     */
+    public static JournalMetrics journal() {
+        return journal;
+    }
+    
+    private static <T> T register(String properties, T mbean) {
+        if (!JMX_ENABLED) {
+            return mbean;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(mbean, new ObjectName(DOMAIN + ":" + properties));
+        } catch (InstanceAlreadyExistsException e) {
+            // Another copy of these classes registered first; recording still works
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+        return mbean;
+    }
+    
+    /**
+     * Renders all metrics in the Prometheus text exposition format. Each
+     * operation becomes a summary of its latency in seconds plus call,
+     * error and row counters labelled with the operation name.
+     * @param out Destination for the text
+     */
+    public static void writePrometheus(StringBuilder out) {
+        out.append("# TYPE feedback_operation_latency_seconds summary\n");
+        for (OperationMetrics metrics : operations.values()) {
+            LatencyHistogram latency = metrics.getLatency();
+            String label = "operation=\"" + metrics.getName() + "\"";
+            for (double quantile : QUANTILES) {
+                sample(out, "feedback_operation_latency_seconds", label + ",quantile=\"" + quantile + "\"",
+                        latency.getQuantileNanos(quantile) / 1e9);
+            }
+            sample(out, "feedback_operation_latency_seconds_sum", label, latency.getSumNanos() / 1e9);
+            sample(out, "feedback_operation_latency_seconds_count", label, latency.getCount());
+        }
+        out.append("# TYPE feedback_operation_errors_total counter\n");
+        for (OperationMetrics metrics : operations.values()) {
+            sample(out, "feedback_operation_errors_total", "operation=\"" + metrics.getName() + "\"", metrics.getErrors());
+        }
+        out.append("# TYPE feedback_operation_rows_total counter\n");
+        for (OperationMetrics metrics : operations.values()) {
+            sample(out, "feedback_operation_rows_total", "operation=\"" + metrics.getName() + "\"", metrics.getRows());
+        }
+        
+        out.append("# TYPE feedback_connections_opened_total counter\n");
+        sample(out, "feedback_connections_opened_total", "pool=\"read\"", connections.getReadersOpened());
+        sample(out, "feedback_connections_opened_total", "pool=\"write\"", connections.getWritersOpened());
+        out.append("# TYPE feedback_connections_closed_total counter\n");
+        sample(out, "feedback_connections_closed_total", "pool=\"read\"", connections.getReadersClosed());
+        sample(out, "feedback_connections_closed_total", "pool=\"write\"", connections.getWritersClosed());
+        out.append("# TYPE feedback_connections_borrowed_total counter\n");
+        sample(out, "feedback_connections_borrowed_total", "pool=\"read\"", connections.getReaderBorrows());
+        sample(out, "feedback_connections_borrowed_total", "pool=\"write\"", connections.getWriterAcquires());
+        out.append("# TYPE feedback_connections_in_use gauge\n");
+        out.append("feedback_connections_in_use ").append(connections.getInUse()).append('\n');
+        
+        out.append("# TYPE feedback_journal_appended_total counter\n");
+        out.append("feedback_journal_appended_total ").append(journal.getAppended()).append('\n');
+        out.append("# TYPE feedback_journal_stored_total counter\n");
+        sample(out, "feedback_journal_stored_total", "result=\"inserted\"", journal.getStored());
+        sample(out, "feedback_journal_stored_total", "result=\"already_stored\"", journal.getAlreadyStored());
+        out.append("# TYPE feedback_journal_retries_total counter\n");
+        out.append("feedback_journal_retries_total ").append(journal.getRetries()).append('\n');
+        out.append("# TYPE feedback_journal_dead_lettered_total counter\n");
+        out.append("feedback_journal_dead_lettered_total ").append(journal.getDeadLettered()).append('\n');
+        out.append("# TYPE feedback_journal_backlog gauge\n");
+        out.append("feedback_journal_backlog ").append(journal.getBacklog()).append('\n');
+    }
+    
+    private static void sample(StringBuilder out, String metric, String labels, long value) {
+        out.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+    
+    private static void sample(StringBuilder out, String metric, String labels, double value) {
+        out.append(metric).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+}
\ No newline at end of file
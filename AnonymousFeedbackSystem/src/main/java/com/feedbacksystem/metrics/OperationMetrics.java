@@ -0,0 +1,118 @@
+package com.feedbacksystem.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count, rows and latency of one operation, such as a
+ * DAO method. Callers keep the instance in a static final field and record
+ * around the call:
+ *
+ * <pre>
+ * long start = System.nanoTime();
+ * try {
+ *     ...
+ *     METRICS.recordRows(rows);
+ * } catch (SQLException | RuntimeException e) {
+ *     METRICS.recordError();
+ *     throw e;
+ * } finally {
+ *     METRICS.recordTime(start);
+ * }
+ * </pre>
+ *
+ * None of the record methods allocate.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rows = new LongAdder();
+    
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Records one completed call, successful or not
+     * @param startNanos System.nanoTime() taken when the call started
+     */
+    public void recordTime(long startNanos) {
+        latency.record(System.nanoTime() - startNanos);
+    }
+    
+    public void recordError() {
+        errors.increment();
+    }
+    
+    /**
+     * Adds to the number of rows the operation returned or changed
+     * @param count Number of rows
+     */
+    public void recordRows(long count) {
+        rows.add(count);
+    }
+    
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+    
+    @Override
+    public String getName() {
+        return name;
+    }
+    
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+    
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+    
+    @Override
+    public long getRows() {
+        return rows.sum();
+    }
+    
+    @Override
+    public double getMeanMillis() {
+        long calls = latency.getCount();
+        return calls == 0 ? 0 : latency.getSumNanos() / NANOS_PER_MILLI / calls;
+    }
+    
+    @Override
+    public double getP50Millis() {
+        return latency.getQuantileNanos(0.5) / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double getP90Millis() {
+        return latency.getQuantileNanos(0.9) / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double getP99Millis() {
+        return latency.getQuantileNanos(0.99) / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double getP999Millis() {
+        return latency.getQuantileNanos(0.999) / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxNanos() / NANOS_PER_MILLI;
+    }
+    
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        rows.reset();
+    }
+}
\ No newline at end of file
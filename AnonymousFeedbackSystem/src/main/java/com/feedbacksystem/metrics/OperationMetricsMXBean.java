@@ -0,0 +1,32 @@
+package com.feedbacksystem.metrics;
+
+/**
+ * JMX view of one instrumented operation. Latencies are in milliseconds.
+ */
+public interface OperationMetricsMXBean {
+    
+    String getName();
+    
+    long getCalls();
+    
+    long getErrors();
+    
+    long getRows();
+    
+    double getMeanMillis();
+    
+    double getP50Millis();
+    
+    double getP90Millis();
+    
+    double getP99Millis();
+    
+    double getP999Millis();
+    
+    double getMaxMillis();
+    
+    /**
+     * Starts counting from zero, e.g. before watching a load test
+     */
+    void reset();
+}
\ No newline at end of file
@@ -0,0 +1,26 @@
+package com.feedbacksystem.model;
+
+/**
+ * A feedback entry together with the sentiment score of its message
+ */
+public class AnalyzedFeedback {
+    private final Feedback feedback;
+    private final double sentiment;
+    
+    /**
+     * @param feedback The feedback entry
+     * @param sentiment Score from -1 (negative) to 1 (positive)
+     */
+    public AnalyzedFeedback(Feedback feedback, double sentiment) {
+        this.feedback = feedback;
+        this.sentiment = sentiment;
+    }
+    
+    public Feedback getFeedback() {
+        return feedback;
+    }
+    
+    public double getSentiment() {
+        return sentiment;
+    }
+}
\ No newline at end of file
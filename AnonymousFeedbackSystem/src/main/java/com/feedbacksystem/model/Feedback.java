@@ -11,6 +11,10 @@ public class Feedback {
     private String message;
     private int rating;
     private Date dateSubmitted;
+    // Id of the feedback this one nearly repeats, 0 if it is an original
+    private int duplicateOf;
+    // Set by the submitting client so a retried write is stored only once; null if none
+    private String submissionId;
     
     // Constructors
     public Feedback() {}
@@ -71,6 +75,22 @@ public class Feedback {
         this.dateSubmitted = dateSubmitted;
     }
     
+    public int getDuplicateOf() {
+        return duplicateOf;
+    }
+    
+    public void setDuplicateOf(int duplicateOf) {
+        this.duplicateOf = duplicateOf;
+    }
+    
+    public String getSubmissionId() {
+        return submissionId;
+    }
+    
+    public void setSubmissionId(String submissionId) {
+        this.submissionId = submissionId;
+    }
+    
     @Override
     public String toString() {
         return "Feedback{" +
@@ -0,0 +1,72 @@
+package com.feedbacksystem.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Feedback inserted and deleted since a given data version
+ */
+public class FeedbackChanges {
+    private final long version;
+    private final int lastId;
+    private final boolean reloadRequired;
+    private final List<Feedback> inserted;
+    private final List<Feedback> deleted;
+    
+    /**
+     * @param version Data version after the changes
+     * @param lastId Highest feedback id after the changes
+     * @param inserted New rows, in id order, with duplicate_of set
+     * @param deleted Tombstones of removed rows, holding only id, category, rating,
+     *                date and duplicate_of
+     */
+    public FeedbackChanges(long version, int lastId, List<Feedback> inserted, List<Feedback> deleted) {
+        this(version, lastId, false, inserted, deleted);
+    }
+    
+    private FeedbackChanges(long version, int lastId, boolean reloadRequired,
+                            List<Feedback> inserted, List<Feedback> deleted) {
+        this.version = version;
+        this.lastId = lastId;
+        this.reloadRequired = reloadRequired;
+        this.inserted = inserted;
+        this.deleted = deleted;
+    }
+    
+    /**
+     * Changes that cannot be replayed, e.g. too many of them
+     * @param version The current data version
+     * @return FeedbackChanges asking for a full reload
+     */
+    public static FeedbackChanges reloadRequired(long version) {
+        return new FeedbackChanges(version, 0, true,
+                                   Collections.<Feedback>emptyList(), Collections.<Feedback>emptyList());
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public int getLastId() {
+        return lastId;
+    }
+    
+    /**
+     * @return true if the caller must reload instead of applying the changes
+     */
+    public boolean isReloadRequired() {
+        return reloadRequired;
+    }
+    
+    public List<Feedback> getInserted() {
+        return inserted;
+    }
+    
+    public List<Feedback> getDeleted() {
+        return deleted;
+    }
+    
+    public boolean isEmpty() {
+        return inserted.isEmpty() && deleted.isEmpty();
+    }
+}
\ No newline at end of file
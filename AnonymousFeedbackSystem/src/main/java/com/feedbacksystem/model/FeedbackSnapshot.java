@@ -0,0 +1,43 @@
+package com.feedbacksystem.model;
+
+import java.util.List;
+
+/**
+ * Row count, first page and change mark of the feedback list, all read
+ * from the same database snapshot
+ */
+public class FeedbackSnapshot {
+    private final int count;
+    private final List<Feedback> firstPage;
+    private final long version;
+    private final int lastId;
+    
+    public FeedbackSnapshot(int count, List<Feedback> firstPage, long version, int lastId) {
+        this.count = count;
+        this.firstPage = firstPage;
+        this.version = version;
+        this.lastId = lastId;
+    }
+    
+    public int getCount() {
+        return count;
+    }
+    
+    public List<Feedback> getFirstPage() {
+        return firstPage;
+    }
+    
+    /**
+     * @return Data version the snapshot was read at
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * @return Highest feedback id in the snapshot
+     */
+    public int getLastId() {
+        return lastId;
+    }
+}
\ No newline at end of file
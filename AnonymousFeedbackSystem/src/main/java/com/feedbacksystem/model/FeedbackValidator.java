@@ -0,0 +1,57 @@
+package com.feedbacksystem.model;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Validation rules for submitted feedback, shared by the Swing form and the
+ * HTTP endpoint so both accept exactly the same input
+ */
+public class FeedbackValidator {
+    public static final List<String> CATEGORIES =
+            Collections.unmodifiableList(Arrays.asList("Teacher", "Event", "Facility", "Other"));
+    public static final int MIN_RATING = 1;
+    public static final int MAX_RATING = 5;
+    public static final int MIN_MESSAGE_LENGTH = 10;
+    
+    private FeedbackValidator() {}
+    
+    /**
+     * Validates a feedback message
+     * @param message The message as entered, may be null
+     * @return Error message to show the user, or null if the message is valid
+     */
+    public static String validateMessage(String message) {
+        String trimmed = message == null ? "" : message.trim();
+        
+        if (trimmed.isEmpty()) {
+            return "Please enter your feedback message.";
+        }
+        
+        if (trimmed.length() < MIN_MESSAGE_LENGTH) {
+            return "Feedback message should be at least " + MIN_MESSAGE_LENGTH + " characters long.";
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Validates a complete submission
+     * @param category The selected category
+     * @param message The message as entered
+     * @param rating The selected rating
+     * @return Error message to show the user, or null if the submission is valid
+     */
+    public static String validate(String category, String message, int rating) {
+        if (category == null || !CATEGORIES.contains(category)) {
+            return "Please select one of the categories: " + String.join(", ", CATEGORIES) + ".";
+        }
+        
+        if (rating < MIN_RATING || rating > MAX_RATING) {
+            return "Rating should be between " + MIN_RATING + " and " + MAX_RATING + ".";
+        }
+        
+        return validateMessage(message);
+    }
+}
\ No newline at end of file
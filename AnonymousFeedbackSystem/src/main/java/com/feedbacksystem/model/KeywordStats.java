@@ -0,0 +1,45 @@
+package com.feedbacksystem.model;
+
+/**
+ * How many feedback entries of a category use a keyword, and how positive
+ * they are on average
+ */
+public class KeywordStats {
+    private final String category;
+    private final String term;
+    private final long documents;
+    private final double sentimentSum;
+    
+    /**
+     * @param category The category, or null when counted over all categories
+     * @param term The keyword or two-word phrase
+     * @param documents Number of entries using it
+     * @param sentimentSum Sum of the sentiment scores of those entries
+     */
+    public KeywordStats(String category, String term, long documents, double sentimentSum) {
+        this.category = category;
+        this.term = term;
+        this.documents = documents;
+        this.sentimentSum = sentimentSum;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public String getTerm() {
+        return term;
+    }
+    
+    public long getDocuments() {
+        return documents;
+    }
+    
+    /**
+     * Returns the average sentiment of the entries using the keyword
+     * @return Average score from -1 to 1, or 0 if there are none
+     */
+    public double getAverageSentiment() {
+        return documents > 0 ? sentimentSum / documents : 0;
+    }
+}
\ No newline at end of file
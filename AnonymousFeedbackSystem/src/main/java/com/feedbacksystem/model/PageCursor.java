@@ -0,0 +1,41 @@
+package com.feedbacksystem.model;
+
+/**
+ * Keyset position within the feedback list, which is ordered by
+ * (date_submitted, id) descending. A page fetched "after" a cursor starts
+ * with the first row that sorts strictly after it.
+ */
+public class PageCursor {
+    private final long dateSubmitted;
+    private final int id;
+    
+    public PageCursor(long dateSubmitted, int id) {
+        this.dateSubmitted = dateSubmitted;
+        this.id = id;
+    }
+    
+    /**
+     * Creates a cursor positioned at the given feedback entry
+     * @param feedback The last entry of a page
+     * @return Cursor pointing at that entry
+     */
+    public static PageCursor of(Feedback feedback) {
+        return new PageCursor(feedback.getDateSubmitted().getTime(), feedback.getId());
+    }
+    
+    public long getDateSubmitted() {
+        return dateSubmitted;
+    }
+    
+    public int getId() {
+        return id;
+    }
+    
+    @Override
+    public String toString() {
+        return "PageCursor{" +
+                "dateSubmitted=" + dateSubmitted +
+                ", id=" + id +
+                '}';
+    }
+}
\ No newline at end of file
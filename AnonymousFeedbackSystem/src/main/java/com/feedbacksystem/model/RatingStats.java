@@ -0,0 +1,73 @@
+package com.feedbacksystem.model;
+
+import java.util.Arrays;
+
+/**
+ * Aggregated ratings for a category, a day, or both
+ */
+public class RatingStats {
+    private final String category;
+    private final long day;
+    private final long count;
+    private final long ratingSum;
+    private final long[] histogram;
+    
+    /**
+     * @param category The category, or null when aggregated over all categories
+     * @param day UTC epoch day, or -1 when aggregated over all days
+     * @param count Number of feedback entries
+     * @param ratingSum Sum of their ratings
+     * @param histogram Number of entries per rating, index 0 holding rating 1
+     */
+    public RatingStats(String category, long day, long count, long ratingSum, long[] histogram) {
+        this.category = category;
+        this.day = day;
+        this.count = count;
+        this.ratingSum = ratingSum;
+        this.histogram = histogram;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public long getDay() {
+        return day;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public long getRatingSum() {
+        return ratingSum;
+    }
+    
+    /**
+     * Returns the average rating
+     * @return Average rating, or 0 if there are no entries
+     */
+    public double getAverageRating() {
+        return count > 0 ? (double) ratingSum / count : 0;
+    }
+    
+    /**
+     * Returns the number of entries with a given rating
+     * @param rating Rating from FeedbackValidator.MIN_RATING to MAX_RATING
+     * @return Number of entries
+     */
+    public long getRatingCount(int rating) {
+        return histogram[rating - FeedbackValidator.MIN_RATING];
+    }
+    
+    @Override
+    public String toString() {
+        return "RatingStats{" +
+                "category='" + category + '\'' +
+                ", day=" + day +
+                ", count=" + count +
+                ", ratingSum=" + ratingSum +
+                ", histogram=" + Arrays.toString(histogram) +
+                '}';
+    }
+}
\ No newline at end of file
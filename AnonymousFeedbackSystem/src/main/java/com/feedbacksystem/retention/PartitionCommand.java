@@ -0,0 +1,105 @@
+package com.feedbacksystem.retention;
+
+import com.feedbacksystem.dao.PartitionDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.Partition;
+import com.feedbacksystem.db.PartitionStore;
+import java.sql.SQLException;
+import java.time.Instant;
+
+/**
+ * Inspects and maintains the archive partitions from the command line.
+ * Requires partition.enabled in feedback.properties.
+ *
+ * Usage: java com.feedbacksystem.retention.PartitionCommand [--db FILE] list|archive|drop KEY
+ * archive moves feedback older than the hot window into the archive without
+ * purging anything; drop deletes one partition and the feedback in it.
+ */
+public class PartitionCommand {
+    private static final String USAGE =
+            "Usage: java com.feedbacksystem.retention.PartitionCommand [--db FILE] list|archive|drop KEY";
+    private static final int CHUNK_SIZE = 500;
+    
+    public static void main(String[] args) throws SQLException {
+        System.setProperty("java.awt.headless", "true");
+        
+        String command = null;
+        String key = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if ("--db".equals(arg)) {
+                    DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + value(args, ++i));
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                } else if (command == null) {
+                    command = arg;
+                } else if ("drop".equals(command) && key == null) {
+                    key = arg;
+                } else {
+                    throw new IllegalArgumentException("Unexpected argument: " + arg);
+                }
+            }
+            if (command == null) {
+                throw new IllegalArgumentException("No command given");
+            }
+            if ("drop".equals(command) && key == null) {
+                throw new IllegalArgumentException("No partition given");
+            }
+            if (!"list".equals(command) && !"archive".equals(command) && !"drop".equals(command)) {
+                throw new IllegalArgumentException("Unknown command: " + command);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+        
+        PartitionStore partitions = DatabaseManager.getPartitions();
+        if (partitions == null) {
+            System.out.println("Partitioned storage is disabled; set partition.enabled in feedback.properties.");
+            return;
+        }
+        
+        try {
+            if ("list".equals(command)) {
+                for (Partition partition : partitions.list()) {
+                    System.out.println(partition.getKey() + "  " +
+                                       Instant.ofEpochMilli(partition.getStartMillis()) + " - " +
+                                       Instant.ofEpochMilli(partition.getEndMillis()) + "  " +
+                                       partition.getFile().length() + " bytes");
+                }
+            } else if ("archive".equals(command)) {
+                long cutoff = partitions.getArchiveCutoff(System.currentTimeMillis());
+                PartitionDAO partitionDAO = new PartitionDAO();
+                long archived = 0;
+                int chunk;
+                do {
+                    chunk = partitionDAO.archiveChunk(partitions, cutoff, CHUNK_SIZE);
+                    archived += chunk;
+                } while (chunk > 0);
+                System.out.println("Archived " + archived + " feedback entries submitted before " +
+                                   Instant.ofEpochMilli(cutoff));
+            } else {
+                for (Partition partition : partitions.list()) {
+                    if (partition.getKey().equals(key)) {
+                        System.out.println("Dropped " + key + ", " + partitions.drop(partition) + " bytes freed");
+                        return;
+                    }
+                }
+                System.err.println("No partition " + key);
+                System.exit(1);
+            }
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+    }
+    
+    private static String value(String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[index - 1]);
+        }
+        return args[index];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,85 @@
+package com.feedbacksystem.retention;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of one retention purge
+ */
+public class PurgeReport {
+    private final Map<String, Long> rowsDeleted;
+    private final long rowsArchived;
+    private final int partitionsDropped;
+    private final long tombstonesPruned;
+    private final long bytesFreed;
+    private final long elapsedMillis;
+    private final boolean completed;
+    
+    /**
+     * @param rowsDeleted Feedback entries deleted by category
+     * @param rowsArchived Feedback entries moved into archive partitions
+     * @param partitionsDropped Archive partitions deleted because all their feedback expired
+     * @param tombstonesPruned Deletion records removed from feedback_tombstone
+     * @param bytesFreed Bytes released back to the file system by incremental vacuum and dropped partitions
+     * @param elapsedMillis Duration of the purge
+     * @param completed false if the purge was interrupted before it finished
+     */
+    public PurgeReport(Map<String, Long> rowsDeleted, long rowsArchived, int partitionsDropped,
+                       long tombstonesPruned, long bytesFreed, long elapsedMillis, boolean completed) {
+        this.rowsDeleted = Collections.unmodifiableMap(new LinkedHashMap<>(rowsDeleted));
+        this.rowsArchived = rowsArchived;
+        this.partitionsDropped = partitionsDropped;
+        this.tombstonesPruned = tombstonesPruned;
+        this.bytesFreed = bytesFreed;
+        this.elapsedMillis = elapsedMillis;
+        this.completed = completed;
+    }
+    
+    public Map<String, Long> getRowsDeleted() {
+        return rowsDeleted;
+    }
+    
+    /**
+     * @return Feedback entries deleted across all categories
+     */
+    public long getTotalRowsDeleted() {
+        long total = 0;
+        for (long rows : rowsDeleted.values()) {
+            total += rows;
+        }
+        return total;
+    }
+    
+    public long getRowsArchived() {
+        return rowsArchived;
+    }
+    
+    public int getPartitionsDropped() {
+        return partitionsDropped;
+    }
+    
+    public long getTombstonesPruned() {
+        return tombstonesPruned;
+    }
+    
+    public long getBytesFreed() {
+        return bytesFreed;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+    
+    public boolean isCompleted() {
+        return completed;
+    }
+    
+    @Override
+    public String toString() {
+        return "Retention purge " + (completed ? "finished" : "interrupted") + " in " + elapsedMillis + " ms: " +
+                getTotalRowsDeleted() + " feedback entries deleted " + rowsDeleted + ", " +
+                rowsArchived + " archived, " + partitionsDropped + " partitions dropped, " +
+                tombstonesPruned + " tombstones pruned, " + bytesFreed + " bytes freed";
+    }
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.feedbacksystem.retention;
+
+import com.feedbacksystem.dao.RetentionDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Runs the retention purge once from the command line, e.g. from a nightly
+ * scheduled task, using the policy in feedback.properties.
+ *
+ * Usage: java com.feedbacksystem.retention.RetentionCommand [--dry-run] [database-file]
+ * With --dry-run, only reports how many entries of each category have expired.
+ */
+public class RetentionCommand {
+    
+    public static void main(String[] args) throws SQLException {
+        boolean dryRun = false;
+        String database = null;
+        for (String arg : args) {
+            if ("--dry-run".equals(arg)) {
+                dryRun = true;
+            } else {
+                database = arg;
+            }
+        }
+        if (database != null) {
+            DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database);
+        }
+        
+        RetentionService service = RetentionService.fromConfig();
+        RetentionPolicy policy = service.getPolicy();
+        if (policy.isEmpty() && DatabaseManager.getPartitions() == null) {
+            System.out.println("No retention policy configured; set retention.maxAgeDays in feedback.properties.");
+            return;
+        }
+        
+        try {
+            if (dryRun) {
+                RetentionDAO retentionDAO = new RetentionDAO();
+                long now = System.currentTimeMillis();
+                for (Map.Entry<String, Integer> entry : policy.getMaxAgeDays().entrySet()) {
+                    int expired = retentionDAO.countExpired(entry.getKey(), policy.getCutoff(entry.getKey(), now));
+                    System.out.println(entry.getKey() + ": " + expired + " entries older than " +
+                                       entry.getValue() + " days");
+                }
+            } else {
+                System.out.println(service.purge());
+            }
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+    }
+}
\ No newline at end of file
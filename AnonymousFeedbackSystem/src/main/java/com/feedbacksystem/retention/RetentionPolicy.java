@@ -0,0 +1,73 @@
+package com.feedbacksystem.retention;
+
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.model.FeedbackValidator;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How long feedback of each category is kept. Read from feedback.properties:
+ * retention.maxAgeDays applies to every category and
+ * retention.maxAgeDays.&lt;Category&gt; overrides it for one, e.g.
+ * retention.maxAgeDays.Teacher=730. A value of 0 keeps feedback forever.
+ */
+public class RetentionPolicy {
+    private final Map<String, Integer> maxAgeDays;
+    
+    /**
+     * @param maxAgeDays Maximum age in days by category; categories not listed are kept forever
+     */
+    public RetentionPolicy(Map<String, Integer> maxAgeDays) {
+        this.maxAgeDays = Collections.unmodifiableMap(new LinkedHashMap<>(maxAgeDays));
+    }
+    
+    /**
+     * Reads the policy of every known category from the application settings
+     * @return RetentionPolicy, empty if retention is not configured
+     */
+    public static RetentionPolicy fromConfig() {
+        int defaultDays = AppConfig.getInt("retention.maxAgeDays", 0);
+        Map<String, Integer> maxAgeDays = new LinkedHashMap<>();
+        for (String category : FeedbackValidator.CATEGORIES) {
+            int days = AppConfig.getInt("retention.maxAgeDays." + category, defaultDays);
+            if (days > 0) {
+                maxAgeDays.put(category, days);
+            }
+        }
+        return new RetentionPolicy(maxAgeDays);
+    }
+    
+    /**
+     * @return Maximum age in days by category, only for categories that expire
+     */
+    public Map<String, Integer> getMaxAgeDays() {
+        return maxAgeDays;
+    }
+    
+    /**
+     * Returns the time before which feedback of a category has expired
+     * @param category The category
+     * @param nowMillis The current time
+     * @return Cutoff time in epoch milliseconds, or -1 if the category never expires
+     */
+    public long getCutoff(String category, long nowMillis) {
+        Integer days = maxAgeDays.get(category);
+        return days != null ? nowMillis - TimeUnit.DAYS.toMillis(days) : -1;
+    }
+    
+    /**
+     * @return true if no category expires
+     */
+    public boolean isEmpty() {
+        return maxAgeDays.isEmpty();
+    }
+    
+    @Override
+    public String toString() {
+        return "RetentionPolicy{" +
+                "maxAgeDays=" + maxAgeDays +
+                '}';
+    }
+}
\ No newline at end of file
@@ -0,0 +1,255 @@
+package com.feedbacksystem.retention;
+
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.dao.PartitionDAO;
+import com.feedbacksystem.dao.RetentionDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.Partition;
+import com.feedbacksystem.db.PartitionStore;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes feedback older than the retention policy allows.
+ *
+ * Expired rows are deleted oldest first in chunks, each in its own short
+ * transaction, with a pause in between so submissions keep flowing while a
+ * large backlog is purged. Afterwards old tombstones are pruned and the
+ * freed pages are returned to the file system with incremental vacuum, also
+ * a few pages at a time.
+ *
+ * With partitioned storage the purge also moves feedback older than the hot
+ * window into the archive, in chunks like the deletes. An archive partition
+ * whose feedback has all expired is dropped whole; others are purged the
+ * same way as the main database.
+ */
+public class RetentionService {
+    private final RetentionDAO retentionDAO;
+    private final PartitionDAO partitionDAO = new PartitionDAO();
+    private final PartitionStore partitions;
+    private final RetentionPolicy policy;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final int keepTombstones;
+    private final int vacuumPages;
+    private ScheduledExecutorService scheduler;
+    
+    /**
+     * @param retentionDAO DAO used to delete and vacuum
+     * @param policy Maximum age of each category
+     * @param partitions The archive, or null if partitioned storage is disabled
+     * @param chunkSize Maximum number of rows deleted per transaction
+     * @param pauseMillis Pause between transactions, leaving the writer to other work
+     * @param keepTombstones Number of newest tombstones kept for dashboard refreshes
+     * @param vacuumPages Maximum number of pages released per vacuum step
+     */
+    public RetentionService(RetentionDAO retentionDAO, RetentionPolicy policy, PartitionStore partitions,
+                            int chunkSize, long pauseMillis, int keepTombstones, int vacuumPages) {
+        this.retentionDAO = retentionDAO;
+        this.policy = policy;
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.pauseMillis = pauseMillis;
+        this.keepTombstones = keepTombstones;
+        this.vacuumPages = vacuumPages;
+    }
+    
+    /**
+     * Creates a service configured from feedback.properties
+     * (retention.chunkSize, retention.pauseMillis, retention.keepTombstones,
+     * retention.vacuumPages and the policy keys read by RetentionPolicy),
+     * archiving into the application's partitions if enabled
+     * @return New RetentionService
+     */
+    public static RetentionService fromConfig() {
+        return new RetentionService(new RetentionDAO(), RetentionPolicy.fromConfig(),
+                DatabaseManager.getPartitions(),
+                AppConfig.getInt("retention.chunkSize", 500),
+                AppConfig.getLong("retention.pauseMillis", 10),
+                AppConfig.getInt("retention.keepTombstones", 10000),
+                AppConfig.getInt("retention.vacuumPages", 256));
+    }
+    
+    /**
+     * Starts the configured purge schedule (retention.intervalMinutes) if a
+     * retention policy is configured or partitioned storage is enabled, and
+     * stops it when the JVM exits
+     * @return The running service, or null if nothing expires or is archived
+     */
+    public static RetentionService startFromConfig() {
+        final RetentionService service = fromConfig();
+        if (service.policy.isEmpty() && service.partitions == null) {
+            return null;
+        }
+        service.start(AppConfig.getLong("retention.intervalMinutes", 60));
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                service.stop();
+            }
+        }, "feedback-retention-shutdown"));
+        return service;
+    }
+    
+    /**
+     * Runs the purge periodically on a background thread, starting one
+     * minute from now so it does not compete with application startup
+     * @param intervalMinutes Minutes between the end of one purge and the start of the next
+     */
+    public synchronized void start(long intervalMinutes) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "feedback-retention");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PurgeReport report = purge();
+                    if (report.getTotalRowsDeleted() > 0 || report.getRowsArchived() > 0
+                            || report.getBytesFreed() > 0) {
+                        System.out.println(report);
+                    }
+                } catch (SQLException e) {
+                    // Try again at the next run
+                    e.printStackTrace();
+                }
+            }
+        }, 1, intervalMinutes, TimeUnit.MINUTES);
+    }
+    
+    /**
+     * Stops the schedule, interrupting a purge in progress after its current transaction
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Deletes the expired feedback of every category, archives feedback
+     * older than the hot window, prunes old tombstones and releases the
+     * freed space. Stops early if the thread is interrupted.
+     * @return PurgeReport describing what was removed
+     * @throws SQLException if database operation fails
+     */
+    public PurgeReport purge() throws SQLException {
+        long start = System.currentTimeMillis();
+        Map<String, Long> rowsDeleted = new LinkedHashMap<>();
+        long rowsArchived = 0;
+        int partitionsDropped = 0;
+        long tombstonesPruned = 0;
+        long bytesFreed = 0;
+        boolean completed = false;
+        
+        try {
+            // One cutoff for the whole run, so rows submitted meanwhile are not chased
+            long now = System.currentTimeMillis();
+            for (String category : policy.getMaxAgeDays().keySet()) {
+                long cutoff = policy.getCutoff(category, now);
+                long deleted = 0;
+                int chunk;
+                do {
+                    chunk = retentionDAO.purgeExpired(category, cutoff, chunkSize);
+                    deleted += chunk;
+                    pause();
+                } while (chunk == chunkSize);
+                rowsDeleted.put(category, deleted);
+            }
+            
+            if (partitions != null) {
+                long archiveCutoff = partitions.getArchiveCutoff(now);
+                int chunk;
+                do {
+                    // A chunk stops at the end of a partition, so only an empty one means done
+                    chunk = partitionDAO.archiveChunk(partitions, archiveCutoff, chunkSize);
+                    rowsArchived += chunk;
+                    pause();
+                } while (chunk > 0);
+                
+                for (Partition partition : partitions.list()) {
+                    if (isExpired(partition, now)) {
+                        bytesFreed += partitions.drop(partition);
+                        partitionsDropped++;
+                        continue;
+                    }
+                    for (String category : policy.getMaxAgeDays().keySet()) {
+                        long cutoff = policy.getCutoff(category, now);
+                        if (cutoff <= partition.getStartMillis()) {
+                            continue;
+                        }
+                        long deleted = 0;
+                        do {
+                            chunk = partitionDAO.purgeExpired(partitions, partition, category, cutoff, chunkSize);
+                            deleted += chunk;
+                            pause();
+                        } while (chunk == chunkSize);
+                        rowsDeleted.put(category, rowsDeleted.get(category) + deleted);
+                    }
+                }
+            }
+            
+            int pruned;
+            do {
+                pruned = retentionDAO.pruneTombstones(keepTombstones, chunkSize);
+                tombstonesPruned += pruned;
+                pause();
+            } while (pruned == chunkSize);
+            
+            long pageSize = retentionDAO.getPageSize();
+            long released;
+            do {
+                released = retentionDAO.incrementalVacuum(vacuumPages);
+                bytesFreed += released * pageSize;
+                pause();
+            } while (released > 0);
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        
+        return new PurgeReport(rowsDeleted, rowsArchived, partitionsDropped, tombstonesPruned, bytesFreed,
+                               System.currentTimeMillis() - start, completed);
+    }
+    
+    /**
+     * A partition has expired once every category in it expires no later
+     * than the partition's end
+     */
+    private boolean isExpired(Partition partition, long nowMillis) throws SQLException {
+        for (String category : partitionDAO.getCategories(partitions, partition)) {
+            long cutoff = policy.getCutoff(category, nowMillis);
+            if (cutoff < partition.getEndMillis()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void pause() throws InterruptedException {
+        if (pauseMillis > 0) {
+            Thread.sleep(pauseMillis);
+        } else if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+    
+    public RetentionPolicy getPolicy() {
+        return policy;
+    }
+}
\ No newline at end of file
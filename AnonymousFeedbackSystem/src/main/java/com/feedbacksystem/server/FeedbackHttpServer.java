@@ -0,0 +1,270 @@
+package com.feedbacksystem.server;
+
+import com.feedbacksystem.analysis.FeedbackAnalysisService;
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.config.AppConfig;
+import com.feedbacksystem.ingest.DuplicateFeedbackException;
+import com.feedbacksystem.ingest.FeedbackIngestor;
+import com.feedbacksystem.metrics.Metrics;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackValidator;
+import com.feedbacksystem.retention.RetentionService;
+import com.feedbacksystem.util.SimpleJson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+/**
+ * Headless HTTP server for submitting feedback from phones and browsers.
+ *
+ * Exposes POST /feedback accepting {"category": ..., "message": ..., "rating": ...}.
+ * Submissions get the same validation as the Swing form and are written
+ * through the group-commit FeedbackIngestor, so thousands of concurrent
+ * requests share a handful of transactions. Handlers run on virtual
+ * threads where available and never wait on the database: the response is
+ * sent when the ingestor's future completes. No AWT classes are loaded.
+ *
+ * GET /metrics returns the DAO, connection and submission metrics in the
+ * Prometheus text format when server.metricsEnabled=true. It is off by
+ * default: the endpoint has no authentication and shares the port that
+ * anonymous students submit on.
+ *
+ * Settings: server.port (8080), server.backlog (1024),
+ * server.maxBodyBytes (16384), server.metricsEnabled (false).
+ */
+public class FeedbackHttpServer {
+    private final HttpServer server;
+    private final ExecutorService executor;
+    
+    /**
+     * Creates a server bound to the given port
+     * @param port TCP port to listen on
+     * @param backlog Maximum number of pending connections
+     * @param ingestor Ingestor that writes accepted submissions
+     * @param maxBodyBytes Largest request body accepted
+     * @throws IOException if the port cannot be bound
+     */
+    public FeedbackHttpServer(int port, int backlog, FeedbackIngestor ingestor, int maxBodyBytes) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), backlog);
+        executor = BackgroundExecutor.newExecutor("feedback-http");
+        server.setExecutor(executor);
+        server.createContext("/feedback", new SubmitHandler(ingestor, maxBodyBytes));
+        if (AppConfig.getBoolean("server.metricsEnabled", false)) {
+            server.createContext("/metrics", new MetricsHandler());
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stops accepting connections and waits briefly for in-flight requests
+     */
+    public void stop() {
+        server.stop(2);
+        executor.shutdown();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    /**
+     * Handles POST /feedback
+     */
+    static class SubmitHandler implements HttpHandler {
+        private final FeedbackIngestor ingestor;
+        private final int maxBodyBytes;
+        
+        SubmitHandler(FeedbackIngestor ingestor, int maxBodyBytes) {
+            this.ingestor = ingestor;
+            this.maxBodyBytes = maxBodyBytes;
+        }
+        
+        @Override
+        public void handle(final HttpExchange exchange) throws IOException {
+            try {
+                if (!"POST".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", "POST");
+                    sendError(exchange, 405, "Only POST is supported");
+                    return;
+                }
+                
+                String body = readBody(exchange.getRequestBody());
+                if (body == null) {
+                    sendError(exchange, 413, "Request body is too large");
+                    return;
+                }
+                
+                Feedback feedback;
+                try {
+                    feedback = parseFeedback(body);
+                } catch (IllegalArgumentException e) {
+                    sendError(exchange, 400, e.getMessage());
+                    return;
+                }
+                
+                ingestor.submit(feedback).whenComplete(new BiConsumer<Feedback, Throwable>() {
+                    @Override
+                    public void accept(Feedback stored, Throwable error) {
+                        sendResult(exchange, stored, error);
+                    }
+                });
+            } catch (IOException | RuntimeException e) {
+                sendError(exchange, 500, "Internal server error");
+                throw e;
+            }
+        }
+        
+        /**
+         * Reads the request body, or returns null if it exceeds the size limit
+         */
+        private String readBody(InputStream in) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (out.size() + read > maxBodyBytes) {
+                    return null;
+                }
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+        
+        /**
+         * Builds and validates a submission from the JSON request body
+         * @throws IllegalArgumentException with a user-facing message if invalid
+         */
+        private Feedback parseFeedback(String body) {
+            Map<String, Object> json = SimpleJson.parseObject(body);
+            
+            Object category = json.get("category");
+            Object message = json.get("message");
+            Object rating = json.get("rating");
+            if (!(category instanceof String) || !(message instanceof String) || !(rating instanceof Double)) {
+                throw new IllegalArgumentException(
+                        "Expected a JSON object with string \"category\", string \"message\" and numeric \"rating\"");
+            }
+            
+            double ratingValue = (Double) rating;
+            if (ratingValue != Math.rint(ratingValue)) {
+                throw new IllegalArgumentException("Rating should be a whole number.");
+            }
+            
+            String error = FeedbackValidator.validate((String) category, (String) message, (int) ratingValue);
+            if (error != null) {
+                throw new IllegalArgumentException(error);
+            }
+            
+            return new Feedback((String) category, ((String) message).trim(), (int) ratingValue, new Date());
+        }
+        
+        private void sendResult(HttpExchange exchange, Feedback stored, Throwable error) {
+            if (error instanceof CompletionException && error.getCause() != null) {
+                error = error.getCause();
+            }
+            
+            if (error == null && stored.getId() == 0) {
+                // Accepted into the submission log or journal; stored in the database shortly
+                send(exchange, 202, "{\"status\":\"accepted\"}");
+            } else if (error == null) {
+                send(exchange, 201, "{\"id\":" + stored.getId() + "}");
+            } else if (error instanceof RejectedExecutionException) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Too many submissions right now, please try again");
+            } else if (error instanceof DuplicateFeedbackException) {
+                sendError(exchange, 409, error.getMessage());
+            } else {
+                if (!(error instanceof SQLException)) {
+                    error.printStackTrace();
+                }
+                sendError(exchange, 500, "Feedback could not be stored");
+            }
+        }
+        
+        private void sendError(HttpExchange exchange, int status, String message) {
+            send(exchange, status, "{\"error\":" + SimpleJson.quote(message) + "}");
+        }
+        
+        private void send(HttpExchange exchange, int status, String json) {
+            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (IOException e) {
+                // The client went away; nothing left to tell it
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+    
+    /**
+     * Handles GET /metrics
+     */
+    static class MetricsHandler implements HttpHandler {
+        
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.getResponseHeaders().set("Allow", "GET");
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                
+                StringBuilder text = new StringBuilder(8192);
+                Metrics.writePrometheus(text);
+                byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws IOException {
+        // Server mode never opens a window
+        System.setProperty("java.awt.headless", "true");
+        
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : AppConfig.getInt("server.port", 8080);
+        final FeedbackHttpServer httpServer = new FeedbackHttpServer(port,
+                AppConfig.getInt("server.backlog", 1024),
+                FeedbackIngestor.getShared(),
+                AppConfig.getInt("server.maxBodyBytes", 16384));
+        
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                httpServer.stop();
+            }
+        }, "feedback-http-shutdown"));
+        
+        httpServer.start();
+        RetentionService.startFromConfig();
+        FeedbackAnalysisService.startFromConfig();
+        System.out.println("Feedback server listening on port " + httpServer.getPort());
+    }
+}
\ No newline at end of file
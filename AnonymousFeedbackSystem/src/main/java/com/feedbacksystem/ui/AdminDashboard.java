@@ -1,17 +1,40 @@
 package com.feedbacksystem.ui;
 
-import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.analytics.TrendEngine;
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.dao.FeedbackRepository;
+import com.feedbacksystem.dao.Repositories;
+import com.feedbacksystem.dao.StatsRepository;
+import com.feedbacksystem.events.FeedbackEvent;
+import com.feedbacksystem.events.FeedbackEvents;
+import com.feedbacksystem.events.FeedbackListener;
+import com.feedbacksystem.export.FeedbackExporter;
+import com.feedbacksystem.ingest.FeedbackIngestor;
 import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackChanges;
+import com.feedbacksystem.model.FeedbackSnapshot;
+import com.feedbacksystem.model.RatingStats;
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.io.File;
+import java.io.InterruptedIOException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Admin dashboard for viewing and managing feedback
@@ -19,25 +42,87 @@ import java.util.List;
 public class AdminDashboard extends JFrame {
     private AdminLoginForm adminLoginForm;
     private JTable feedbackTable;
-    private DefaultTableModel tableModel;
+    private FeedbackTableModel tableModel;
+    private RatingStatsTableModel categoryStatsModel;
+    private RatingStatsTableModel dailyStatsModel;
+    private TrendTableModel trendModel;
     private JComboBox<String> categoryFilterComboBox;
+    private JTextField searchField;
+    private JButton searchButton;
+    private JButton clearSearchButton;
     private JButton refreshButton;
     private JButton deleteButton;
+    private JButton exportButton;
+    private JButton analysisButton;
     private JButton backButton;
-    private FeedbackDAO feedbackDAO;
+    private JProgressBar progressBar;
+    private JLabel journalLabel;
+    private JLabel archiveLabel;
+    private FeedbackRepository feedbackRepository;
+    private FeedbackIngestor feedbackIngestor;
+    private StatsRepository statsRepository;
+    // Rating trends, kept current from the change feed while the dashboard is open
+    private TrendEngine trendEngine;
+    // Latest load/filter request; superseded requests are cancelled
+    private SwingWorker<?, ?> loadWorker;
+    private SwingWorker<List<RatingStats>, Void> statsWorker;
+    // Search applied to the table, or null to list all entries
+    private String searchQuery;
+    // Change mark of the rows shown, so Refresh can fetch only what changed; -1 if unknown
+    private long dataVersion = -1;
+    private int lastSeenId;
+    private String markCategory;
+    private int busyTasks;
+    // Writes pushed by the event bus, applied together once per frame
+    private final ConcurrentLinkedQueue<FeedbackEvent> liveEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean liveFlushScheduled = new AtomicBoolean();
+    private final FeedbackListener liveListener = new FeedbackListener() {
+        @Override
+        public void feedbackChanged(FeedbackEvent event) {
+            liveEvents.add(event);
+            if (liveFlushScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        liveTimer.start();
+                    }
+                });
+            }
+        }
+    };
+    private Timer liveTimer;
+    private Timer liveStatsTimer;
+    private Timer journalTimer;
     
-    // Table column names
-    private static final String[] COLUMN_NAMES = {"ID", "Category", "Feedback", "Rating", "Date"};
     // Category filter options
-    private static final String[] FILTER_OPTIONS = {"All Categories", "Teacher", "Event", "Facility", "Other"};
+    static final String[] FILTER_OPTIONS = {"All Categories", "Teacher", "Event", "Facility", "Other"};
+    // Number of days shown in the daily statistics, including today
+    private static final int STATS_DAYS = 14;
+    // Pushed writes arriving within one frame are applied as a single table change
+    private static final int LIVE_FRAME_MILLIS = 16;
+    // Statistics follow pushed writes at most this often
+    private static final int LIVE_STATS_MILLIS = 1000;
+    // How often the submission journal's backlog is shown anew
+    private static final int JOURNAL_MILLIS = 2000;
+    // Oldest data version first, the order the writes were committed in
+    private static final Comparator<FeedbackEvent> BY_VERSION = new Comparator<FeedbackEvent>() {
+        @Override
+        public int compare(FeedbackEvent a, FeedbackEvent b) {
+            return Long.compare(a.getToVersion(), b.getToVersion());
+        }
+    };
     
     public AdminDashboard(AdminLoginForm adminLoginForm) {
         this.adminLoginForm = adminLoginForm;
-        this.feedbackDAO = new FeedbackDAO();
+        this.feedbackRepository = Repositories.feedback();
+        this.statsRepository = Repositories.stats();
+        this.feedbackIngestor = FeedbackIngestor.getShared();
+        this.trendEngine = TrendEngine.fromConfig();
         initializeComponents();
         setupLayout();
         setupEventHandlers();
         setupWindow();
+        FeedbackEvents.subscribe(liveListener);
         loadFeedbackData();
     }
     
@@ -46,28 +131,71 @@ public class AdminDashboard extends JFrame {
      */
     private void initializeComponents() {
         // Initialize table model and table
-        tableModel = new DefaultTableModel(COLUMN_NAMES, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        tableModel = new FeedbackTableModel(feedbackRepository);
         
         feedbackTable = new JTable(tableModel);
         feedbackTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         feedbackTable.getTableHeader().setReorderingAllowed(false);
         feedbackTable.setFont(new Font("Arial", Font.PLAIN, 12));
-        feedbackTable.setRowHeight(20);
+        feedbackTable.setRowHeight(Math.max(20, MessageCellRenderer.preferredRowHeight(feedbackTable)));
+        for (int i = 0; i < feedbackTable.getColumnCount(); i++) {
+            feedbackTable.getColumnModel().getColumn(i).setPreferredWidth(150);
+        }
+        feedbackTable.getColumnModel().getColumn(FeedbackTableModel.MESSAGE_COLUMN)
+                     .setCellRenderer(new MessageCellRenderer());
+        feedbackTable.getColumnModel().getColumn(FeedbackTableModel.MESSAGE_COLUMN).setPreferredWidth(400);
+        feedbackTable.getColumnModel().getColumn(FeedbackTableModel.DATE_COLUMN)
+                     .setCellRenderer(new DateCellRenderer());
+        
+        // Initialize statistics tables
+        categoryStatsModel = new RatingStatsTableModel("Category");
+        dailyStatsModel = new RatingStatsTableModel("Day");
+        trendModel = new TrendTableModel();
         
         // Initialize filter combo box
         categoryFilterComboBox = new JComboBox<>(FILTER_OPTIONS);
         
+        // Initialize search field
+        searchField = new JTextField(20);
+        searchField.setToolTipText("Words to find in feedback messages; end a word with * to match prefixes");
+        
+        // Progress indicator shown while database work runs in the background
+        progressBar = new JProgressBar();
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
+        
+        // Submissions this process journaled because the database did not take them in time
+        journalLabel = new JLabel();
+        journalLabel.setForeground(new Color(180, 90, 0)); // Dark orange
+        journalLabel.setToolTipText("Stored in the database automatically once it accepts writes again");
+        journalLabel.setVisible(false);
+        
+        // Feedback moved to archive partitions, which the list and search leave out
+        archiveLabel = new JLabel();
+        archiveLabel.setForeground(Color.GRAY);
+        archiveLabel.setToolTipText("Older feedback in the archive is counted in the statistics and included in exports");
+        archiveLabel.setVisible(false);
+        
         // Initialize buttons
+        searchButton = new JButton("Search");
+        clearSearchButton = new JButton("Clear");
         refreshButton = new JButton("Refresh");
         deleteButton = new JButton("Delete Selected");
+        exportButton = new JButton("Export...");
+        analysisButton = new JButton("Text Analysis...");
         backButton = new JButton("Logout");
         
         // Set button colors for better visibility
+        searchButton.setBackground(Color.WHITE);
+        searchButton.setForeground(Color.BLACK);
+        searchButton.setFont(new Font("Arial", Font.BOLD, 12));
+        searchButton.setFocusPainted(false);
+        
+        clearSearchButton.setBackground(Color.WHITE);
+        clearSearchButton.setForeground(Color.BLACK);
+        clearSearchButton.setFont(new Font("Arial", Font.BOLD, 12));
+        clearSearchButton.setFocusPainted(false);
+        
         refreshButton.setBackground(Color.WHITE);
         refreshButton.setForeground(Color.BLACK);
         refreshButton.setFont(new Font("Arial", Font.BOLD, 12));
@@ -78,6 +206,16 @@ public class AdminDashboard extends JFrame {
         deleteButton.setFont(new Font("Arial", Font.BOLD, 12));
         deleteButton.setFocusPainted(false);
         
+        exportButton.setBackground(Color.WHITE);
+        exportButton.setForeground(Color.BLACK);
+        exportButton.setFont(new Font("Arial", Font.BOLD, 12));
+        exportButton.setFocusPainted(false);
+        
+        analysisButton.setBackground(Color.WHITE);
+        analysisButton.setForeground(Color.BLACK);
+        analysisButton.setFont(new Font("Arial", Font.BOLD, 12));
+        analysisButton.setFocusPainted(false);
+        
         backButton.setBackground(Color.WHITE);
         backButton.setForeground(Color.BLACK);
         backButton.setFont(new Font("Arial", Font.BOLD, 12));
@@ -97,28 +235,88 @@ public class AdminDashboard extends JFrame {
         topPanel.setBackground(new Color(245, 245, 245)); // Light gray
         topPanel.add(new JLabel("Filter by Category:"));
         topPanel.add(categoryFilterComboBox);
+        topPanel.add(new JLabel("Search:"));
+        topPanel.add(searchField);
+        topPanel.add(searchButton);
+        topPanel.add(clearSearchButton);
         topPanel.add(refreshButton);
+        topPanel.add(progressBar);
+        topPanel.add(journalLabel);
+        topPanel.add(archiveLabel);
         
         add(topPanel, BorderLayout.NORTH);
         
         // Create table scroll pane
         JScrollPane tableScrollPane = new JScrollPane(feedbackTable);
         tableScrollPane.setBorder(BorderFactory.createTitledBorder("Feedback Entries"));
-        add(tableScrollPane, BorderLayout.CENTER);
+        
+        // Create statistics panel below the table
+        JPanel statsPanel = new JPanel(new GridLayout(1, 3, 10, 0));
+        statsPanel.add(createStatsScrollPane(categoryStatsModel, "Ratings by Category"));
+        statsPanel.add(createStatsScrollPane(dailyStatsModel, "Ratings by Day (last " + STATS_DAYS + " days, UTC)"));
+        statsPanel.add(createStatsScrollPane(trendModel, "Rating Trends (UTC)"));
+        statsPanel.setPreferredSize(new Dimension(800, 180));
+        
+        JPanel centerPanel = new JPanel(new BorderLayout());
+        centerPanel.add(tableScrollPane, BorderLayout.CENTER);
+        centerPanel.add(statsPanel, BorderLayout.SOUTH);
+        add(centerPanel, BorderLayout.CENTER);
         
         // Create bottom panel for buttons
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 10));
         bottomPanel.setBackground(new Color(245, 245, 245)); // Light gray
         bottomPanel.add(deleteButton);
+        bottomPanel.add(exportButton);
+        bottomPanel.add(analysisButton);
         bottomPanel.add(backButton);
         
         add(bottomPanel, BorderLayout.SOUTH);
     }
     
+    /**
+     * Create a titled, read-only table for rating statistics
+     */
+    private JScrollPane createStatsScrollPane(TableModel model, String title) {
+        JTable statsTable = new JTable(model);
+        statsTable.setDefaultRenderer(List.class, new SparklineRenderer());
+        statsTable.getTableHeader().setReorderingAllowed(false);
+        statsTable.setFont(new Font("Arial", Font.PLAIN, 12));
+        statsTable.setRowHeight(20);
+        statsTable.setRowSelectionAllowed(false);
+        
+        JScrollPane scrollPane = new JScrollPane(statsTable);
+        scrollPane.setBorder(BorderFactory.createTitledBorder(title));
+        return scrollPane;
+    }
+    
     /**
      * Setup event handlers
      */
     private void setupEventHandlers() {
+        // Pushed writes are collected for a frame, then applied together
+        liveTimer = new Timer(LIVE_FRAME_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                applyLiveEvents();
+            }
+        });
+        liveTimer.setRepeats(false);
+        liveStatsTimer = new Timer(LIVE_STATS_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                loadStats(markCategory);
+            }
+        });
+        liveStatsTimer.setRepeats(false);
+        journalTimer = new Timer(JOURNAL_MILLIS, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                updateJournalLabel();
+            }
+        });
+        journalTimer.setInitialDelay(0);
+        journalTimer.start();
+        
         // Handle window closing
         addWindowListener(new WindowAdapter() {
             @Override
@@ -131,7 +329,7 @@ public class AdminDashboard extends JFrame {
         refreshButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                loadFeedbackData();
+                refreshFeedbackData();
             }
         });
         
@@ -143,6 +341,25 @@ public class AdminDashboard extends JFrame {
             }
         });
         
+        // Search runs on the button or on Enter in the search field
+        ActionListener searchListener = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchFeedback();
+            }
+        };
+        searchButton.addActionListener(searchListener);
+        searchField.addActionListener(searchListener);
+        
+        // Clear search button action
+        clearSearchButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                searchField.setText("");
+                searchFeedback();
+            }
+        });
+        
         // Delete button action
         deleteButton.addActionListener(new ActionListener() {
             @Override
@@ -151,6 +368,22 @@ public class AdminDashboard extends JFrame {
             }
         });
         
+        // Export button action
+        exportButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                exportFeedback();
+            }
+        });
+        
+        // Text analysis button action
+        analysisButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showTextAnalysis();
+            }
+        });
+        
         // Back button action
         backButton.addActionListener(new ActionListener() {
             @Override
@@ -173,13 +406,137 @@ public class AdminDashboard extends JFrame {
      * Load all feedback data into the table
      */
     private void loadFeedbackData() {
-        try {
-            List<Feedback> feedbackList = feedbackDAO.getAllFeedback();
-            updateTable(feedbackList);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error loading feedback data: " + e.getMessage(), 
-                                        "Database Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+        loadCategory(null, "Error loading feedback data: ");
+    }
+    
+    /**
+     * Bring the table up to date with the selected category. Only feedback
+     * added or deleted since the last load is fetched; anything that cannot
+     * be applied in place, such as a search or a changed filter, reloads.
+     */
+    private void refreshFeedbackData() {
+        String selectedCategory = getSelectedCategory();
+        boolean sameCategory = selectedCategory == null ? markCategory == null
+                                                        : selectedCategory.equals(markCategory);
+        if (searchQuery != null || dataVersion < 0 || !sameCategory) {
+            filterFeedbackData();
+            return;
+        }
+        if (loadWorker != null) {
+            loadWorker.cancel(true);
+        }
+        
+        final long sinceVersion = dataVersion;
+        final int sinceId = lastSeenId;
+        beginBusy();
+        SwingWorker<FeedbackChanges, Void> worker = new SwingWorker<FeedbackChanges, Void>() {
+            @Override
+            protected FeedbackChanges doInBackground() throws Exception {
+                return feedbackRepository.getChangesSince(sinceVersion, sinceId, FeedbackTableModel.MAX_HEAD_ROWS);
+            }
+            
+            @Override
+            protected void done() {
+                endBusy();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    FeedbackChanges changes = get();
+                    if (applyChanges(changes) && !changes.isEmpty()) {
+                        loadStats(markCategory);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    showDatabaseError("Error refreshing feedback data: ", e.getCause());
+                }
+            }
+        };
+        loadWorker = worker;
+        BackgroundExecutor.execute(worker);
+    }
+    
+    /**
+     * Apply feedback inserted and deleted since the rows shown, keeping the
+     * selected entry selected, and move the change mark past them
+     * @param changes Changes read from the repository or pushed by the event bus
+     * @return false if they could not be applied in place and the table is reloading instead
+     */
+    private boolean applyChanges(FeedbackChanges changes) {
+        Feedback selected = tableModel.getFeedbackAt(feedbackTable.getSelectedRow());
+        if (changes.isReloadRequired()
+                || !tableModel.applyChanges(changes.getInserted(), changes.getDeleted())) {
+            filterFeedbackData();
+            return false;
+        }
+        // Several changes arrive as one data change, which clears the selection
+        if (selected != null && feedbackTable.getSelectedRow() < 0) {
+            int row = tableModel.indexOfLoaded(selected.getId());
+            if (row >= 0) {
+                feedbackTable.setRowSelectionInterval(row, row);
+            }
+        }
+        dataVersion = changes.getVersion();
+        lastSeenId = changes.getLastId();
+        return true;
+    }
+    
+    /**
+     * Apply the writes pushed since the last frame. Writes that follow the
+     * rows shown are applied directly; after a gap, such as a write by
+     * another process, the changes are read from the repository instead.
+     * While a load is running the writes wait, since its change mark decides
+     * which of them are already included. Search results are not updated.
+     */
+    private void applyLiveEvents() {
+        liveFlushScheduled.set(false);
+        if (loadWorker != null && !loadWorker.isDone()) {
+            if (!liveEvents.isEmpty() && liveFlushScheduled.compareAndSet(false, true)) {
+                liveTimer.start();
+            }
+            return;
+        }
+        
+        List<FeedbackEvent> events = new ArrayList<>();
+        for (FeedbackEvent event; (event = liveEvents.poll()) != null; ) {
+            events.add(event);
+        }
+        if (events.isEmpty() || searchQuery != null || dataVersion < 0) {
+            return;
+        }
+        
+        // Writers publish after committing, so events can arrive slightly out of order
+        Collections.sort(events, BY_VERSION);
+        List<Feedback> inserted = new ArrayList<>();
+        List<Feedback> deleted = new ArrayList<>();
+        long version = dataVersion;
+        int lastId = lastSeenId;
+        boolean gap = false;
+        for (FeedbackEvent event : events) {
+            if (event.getToVersion() <= version) {
+                continue; // Already included in the rows shown
+            }
+            if (event.getFromVersion() != version) {
+                gap = true;
+                break;
+            }
+            inserted.addAll(event.getInserted());
+            deleted.addAll(event.getDeleted());
+            version = event.getToVersion();
+            lastId = Math.max(lastId, event.getLastId());
+        }
+        
+        if (version != dataVersion) {
+            if (!applyChanges(new FeedbackChanges(version, lastId, inserted, deleted))) {
+                return;
+            }
+            if (!liveStatsTimer.isRunning()) {
+                liveStatsTimer.start();
+            }
+        }
+        if (gap) {
+            refreshFeedbackData();
         }
     }
     
@@ -189,46 +546,157 @@ public class AdminDashboard extends JFrame {
     private void filterFeedbackData() {
         String selectedCategory = (String) categoryFilterComboBox.getSelectedItem();
         
-        try {
-            List<Feedback> feedbackList;
-            if ("All Categories".equals(selectedCategory)) {
-                feedbackList = feedbackDAO.getAllFeedback();
-            } else {
-                feedbackList = feedbackDAO.getFeedbackByCategory(selectedCategory);
-            }
-            updateTable(feedbackList);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Error filtering feedback data: " + e.getMessage(), 
-                                        "Database Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+        if ("All Categories".equals(selectedCategory)) {
+            loadCategory(null, "Error filtering feedback data: ");
+        } else {
+            loadCategory(selectedCategory, "Error filtering feedback data: ");
         }
     }
     
     /**
-     * Update the table with feedback data
-     * @param feedbackList List of feedback entries to display
+     * Show feedback matching the search field within the selected category,
+     * or all feedback if the field is empty
      */
-    private void updateTable(List<Feedback> feedbackList) {
-        // Clear existing data
-        tableModel.setRowCount(0);
-        
-        // Add new data
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-        for (Feedback feedback : feedbackList) {
-            Object[] rowData = {
-                feedback.getId(),
-                feedback.getCategory(),
-                feedback.getMessage(),
-                feedback.getRating(),
-                dateFormat.format(feedback.getDateSubmitted())
-            };
-            tableModel.addRow(rowData);
+    private void searchFeedback() {
+        String text = searchField.getText().trim();
+        searchQuery = text.isEmpty() ? null : text;
+        filterFeedbackData();
+    }
+    
+    /**
+     * Count the matching feedback and fetch the first page in the background,
+     * then reset the table. A newer request cancels an older one, so quickly
+     * switching filters only applies the last selection.
+     * @param category The category to show, or null for all categories
+     * @param errorPrefix Message prefix used if loading fails
+     */
+    private void loadCategory(final String category, final String errorPrefix) {
+        if (loadWorker != null) {
+            loadWorker.cancel(true);
         }
+        loadStats(category);
         
-        // Auto-resize columns
-        for (int i = 0; i < feedbackTable.getColumnCount(); i++) {
-            feedbackTable.getColumnModel().getColumn(i).setPreferredWidth(150);
+        final String query = searchQuery;
+        beginBusy();
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            private List<Feedback> firstPage;
+            private FeedbackSnapshot snapshot;
+            private long archived;
+            
+            @Override
+            protected Integer doInBackground() throws Exception {
+                archived = feedbackRepository.countArchivedFeedback(category);
+                if (query == null) {
+                    // Read together with a change mark so Refresh can apply just the changes
+                    snapshot = feedbackRepository.getFeedbackSnapshot(category, FeedbackTableModel.PAGE_SIZE);
+                    firstPage = snapshot.getFirstPage();
+                    return snapshot.getCount();
+                }
+                int count = feedbackRepository.countSearchResults(query, category);
+                if (isCancelled()) {
+                    return count;
+                }
+                firstPage = feedbackRepository.searchFeedback(query, category, count <= FeedbackRepository.MAX_RANKED_MATCHES,
+                                                       0, FeedbackTableModel.PAGE_SIZE);
+                return count;
+            }
+            
+            @Override
+            protected void done() {
+                endBusy();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    tableModel.reset(category, query, get(), firstPage);
+                    updateArchiveLabel(archived);
+                    dataVersion = snapshot != null ? snapshot.getVersion() : -1;
+                    lastSeenId = snapshot != null ? snapshot.getLastId() : 0;
+                    markCategory = category;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    showDatabaseError(errorPrefix, e.getCause());
+                }
+            }
+        };
+        loadWorker = worker;
+        BackgroundExecutor.execute(worker);
+    }
+    
+    /**
+     * Read the rating aggregates in the background and show them. The
+     * category table always covers every category; the daily table and the
+     * trends follow the current filter. The trends only replay the feedback
+     * added or deleted since they were last brought up to date.
+     * @param category The category selected in the filter, or null for all categories
+     */
+    private void loadStats(final String category) {
+        if (statsWorker != null) {
+            statsWorker.cancel(true);
+        }
+        
+        beginBusy();
+        statsWorker = new SwingWorker<List<RatingStats>, Void>() {
+            private List<RatingStats> dailyStats;
+            private List<TrendTableModel.Row> trendRows;
+            
+            @Override
+            protected List<RatingStats> doInBackground() throws Exception {
+                long fromDay = LocalDate.now(ZoneOffset.UTC).toEpochDay() - (STATS_DAYS - 1);
+                dailyStats = statsRepository.getDailyStats(category, fromDay);
+                trendEngine.refresh(feedbackRepository, statsRepository);
+                trendRows = TrendTableModel.readRows(trendEngine, category, System.currentTimeMillis());
+                return statsRepository.getCategoryStats();
+            }
+            
+            @Override
+            protected void done() {
+                endBusy();
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    categoryStatsModel.setStats(withTotal(get()));
+                    dailyStatsModel.setStats(dailyStats);
+                    trendModel.setRows(trendRows);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    showDatabaseError("Error loading statistics: ", e.getCause());
+                }
+            }
+        };
+        BackgroundExecutor.execute(statsWorker);
+    }
+    
+    /**
+     * Append a row totalling all categories
+     */
+    private List<RatingStats> withTotal(List<RatingStats> categoryStats) {
+        long count = 0;
+        long ratingSum = 0;
+        long[] histogram = new long[5];
+        for (RatingStats stats : categoryStats) {
+            count += stats.getCount();
+            ratingSum += stats.getRatingSum();
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += stats.getRatingCount(i + 1);
+            }
         }
+        
+        List<RatingStats> rows = new ArrayList<>(categoryStats);
+        rows.add(new RatingStats(null, -1, count, ratingSum, histogram));
+        return rows;
+    }
+    
+    /**
+     * Get the category selected in the filter
+     * @return The category, or null for all categories
+     */
+    private String getSelectedCategory() {
+        String selectedCategory = (String) categoryFilterComboBox.getSelectedItem();
+        return "All Categories".equals(selectedCategory) ? null : selectedCategory;
     }
     
     /**
@@ -242,9 +710,13 @@ public class AdminDashboard extends JFrame {
             return;
         }
         
-        int feedbackId = (int) tableModel.getValueAt(selectedRow, 0);
-        String category = (String) tableModel.getValueAt(selectedRow, 1);
-        String message = (String) tableModel.getValueAt(selectedRow, 2);
+        Feedback selected = tableModel.getFeedbackAt(selectedRow);
+        if (selected == null) {
+            return; // Row is still loading
+        }
+        final int feedbackId = selected.getId();
+        String category = selected.getCategory();
+        String message = selected.getMessage();
         
         // Confirm deletion
         int option = JOptionPane.showConfirmDialog(this, 
@@ -256,21 +728,199 @@ public class AdminDashboard extends JFrame {
                                                   JOptionPane.YES_NO_OPTION);
         
         if (option == JOptionPane.YES_OPTION) {
-            try {
-                if (feedbackDAO.deleteFeedback(feedbackId)) {
-                    // Remove row from table
-                    tableModel.removeRow(selectedRow);
-                    JOptionPane.showMessageDialog(this, "Feedback entry deleted successfully.", 
-                                                "Success", JOptionPane.INFORMATION_MESSAGE);
+            deleteButton.setEnabled(false);
+            beginBusy();
+            BackgroundExecutor.execute(new SwingWorker<Boolean, Void>() {
+                @Override
+                protected Boolean doInBackground() throws Exception {
+                    return feedbackRepository.deleteFeedback(feedbackId);
+                }
+                
+                @Override
+                protected void done() {
+                    endBusy();
+                    deleteButton.setEnabled(true);
+                    try {
+                        if (get()) {
+                            // Remove row from table, or reload if it has scrolled out of the cache
+                            if (tableModel.removeFeedback(feedbackId)) {
+                                loadStats(getSelectedCategory());
+                            } else {
+                                filterFeedbackData();
+                            }
+                            JOptionPane.showMessageDialog(AdminDashboard.this, "Feedback entry deleted successfully.",
+                                                        "Success", JOptionPane.INFORMATION_MESSAGE);
+                        } else {
+                            JOptionPane.showMessageDialog(AdminDashboard.this, "Failed to delete feedback entry.",
+                                                        "Error", JOptionPane.ERROR_MESSAGE);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException e) {
+                        showDatabaseError("Database error occurred: ", e.getCause());
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Ask for export options and a target file, then export the feedback of
+     * the selected category in the background with a cancellable progress dialog
+     */
+    private void exportFeedback() {
+        final String category = getSelectedCategory();
+        
+        // Collect export options
+        JComboBox<String> formatComboBox = new JComboBox<>(new String[] {"CSV", "JSON Lines"});
+        JCheckBox gzipCheckBox = new JCheckBox("Compress with gzip");
+        JTextField fromField = new JTextField(10);
+        JTextField toField = new JTextField(10);
+        
+        JPanel optionsPanel = new JPanel(new GridLayout(0, 2, 10, 5));
+        optionsPanel.add(new JLabel("Category:"));
+        optionsPanel.add(new JLabel(category != null ? category : "All Categories"));
+        optionsPanel.add(new JLabel("Format:"));
+        optionsPanel.add(formatComboBox);
+        optionsPanel.add(new JLabel("From (YYYY-MM-DD, optional):"));
+        optionsPanel.add(fromField);
+        optionsPanel.add(new JLabel("To (YYYY-MM-DD, optional):"));
+        optionsPanel.add(toField);
+        optionsPanel.add(new JLabel());
+        optionsPanel.add(gzipCheckBox);
+        
+        int option = JOptionPane.showConfirmDialog(this, optionsPanel, "Export Feedback", 
+                                                  JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (option != JOptionPane.OK_OPTION) {
+            return;
+        }
+        
+        final long fromMillis;
+        final long toMillis;
+        try {
+            String from = fromField.getText().trim();
+            String to = toField.getText().trim();
+            fromMillis = from.isEmpty() ? Long.MIN_VALUE : FeedbackExporter.startOf(LocalDate.parse(from));
+            toMillis = to.isEmpty() ? Long.MAX_VALUE : FeedbackExporter.endOf(LocalDate.parse(to));
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Please enter dates as YYYY-MM-DD.", 
+                                        "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        
+        FeedbackExporter.Format format = formatComboBox.getSelectedIndex() == 0
+                ? FeedbackExporter.Format.CSV : FeedbackExporter.Format.JSONL;
+        final FeedbackExporter exporter = new FeedbackExporter(feedbackRepository, format, gzipCheckBox.isSelected());
+        
+        // Choose the target file
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setSelectedFile(new File("feedback-export" + exporter.getFileSuffix()));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final File target = fileChooser.getSelectedFile();
+        if (target.exists()) {
+            option = JOptionPane.showConfirmDialog(this, target.getName() + " already exists. Replace it?", 
+                                                  "Confirm Export", JOptionPane.YES_NO_OPTION);
+            if (option != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+        
+        final ProgressMonitor progressMonitor = new ProgressMonitor(this, "Exporting feedback to " + target.getName(), 
+                                                                    "", 0, 100);
+        progressMonitor.setMillisToDecideToPopup(200);
+        
+        exportButton.setEnabled(false);
+        beginBusy();
+        final SwingWorker<Long, Void> exportWorker = new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return exporter.export(target, category, fromMillis, toMillis, new FeedbackExporter.ProgressListener() {
+                    @Override
+                    public void onProgress(long rowsWritten, long totalRows) {
+                        setProgress(totalRows > 0 ? (int) (rowsWritten * 100 / totalRows) : 100);
+                    }
+                });
+            }
+            
+            @Override
+            protected void done() {
+                progressMonitor.close();
+                endBusy();
+                exportButton.setEnabled(true);
+                if (isCancelled()) {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Export cancelled.", 
+                                                "Export", JOptionPane.INFORMATION_MESSAGE);
+                    return;
+                }
+                try {
+                    JOptionPane.showMessageDialog(AdminDashboard.this, "Exported " + get() + " feedback entries to\n" + 
+                                                target.getPath(), "Export", JOptionPane.INFORMATION_MESSAGE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof InterruptedIOException)) {
+                        showDatabaseError("Error exporting feedback: ", e.getCause());
+                    }
+                }
+            }
+        };
+        exportWorker.addPropertyChangeListener(new PropertyChangeListener() {
+            @Override
+            public void propertyChange(PropertyChangeEvent evt) {
+                if (!"progress".equals(evt.getPropertyName())) {
+                    return;
+                }
+                if (progressMonitor.isCanceled()) {
+                    // Interrupts the export, which then deletes its partial file
+                    exportWorker.cancel(true);
                 } else {
-                    JOptionPane.showMessageDialog(this, "Failed to delete feedback entry.", 
-                                                "Error", JOptionPane.ERROR_MESSAGE);
+                    progressMonitor.setProgress((Integer) evt.getNewValue());
+                    progressMonitor.setNote(evt.getNewValue() + "% done");
                 }
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(this, "Database error occurred: " + e.getMessage(), 
-                                            "Database Error", JOptionPane.ERROR_MESSAGE);
-                e.printStackTrace();
             }
+        });
+        BackgroundExecutor.execute(exportWorker);
+    }
+    
+    /**
+     * Open the keyword and sentiment view for the selected category
+     */
+    private void showTextAnalysis() {
+        if (Repositories.isInMemory()) {
+            JOptionPane.showMessageDialog(this, "Text analysis is only available with the SQLite storage backend.", 
+                                        "Text Analysis", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        new TextAnalysisDialog(this, getSelectedCategory()).setVisible(true);
+    }
+    
+    /**
+     * Show a database error dialog
+     * @param prefix Message prefix describing what failed
+     * @param error The underlying error
+     */
+    private void showDatabaseError(String prefix, Throwable error) {
+        JOptionPane.showMessageDialog(this, prefix + error.getMessage(),
+                                    "Database Error", JOptionPane.ERROR_MESSAGE);
+        error.printStackTrace();
+    }
+    
+    /**
+     * Show the progress indicator while background work is running
+     */
+    private void beginBusy() {
+        busyTasks++;
+        progressBar.setVisible(true);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+    }
+    
+    private void endBusy() {
+        busyTasks--;
+        if (busyTasks == 0) {
+            progressBar.setVisible(false);
+            setCursor(Cursor.getDefaultCursor());
         }
     }
     
@@ -287,10 +937,35 @@ public class AdminDashboard extends JFrame {
         }
     }
     
+    /**
+     * Shows how many journaled submissions are not in the database yet
+     */
+    private void updateJournalLabel() {
+        int depth = feedbackIngestor.getJournalDepth();
+        journalLabel.setText(depth == 1
+                ? "1 submission waiting in the local journal"
+                : depth + " submissions waiting in the local journal");
+        journalLabel.setVisible(depth > 0);
+    }
+    
+    /**
+     * Shows how many archived entries the list leaves out
+     */
+    private void updateArchiveLabel(long archived) {
+        archiveLabel.setText(archived == 1
+                ? "1 archived entry not listed"
+                : archived + " archived entries not listed");
+        archiveLabel.setVisible(archived > 0);
+    }
+    
     /**
      * Logout and return to admin login
      */
     private void logout() {
+        FeedbackEvents.unsubscribe(liveListener);
+        liveTimer.stop();
+        liveStatsTimer.stop();
+        journalTimer.stop();
         adminLoginForm.setVisible(true);
         this.dispose();
     }
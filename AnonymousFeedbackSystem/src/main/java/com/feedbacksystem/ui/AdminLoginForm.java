@@ -1,13 +1,16 @@
 package com.feedbacksystem.ui;
 
-import com.feedbacksystem.dao.AdminDAO;
+import com.feedbacksystem.auth.LoginThrottledException;
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.dao.AdminRepository;
+import com.feedbacksystem.dao.Repositories;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.sql.SQLException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Form for admin login
@@ -18,11 +21,11 @@ public class AdminLoginForm extends JFrame {
     private JPasswordField passwordField;
     private JButton loginButton;
     private JButton backButton;
-    private AdminDAO adminDAO;
+    private AdminRepository adminRepository;
     
     public AdminLoginForm(MainWindow mainWindow) {
         this.mainWindow = mainWindow;
-        this.adminDAO = new AdminDAO();
+        this.adminRepository = Repositories.admin();
         initializeComponents();
         setupLayout();
         setupEventHandlers();
@@ -187,29 +190,66 @@ public class AdminLoginForm extends JFrame {
             return;
         }
         
-        String username = usernameField.getText().trim();
-        String password = new String(passwordField.getPassword());
-        
-        try {
-            if (adminDAO.authenticateAdmin(username, password)) {
-                JOptionPane.showMessageDialog(this, "Login successful!", 
-                                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                // Open admin dashboard
-                openAdminDashboard();
-            } else {
-                JOptionPane.showMessageDialog(this, "Invalid username or password.", 
-                                            "Login Failed", JOptionPane.ERROR_MESSAGE);
-                usernameField.setText("");
-                passwordField.setText("");
-                usernameField.requestFocus();
+        final String username = usernameField.getText().trim();
+        final String password = new String(passwordField.getPassword());
+        
+        // Authenticate in the background so the window stays responsive
+        setLoginInProgress(true);
+        BackgroundExecutor.execute(new SwingWorker<Boolean, Void>() {
+            @Override
+            protected Boolean doInBackground() throws Exception {
+                return adminRepository.authenticateAdmin(username, password);
+            }
+            
+            @Override
+            protected void done() {
+                setLoginInProgress(false);
+                try {
+                    onLoginResult(get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof LoginThrottledException) {
+                        JOptionPane.showMessageDialog(AdminLoginForm.this, e.getCause().getMessage(), 
+                                                    "Login Failed", JOptionPane.WARNING_MESSAGE);
+                        return;
+                    }
+                    JOptionPane.showMessageDialog(AdminLoginForm.this, "Database error occurred: " + e.getCause().getMessage(),
+                                                "Database Error", JOptionPane.ERROR_MESSAGE);
+                    e.getCause().printStackTrace();
+                }
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Database error occurred: " + e.getMessage(), 
-                                        "Database Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+        });
+    }
+    
+    /**
+     * Handle the outcome of a login attempt
+     * @param authenticated true if the credentials were accepted
+     */
+    private void onLoginResult(boolean authenticated) {
+        if (authenticated) {
+            JOptionPane.showMessageDialog(this, "Login successful!",
+                                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            // Open admin dashboard
+            openAdminDashboard();
+        } else {
+            JOptionPane.showMessageDialog(this, "Invalid username or password.",
+                                        "Login Failed", JOptionPane.ERROR_MESSAGE);
+            usernameField.setText("");
+            passwordField.setText("");
+            usernameField.requestFocus();
         }
     }
     
+    /**
+     * Disable input and show a wait cursor while a login attempt is running
+     */
+    private void setLoginInProgress(boolean inProgress) {
+        loginButton.setEnabled(!inProgress);
+        passwordField.setEnabled(!inProgress);
+        setCursor(inProgress ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+    
     /**
      * Open admin dashboard
      */
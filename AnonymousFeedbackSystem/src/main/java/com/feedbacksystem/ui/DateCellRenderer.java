@@ -0,0 +1,43 @@
+package com.feedbacksystem.ui;
+
+import javax.swing.table.DefaultTableCellRenderer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Renders Date cells as yyyy-MM-dd in the local time zone.
+ *
+ * Only visible cells are formatted, and the text of each day is cached, so
+ * repainting while scrolling formats a date once per day shown instead of
+ * once per cell. The cache is a small direct-mapped array keyed by day and
+ * allocates nothing on a hit.
+ */
+public class DateCellRenderer extends DefaultTableCellRenderer {
+    private static final long DAY_MILLIS = 86400000L;
+    private static final int CACHE_SIZE = 256;
+    
+    private final SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+    private final TimeZone timeZone = format.getTimeZone();
+    private final long[] cachedDays = new long[CACHE_SIZE];
+    private final String[] cachedTexts = new String[CACHE_SIZE];
+    
+    @Override
+    protected void setValue(Object value) {
+        if (value instanceof Date) {
+            setText(formatDay(((Date) value).getTime()));
+        } else {
+            super.setValue(value);
+        }
+    }
+    
+    private String formatDay(long millis) {
+        long day = Math.floorDiv(millis + timeZone.getOffset(millis), DAY_MILLIS);
+        int slot = (int) (day & (CACHE_SIZE - 1));
+        if (cachedTexts[slot] == null || cachedDays[slot] != day) {
+            cachedDays[slot] = day;
+            cachedTexts[slot] = format.format(new Date(millis));
+        }
+        return cachedTexts[slot];
+    }
+}
\ No newline at end of file
@@ -0,0 +1,458 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.dao.FeedbackRepository;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.PageCursor;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Table model that loads feedback lazily, one page at a time, as rows
+ * scroll into view. Only a bounded number of pages is kept in memory, so
+ * opening the dashboard costs the same no matter how large the table is.
+ * Pages are fetched on the shared background executor; rows show a
+ * placeholder until their page arrives, and a page whose fetch failed is
+ * fetched again after a delay that doubles with each failure. With a
+ * search query the rows are the search results in relevance order.
+ * 
+ * Feedback submitted after the first page was loaded can be prepended with
+ * {@link #applyChanges} instead of reloading; those rows are held in a
+ * separate head list above the paged rows.
+ * 
+ * Cells hold the feedback's own values: the date column is a Date, left to
+ * DateCellRenderer to format, and the message column is the full message,
+ * which MessageCellRenderer wraps and truncates.
+ */
+public class FeedbackTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"ID", "Category", "Feedback", "Rating", "Date"};
+    static final int MESSAGE_COLUMN = 2;
+    static final int DATE_COLUMN = 4;
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 10;
+    // Most rows held above the pages before a full reload is cheaper
+    static final int MAX_HEAD_ROWS = 5 * PAGE_SIZE;
+    // A failed page fetch is retried after this delay, doubled per failure up to the maximum
+    private static final int RETRY_MILLIS = 500;
+    private static final int MAX_RETRY_MILLIS = 30000;
+    // Newest first, the order of the feedback list
+    private static final Comparator<Feedback> NEWEST_FIRST = new Comparator<Feedback>() {
+        @Override
+        public int compare(Feedback a, Feedback b) {
+            return compareKeys(b.getDateSubmitted().getTime(), b.getId(), a.getDateSubmitted().getTime(), a.getId());
+        }
+    };
+    
+    private final FeedbackRepository feedbackRepository;
+    private String category;
+    private String searchQuery;
+    private boolean searchByRelevance;
+    private int rowCount;
+    // Bumped whenever cached pages are invalidated so in-flight fetches are discarded
+    private long generation;
+    private final Set<Integer> loadingPages = new HashSet<>();
+    // Consecutive failed fetches per page
+    private final Map<Integer, Integer> pageFailures = new HashMap<>();
+    // Rows added by applyChanges, newest first, shown above the paged rows
+    private final List<Feedback> head = new ArrayList<>();
+    // Rows deleted from this dashboard whose tombstones have not arrived yet
+    private final Set<Integer> removedIds = new HashSet<>();
+    // Newest row shown since the last reset; every remaining row sorts at or after it
+    private PageCursor newest;
+    
+    // Least recently used pages, evicted once MAX_CACHED_PAGES is exceeded
+    private final Map<Integer, List<Feedback>> pages = new LinkedHashMap<Integer, List<Feedback>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Feedback>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    // Keyset cursor of the last row before each known page start
+    private final Map<Integer, PageCursor> pageStarts = new HashMap<>();
+    
+    public FeedbackTableModel(FeedbackRepository feedbackRepository) {
+        this.feedbackRepository = feedbackRepository;
+    }
+    
+    /**
+     * Resets the model to show feedback for a category. Call on the event
+     * dispatch thread once the row count has been read in the background.
+     * @param category The category to show, or null for all categories
+     * @param searchQuery Search text to show matches for, or null to show all entries
+     * @param rowCount Number of matching entries
+     * @param firstPage The first page of entries, already fetched, or null
+     */
+    public void reset(String category, String searchQuery, int rowCount, List<Feedback> firstPage) {
+        this.category = category;
+        this.searchQuery = searchQuery;
+        this.searchByRelevance = rowCount <= FeedbackRepository.MAX_RANKED_MATCHES;
+        this.rowCount = rowCount;
+        invalidate();
+        head.clear();
+        removedIds.clear();
+        newest = firstPage != null && !firstPage.isEmpty() ? PageCursor.of(firstPage.get(0)) : null;
+        if (firstPage != null) {
+            storePage(0, firstPage);
+        }
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Returns the feedback entry shown in a row. If its page is not cached
+     * yet, a background fetch is started and null is returned.
+     * @param row The row index
+     * @return Feedback entry, or null if it is not loaded
+     */
+    public Feedback getFeedbackAt(int row) {
+        if (row < 0 || row >= rowCount) {
+            return null;
+        }
+        if (row < head.size()) {
+            return head.get(row);
+        }
+        row -= head.size();
+        int pageIndex = row / PAGE_SIZE;
+        List<Feedback> page = pages.get(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+            return null;
+        }
+        int offset = row % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+    
+    /**
+     * Removes the row of a deleted feedback entry
+     * @param id The ID of the deleted feedback
+     * @return true if the row was found among the cached pages
+     */
+    public boolean removeFeedback(int id) {
+        int row = removeLoaded(id);
+        if (row >= 0) {
+            removedIds.add(id);
+            fireTableRowsDeleted(row, row);
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Finds the row of a feedback entry among the loaded rows
+     * @param id The ID of the feedback
+     * @return The row index, or -1 if the entry is not loaded
+     */
+    public int indexOfLoaded(int id) {
+        for (int i = 0; i < head.size(); i++) {
+            if (head.get(i).getId() == id) {
+                return i;
+            }
+        }
+        for (Map.Entry<Integer, List<Feedback>> entry : pages.entrySet()) {
+            List<Feedback> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == id) {
+                    return head.size() + entry.getKey() * PAGE_SIZE + i;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Applies feedback inserted and deleted since the rows were loaded.
+     * Call on the event dispatch thread. Listeners get a single event for
+     * the whole change: rows inserted for insertions only, one row deleted
+     * for a single deletion and a data change otherwise.
+     * @param inserted New feedback in any category, in id order
+     * @param deleted Tombstones of deleted feedback, holding id, category and date
+     * @return false if the changes cannot be applied in place and the caller
+     *         should reload instead; the model is left unchanged in that case
+     */
+    public boolean applyChanges(List<Feedback> inserted, List<Feedback> deleted) {
+        if (searchQuery != null) {
+            return false; // Matches and their ranking can change anywhere
+        }
+        
+        List<Feedback> added = new ArrayList<>();
+        for (Feedback feedback : inserted) {
+            if (category == null || category.equals(feedback.getCategory())) {
+                added.add(feedback);
+            }
+        }
+        if (!added.isEmpty()) {
+            if (head.size() + added.size() > MAX_HEAD_ROWS) {
+                return false;
+            }
+            Collections.sort(added, NEWEST_FIRST);
+            if (rowCount > 0 && newest == null) {
+                return false; // Cannot tell whether the new rows belong at the top
+            }
+            Feedback oldest = added.get(added.size() - 1);
+            if (newest != null && compareKeys(oldest.getDateSubmitted().getTime(), oldest.getId(),
+                                              newest.getDateSubmitted(), newest.getId()) <= 0) {
+                return false; // Backdated rows sort into the middle of the list
+            }
+        }
+        
+        int removed = 0;
+        int removedRow = -1;
+        for (Feedback tombstone : deleted) {
+            if (removedIds.remove(tombstone.getId())) {
+                continue; // Already removed from this dashboard
+            }
+            if (category != null && !category.equals(tombstone.getCategory())) {
+                continue;
+            }
+            removedRow = removeLoaded(tombstone.getId());
+            if (removedRow < 0) {
+                removedRow = removeUnloaded(tombstone);
+            }
+            removed++;
+        }
+        
+        if (!added.isEmpty()) {
+            head.addAll(0, added);
+            newest = PageCursor.of(added.get(0));
+            rowCount += added.size();
+        }
+        
+        if (removed == 0 && !added.isEmpty()) {
+            fireTableRowsInserted(0, added.size() - 1);
+        } else if (removed == 1 && added.isEmpty()) {
+            fireTableRowsDeleted(removedRow, removedRow);
+        } else if (removed > 0) {
+            fireTableDataChanged();
+        }
+        return true;
+    }
+    
+    /**
+     * Removes a row held in the head or in a cached page without notifying
+     * listeners
+     * @return The index the row had, or -1 if it was not found
+     */
+    private int removeLoaded(int id) {
+        for (int i = 0; i < head.size(); i++) {
+            if (head.get(i).getId() == id) {
+                head.remove(i);
+                rowCount--;
+                return i;
+            }
+        }
+        for (Map.Entry<Integer, List<Feedback>> entry : pages.entrySet()) {
+            List<Feedback> page = entry.getValue();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == id) {
+                    return removeRow(entry.getKey() * PAGE_SIZE + i);
+                }
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Removes a row whose page is not cached. Its exact position is unknown,
+     * so every cached page and cursor that sorts after it is dropped and
+     * refetched when scrolled to; pages before it stay valid. Listeners are
+     * not notified.
+     * @return The index the row is assumed to have had
+     */
+    private int removeUnloaded(Feedback tombstone) {
+        final long date = tombstone.getDateSubmitted().getTime();
+        final int id = tombstone.getId();
+        int firstShifted = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, List<Feedback>> entry : pages.entrySet()) {
+            List<Feedback> page = entry.getValue();
+            Feedback last = page.isEmpty() ? null : page.get(page.size() - 1);
+            if (last == null || compareKeys(date, id, last.getDateSubmitted().getTime(), last.getId()) > 0) {
+                firstShifted = Math.min(firstShifted, entry.getKey());
+            }
+        }
+        final int dropFrom = firstShifted;
+        generation++;
+        loadingPages.clear();
+        pages.keySet().removeIf(index -> index >= dropFrom);
+        pageStarts.values().removeIf(cursor ->
+                compareKeys(date, id, cursor.getDateSubmitted(), cursor.getId()) > 0);
+        
+        int row = head.size() + (dropFrom == Integer.MAX_VALUE ? rowCount - head.size() - 1 : dropFrom * PAGE_SIZE);
+        row = Math.max(head.size(), Math.min(row, rowCount - 1));
+        rowCount--;
+        return row;
+    }
+    
+    /**
+     * Compares two rows by their position in the feedback list
+     * @return Positive if the first row is newer, i.e. listed before the second
+     */
+    private static int compareKeys(long date, int id, long otherDate, int otherId) {
+        if (date != otherDate) {
+            return date > otherDate ? 1 : -1;
+        }
+        return Integer.compare(id, otherId);
+    }
+    
+    private int removeRow(final int row) {
+        final int pageIndex = row / PAGE_SIZE;
+        List<Feedback> page = pages.get(pageIndex);
+        // Rows after the deleted one shift up, so later pages are no longer aligned
+        generation++;
+        loadingPages.clear();
+        pages.keySet().removeIf(index -> index > pageIndex);
+        pageStarts.keySet().removeIf(index -> index > pageIndex);
+        if (page != null) {
+            page.remove(row % PAGE_SIZE);
+            if (page.size() < PAGE_SIZE && head.size() + row < rowCount - 1) {
+                // The page is now one short; refetch it rather than leave a gap
+                pages.remove(pageIndex);
+            }
+        }
+        rowCount--;
+        return head.size() + row;
+    }
+    
+    private void invalidate() {
+        generation++;
+        pages.clear();
+        pageStarts.clear();
+        loadingPages.clear();
+        pageFailures.clear();
+    }
+    
+    private void storePage(int pageIndex, List<Feedback> page) {
+        pages.put(pageIndex, page);
+        if (page.size() == PAGE_SIZE) {
+            pageStarts.put(pageIndex + 1, PageCursor.of(page.get(page.size() - 1)));
+        }
+    }
+    
+    private void requestPage(final int pageIndex) {
+        if (!loadingPages.add(pageIndex)) {
+            return;
+        }
+        final long requestGeneration = generation;
+        final String requestCategory = category;
+        final String requestQuery = searchQuery;
+        final boolean requestByRelevance = searchByRelevance;
+        final PageCursor after = pageStarts.get(pageIndex);
+        // The paged rows start below the head rows, which are also in the database
+        final int headSize = head.size();
+        final PageCursor headEnd = head.isEmpty() ? null : PageCursor.of(head.get(head.size() - 1));
+        
+        BackgroundExecutor.execute(new SwingWorker<List<Feedback>, Void>() {
+            @Override
+            protected List<Feedback> doInBackground() throws Exception {
+                if (requestQuery != null) {
+                    // Relevance order has no keyset, so search results are paged by offset
+                    return feedbackRepository.searchFeedback(requestQuery, requestCategory, requestByRelevance,
+                                                      pageIndex * PAGE_SIZE, PAGE_SIZE);
+                } else if (pageIndex == 0) {
+                    return feedbackRepository.getFeedbackPage(requestCategory, headEnd, PAGE_SIZE);
+                } else if (after != null) {
+                    return feedbackRepository.getFeedbackPage(requestCategory, after, PAGE_SIZE);
+                }
+                // Jumped past any known cursor, e.g. by dragging the scroll bar
+                return feedbackRepository.getFeedbackPageAt(requestCategory, headSize + pageIndex * PAGE_SIZE, PAGE_SIZE);
+            }
+            
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return; // The model was reset while this page was loading
+                }
+                try {
+                    storePage(pageIndex, get());
+                    loadingPages.remove(pageIndex);
+                    pageFailures.remove(pageIndex);
+                    firePageUpdated(pageIndex);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    e.getCause().printStackTrace();
+                    retryLater(pageIndex, requestGeneration);
+                }
+            }
+        });
+    }
+    
+    /**
+     * Keeps a page whose fetch failed marked as loading for a backoff delay,
+     * so repaints do not retry it in a loop, then lets the next repaint
+     * fetch it again, e.g. once another process has released the database
+     */
+    private void retryLater(final int pageIndex, final long requestGeneration) {
+        Integer previous = pageFailures.get(pageIndex);
+        int failures = previous == null ? 1 : previous + 1;
+        pageFailures.put(pageIndex, failures);
+        int delay = (int) Math.min(MAX_RETRY_MILLIS, (long) RETRY_MILLIS << Math.min(failures - 1, 16));
+        
+        Timer timer = new Timer(delay, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (requestGeneration != generation) {
+                    return; // Reset meanwhile; the new generation fetches its own pages
+                }
+                loadingPages.remove(pageIndex);
+                firePageUpdated(pageIndex);
+            }
+        });
+        timer.setRepeats(false);
+        timer.start();
+    }
+    
+    private void firePageUpdated(int pageIndex) {
+        int firstRow = head.size() + pageIndex * PAGE_SIZE;
+        int lastRow = Math.min(firstRow + PAGE_SIZE, rowCount) - 1;
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        Feedback feedback = getFeedbackAt(row);
+        if (feedback == null) {
+            return column == MESSAGE_COLUMN ? "Loading..." : null;
+        }
+        switch (column) {
+            case 0:
+                return feedback.getId();
+            case 1:
+                return feedback.getCategory();
+            case MESSAGE_COLUMN:
+                return feedback.getMessage();
+            case 3:
+                return feedback.getRating();
+            default:
+                return feedback.getDateSubmitted();
+        }
+    }
+}
\ No newline at end of file
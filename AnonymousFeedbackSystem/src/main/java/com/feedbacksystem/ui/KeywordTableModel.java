@@ -0,0 +1,60 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.model.KeywordStats;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only table of keywords with the number of entries using them and
+ * their average sentiment. Values keep their types so a TableRowSorter
+ * sorts numbers as numbers.
+ */
+public class KeywordTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Keyword", "Entries", "Sentiment"};
+    private static final Class<?>[] COLUMN_CLASSES = {String.class, Long.class, Double.class};
+    
+    private List<KeywordStats> keywords = new ArrayList<>();
+    
+    /**
+     * Replaces the rows. Call on the event dispatch thread.
+     * @param keywords The keywords to show
+     */
+    public void setKeywords(List<KeywordStats> keywords) {
+        this.keywords = keywords;
+        fireTableDataChanged();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return keywords.size();
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        KeywordStats stats = keywords.get(row);
+        switch (column) {
+            case 0:
+                return stats.getTerm();
+            case 1:
+                return stats.getDocuments();
+            default:
+                return Math.round(stats.getAverageSentiment() * 100) / 100.0;
+        }
+    }
+}
\ No newline at end of file
@@ -1,5 +1,8 @@
 package com.feedbacksystem.ui;
 
+import com.feedbacksystem.analysis.FeedbackAnalysisService;
+import com.feedbacksystem.ingest.FeedbackIngestor;
+import com.feedbacksystem.retention.RetentionService;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -134,6 +137,13 @@ public class MainWindow extends JFrame {
             e.printStackTrace();
         }
         
+        // Purge expired feedback in the background if a retention policy is configured
+        RetentionService.startFromConfig();
+        // Analyze feedback messages for the text analysis view
+        FeedbackAnalysisService.startFromConfig();
+        // Start the ingestor now, so submissions a previous run journaled are stored right away
+        FeedbackIngestor.getShared();
+        
         // Create and show the main window
         SwingUtilities.invokeLater(new Runnable() {
             @Override
@@ -0,0 +1,257 @@
+package com.feedbacksystem.ui;
+
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.TableCellRenderer;
+import java.awt.Component;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Renders feedback messages wrapped over up to {@link #MAX_LINES} lines,
+ * with an ellipsis when the message does not fit. The full message is
+ * shown as a tooltip.
+ *
+ * Line breaks are computed from the start of the message only, and the
+ * result is cached per message, column width and font, so a repaint
+ * while scrolling only draws the cached lines. Like
+ * DefaultTableCellRenderer, the component skips the revalidation and
+ * repaint requests a renderer never needs.
+ */
+public class MessageCellRenderer extends JComponent implements TableCellRenderer {
+    static final int MAX_LINES = 2;
+    // Enough text to fill MAX_LINES lines of any sensible column width
+    private static final int MAX_LAYOUT_CHARS = 600;
+    private static final int MAX_TOOLTIP_CHARS = 1000;
+    private static final int MAX_CACHED_LAYOUTS = 2048;
+    private static final String ELLIPSIS = "\u2026";
+    private static final Border NO_FOCUS_BORDER = new EmptyBorder(1, 2, 1, 2);
+    
+    /**
+     * The lines of one message at one width and font
+     */
+    private static class Layout {
+        final int width;
+        final Font font;
+        final String[] lines;
+        final boolean truncated;
+        
+        Layout(int width, Font font, String[] lines, boolean truncated) {
+            this.width = width;
+            this.font = font;
+            this.lines = lines;
+            this.truncated = truncated;
+        }
+    }
+    
+    // Least recently used layouts, evicted once MAX_CACHED_LAYOUTS is exceeded
+    private final Map<String, Layout> layouts = new LinkedHashMap<String, Layout>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Layout> eldest) {
+            return size() > MAX_CACHED_LAYOUTS;
+        }
+    };
+    private String message = "";
+    private Layout layout;
+    
+    public MessageCellRenderer() {
+        setOpaque(true);
+        setBorder(NO_FOCUS_BORDER);
+    }
+    
+    /**
+     * Row height that fits {@link #MAX_LINES} lines of a table's font
+     * @param table The table
+     * @return Height in pixels
+     */
+    public static int preferredRowHeight(JTable table) {
+        Insets insets = NO_FOCUS_BORDER.getBorderInsets(null);
+        return table.getFontMetrics(table.getFont()).getHeight() * MAX_LINES + insets.top + insets.bottom;
+    }
+    
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        setForeground(isSelected ? table.getSelectionForeground() : table.getForeground());
+        setBackground(isSelected ? table.getSelectionBackground() : table.getBackground());
+        setFont(table.getFont());
+        Border focusBorder = hasFocus ? UIManager.getBorder("Table.focusCellHighlightBorder") : null;
+        setBorder(focusBorder != null ? focusBorder : NO_FOCUS_BORDER);
+        
+        message = value == null ? "" : value.toString();
+        Insets insets = getInsets();
+        int width = table.getColumnModel().getColumn(column).getWidth() - insets.left - insets.right;
+        layout = getLayout(message, Math.max(0, width), getFont());
+        return this;
+    }
+    
+    private Layout getLayout(String text, int width, Font font) {
+        Layout cached = layouts.get(text);
+        if (cached != null && cached.width == width && cached.font.equals(font)) {
+            return cached;
+        }
+        Layout created = wrap(text, width, font, getFontMetrics(font));
+        layouts.put(text, created);
+        return created;
+    }
+    
+    /**
+     * Breaks text into at most MAX_LINES lines at spaces, or anywhere in a
+     * word too long for a line, and ellipsizes the last line if text is left
+     */
+    private static Layout wrap(String text, int width, Font font, FontMetrics metrics) {
+        String[] lines = new String[MAX_LINES];
+        int lineCount = 0;
+        int length = Math.min(text.length(), MAX_LAYOUT_CHARS);
+        int start = skipSpaces(text, 0, length);
+        StringBuilder line = new StringBuilder();
+        
+        while (start < length && lineCount < MAX_LINES) {
+            int end = start;
+            int lineWidth = 0;
+            int lastSpace = -1;
+            while (end < length) {
+                char c = text.charAt(end);
+                boolean space = Character.isWhitespace(c);
+                int charWidth = metrics.charWidth(space ? ' ' : c);
+                if (lineWidth + charWidth > width && end > start) {
+                    break;
+                }
+                if (space) {
+                    lastSpace = end;
+                }
+                lineWidth += charWidth;
+                end++;
+            }
+            int next = end;
+            if (end < length && lastSpace > start && !Character.isWhitespace(text.charAt(end))) {
+                end = lastSpace;
+                next = lastSpace + 1;
+            }
+            
+            line.setLength(0);
+            for (int i = start; i < end; i++) {
+                char c = text.charAt(i);
+                line.append(Character.isWhitespace(c) ? ' ' : c);
+            }
+            lines[lineCount++] = line.toString().trim();
+            start = skipSpaces(text, next, length);
+        }
+        
+        boolean truncated = start < text.length() && skipSpaces(text, start, text.length()) < text.length();
+        if (truncated && lineCount > 0) {
+            String last = lines[lineCount - 1];
+            int available = width - metrics.stringWidth(ELLIPSIS);
+            int lastWidth = metrics.stringWidth(last);
+            int end = last.length();
+            while (end > 0 && lastWidth > available) {
+                lastWidth -= metrics.charWidth(last.charAt(--end));
+            }
+            lines[lineCount - 1] = last.substring(0, end).trim() + ELLIPSIS;
+        }
+        
+        String[] used = new String[lineCount];
+        System.arraycopy(lines, 0, used, 0, lineCount);
+        return new Layout(width, font, used, truncated);
+    }
+    
+    private static int skipSpaces(String text, int from, int to) {
+        while (from < to && Character.isWhitespace(text.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        g.setColor(getBackground());
+        g.fillRect(0, 0, getWidth(), getHeight());
+        if (layout == null) {
+            return;
+        }
+        
+        Graphics2D g2 = (Graphics2D) g;
+        // Match the text anti-aliasing of the other cells
+        Map<?, ?> hints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+        if (hints != null) {
+            g2.addRenderingHints(hints);
+        }
+        g2.setFont(getFont());
+        g2.setColor(getForeground());
+        FontMetrics metrics = g2.getFontMetrics();
+        Insets insets = getInsets();
+        int y = insets.top + metrics.getAscent();
+        for (String line : layout.lines) {
+            g2.drawString(line, insets.left, y);
+            y += metrics.getHeight();
+        }
+    }
+    
+    /**
+     * The full message, wrapped by the tooltip, if the cell had to cut it short
+     */
+    @Override
+    public String getToolTipText() {
+        if (layout == null || !layout.truncated) {
+            return null;
+        }
+        String text = message.length() > MAX_TOOLTIP_CHARS
+                ? message.substring(0, MAX_TOOLTIP_CHARS) + ELLIPSIS : message;
+        StringBuilder html = new StringBuilder("<html><p width=\"400\">");
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    html.append("&lt;");
+                    break;
+                case '>':
+                    html.append("&gt;");
+                    break;
+                case '&':
+                    html.append("&amp;");
+                    break;
+                case '\n':
+                    html.append("<br>");
+                    break;
+                default:
+                    html.append(c);
+            }
+        }
+        return html.append("</p></html>").toString();
+    }
+    
+    // Renderers are only stamped, never laid out or repainted on their own
+    @Override
+    public void invalidate() {}
+    
+    @Override
+    public void validate() {}
+    
+    @Override
+    public void revalidate() {}
+    
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {}
+    
+    @Override
+    public void repaint(Rectangle r) {}
+    
+    @Override
+    public void repaint() {}
+    
+    @Override
+    protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {}
+    
+    @Override
+    public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {}
+}
\ No newline at end of file
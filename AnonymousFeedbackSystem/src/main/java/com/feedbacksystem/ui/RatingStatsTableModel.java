@@ -0,0 +1,66 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.model.RatingStats;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only table of rating aggregates, one row per category or per day
+ */
+public class RatingStatsTableModel extends AbstractTableModel {
+    private static final String[] STAT_COLUMNS = {"Entries", "Average", "1", "2", "3", "4", "5"};
+    
+    private final String keyColumnName;
+    private List<RatingStats> statsList = new ArrayList<>();
+    
+    /**
+     * @param keyColumnName Header of the first column, "Category" or "Day"
+     */
+    public RatingStatsTableModel(String keyColumnName) {
+        this.keyColumnName = keyColumnName;
+    }
+    
+    /**
+     * Replaces the rows. Call on the event dispatch thread.
+     * @param statsList The aggregates to show
+     */
+    public void setStats(List<RatingStats> statsList) {
+        this.statsList = statsList;
+        fireTableDataChanged();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return statsList.size();
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return STAT_COLUMNS.length + 1;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return column == 0 ? keyColumnName : STAT_COLUMNS[column - 1];
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        RatingStats stats = statsList.get(row);
+        switch (column) {
+            case 0:
+                if (stats.getDay() >= 0) {
+                    return LocalDate.ofEpochDay(stats.getDay()).toString();
+                }
+                return stats.getCategory() != null ? stats.getCategory() : "All Categories";
+            case 1:
+                return stats.getCount();
+            case 2:
+                return String.format("%.2f", stats.getAverageRating());
+            default:
+                return stats.getRatingCount(column - 2);
+        }
+    }
+}
\ No newline at end of file
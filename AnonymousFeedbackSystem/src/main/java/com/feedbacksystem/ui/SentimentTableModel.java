@@ -0,0 +1,68 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.model.AnalyzedFeedback;
+import com.feedbacksystem.model.Feedback;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read-only table of analyzed feedback entries with their sentiment
+ */
+public class SentimentTableModel extends AbstractTableModel {
+    static final int DATE_COLUMN = 0;
+    static final int MESSAGE_COLUMN = 4;
+    private static final String[] COLUMNS = {"Date", "Category", "Rating", "Sentiment", "Message"};
+    private static final Class<?>[] COLUMN_CLASSES = {Date.class, String.class, Integer.class, Double.class,
+                                                      String.class};
+    
+    private List<AnalyzedFeedback> entries = new ArrayList<>();
+    
+    /**
+     * Replaces the rows. Call on the event dispatch thread.
+     * @param entries The entries to show
+     */
+    public void setEntries(List<AnalyzedFeedback> entries) {
+        this.entries = entries;
+        fireTableDataChanged();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return entries.size();
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return COLUMN_CLASSES[column];
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        AnalyzedFeedback entry = entries.get(row);
+        Feedback feedback = entry.getFeedback();
+        switch (column) {
+            case 0:
+                return feedback.getDateSubmitted();
+            case 1:
+                return feedback.getCategory();
+            case 2:
+                return feedback.getRating();
+            case 3:
+                return Math.round(entry.getSentiment() * 100) / 100.0;
+            default:
+                return feedback.getMessage();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,82 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.analytics.TrendWindow;
+import com.feedbacksystem.model.FeedbackValidator;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.table.TableCellRenderer;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Renders a list of TrendWindow as a sparkline: grey bars for the number
+ * of entries per bucket and a line for the average rating, broken where
+ * a bucket has no entries. Oldest bucket on the left.
+ */
+public class SparklineRenderer extends JComponent implements TableCellRenderer {
+    private static final Color BAR_COLOR = new Color(220, 220, 220);
+    private static final Color LINE_COLOR = new Color(30, 90, 170);
+    private static final int PADDING = 2;
+    
+    private List<TrendWindow> series = Collections.emptyList();
+    private Color background;
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
+                                                   boolean hasFocus, int row, int column) {
+        series = value instanceof List ? (List<TrendWindow>) value : Collections.<TrendWindow>emptyList();
+        background = isSelected ? table.getSelectionBackground() : table.getBackground();
+        return this;
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        g.setColor(background);
+        g.fillRect(0, 0, width, height);
+        if (series.isEmpty() || width <= 2 * PADDING || height <= 2 * PADDING) {
+            return;
+        }
+        
+        long maxCount = 0;
+        for (TrendWindow window : series) {
+            maxCount = Math.max(maxCount, window.getCount());
+        }
+        int plotHeight = height - 2 * PADDING;
+        double step = (double) (width - 2 * PADDING) / series.size();
+        int ratingRange = FeedbackValidator.MAX_RATING - FeedbackValidator.MIN_RATING;
+        
+        int lastX = -1;
+        int lastY = -1;
+        for (int i = 0; i < series.size(); i++) {
+            TrendWindow window = series.get(i);
+            int left = PADDING + (int) (i * step);
+            int right = PADDING + (int) ((i + 1) * step);
+            if (window.getCount() == 0) {
+                lastX = -1;
+                continue;
+            }
+            
+            int barHeight = (int) Math.max(1, plotHeight * window.getCount() / maxCount);
+            g.setColor(BAR_COLOR);
+            g.fillRect(left, height - PADDING - barHeight, Math.max(1, right - left - 1), barHeight);
+            
+            double level = (window.getAverageRating() - FeedbackValidator.MIN_RATING) / ratingRange;
+            int x = (left + right) / 2;
+            int y = height - PADDING - (int) Math.round(level * plotHeight);
+            g.setColor(LINE_COLOR);
+            if (lastX >= 0) {
+                g.drawLine(lastX, lastY, x, y);
+            } else {
+                g.fillRect(x - 1, y - 1, 2, 2);
+            }
+            lastX = x;
+            lastY = y;
+        }
+    }
+}
\ No newline at end of file
@@ -1,7 +1,10 @@
 package com.feedbacksystem.ui;
 
-import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.ingest.DuplicateFeedbackException;
+import com.feedbacksystem.ingest.FeedbackIngestor;
 import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackValidator;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -10,6 +13,9 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.sql.SQLException;
 import java.util.Date;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 
 /**
  * Form for submitting anonymous feedback
@@ -21,16 +27,16 @@ public class SubmitFeedbackForm extends JFrame {
     private JComboBox<Integer> ratingComboBox;
     private JButton submitButton;
     private JButton backButton;
-    private FeedbackDAO feedbackDAO;
+    private FeedbackIngestor feedbackIngestor;
     
     // Category options
-    private static final String[] CATEGORIES = {"Teacher", "Event", "Facility", "Other"};
+    private static final String[] CATEGORIES = FeedbackValidator.CATEGORIES.toArray(new String[0]);
     // Rating options
     private static final Integer[] RATINGS = {1, 2, 3, 4, 5};
     
     public SubmitFeedbackForm(MainWindow mainWindow) {
         this.mainWindow = mainWindow;
-        this.feedbackDAO = new FeedbackDAO();
+        this.feedbackIngestor = FeedbackIngestor.getShared();
         initializeComponents();
         setupLayout();
         setupEventHandlers();
@@ -175,16 +181,10 @@ public class SubmitFeedbackForm extends JFrame {
      * @return true if all validations pass, false otherwise
      */
     private boolean validateInput() {
-        String feedback = feedbackTextArea.getText().trim();
+        String error = FeedbackValidator.validateMessage(feedbackTextArea.getText());
         
-        if (feedback.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "Please enter your feedback message.", 
-                                        "Validation Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
-        
-        if (feedback.length() < 10) {
-            JOptionPane.showMessageDialog(this, "Feedback message should be at least 10 characters long.", 
+        if (error != null) {
+            JOptionPane.showMessageDialog(this, error, 
                                         "Validation Error", JOptionPane.ERROR_MESSAGE);
             return false;
         }
@@ -200,28 +200,66 @@ public class SubmitFeedbackForm extends JFrame {
             return;
         }
         
-        try {
-            String category = (String) categoryComboBox.getSelectedItem();
-            String message = feedbackTextArea.getText().trim();
-            int rating = (Integer) ratingComboBox.getSelectedItem();
-            
-            Feedback feedback = new Feedback(category, message, rating, new Date());
-            
-            if (feedbackDAO.insertFeedback(feedback)) {
-                JOptionPane.showMessageDialog(this, "Thank you for your feedback! It has been submitted anonymously.", 
-                                            "Success", JOptionPane.INFORMATION_MESSAGE);
-                // Clear the form
-                feedbackTextArea.setText("");
-                categoryComboBox.setSelectedIndex(0);
-                ratingComboBox.setSelectedIndex(4); // Default to 5 stars
-            } else {
-                JOptionPane.showMessageDialog(this, "Failed to submit feedback. Please try again.", 
-                                            "Error", JOptionPane.ERROR_MESSAGE);
+        String category = (String) categoryComboBox.getSelectedItem();
+        String message = feedbackTextArea.getText().trim();
+        int rating = (Integer) ratingComboBox.getSelectedItem();
+        
+        final Feedback feedback = new Feedback(category, message, rating, new Date());
+        
+        // The ingestor commits in the background; re-enable the form when it is done.
+        // submit() itself may wait for queue space, so it is not called on the EDT.
+        submitButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        BackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                feedbackIngestor.submit(feedback).whenComplete(new BiConsumer<Feedback, Throwable>() {
+                    @Override
+                    public void accept(final Feedback result, final Throwable error) {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                submitButton.setEnabled(true);
+                                setCursor(Cursor.getDefaultCursor());
+                                onSubmitComplete(error);
+                            }
+                        });
+                    }
+                });
             }
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(this, "Database error occurred: " + e.getMessage(), 
+        });
+    }
+    
+    /**
+     * Report the outcome of a submission
+     * @param error The failure, or null if the feedback was stored
+     */
+    private void onSubmitComplete(Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        
+        if (error == null) {
+            JOptionPane.showMessageDialog(this, "Thank you for your feedback! It has been submitted anonymously.",
+                                        "Success", JOptionPane.INFORMATION_MESSAGE);
+            // Clear the form
+            feedbackTextArea.setText("");
+            categoryComboBox.setSelectedIndex(0);
+            ratingComboBox.setSelectedIndex(4); // Default to 5 stars
+        } else if (error instanceof SQLException) {
+            JOptionPane.showMessageDialog(this, "Database error occurred: " + error.getMessage(),
                                         "Database Error", JOptionPane.ERROR_MESSAGE);
-            e.printStackTrace();
+            error.printStackTrace();
+        } else if (error instanceof RejectedExecutionException) {
+            JOptionPane.showMessageDialog(this, "The system is busy right now. Please try again in a moment.",
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+        } else if (error instanceof DuplicateFeedbackException) {
+            JOptionPane.showMessageDialog(this, error.getMessage(),
+                                        "Duplicate Feedback", JOptionPane.WARNING_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Failed to submit feedback. Please try again.",
+                                        "Error", JOptionPane.ERROR_MESSAGE);
+            error.printStackTrace();
         }
     }
     
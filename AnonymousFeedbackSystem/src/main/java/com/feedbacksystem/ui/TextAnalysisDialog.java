@@ -0,0 +1,167 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.analysis.TextAnalyzer;
+import com.feedbacksystem.concurrent.BackgroundExecutor;
+import com.feedbacksystem.dao.TextAnalysisDAO;
+import com.feedbacksystem.model.AnalyzedFeedback;
+import com.feedbacksystem.model.KeywordStats;
+import javax.swing.*;
+import javax.swing.table.TableRowSorter;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Shows the results of the background text analysis: the most used
+ * keywords of a category and its entries ordered by sentiment. Everything
+ * is read from the analysis tables; no message is analyzed here.
+ */
+public class TextAnalysisDialog extends JDialog {
+    private static final String[] SENTIMENT_OPTIONS = {"All", "Negative", "Neutral", "Positive"};
+    private static final String[] ORDER_OPTIONS = {"Most negative first", "Most positive first"};
+    // Bounds of each sentiment option; scores never reach the upper bound of "All"
+    private static final double[][] SENTIMENT_RANGES = {
+            {-2, 2},
+            {-2, TextAnalyzer.NEGATIVE_BELOW},
+            {TextAnalyzer.NEGATIVE_BELOW, TextAnalyzer.POSITIVE_FROM},
+            {TextAnalyzer.POSITIVE_FROM, 2}
+    };
+    private static final int KEYWORD_LIMIT = 100;
+    private static final int ENTRY_LIMIT = 200;
+    
+    private final TextAnalysisDAO analysisDAO = new TextAnalysisDAO();
+    private final KeywordTableModel keywordModel = new KeywordTableModel();
+    private final SentimentTableModel sentimentModel = new SentimentTableModel();
+    private final JComboBox<String> categoryComboBox = new JComboBox<>(AdminDashboard.FILTER_OPTIONS);
+    private final JComboBox<String> sentimentComboBox = new JComboBox<>(SENTIMENT_OPTIONS);
+    private final JComboBox<String> orderComboBox = new JComboBox<>(ORDER_OPTIONS);
+    private final JButton refreshButton = new JButton("Refresh");
+    private final JLabel statusLabel = new JLabel(" ");
+    // Latest load request; a superseded one is cancelled
+    private SwingWorker<List<AnalyzedFeedback>, Void> loadWorker;
+    
+    /**
+     * @param owner The dashboard
+     * @param category The category to show first, or null for all categories
+     */
+    public TextAnalysisDialog(Frame owner, String category) {
+        super(owner, "Text Analysis", false);
+        if (category != null) {
+            categoryComboBox.setSelectedItem(category);
+        }
+        setupLayout();
+        setupEventHandlers();
+        setSize(800, 500);
+        setLocationRelativeTo(owner);
+        load();
+    }
+    
+    /**
+     * Setup the layout of the dialog
+     */
+    private void setupLayout() {
+        setLayout(new BorderLayout());
+        
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 10));
+        topPanel.setBackground(new Color(245, 245, 245)); // Light gray
+        topPanel.add(new JLabel("Category:"));
+        topPanel.add(categoryComboBox);
+        topPanel.add(new JLabel("Sentiment:"));
+        topPanel.add(sentimentComboBox);
+        topPanel.add(orderComboBox);
+        topPanel.add(refreshButton);
+        add(topPanel, BorderLayout.NORTH);
+        
+        JTable keywordTable = new JTable(keywordModel);
+        keywordTable.setRowSorter(new TableRowSorter<>(keywordModel));
+        keywordTable.getTableHeader().setReorderingAllowed(false);
+        JScrollPane keywordScrollPane = new JScrollPane(keywordTable);
+        keywordScrollPane.setBorder(BorderFactory.createTitledBorder("Top Keywords"));
+        keywordScrollPane.setPreferredSize(new Dimension(240, 0));
+        
+        JTable sentimentTable = new JTable(sentimentModel);
+        sentimentTable.getTableHeader().setReorderingAllowed(false);
+        sentimentTable.setRowHeight(Math.max(20, MessageCellRenderer.preferredRowHeight(sentimentTable)));
+        sentimentTable.getColumnModel().getColumn(SentimentTableModel.DATE_COLUMN)
+                      .setCellRenderer(new DateCellRenderer());
+        sentimentTable.getColumnModel().getColumn(SentimentTableModel.MESSAGE_COLUMN)
+                      .setCellRenderer(new MessageCellRenderer());
+        sentimentTable.getColumnModel().getColumn(SentimentTableModel.MESSAGE_COLUMN).setPreferredWidth(300);
+        JScrollPane sentimentScrollPane = new JScrollPane(sentimentTable);
+        sentimentScrollPane.setBorder(BorderFactory.createTitledBorder("Entries by Sentiment"));
+        
+        add(keywordScrollPane, BorderLayout.WEST);
+        add(sentimentScrollPane, BorderLayout.CENTER);
+        
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(4, 10, 4, 10));
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+    
+    /**
+     * Setup event handlers; every filter change reloads
+     */
+    private void setupEventHandlers() {
+        ActionListener reload = new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                load();
+            }
+        };
+        categoryComboBox.addActionListener(reload);
+        sentimentComboBox.addActionListener(reload);
+        orderComboBox.addActionListener(reload);
+        refreshButton.addActionListener(reload);
+    }
+    
+    /**
+     * Read the keywords and entries for the current filters in the background
+     */
+    private void load() {
+        if (loadWorker != null) {
+            loadWorker.cancel(true);
+        }
+        
+        String selectedCategory = (String) categoryComboBox.getSelectedItem();
+        final String category = "All Categories".equals(selectedCategory) ? null : selectedCategory;
+        final double[] range = SENTIMENT_RANGES[sentimentComboBox.getSelectedIndex()];
+        final boolean mostPositiveFirst = orderComboBox.getSelectedIndex() == 1;
+        
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        loadWorker = new SwingWorker<List<AnalyzedFeedback>, Void>() {
+            private List<KeywordStats> keywords;
+            private int pending;
+            
+            @Override
+            protected List<AnalyzedFeedback> doInBackground() throws Exception {
+                keywords = analysisDAO.getTopKeywords(category, KEYWORD_LIMIT);
+                pending = analysisDAO.countPending(analysisDAO.getCheckpoint());
+                return analysisDAO.getFeedbackBySentiment(category, range[0], range[1], mostPositiveFirst,
+                                                          ENTRY_LIMIT);
+            }
+            
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    sentimentModel.setEntries(get());
+                    keywordModel.setKeywords(keywords);
+                    statusLabel.setText(pending == 0 ? "All feedback has been analyzed."
+                            : pending + " feedback entries are still waiting to be analyzed.");
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    JOptionPane.showMessageDialog(TextAnalysisDialog.this,
+                            "Error loading text analysis: " + e.getCause().getMessage(),
+                            "Database Error", JOptionPane.ERROR_MESSAGE);
+                    e.getCause().printStackTrace();
+                }
+            }
+        };
+        BackgroundExecutor.execute(loadWorker);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.feedbacksystem.ui;
+
+import com.feedbacksystem.analytics.TrendComparison;
+import com.feedbacksystem.analytics.TrendEngine;
+import com.feedbacksystem.analytics.TrendWindow;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only table of rating trends, one row per granularity: the latest
+ * window against the one before it, and a sparkline of every bucket kept
+ */
+public class TrendTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Window", "Entries", "Average", "Before", "Change", "Trend"};
+    // Buckets per compared window: a day of hours, a week of days, the current week
+    private static final int[] COMPARED_BUCKETS = {24, 7, 1};
+    
+    private List<Row> rows = new ArrayList<>();
+    
+    /**
+     * One granularity of the trends of a category
+     */
+    public static class Row {
+        private final String label;
+        private final TrendComparison comparison;
+        private final List<TrendWindow> series;
+        
+        Row(String label, TrendComparison comparison, List<TrendWindow> series) {
+            this.label = label;
+            this.comparison = comparison;
+            this.series = series;
+        }
+    }
+    
+    /**
+     * Reads the rows for a category from the engine. May run off the event
+     * dispatch thread.
+     * @param engine The trends, already refreshed
+     * @param category The category, or null for all categories
+     * @param nowMillis Time the windows end at
+     * @return Rows for {@link #setRows}
+     */
+    public static List<Row> readRows(TrendEngine engine, String category, long nowMillis) {
+        List<Row> rows = new ArrayList<>();
+        for (TrendEngine.Granularity granularity : TrendEngine.Granularity.values()) {
+            int buckets = Math.min(COMPARED_BUCKETS[granularity.ordinal()], engine.getBuckets(granularity) / 2);
+            rows.add(new Row(label(granularity, buckets),
+                             engine.compare(category, granularity, buckets, nowMillis),
+                             engine.getSeries(category, granularity, nowMillis)));
+        }
+        return rows;
+    }
+    
+    /**
+     * Replaces the rows. Call on the event dispatch thread.
+     * @param rows Rows read by {@link #readRows}
+     */
+    public void setRows(List<Row> rows) {
+        this.rows = rows;
+        fireTableDataChanged();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+    
+    /**
+     * The sparkline column holds a List of TrendWindow, drawn by SparklineRenderer
+     */
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == COLUMNS.length - 1 ? List.class : Object.class;
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        Row trend = rows.get(row);
+        TrendWindow current = trend.comparison.getCurrent();
+        TrendWindow previous = trend.comparison.getPrevious();
+        switch (column) {
+            case 0:
+                return trend.label;
+            case 1:
+                return current.getCount();
+            case 2:
+                return current.getCount() > 0 ? String.format("%.2f", current.getAverageRating()) : "";
+            case 3:
+                return previous.getCount() > 0 ? String.format("%.2f", previous.getAverageRating()) : "";
+            case 4:
+                double change = trend.comparison.getAverageChange();
+                return Double.isNaN(change) ? "" : String.format("%+.2f", change);
+            default:
+                return trend.series;
+        }
+    }
+    
+    private static String label(TrendEngine.Granularity granularity, int buckets) {
+        switch (granularity) {
+            case HOUR:
+                return buckets == 1 ? "This hour" : "Last " + buckets + " hours";
+            case DAY:
+                return buckets == 1 ? "Today" : "Last " + buckets + " days";
+            default:
+                return buckets == 1 ? "This week" : "Last " + buckets + " weeks";
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,221 @@
+package com.feedbacksystem.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Minimal JSON support for the HTTP endpoint and the exporter: parses a
+ * flat object whose values are strings, numbers, booleans or null, and
+ * escapes strings for output. Avoids a third-party JSON dependency.
+ */
+public class SimpleJson {
+    private final String text;
+    private int pos;
+    
+    private SimpleJson(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * Parses a flat JSON object
+     * @param text The JSON text
+     * @return Map of member names to String, Double, Boolean or null values
+     * @throws IllegalArgumentException if the text is not a flat JSON object
+     */
+    public static Map<String, Object> parseObject(String text) {
+        SimpleJson parser = new SimpleJson(text);
+        Map<String, Object> result = parser.readObject();
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Unexpected content after JSON object");
+        }
+        return result;
+    }
+    
+    /**
+     * Quotes and escapes a string as a JSON string literal
+     */
+    public static String quote(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2);
+        quote(value, sb);
+        return sb.toString();
+    }
+    
+    /**
+     * Appends a string to a buffer as a JSON string literal
+     * @param value The string to quote
+     * @param sb The buffer to append to
+     */
+    public static void quote(String value, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+    
+    private Map<String, Object> readObject() {
+        Map<String, Object> members = new LinkedHashMap<>();
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            members.put(name, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return members;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+    
+    private Object readValue() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '-' || (c >= '0' && c <= '9')) {
+            return readNumber();
+        }
+        if (text.startsWith("true", pos)) {
+            pos += 4;
+            return Boolean.TRUE;
+        }
+        if (text.startsWith("false", pos)) {
+            pos += 5;
+            return Boolean.FALSE;
+        }
+        if (text.startsWith("null", pos)) {
+            pos += 4;
+            return null;
+        }
+        throw error("Only string, number, boolean and null values are supported");
+    }
+    
+    private String readString() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    sb.append(escaped);
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > text.length()) {
+                        throw error("Truncated unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid unicode escape");
+                    }
+                    pos += 4;
+                    break;
+                default:
+                    throw error("Invalid escape sequence");
+            }
+        }
+    }
+    
+    private Double readNumber() {
+        int start = pos;
+        while (pos < text.length() && "+-0123456789.eE".indexOf(text.charAt(pos)) >= 0) {
+            pos++;
+        }
+        try {
+            return Double.valueOf(text.substring(start, pos));
+        } catch (NumberFormatException e) {
+            throw error("Invalid number");
+        }
+    }
+    
+    private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+            pos++;
+        }
+    }
+    
+    private char peek() {
+        if (pos >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(pos);
+    }
+    
+    private char next() {
+        char c = peek();
+        pos++;
+        return c;
+    }
+    
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + pos);
+    }
+}
\ No newline at end of file
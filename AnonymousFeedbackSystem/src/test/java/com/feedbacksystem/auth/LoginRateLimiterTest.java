@@ -0,0 +1,62 @@
+package com.feedbacksystem.auth;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Limits, recovery and eviction of LoginRateLimiter
+ */
+public class LoginRateLimiterTest {
+    private static final long NOW = 1700000000000L;
+    
+    @Test
+    public void burstThenOneAttemptPerInterval() {
+        LoginRateLimiter limiter = new LoginRateLimiter(3, 1000, 10);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("alice", NOW));
+        }
+        assertEquals(1000, limiter.tryAcquire("alice", NOW), "the burst is used up");
+        assertEquals(0, limiter.tryAcquire("bob", NOW), "other keys are limited separately");
+        assertEquals(0, limiter.tryAcquire("alice", NOW + 1000));
+        assertEquals(1000, limiter.tryAcquire("alice", NOW + 1000));
+    }
+    
+    @Test
+    public void globalLimitIsTwentyPerSecond() {
+        LoginRateLimiter limiter = LoginRateLimiter.perSecond(20);
+        for (long second = 0; second < 3; second++) {
+            long now = NOW + second * 1000;
+            for (int i = 0; i < 20; i++) {
+                assertEquals(0, limiter.tryAcquire("", now), "attempt " + (i + 1) + " in second " + second);
+            }
+            assertTrue(limiter.tryAcquire("", now) > 0, "attempt 21 in second " + second);
+        }
+    }
+    
+    @Test
+    public void recoveredKeysAreEvictedFirst() {
+        LoginRateLimiter limiter = new LoginRateLimiter(1, 1000, 2);
+        assertEquals(0, limiter.tryAcquire("expired", NOW));
+        assertEquals(0, limiter.tryAcquire("throttled", NOW + 500));
+        
+        // The map is full; "expired" has recovered by now, "throttled" has not
+        assertEquals(0, limiter.tryAcquire("new", NOW + 1200));
+        assertEquals(300, limiter.tryAcquire("throttled", NOW + 1200), "still tracked");
+    }
+    
+    @Test
+    public void oldestArrivalIsEvictedWhenNoneHasRecovered() {
+        LoginRateLimiter limiter = new LoginRateLimiter(2, 1000, 2);
+        assertEquals(0, limiter.tryAcquire("first", NOW));
+        assertEquals(0, limiter.tryAcquire("second", NOW + 100));
+        // "first" was added first but now has the later arrival time
+        assertEquals(0, limiter.tryAcquire("first", NOW + 200));
+        assertTrue(limiter.tryAcquire("first", NOW + 300) > 0);
+        
+        assertEquals(0, limiter.tryAcquire("new", NOW + 300));
+        assertTrue(limiter.tryAcquire("first", NOW + 300) > 0, "the most recent key is kept");
+        assertEquals(0, limiter.tryAcquire("second", NOW + 300), "the oldest arrival was forgotten");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,100 @@
+package com.feedbacksystem.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.db.Partition;
+import com.feedbacksystem.db.PartitionStore;
+import com.feedbacksystem.model.Feedback;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Which FeedbackDAO reads and deletes reach the archive partitions
+ */
+public class FeedbackDAOPartitionTest {
+    // 2020-01-15, long before any hot window
+    private static final long ARCHIVED_MILLIS = 1579046400000L;
+    
+    @BeforeAll
+    public static void openDatabase() throws IOException {
+        File database = File.createTempFile("feedback-partitions", ".db");
+        database.deleteOnExit();
+        File directory = Files.createTempDirectory("feedback-partitions").toFile();
+        directory.deleteOnExit();
+        System.setProperty("partition.enabled", "true");
+        System.setProperty("partition.directory", directory.getPath());
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+    }
+    
+    @AfterAll
+    public static void closeDatabase() {
+        DatabaseManager.closeConnection();
+        System.clearProperty("partition.enabled");
+        System.clearProperty("partition.directory");
+    }
+    
+    @Test
+    public void archivedEntriesAreListedInFullAndDeletable() throws Exception {
+        FeedbackDAO dao = new FeedbackDAO();
+        Feedback archived = new Feedback("Teacher", "Archived entry", 2, new Date(ARCHIVED_MILLIS));
+        Feedback current = new Feedback("Teacher", "Current entry", 4, new Date());
+        assertTrue(dao.insertFeedback(archived));
+        assertTrue(dao.insertFeedback(current));
+        assertEquals(1, new PartitionDAO().archiveChunk(DatabaseManager.getPartitions(),
+                                                        System.currentTimeMillis() - 86400000L, 100));
+        
+        List<Feedback> all = dao.getAllFeedback();
+        assertEquals(2, all.size(), "the full list includes the archive");
+        assertEquals("Current entry", all.get(0).getMessage());
+        assertEquals("Archived entry", all.get(1).getMessage());
+        assertEquals(1, dao.getFeedbackPage(null, null, 10).size(), "pages cover the main database");
+        assertEquals(1, dao.countFeedback(null));
+        assertEquals(1, dao.countArchivedFeedback(null));
+        assertEquals(1, dao.countArchivedFeedback("Teacher"));
+        assertEquals(0, dao.countArchivedFeedback("Event"));
+        
+        assertTrue(dao.deleteFeedback(all.get(1).getId()), "an archived entry can be deleted");
+        assertEquals(0, dao.countArchivedFeedback(null));
+        assertFalse(dao.deleteFeedback(all.get(1).getId()));
+        assertEquals(1, dao.getAllFeedback().size());
+    }
+    
+    @Test
+    public void partitionCategoriesAreListedOnce() throws Exception {
+        FeedbackDAO dao = new FeedbackDAO();
+        String[] categories = {"Teacher", "Event", "Teacher", "Other", "Event"};
+        for (String category : categories) {
+            assertTrue(dao.insertFeedback(new Feedback(category, "Archived " + category, 3,
+                                                       new Date(ARCHIVED_MILLIS))));
+        }
+        PartitionStore partitions = DatabaseManager.getPartitions();
+        new PartitionDAO().archiveChunk(partitions, System.currentTimeMillis() - 86400000L, 100);
+        Partition partition = partitions.getOverlapping(ARCHIVED_MILLIS, ARCHIVED_MILLIS + 1).get(0);
+        
+        assertEquals(Arrays.asList("Event", "Other", "Teacher"),
+                     new PartitionDAO().getCategories(partitions, partition));
+        for (Feedback feedback : dao.getAllFeedback()) {
+            if (feedback.getMessage().startsWith("Archived ")) {
+                assertTrue(dao.deleteFeedback(feedback.getId()));
+            }
+        }
+    }
+    
+    @Test
+    public void closingReplacesThePartitionStore() {
+        PartitionStore closed = DatabaseManager.getPartitions();
+        DatabaseManager.closeConnection();
+        assertNotSame(closed, DatabaseManager.getPartitions());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,206 @@
+package com.feedbacksystem.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.feedbacksystem.db.DatabaseManager;
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Regression check for the DAO query paths.
+ *
+ * Runs EXPLAIN QUERY PLAN for every query the DAOs issue and fails if any
+ * of them scans a whole table or index or sorts in a temporary b-tree,
+ * which is what happens when an index is dropped or a query stops matching
+ * one. Queries that read a whole index on purpose are listed in
+ * {@link #fullScansAllowed()}.
+ *
+ * Runs with the tests (mvn test). A scratch database is created and
+ * migrated unless -DqueryPlanCheck.database=FILE names one to check, e.g.
+ * mvn test -Dtest=QueryPlanCheck -DqueryPlanCheck.database=feedback.db
+ */
+public class QueryPlanCheck {
+    // An FTS5 scan with a MATCH constraint reads only the matching rows
+    private static final Pattern FULL_TEXT_MATCH = Pattern.compile(" VIRTUAL TABLE INDEX \\d+:M");
+    
+    /**
+     * Returns every DAO query by name. New DAO queries must be added here.
+     */
+    static Map<String, String> queries() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        queries.put("FeedbackDAO.getAllFeedback", FeedbackDAO.SELECT_ALL_SQL);
+        queries.put("FeedbackDAO.getFeedbackByCategory", FeedbackDAO.SELECT_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.getFeedbackPage (first)", FeedbackDAO.PAGE_FIRST_SQL);
+        queries.put("FeedbackDAO.getFeedbackPage (first, category)", FeedbackDAO.PAGE_FIRST_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.getFeedbackPage (after)", FeedbackDAO.PAGE_AFTER_SQL);
+        queries.put("FeedbackDAO.getFeedbackPage (after, category)", FeedbackDAO.PAGE_AFTER_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.getFeedbackPageAt", FeedbackDAO.PAGE_AT_SQL);
+        queries.put("FeedbackDAO.getFeedbackPageAt (category)", FeedbackDAO.PAGE_AT_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.countFeedback", FeedbackDAO.COUNT_SQL);
+        queries.put("FeedbackDAO.countFeedback (category)", FeedbackDAO.COUNT_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.deleteFeedback", FeedbackDAO.DELETE_SQL);
+        queries.put("FeedbackDAO.deleteFeedback (event)", FeedbackDAO.DELETED_EVENT_SQL);
+        queries.put("FeedbackDAO.streamFeedback", FeedbackDAO.STREAM_SQL);
+        queries.put("FeedbackDAO.streamFeedback (category)", FeedbackDAO.STREAM_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.countFeedback (range)", FeedbackDAO.COUNT_RANGE_SQL);
+        queries.put("FeedbackDAO.countFeedback (range, category)", FeedbackDAO.COUNT_RANGE_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.getChangesSince (version)", FeedbackDAO.DATA_VERSION_SQL);
+        queries.put("FeedbackDAO.getFeedbackSnapshot (max id)", FeedbackDAO.MAX_ID_SQL);
+        queries.put("FeedbackDAO.getChangesSince (inserted)", FeedbackDAO.INSERTED_SINCE_SQL);
+        queries.put("FeedbackDAO.getChangesSince (deleted)", FeedbackDAO.DELETED_SINCE_SQL);
+        queries.put("FeedbackDAO.searchFeedback", FeedbackDAO.SEARCH_SQL);
+        queries.put("FeedbackDAO.searchFeedback (category)", FeedbackDAO.SEARCH_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.searchFeedback (newest)", FeedbackDAO.SEARCH_NEWEST_SQL);
+        queries.put("FeedbackDAO.searchFeedback (newest, category)", FeedbackDAO.SEARCH_NEWEST_BY_CATEGORY_SQL);
+        queries.put("FeedbackDAO.countSearchResults", FeedbackDAO.SEARCH_COUNT_SQL);
+        queries.put("FeedbackDAO.countSearchResults (category)", FeedbackDAO.SEARCH_COUNT_BY_CATEGORY_SQL);
+        queries.put("AdminDAO.authenticateAdmin", AdminDAO.AUTHENTICATE_SQL);
+        queries.put("AdminDAO.setPassword", AdminDAO.UPDATE_PASSWORD_SQL);
+        queries.put("DuplicateDAO.getRecentOriginals", DuplicateDAO.RECENT_ORIGINALS_SQL);
+        queries.put("DuplicateDAO.addDuplicates", DuplicateDAO.ADD_DUPLICATES_SQL);
+        queries.put("PartitionDAO.archiveChunk (oldest)", PartitionDAO.OLDEST_SQL);
+        queries.put("PartitionDAO.archiveChunk", PartitionDAO.ARCHIVE_CHUNK_SQL);
+        queries.put("PartitionDAO.getCategories", PartitionDAO.CATEGORIES_SQL);
+        queries.put("RetentionDAO.purgeExpired", RetentionDAO.PURGE_SQL);
+        queries.put("RetentionDAO.countExpired", RetentionDAO.COUNT_EXPIRED_SQL);
+        queries.put("RetentionDAO.pruneTombstones (cutoff)", RetentionDAO.TOMBSTONE_CUTOFF_SQL);
+        queries.put("RetentionDAO.pruneTombstones", RetentionDAO.PRUNE_TOMBSTONES_SQL);
+        queries.put("RetentionDAO.pruneTombstones (reset)", RetentionDAO.MARK_RESET_SQL);
+        queries.put("SubmissionLogDAO.getCheckpoint", SubmissionLogDAO.CHECKPOINT_SQL);
+        queries.put("StatsDAO.getCategoryStats", StatsDAO.CATEGORY_STATS_SQL);
+        queries.put("StatsDAO.getDailyStats", StatsDAO.DAILY_STATS_SQL);
+        queries.put("StatsDAO.getDailyStats (category)", StatsDAO.DAILY_STATS_BY_CATEGORY_SQL);
+        queries.put("StatsDAO.loadTrends (days)", StatsDAO.TREND_DAYS_SQL);
+        queries.put("StatsDAO.loadTrends (hours)", StatsDAO.TREND_HOURS_SQL);
+        queries.put("TextAnalysisDAO.getCheckpoint", TextAnalysisDAO.CHECKPOINT_SQL);
+        queries.put("TextAnalysisDAO.storeChunk (checkpoint)", TextAnalysisDAO.SET_CHECKPOINT_SQL);
+        queries.put("TextAnalysisDAO.getPending", TextAnalysisDAO.PENDING_SQL);
+        queries.put("TextAnalysisDAO.countPending", TextAnalysisDAO.COUNT_PENDING_SQL);
+        queries.put("TextAnalysisDAO.storeChunk", TextAnalysisDAO.INSERT_ANALYSIS_SQL);
+        queries.put("TextAnalysisDAO.storeChunk (keywords)", TextAnalysisDAO.ADD_KEYWORD_SQL);
+        queries.put("TextAnalysisDAO.getTopKeywords", TextAnalysisDAO.TOP_KEYWORDS_SQL);
+        queries.put("TextAnalysisDAO.getFeedbackBySentiment", TextAnalysisDAO.BY_SENTIMENT_SQL);
+        queries.put("TextAnalysisDAO.getFeedbackBySentiment (desc)", TextAnalysisDAO.BY_SENTIMENT_DESC_SQL);
+        queries.put("TextAnalysisDAO.getFeedbackBySentiment (category)", TextAnalysisDAO.BY_SENTIMENT_CATEGORY_SQL);
+        queries.put("TextAnalysisDAO.getFeedbackBySentiment (category, desc)",
+                    TextAnalysisDAO.BY_SENTIMENT_CATEGORY_DESC_SQL);
+        return queries;
+    }
+    
+    /**
+     * Returns the queries allowed to scan a whole index, with the reason.
+     * Their cost is bounded by their LIMIT or is the point of the query.
+     */
+    static Map<String, String> fullScansAllowed() {
+        Map<String, String> allowed = new LinkedHashMap<>();
+        allowed.put("FeedbackDAO.getAllFeedback", "returns every entry");
+        allowed.put("FeedbackDAO.getFeedbackPage (first)", "walks the index newest first and stops at the LIMIT");
+        allowed.put("FeedbackDAO.getFeedbackPageAt", "stops at OFFSET + LIMIT; only used for jumps without a cursor");
+        allowed.put("FeedbackDAO.countFeedback", "counts every entry; SQLite keeps no row count");
+        allowed.put("RetentionDAO.pruneTombstones (cutoff)", "walks the newest tombstones up to the OFFSET kept");
+        return allowed;
+    }
+    
+    /**
+     * Checks the plan of every DAO query
+     * @param conn Connection to a fully migrated database
+     * @param verbose Print each plan to standard output
+     * @return Descriptions of the queries that are not index-backed
+     * @throws SQLException if a plan cannot be produced
+     */
+    public static List<String> findUnindexedQueries(Connection conn, boolean verbose) throws SQLException {
+        List<String> problems = new ArrayList<>();
+        Set<String> tables = tableNames(conn);
+        Map<String, String> allowed = fullScansAllowed();
+        
+        for (Map.Entry<String, String> query : queries().entrySet()) {
+            List<String> plan = explain(conn, query.getValue());
+            if (verbose) {
+                System.out.println(query.getKey());
+                for (String step : plan) {
+                    System.out.println("    " + step);
+                }
+            }
+            for (String step : plan) {
+                if ((isFullScan(step, tables) && !allowed.containsKey(query.getKey()))
+                        || step.contains("USE TEMP B-TREE")) {
+                    problems.add(query.getKey() + ": " + step);
+                }
+            }
+        }
+        
+        return problems;
+    }
+    
+    /**
+     * A SCAN step of a table reads every row, through an index or not.
+     * Scans of a query's own CTEs and subqueries are not of a table, and
+     * aggregate tables are exempt: they hold one row per category and day,
+     * however much feedback there is.
+     */
+    private static boolean isFullScan(String step, Set<String> tables) {
+        if (!step.startsWith("SCAN ")) {
+            return false;
+        }
+        String name = step.substring("SCAN ".length()).split(" ", 2)[0];
+        return tables.contains(name) && !name.equals("feedback_daily_stats")
+                && !FULL_TEXT_MATCH.matcher(step).find();
+    }
+    
+    private static Set<String> tableNames(Connection conn) throws SQLException {
+        Set<String> tables = new HashSet<>();
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT name FROM sqlite_master WHERE type = 'table'");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                tables.add(rs.getString(1));
+            }
+        }
+        return tables;
+    }
+    
+    private static List<String> explain(Connection conn, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        // Unbound parameters are NULL, which does not change the chosen plan
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                plan.add(rs.getString("detail"));
+            }
+        }
+        return plan;
+    }
+    
+    @Test
+    public void everyQueryIsIndexBacked() throws SQLException, IOException {
+        File database;
+        String path = System.getProperty("queryPlanCheck.database");
+        if (path != null) {
+            database = new File(path);
+        } else {
+            database = File.createTempFile("feedback-plan-check", ".db");
+            database.deleteOnExit();
+        }
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+        
+        List<String> problems;
+        try (Connection conn = DatabaseManager.getConnection()) {
+            problems = findUnindexedQueries(conn, false);
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+        assertEquals(Collections.<String>emptyList(), problems, "Queries not backed by an index");
+    }
+}
\ No newline at end of file
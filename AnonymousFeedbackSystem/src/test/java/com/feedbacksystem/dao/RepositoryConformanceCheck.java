@@ -0,0 +1,531 @@
+package com.feedbacksystem.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.feedbacksystem.analytics.TrendEngine;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.Feedback;
+import com.feedbacksystem.model.FeedbackChanges;
+import com.feedbacksystem.model.FeedbackSnapshot;
+import com.feedbacksystem.model.PageCursor;
+import com.feedbacksystem.model.RatingStats;
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Conformance check for the storage backends.
+ *
+ * Runs the same operations against every backend, starting from an empty
+ * store, and compares the results with what the repository interfaces
+ * promise: ordering, paging, time ranges, search, change tracking, rating
+ * aggregates, trend rebuilds, duplicates and admin passwords. SQLite runs on a scratch
+ * database; the memory backend runs once plainly and once more through a
+ * snapshot file, which must give back the same entries after a reload.
+ * A new backend must get a test here and pass before it is configured.
+ *
+ * Runs with the tests (mvn test), one test per backend.
+ */
+public class RepositoryConformanceCheck {
+    private static final String[] CATEGORIES = {"Teacher", "Facility", "Event"};
+    private static final String[] MESSAGES = {
+            "The projector in room %d is broken",
+            "Great lecture about databases and indexing",
+            "Projectors and screens need an upgrade",
+            "CS-101 labs run late, lecture notes help"
+    };
+    private static final int ENTRIES = 30;
+    private static final long DAY_MILLIS = 86400000L;
+    private static final long HOUR_MILLIS = 3600000L;
+    private static final long BASE_DAY = 19700;
+    private static final long BASE_MILLIS = BASE_DAY * DAY_MILLIS;
+    
+    // Set by forBackend; JUnit creates the instances that run the tests
+    private String backend;
+    private final List<String> failures = new ArrayList<>();
+    private int checks;
+    
+    private static RepositoryConformanceCheck forBackend(String backend) {
+        RepositoryConformanceCheck check = new RepositoryConformanceCheck();
+        check.backend = backend;
+        return check;
+    }
+    
+    /**
+     * Runs every check against one empty backend
+     * @param backend Name used in the report
+     * @return Descriptions of the checks that failed
+     * @throws SQLException if an operation fails outright
+     * @throws IOException if streaming fails
+     */
+    public static List<String> check(String backend, FeedbackRepository feedback, StatsRepository stats,
+                                     DuplicateRepository duplicates, AdminRepository admins)
+            throws SQLException, IOException {
+        RepositoryConformanceCheck check = forBackend(backend);
+        List<Feedback> inserted = check.checkInserts(feedback);
+        check.checkReads(feedback, inserted);
+        check.checkRanges(feedback, inserted);
+        check.checkSearch(feedback, inserted);
+        check.checkStats(stats, inserted);
+        check.checkTrends(feedback, stats, inserted);
+        check.checkDuplicates(duplicates, inserted);
+        check.checkChanges(feedback);
+        check.checkAdmins(admins);
+        System.out.println(backend + ": " + check.checks + " checks, " + check.failures.size() + " failed");
+        return check.failures;
+    }
+    
+    private void expect(boolean condition, String description) {
+        checks++;
+        if (!condition) {
+            failures.add(backend + ": " + description);
+        }
+    }
+    
+    /**
+     * Inserts the test entries: pairs share a submission time, so order
+     * among equal times is covered, and the last one is a flagged duplicate
+     * of the first
+     * @return The entries as inserted, newest first
+     */
+    private List<Feedback> checkInserts(FeedbackRepository feedback) throws SQLException {
+        List<Feedback> batch = new ArrayList<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            batch.add(new Feedback(CATEGORIES[i % CATEGORIES.length], String.format(MESSAGES[i % MESSAGES.length], i),
+                                   1 + i % 5, new Date(BASE_MILLIS + (i / 2) * HOUR_MILLIS)));
+        }
+        feedback.insertFeedbackBatch(batch);
+        boolean consecutive = batch.get(0).getId() > 0;
+        for (int i = 1; i < batch.size(); i++) {
+            consecutive &= batch.get(i).getId() == batch.get(i - 1).getId() + 1;
+        }
+        expect(consecutive, "insertFeedbackBatch sets consecutive ids");
+        
+        Feedback duplicate = new Feedback(CATEGORIES[0], String.format(MESSAGES[0], 0), 1,
+                                          new Date(BASE_MILLIS + ENTRIES * HOUR_MILLIS));
+        duplicate.setDuplicateOf(batch.get(0).getId());
+        expect(feedback.insertFeedback(duplicate), "insertFeedback returns true");
+        
+        List<Feedback> all = feedback.getAllFeedback();
+        expect(all.size() == ENTRIES + 1, "getAllFeedback returns every entry");
+        if (!all.isEmpty()) {
+            // insertFeedback does not promise to set the id
+            duplicate.setId(all.get(0).getId());
+        }
+        List<Feedback> expected = new ArrayList<>(batch);
+        expected.add(duplicate);
+        sortNewestFirst(expected);
+        return expected;
+    }
+    
+    private void checkReads(FeedbackRepository feedback, List<Feedback> entries) throws SQLException {
+        expect(sameEntries(feedback.getAllFeedback(), entries), "getAllFeedback is newest first by (date, id)");
+        expect(feedback.countFeedback(null) == entries.size(), "countFeedback(null) counts everything");
+        
+        for (String category : CATEGORIES) {
+            List<Feedback> expected = filter(entries, category, Long.MIN_VALUE, Long.MAX_VALUE);
+            expect(sameEntries(feedback.getFeedbackByCategory(category), expected),
+                   "getFeedbackByCategory(" + category + ")");
+            expect(feedback.countFeedback(category) == expected.size(), "countFeedback(" + category + ")");
+        }
+        
+        for (String category : Arrays.asList(null, CATEGORIES[1])) {
+            List<Feedback> paged = new ArrayList<>();
+            PageCursor after = null;
+            List<Feedback> page;
+            while (!(page = feedback.getFeedbackPage(category, after, 7)).isEmpty() && paged.size() <= entries.size()) {
+                paged.addAll(page);
+                after = PageCursor.of(page.get(page.size() - 1));
+            }
+            List<Feedback> expected = filter(entries, category, Long.MIN_VALUE, Long.MAX_VALUE);
+            expect(sameEntries(paged, expected), "getFeedbackPage walks every entry of " + category + " once");
+            expect(sameEntries(feedback.getFeedbackPageAt(category, 3, 5), expected.subList(3, 8)),
+                   "getFeedbackPageAt(" + category + ", 3, 5)");
+        }
+        expect(feedback.getFeedbackPageAt(null, entries.size(), 5).isEmpty(), "getFeedbackPageAt past the end is empty");
+    }
+    
+    private void checkRanges(FeedbackRepository feedback, List<Feedback> entries) throws SQLException, IOException {
+        long from = BASE_MILLIS + 3 * HOUR_MILLIS;
+        long to = BASE_MILLIS + 9 * HOUR_MILLIS;
+        for (String category : Arrays.asList(null, CATEGORIES[2])) {
+            List<Feedback> expected = filter(entries, category, from, to);
+            Collections.reverse(expected);
+            expect(feedback.countFeedback(category, from, to) == expected.size(),
+                   "countFeedback(" + category + ", from, to) includes from and excludes to");
+            
+            final List<Feedback> streamed = new ArrayList<>();
+            long rows = feedback.streamFeedback(category, from, to, new FeedbackRepository.FeedbackHandler() {
+                @Override
+                public void handle(Feedback entry) {
+                    streamed.add(entry);
+                }
+            });
+            expect(rows == expected.size() && sameEntries(streamed, expected),
+                   "streamFeedback(" + category + ") is oldest first within the range");
+        }
+        expect(feedback.countFeedback(null, to, from) == 0, "countFeedback with an empty range is 0");
+    }
+    
+    private void checkSearch(FeedbackRepository feedback, List<Feedback> entries) throws SQLException {
+        // Which of the messages each query matches
+        Map<String, boolean[]> queries = new TreeMap<>();
+        queries.put("projector", new boolean[] {true, false, false, false});
+        queries.put("PROJECT*", new boolean[] {true, false, true, false});
+        queries.put("lecture databases", new boolean[] {false, true, false, false});
+        queries.put("cs-101", new boolean[] {false, false, false, true});
+        queries.put("lecture* help", new boolean[] {false, false, false, true});
+        queries.put("nothing-matches", new boolean[] {false, false, false, false});
+        
+        for (Map.Entry<String, boolean[]> query : queries.entrySet()) {
+            for (String category : Arrays.asList(null, CATEGORIES[0])) {
+                List<Feedback> expected = new ArrayList<>();
+                for (Feedback entry : filter(entries, category, Long.MIN_VALUE, Long.MAX_VALUE)) {
+                    if (query.getValue()[messageIndex(entry)]) {
+                        expected.add(entry);
+                    }
+                }
+                String name = "\"" + query.getKey() + "\" in " + category;
+                expect(feedback.countSearchResults(query.getKey(), category) == expected.size(),
+                       "countSearchResults " + name);
+                expect(sameEntries(feedback.searchFeedback(query.getKey(), category, false, 0, 100), expected),
+                       "searchFeedback newest first " + name);
+                expect(sameIds(feedback.searchFeedback(query.getKey(), category, true, 0, 100), expected),
+                       "searchFeedback by relevance finds the same entries " + name);
+                if (expected.size() > 3) {
+                    expect(sameEntries(feedback.searchFeedback(query.getKey(), category, false, 1, 2),
+                                       expected.subList(1, 3)),
+                           "searchFeedback offset and limit " + name);
+                }
+            }
+        }
+        expect(feedback.searchFeedback("   ", null, true, 0, 10).isEmpty(), "searchFeedback without words is empty");
+        expect(feedback.countSearchResults("*", null) == 0, "countSearchResults without words is 0");
+    }
+    
+    private void checkStats(StatsRepository stats, List<Feedback> entries) throws SQLException {
+        Map<String, long[]> byCategory = new TreeMap<>();
+        Map<Long, long[]> byDay = new TreeMap<>(Collections.<Long>reverseOrder());
+        for (Feedback entry : entries) {
+            if (entry.getDuplicateOf() > 0) {
+                continue;
+            }
+            add(byCategory, entry.getCategory(), entry);
+            add(byDay, entry.getDateSubmitted().getTime() / DAY_MILLIS, entry);
+        }
+        
+        List<RatingStats> categoryStats = stats.getCategoryStats();
+        expect(categoryStats.size() == byCategory.size(), "getCategoryStats has one row per category");
+        int i = 0;
+        for (Map.Entry<String, long[]> expected : byCategory.entrySet()) {
+            if (i < categoryStats.size()) {
+                RatingStats actual = categoryStats.get(i++);
+                expect(expected.getKey().equals(actual.getCategory()) && matches(actual, expected.getValue()),
+                       "getCategoryStats for " + expected.getKey() + " leaves out flagged duplicates");
+            }
+        }
+        
+        List<RatingStats> dailyStats = stats.getDailyStats(null, BASE_DAY);
+        expect(dailyStats.size() == byDay.size(), "getDailyStats has one row per day");
+        i = 0;
+        for (Map.Entry<Long, long[]> expected : byDay.entrySet()) {
+            if (i < dailyStats.size()) {
+                RatingStats actual = dailyStats.get(i++);
+                expect(actual.getDay() == expected.getKey() && matches(actual, expected.getValue()),
+                       "getDailyStats for day " + expected.getKey() + ", newest first");
+            }
+        }
+        expect(stats.getDailyStats(null, BASE_DAY + 2).isEmpty(), "getDailyStats leaves out days before fromDay");
+        long count = 0;
+        for (RatingStats day : stats.getDailyStats(CATEGORIES[1], BASE_DAY)) {
+            count += day.getCount();
+        }
+        expect(count == byCategory.get(CATEGORIES[1])[0], "getDailyStats(category) covers only that category");
+    }
+    
+    private void checkTrends(FeedbackRepository feedback, StatsRepository stats, List<Feedback> entries)
+            throws SQLException {
+        final long fromHour = BASE_DAY * 24 + 4;
+        Map<String, long[]> expected = new TreeMap<>();
+        for (Feedback entry : entries) {
+            long millis = entry.getDateSubmitted().getTime();
+            if (entry.getDuplicateOf() == 0) {
+                add(expected, entry.getCategory() + " day " + millis / DAY_MILLIS, entry);
+                if (millis >= fromHour * HOUR_MILLIS) {
+                    add(expected, entry.getCategory() + " hour " + millis / HOUR_MILLIS, entry);
+                }
+            }
+        }
+        
+        final long[] mark = new long[2];
+        final Map<String, long[]> loaded = new TreeMap<>();
+        stats.loadTrends(BASE_DAY, fromHour, new TrendEngine.Loader() {
+            @Override
+            public void mark(long version, int lastId) {
+                mark[0] = version;
+                mark[1] = lastId;
+            }
+            
+            @Override
+            public void addDay(String category, long day, long count, long ratingSum) {
+                addTrend(loaded, category + " day " + day, count, ratingSum);
+            }
+            
+            @Override
+            public void addHour(String category, long hour, long count, long ratingSum) {
+                addTrend(loaded, category + " hour " + hour, count, ratingSum);
+            }
+        });
+        
+        boolean same = loaded.size() == expected.size();
+        for (Map.Entry<String, long[]> group : expected.entrySet()) {
+            long[] actual = loaded.get(group.getKey());
+            same &= actual != null && actual[0] == group.getValue()[0] && actual[1] == group.getValue()[1];
+        }
+        expect(same, "loadTrends has the days and hours of the originals, from fromHour on");
+        FeedbackSnapshot snapshot = feedback.getFeedbackSnapshot(null, 1);
+        expect(mark[0] == snapshot.getVersion() && mark[1] == snapshot.getLastId(),
+               "loadTrends marks the data version it read");
+    }
+    
+    private static void addTrend(Map<String, long[]> totals, String key, long count, long ratingSum) {
+        long[] total = totals.get(key);
+        if (total == null) {
+            total = new long[2];
+            totals.put(key, total);
+        }
+        total[0] += count;
+        total[1] += ratingSum;
+    }
+    
+    private void checkDuplicates(DuplicateRepository duplicates, List<Feedback> entries) throws SQLException {
+        List<Feedback> expected = new ArrayList<>();
+        for (Feedback entry : filter(entries, CATEGORIES[0], BASE_MILLIS + 4 * HOUR_MILLIS, Long.MAX_VALUE)) {
+            if (entry.getDuplicateOf() == 0) {
+                expected.add(entry);
+            }
+        }
+        List<Feedback> recent = duplicates.getRecentOriginals(CATEGORIES[0], BASE_MILLIS + 4 * HOUR_MILLIS, 3);
+        List<Feedback> newest = new ArrayList<>(expected.subList(0, Math.min(3, expected.size())));
+        Collections.reverse(newest);
+        expect(sameIds(recent, newest) && recent.size() == newest.size() && isOldestFirst(recent),
+               "getRecentOriginals returns the newest originals, oldest first");
+        
+        Map<Integer, Integer> counts = new TreeMap<>();
+        counts.put(entries.get(entries.size() - 1).getId(), 2);
+        counts.put(Integer.MAX_VALUE, 1);
+        duplicates.addDuplicates(counts);
+        expect(true, "addDuplicates ignores unknown ids");
+    }
+    
+    private void checkChanges(FeedbackRepository feedback) throws SQLException {
+        FeedbackSnapshot snapshot = feedback.getFeedbackSnapshot(null, 5);
+        List<Feedback> all = feedback.getAllFeedback();
+        expect(snapshot.getCount() == all.size() && sameEntries(snapshot.getFirstPage(), all.subList(0, 5)),
+               "getFeedbackSnapshot has the count and first page");
+        int lastId = 0;
+        for (Feedback entry : all) {
+            lastId = Math.max(lastId, entry.getId());
+        }
+        expect(snapshot.getLastId() == lastId, "getFeedbackSnapshot has the highest id");
+        expect(feedback.getChangesSince(snapshot.getVersion(), snapshot.getLastId(), 10).isEmpty(),
+               "getChangesSince is empty without writes");
+        
+        Feedback added = new Feedback(CATEGORIES[2], "Added after the snapshot", 4, new Date(BASE_MILLIS));
+        feedback.insertFeedbackBatch(Collections.singletonList(added));
+        Feedback removed = all.get(all.size() - 1);
+        expect(feedback.deleteFeedback(removed.getId()), "deleteFeedback returns true for an existing entry");
+        expect(!feedback.deleteFeedback(removed.getId()), "deleteFeedback returns false the second time");
+        expect(feedback.countFeedback(null) == all.size(), "countFeedback after an insert and a delete");
+        
+        FeedbackChanges changes = feedback.getChangesSince(snapshot.getVersion(), snapshot.getLastId(), 10);
+        expect(!changes.isReloadRequired() && sameIds(changes.getInserted(), Collections.singletonList(added))
+               && changes.getLastId() == added.getId(), "getChangesSince lists the inserted entry");
+        expect(changes.getDeleted().size() == 1 && changes.getDeleted().get(0).getId() == removed.getId()
+               && removed.getCategory().equals(changes.getDeleted().get(0).getCategory())
+               && removed.getRating() == changes.getDeleted().get(0).getRating(),
+               "getChangesSince lists the deleted entry with its category and rating");
+        expect(feedback.getChangesSince(changes.getVersion(), changes.getLastId(), 10).isEmpty(),
+               "getChangesSince is empty after applying the changes");
+        
+        List<Feedback> more = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            more.add(new Feedback(CATEGORIES[0], "More feedback " + i, 3, new Date(BASE_MILLIS)));
+        }
+        feedback.insertFeedbackBatch(more);
+        expect(feedback.getChangesSince(changes.getVersion(), changes.getLastId(), 2).isReloadRequired(),
+               "getChangesSince asks for a reload beyond maxChanges");
+    }
+    
+    private void checkAdmins(AdminRepository admins) throws SQLException {
+        String password = "conformance-" + backend;
+        expect(admins.setPassword("admin", password), "setPassword for the default admin");
+        expect(admins.authenticateAdmin("admin", password), "authenticateAdmin with the new password");
+        expect(!admins.authenticateAdmin("admin", password + "-wrong"), "authenticateAdmin with a wrong password");
+        expect(!admins.setPassword("no-such-admin", password), "setPassword for an unknown admin");
+    }
+    
+    private static void sortNewestFirst(List<Feedback> entries) {
+        Collections.sort(entries, new Comparator<Feedback>() {
+            @Override
+            public int compare(Feedback a, Feedback b) {
+                int byDate = Long.compare(b.getDateSubmitted().getTime(), a.getDateSubmitted().getTime());
+                return byDate != 0 ? byDate : Integer.compare(b.getId(), a.getId());
+            }
+        });
+    }
+    
+    private static List<Feedback> filter(List<Feedback> entries, String category, long fromMillis, long toMillis) {
+        List<Feedback> filtered = new ArrayList<>();
+        for (Feedback entry : entries) {
+            long date = entry.getDateSubmitted().getTime();
+            if ((category == null || category.equals(entry.getCategory())) && date >= fromMillis && date < toMillis) {
+                filtered.add(entry);
+            }
+        }
+        return filtered;
+    }
+    
+    private static int messageIndex(Feedback entry) {
+        for (int i = 0; i < MESSAGES.length; i++) {
+            if (entry.getMessage().startsWith(MESSAGES[i].substring(0, 12))) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(entry.getMessage());
+    }
+    
+    /**
+     * Compares id, category, message, rating and date, in order
+     */
+    private static boolean sameEntries(List<Feedback> actual, List<Feedback> expected) {
+        if (actual.size() != expected.size()) {
+            return false;
+        }
+        for (int i = 0; i < actual.size(); i++) {
+            Feedback a = actual.get(i);
+            Feedback e = expected.get(i);
+            if (a.getId() != e.getId() || !a.getCategory().equals(e.getCategory())
+                    || !a.getMessage().equals(e.getMessage()) || a.getRating() != e.getRating()
+                    || a.getDateSubmitted().getTime() != e.getDateSubmitted().getTime()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean sameIds(List<Feedback> actual, List<Feedback> expected) {
+        return ids(actual).equals(ids(expected)) && actual.size() == expected.size();
+    }
+    
+    private static HashSet<Integer> ids(List<Feedback> entries) {
+        HashSet<Integer> ids = new HashSet<>();
+        for (Feedback entry : entries) {
+            ids.add(entry.getId());
+        }
+        return ids;
+    }
+    
+    private static boolean isOldestFirst(List<Feedback> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            if (entries.get(i).getDateSubmitted().before(entries.get(i - 1).getDateSubmitted())) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Adds an entry to the expected aggregates: count, rating sum, then the
+     * number of ratings 1 to 5
+     */
+    private static <K> void add(Map<K, long[]> totals, K key, Feedback entry) {
+        long[] total = totals.get(key);
+        if (total == null) {
+            total = new long[7];
+            totals.put(key, total);
+        }
+        total[0]++;
+        total[1] += entry.getRating();
+        total[1 + entry.getRating()]++;
+    }
+    
+    private static boolean matches(RatingStats actual, long[] expected) {
+        if (actual.getCount() != expected[0] || actual.getRatingSum() != expected[1]) {
+            return false;
+        }
+        for (int rating = 1; rating <= 5; rating++) {
+            if (actual.getRatingCount(rating) != expected[1 + rating]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Reloads a memory backend from its snapshot and compares it with the
+     * original
+     */
+    private static List<String> checkSnapshot(InMemoryFeedbackDAO original, File snapshotFile)
+            throws SQLException, IOException {
+        RepositoryConformanceCheck check = forBackend("memory snapshot");
+        original.close();
+        InMemoryFeedbackDAO reloaded = new InMemoryFeedbackDAO(10000, snapshotFile, 0);
+        check.expect(sameEntries(reloaded.getAllFeedback(), original.getAllFeedback()),
+                     "a reloaded snapshot has the same entries");
+        check.expect(reloaded.getCategoryStats().toString().equals(original.getCategoryStats().toString()),
+                     "a reloaded snapshot has the same aggregates");
+        check.expect(reloaded.getChangesSince(0, 0, 10).isReloadRequired(),
+                     "changes from before a reload cannot be replayed");
+        List<Feedback> added = Collections.singletonList(new Feedback("Other", "After the reload", 5, new Date()));
+        reloaded.insertFeedbackBatch(added);
+        check.expect(added.get(0).getId() > original.getFeedbackSnapshot(null, 1).getLastId(),
+                     "ids are not reused after a reload");
+        System.out.println(check.backend + ": " + check.checks + " checks, " + check.failures.size() + " failed");
+        return check.failures;
+    }
+    
+    @Test
+    public void sqliteConforms() throws SQLException, IOException {
+        File database = File.createTempFile("feedback-conformance", ".db");
+        database.deleteOnExit();
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+        try {
+            assertConforms(check("sqlite", new FeedbackDAO(), new StatsDAO(), new DuplicateDAO(), new AdminDAO()));
+        } finally {
+            DatabaseManager.closeConnection();
+        }
+    }
+    
+    @Test
+    public void memoryConforms() throws SQLException, IOException {
+        InMemoryFeedbackDAO memory = new InMemoryFeedbackDAO(10000);
+        assertConforms(check("memory", memory, memory, memory, new InMemoryAdminDAO()));
+    }
+    
+    @Test
+    public void memorySnapshotConforms() throws SQLException, IOException {
+        File snapshotFile = File.createTempFile("feedback-conformance", ".snapshot");
+        snapshotFile.delete();
+        snapshotFile.deleteOnExit();
+        InMemoryFeedbackDAO snapshotted = new InMemoryFeedbackDAO(10000, snapshotFile, 0);
+        List<String> failures = new ArrayList<>();
+        failures.addAll(check("memory with snapshot", snapshotted, snapshotted, snapshotted, new InMemoryAdminDAO()));
+        failures.addAll(checkSnapshot(snapshotted, snapshotFile));
+        assertConforms(failures);
+    }
+    
+    private static void assertConforms(List<String> failures) {
+        assertEquals(Collections.<String>emptyList(), failures, "Deviations from the repository contract");
+    }
+}
\ No newline at end of file
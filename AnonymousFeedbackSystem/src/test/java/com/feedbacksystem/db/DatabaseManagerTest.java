@@ -0,0 +1,117 @@
+package com.feedbacksystem.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The settings DatabaseManager opens its connections with
+ */
+public class DatabaseManagerTest {
+    
+    @BeforeAll
+    public static void openDatabase() throws IOException {
+        File database = File.createTempFile("feedback-connections", ".db");
+        database.deleteOnExit();
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+    }
+    
+    @AfterAll
+    public static void closeDatabase() {
+        DatabaseManager.closeConnection();
+    }
+    
+    @Test
+    public void writerIsDurableInWalMode() throws SQLException {
+        try (Connection conn = DatabaseManager.getWriteConnection()) {
+            assertEquals("wal", pragma(conn, "journal_mode"));
+            assertEquals("2", pragma(conn, "synchronous"), "synchronous = FULL");
+            assertEquals(String.valueOf(DatabaseManager.BUSY_TIMEOUT_MS), pragma(conn, "busy_timeout"));
+        }
+    }
+    
+    @Test
+    public void readersAreReadOnly() throws SQLException {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertEquals("1", pragma(conn, "query_only"));
+            assertEquals(String.valueOf(DatabaseManager.BUSY_TIMEOUT_MS), pragma(conn, "busy_timeout"));
+        }
+    }
+    
+    @Test
+    public void readPoolIsBounded() throws Exception {
+        List<Connection> borrowed = new ArrayList<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int i = 0; i < DatabaseManager.READ_POOL_SIZE; i++) {
+                borrowed.add(DatabaseManager.getConnection());
+            }
+            Future<String> waiting = executor.submit(new Callable<String>() {
+                @Override
+                public String call() throws SQLException {
+                    try (Connection conn = DatabaseManager.getConnection()) {
+                        return pragma(conn, "query_only");
+                    }
+                }
+            });
+            Thread.sleep(300);
+            assertFalse(waiting.isDone(), "a reader beyond the pool size waits");
+            
+            borrowed.remove(0).close();
+            assertEquals("1", waiting.get(5, TimeUnit.SECONDS), "and gets the one handed back");
+        } finally {
+            for (Connection conn : borrowed) {
+                conn.close();
+            }
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void writerIsExclusive() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> waiting;
+            try (Connection conn = DatabaseManager.getWriteConnection()) {
+                waiting = executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws SQLException {
+                        try (Connection conn = DatabaseManager.getWriteConnection()) {
+                            return !conn.isReadOnly();
+                        }
+                    }
+                });
+                Thread.sleep(300);
+                assertFalse(waiting.isDone(), "a second writer waits for the first");
+            }
+            assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private static String pragma(Connection conn, String name) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA " + name)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,215 @@
+package com.feedbacksystem.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import com.feedbacksystem.dao.DuplicateDAO;
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.Feedback;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * What the ingestor does with submissions whose write fails
+ */
+public class FeedbackIngestorTest {
+    private static final long SLOW_MILLIS = 500;
+    
+    @BeforeAll
+    public static void openDatabase() throws IOException {
+        File database = File.createTempFile("feedback-ingestor", ".db");
+        database.deleteOnExit();
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+    }
+    
+    @AfterAll
+    public static void closeDatabase() {
+        DatabaseManager.closeConnection();
+    }
+    
+    @Test
+    public void lockedWriteIsJournaled() throws Exception {
+        SubmissionJournal journal = openJournal();
+        FeedbackIngestor ingestor = ingestor(failingWith(new SQLException("database is locked", null, 5)), journal);
+        try {
+            Feedback feedback = ingestor.submit(feedback("Journaled while the database is locked"))
+                    .get(5, TimeUnit.SECONDS);
+            assertEquals(0, feedback.getId(), "acknowledged from the journal");
+            
+            long deadline = System.currentTimeMillis() + 10000;
+            while (journal.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0, journal.getBacklog(), "the journal was replayed");
+            assertEquals(1, count(feedback.getMessage()));
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+    
+    @Test
+    public void rowErrorFailsTheSubmission() throws Exception {
+        SQLException refused = new SQLException("NOT NULL constraint failed: feedback.message", null, 19);
+        SubmissionJournal journal = openJournal();
+        FeedbackIngestor ingestor = ingestor(failingWith(refused), journal);
+        try {
+            ingestor.submit(feedback("Refused by the database")).get(5, TimeUnit.SECONDS);
+            fail("the submission should fail");
+        } catch (ExecutionException e) {
+            assertSame(refused, e.getCause());
+            assertEquals(0, journal.getBacklog(), "nothing was journaled");
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+    
+    @Test
+    public void slowWriteIsAcknowledgedFromTheJournal() throws Exception {
+        SubmissionJournal journal = openJournal();
+        FeedbackIngestor ingestor = ingestor(slow(), journal, 50);
+        try {
+            long start = System.nanoTime();
+            Feedback feedback = ingestor.submit(feedback("Acknowledged before its slow write commits"))
+                    .get(5, TimeUnit.SECONDS);
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(SLOW_MILLIS),
+                       "acknowledged before the write finished");
+            assertEquals(0, feedback.getId(), "acknowledged from the journal");
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+    
+    @Test
+    public void slowWriteCompletesWhenTheJournalFails() throws Exception {
+        File directory = Files.createTempDirectory("feedback-ingestor").toFile();
+        directory.deleteOnExit();
+        SubmissionJournal journal = new SubmissionJournal(directory, 1 << 16, 16, 20, 200) {
+            @Override
+            void append(Feedback feedback, Runnable onDurable) throws IOException {
+                throw new IOException("No space left on device");
+            }
+        };
+        journal.start();
+        FeedbackIngestor ingestor = ingestor(slow(), journal, 50);
+        try {
+            Feedback feedback = ingestor.submit(feedback("Stored by its slow write")).get(5, TimeUnit.SECONDS);
+            assertTrue(feedback.getId() > 0, "completed by the write, not failed by the journal");
+            assertEquals(1, count(feedback.getMessage()));
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+    
+    @Test
+    public void failedOriginalIsForgotten() throws Exception {
+        SQLException refused = new SQLException("CHECK constraint failed: feedback", null, 19);
+        DuplicateDetector detector = new DuplicateDetector(DuplicateDetector.Action.REJECT, 0.7, 5, 60000, 16);
+        FeedbackIngestor ingestor = new FeedbackIngestor(failingOnceWith(refused), new DuplicateDAO(), detector,
+                                                         16, 1, 64, 1000, openJournal(), 1000);
+        Feedback original = feedback("The original of this message could not be stored at all");
+        try {
+            try {
+                ingestor.submit(original).get(5, TimeUnit.SECONDS);
+                fail("the first submission should fail");
+            } catch (ExecutionException e) {
+                assertSame(refused, e.getCause());
+            }
+            
+            Feedback again = feedback(original.getMessage());
+            Feedback stored = ingestor.submit(again).get(5, TimeUnit.SECONDS);
+            assertTrue(stored.getId() > 0, "the resubmission is not a duplicate of the failed original");
+            assertEquals(1, count(original.getMessage()));
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+    
+    private static FeedbackIngestor ingestor(FeedbackDAO repository, SubmissionJournal journal) {
+        return ingestor(repository, journal, 1000);
+    }
+    
+    private static FeedbackIngestor ingestor(FeedbackDAO repository, SubmissionJournal journal, long ackMillis) {
+        DuplicateDetector detector = new DuplicateDetector(DuplicateDetector.Action.OFF, 0.7, 5, 60000, 16);
+        return new FeedbackIngestor(repository, new DuplicateDAO(), detector, 16, 1, 64, 1000, journal, ackMillis);
+    }
+    
+    /**
+     * A repository whose first insert fails with an error of its own; later ones are stored
+     */
+    private static FeedbackDAO failingOnceWith(final SQLException error) {
+        final AtomicBoolean failed = new AtomicBoolean();
+        return new FeedbackDAO() {
+            @Override
+            public void insertFeedbackBatch(List<Feedback> feedbackList) throws SQLException {
+                if (failed.compareAndSet(false, true)) {
+                    throw error;
+                }
+                super.insertFeedbackBatch(feedbackList);
+            }
+        };
+    }
+    
+    /**
+     * A repository whose inserts commit, but only after SLOW_MILLIS
+     */
+    private static FeedbackDAO slow() {
+        return new FeedbackDAO() {
+            @Override
+            public void insertFeedbackBatch(List<Feedback> feedbackList) throws SQLException {
+                try {
+                    Thread.sleep(SLOW_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.insertFeedbackBatch(feedbackList);
+            }
+        };
+    }
+    
+    /**
+     * A repository whose inserts always fail; reads and the journal's replay use the database
+     */
+    private static FeedbackDAO failingWith(final SQLException error) {
+        return new FeedbackDAO() {
+            @Override
+            public void insertFeedbackBatch(List<Feedback> feedbackList) throws SQLException {
+                throw error;
+            }
+        };
+    }
+    
+    private static SubmissionJournal openJournal() throws IOException, SQLException {
+        File directory = Files.createTempDirectory("feedback-ingestor").toFile();
+        directory.deleteOnExit();
+        SubmissionJournal journal = new SubmissionJournal(directory, 1 << 16, 16, 20, 200);
+        journal.start();
+        return journal;
+    }
+    
+    private static int count(String message) throws SQLException {
+        int found = 0;
+        for (Feedback stored : new FeedbackDAO().getAllFeedback()) {
+            if (stored.getMessage().equals(message)) {
+                found++;
+            }
+        }
+        return found;
+    }
+    
+    private static Feedback feedback(String message) {
+        return new Feedback("Other", message, 4, new Date());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.feedbacksystem.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.dao.SubmissionLogDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.Feedback;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reads through FeedbackDAO while the submission log is being compacted
+ */
+public class LogCompactorTest {
+    private static final String POISON = "This record cannot be stored";
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+    
+    private SubmissionLog log;
+    private LogCompactor compactor;
+    
+    @BeforeAll
+    public static void openDatabase() throws IOException {
+        File database = File.createTempFile("feedback-compactor", ".db");
+        database.deleteOnExit();
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+    }
+    
+    @AfterAll
+    public static void closeDatabase() {
+        DatabaseManager.closeConnection();
+    }
+    
+    @AfterEach
+    public void stopCompactor() throws IOException {
+        FeedbackDAO.setWriteBehind(null);
+        compactor.shutdown();
+        log.close();
+    }
+    
+    @Test
+    public void readSeesItsOwnSubmission() throws Exception {
+        start(new SubmissionLogDAO());
+        Feedback feedback = feedback("Stored before the read returns");
+        compactor.append(new LogRecord(LogRecord.INSERT, feedback, 0, -1), NOTHING);
+        
+        List<Feedback> all = new FeedbackDAO().getAllFeedback();
+        assertTrue(feedback.getId() > 0, "the compactor set the id");
+        assertEquals(feedback.getId(), all.get(0).getId());
+    }
+    
+    @Test
+    public void stuckRecordDoesNotBlockReads() throws Exception {
+        start(new SubmissionLogDAO() {
+            @Override
+            public void compact(String log, List<Feedback> inserts, Map<Integer, Integer> duplicates,
+                                long checkpoint) throws SQLException {
+                for (Feedback feedback : inserts) {
+                    if (POISON.equals(feedback.getMessage())) {
+                        throw new SQLException("CHECK constraint failed");
+                    }
+                }
+                super.compact(log, inserts, duplicates, checkpoint);
+            }
+        });
+        compactor.append(new LogRecord(LogRecord.INSERT, feedback(POISON), 0, -1), NOTHING);
+        
+        // The submitting thread gives up on the first failed compaction
+        long start = System.nanoTime();
+        new FeedbackDAO().getAllFeedback();
+        new FeedbackDAO().countFeedback(null);
+        assertTrue(System.nanoTime() - start < 5000000000L, "reads returned before the wait timed out");
+        
+        // Other threads do not wait at all
+        final Throwable[] failure = new Throwable[1];
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new FeedbackDAO().getAllFeedback();
+                } catch (Throwable e) {
+                    failure[0] = e;
+                }
+            }
+        });
+        start = System.nanoTime();
+        reader.start();
+        reader.join();
+        assertEquals(null, failure[0]);
+        assertTrue(System.nanoTime() - start < 1000000000L, "another thread's read did not wait");
+        assertEquals(1, compactor.getPendingCount(), "the stuck record is still in the log");
+    }
+    
+    private void start(SubmissionLogDAO logDAO) throws IOException {
+        File directory = Files.createTempDirectory("feedback-compactor").toFile();
+        directory.deleteOnExit();
+        log = new SubmissionLog(directory, 1 << 20, 0, 0);
+        compactor = new LogCompactor(log, logDAO, directory.getPath(), 0, 100, 100);
+        compactor.start();
+        FeedbackDAO.setWriteBehind(compactor);
+    }
+    
+    private static Feedback feedback(String message) {
+        return new Feedback("Other", message, 3, new Date());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.feedbacksystem.ingest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.feedbacksystem.dao.FeedbackDAO;
+import com.feedbacksystem.dao.SubmissionLogDAO;
+import com.feedbacksystem.db.DatabaseManager;
+import com.feedbacksystem.model.Feedback;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replaying the submission journal into the database
+ */
+public class SubmissionJournalTest {
+    private static final String POISON = "The database refuses this one";
+    
+    @BeforeAll
+    public static void openDatabase() throws IOException {
+        File database = File.createTempFile("feedback-journal", ".db");
+        database.deleteOnExit();
+        DatabaseManager.setDatabaseUrl("jdbc:sqlite:" + database.getPath());
+    }
+    
+    @AfterAll
+    public static void closeDatabase() {
+        DatabaseManager.closeConnection();
+    }
+    
+    @Test
+    public void replayRetriesWhileTheDatabaseIsLocked() throws Exception {
+        final AtomicInteger locked = new AtomicInteger(2);
+        File directory = directory();
+        SubmissionJournal journal = new SubmissionJournal(directory, 1 << 16, 10, 20, 200, new SubmissionLogDAO() {
+            @Override
+            public int replay(String log, List<Feedback> entries, long checkpoint) throws SQLException {
+                if (locked.getAndDecrement() > 0) {
+                    throw new SQLException("database is locked", null, 5);
+                }
+                return super.replay(log, entries, checkpoint);
+            }
+        });
+        try {
+            List<Feedback> entries = append(journal, "Stored after the lock", "Stored after the lock too");
+            journal.start();
+            awaitEmpty(journal);
+            
+            assertTrue(locked.get() < 0, "the replay was retried");
+            assertStored(entries);
+            assertFalse(new File(directory, "dead-letter.jsonl").exists());
+        } finally {
+            journal.close();
+        }
+    }
+    
+    @Test
+    public void refusedRecordIsSetAside() throws Exception {
+        File directory = directory();
+        SubmissionJournal journal = new SubmissionJournal(directory, 1 << 16, 10, 20, 200, new SubmissionLogDAO() {
+            @Override
+            public int replay(String log, List<Feedback> entries, long checkpoint) throws SQLException {
+                for (Feedback feedback : entries) {
+                    if (POISON.equals(feedback.getMessage())) {
+                        throw new SQLException("CHECK constraint failed", null, 19);
+                    }
+                }
+                return super.replay(log, entries, checkpoint);
+            }
+        });
+        try {
+            List<Feedback> entries = append(journal, "Stored before the poison", POISON, "Stored after the poison");
+            journal.start();
+            awaitEmpty(journal);
+            
+            assertStored(entries.subList(0, 1));
+            assertStored(entries.subList(2, 3));
+            List<String> deadLetters = Files.readAllLines(new File(directory, "dead-letter.jsonl").toPath(),
+                                                          StandardCharsets.UTF_8);
+            assertEquals(1, deadLetters.size());
+            assertTrue(deadLetters.get(0).contains(entries.get(1).getSubmissionId()));
+            assertTrue(deadLetters.get(0).contains("CHECK constraint failed"));
+        } finally {
+            journal.close();
+        }
+        
+        // Nothing is left to replay at the next start
+        SubmissionJournal reopened = new SubmissionJournal(directory, 1 << 16, 10, 20, 200);
+        try {
+            assertEquals(0, reopened.getBacklog());
+        } finally {
+            reopened.close();
+        }
+    }
+    
+    private static List<Feedback> append(SubmissionJournal journal, String... messages) throws Exception {
+        List<Feedback> entries = new ArrayList<>();
+        final CountDownLatch durable = new CountDownLatch(messages.length);
+        for (String message : messages) {
+            Feedback feedback = new Feedback("Other", message, 4, new Date());
+            feedback.setSubmissionId(UUID.randomUUID().toString());
+            journal.append(feedback, new Runnable() {
+                @Override
+                public void run() {
+                    durable.countDown();
+                }
+            });
+            entries.add(feedback);
+        }
+        assertTrue(durable.await(5, TimeUnit.SECONDS), "the records reached the disk");
+        return entries;
+    }
+    
+    private static void awaitEmpty(SubmissionJournal journal) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (journal.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(0, journal.getBacklog(), "the journal was replayed");
+    }
+    
+    private static void assertStored(List<Feedback> entries) throws SQLException {
+        List<Feedback> all = new FeedbackDAO().getAllFeedback();
+        for (Feedback entry : entries) {
+            int found = 0;
+            for (Feedback stored : all) {
+                if (stored.getMessage().equals(entry.getMessage())) {
+                    found++;
+                }
+            }
+            assertEquals(1, found, "stored once: " + entry.getMessage());
+        }
+    }
+    
+    private static File directory() throws IOException {
+        File directory = Files.createTempDirectory("feedback-journal").toFile();
+        directory.deleteOnExit();
+        return directory;
+    }
+}
\ No newline at end of file